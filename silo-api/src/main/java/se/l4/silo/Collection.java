@@ -1,5 +1,7 @@
 package se.l4.silo;
 
+import org.reactivestreams.Publisher;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.l4.silo.index.Query;
@@ -24,6 +26,43 @@ public interface Collection<ID, T>
 	 */
 	Mono<T> get(ID id);
 
+	/**
+	 * Get several stored objects using their identifiers. Objects are returned
+	 * in no particular order, every stored object is returned once and
+	 * identifiers without a stored object are skipped.
+	 *
+	 * <p>
+	 * The default implementation calls {@link #get(Object)} for every
+	 * identifier. Implementations may override it to read all of the objects
+	 * from the same version of the collection.
+	 *
+	 * @param ids
+	 * @return
+	 */
+	default Flux<T> getAll(Iterable<? extends ID> ids)
+	{
+		return Flux.fromIterable(ids)
+			.distinct()
+			.flatMap(this::get);
+	}
+
+	/**
+	 * Get several stored objects using their identifiers. The identifiers
+	 * are collected before the objects are read using
+	 * {@link #getAll(Iterable)}. Objects are returned in no particular order,
+	 * every stored object is returned once and identifiers without a stored
+	 * object are skipped.
+	 *
+	 * @param ids
+	 * @return
+	 */
+	default Flux<T> getAll(Publisher<? extends ID> ids)
+	{
+		return Flux.from(ids)
+			.collectList()
+			.flatMapMany(this::getAll);
+	}
+
 	/**
 	 * Check if an object with the given identifier exists.
 	 *
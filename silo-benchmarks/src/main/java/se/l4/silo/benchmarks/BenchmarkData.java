@@ -0,0 +1,61 @@
+package se.l4.silo.benchmarks;
+
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+
+/**
+ * Object stored by the benchmarks.
+ */
+@AnnotationSerialization
+public class BenchmarkData
+{
+	@Expose
+	private int id;
+	@Expose
+	private String name;
+	@Expose
+	private String description;
+
+	public BenchmarkData()
+	{
+	}
+
+	public BenchmarkData(int id, String name, String description)
+	{
+		this.id = id;
+		this.name = name;
+		this.description = description;
+	}
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getDescription()
+	{
+		return description;
+	}
+
+	/**
+	 * Create an object with some data for the given id.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public static BenchmarkData create(int id)
+	{
+		StringBuilder description = new StringBuilder();
+		for(int i=0; i<20; i++)
+		{
+			description.append("Description of object ").append(id).append(' ');
+		}
+
+		return new BenchmarkData(id, "Object " + id, description.toString());
+	}
+}
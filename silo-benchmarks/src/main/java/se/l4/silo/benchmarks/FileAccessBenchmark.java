@@ -0,0 +1,113 @@
+package se.l4.silo.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reactor.core.publisher.Flux;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.FileAccess;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+
+/**
+ * Compares how fast objects can be read depending on how the files of the
+ * storage are accessed. A small cache size shows how well reads are served
+ * by the page cache of the operating system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FileAccessBenchmark
+{
+	private static final int OBJECTS = 100_000;
+
+	@Param({ "CHANNEL", "MEMORY_MAPPED", "ASYNC" })
+	private FileAccess fileAccess;
+
+	@Param({ "16", "128" })
+	private int cacheSizeInMiB;
+
+	private Path root;
+	private LocalSilo silo;
+	private LocalCollection<Integer, BenchmarkData> collection;
+
+	@Setup(Level.Trial)
+	public void setup()
+		throws IOException
+	{
+		root = Files.createTempDirectory("silo-benchmark");
+
+		silo = LocalSilo.open(root)
+			.withConfig(EngineConfig.create()
+				.withFileAccess(fileAccess)
+				.withCacheSizeInMiB(cacheSizeInMiB)
+				.build()
+			)
+			.addCollection(CollectionDef.create(BenchmarkData.class, "data")
+				.withId(Integer.class, BenchmarkData::getId)
+				.withCodec(ObjectCodec.serialized(Serializers.create().build(), BenchmarkData.class))
+			)
+			.start()
+			.block();
+
+		collection = silo.getCollection("data", Integer.class, BenchmarkData.class);
+
+		Flux.range(1, OBJECTS)
+			.map(BenchmarkData::create)
+			.concatMap(collection::store, 256)
+			.blockLast();
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown()
+		throws IOException
+	{
+		silo.close();
+
+		try(Stream<Path> paths = Files.walk(root))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public BenchmarkData randomGet()
+	{
+		int id = ThreadLocalRandom.current().nextInt(OBJECTS) + 1;
+		return collection.get(id).block();
+	}
+
+	@Benchmark
+	public long scan()
+	{
+		return collection.stream().count().block();
+	}
+}
@@ -0,0 +1,127 @@
+package se.l4.silo.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.l4.silo.engine.internal.log.TransactionLogImpl;
+import se.l4.silo.engine.log.Log;
+import se.l4.ylem.ids.SequenceLongIdGenerator;
+import se.l4.ylem.io.Bytes;
+
+/**
+ * Measures the cost of encoding the messages of a transaction that stores a
+ * single object into a log that discards them. Run with {@code -prof gc}
+ * to see the allocation rate per operation.
+ *
+ * <p>
+ * The {@code copy} log only implements {@link Log#append(Bytes)}, making
+ * every message be copied, while the {@code buffer} log receives the
+ * reused buffers directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LogEncodingBenchmark
+{
+	@Param({ "buffer", "copy" })
+	private String log;
+
+	@Param({ "1024", "65536" })
+	private int size;
+
+	private TransactionLogImpl transactionLog;
+	private byte[] data;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		data = new byte[size];
+		ThreadLocalRandom.current().nextBytes(data);
+
+		Log target = "buffer".equals(log) ? new BufferLog() : new CopyLog();
+		transactionLog = new TransactionLogImpl(target, new SequenceLongIdGenerator());
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void store()
+	{
+		long tx = transactionLog.startTransaction();
+		transactionLog.store(tx, "data", 1, out -> out.write(data));
+		transactionLog.commitTransaction(tx);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void storeConcurrent()
+	{
+		store();
+	}
+
+	/**
+	 * Log that discards messages received as buffers.
+	 */
+	private static class BufferLog
+		implements Log
+	{
+		private volatile long received;
+
+		@Override
+		public void append(Bytes bytes)
+			throws IOException
+		{
+			received += bytes.toByteArray().length;
+		}
+
+		@Override
+		public void append(ByteBuffer buffer)
+		{
+			received += buffer.remaining();
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	/**
+	 * Log that discards messages received as copies.
+	 */
+	private static class CopyLog
+		implements Log
+	{
+		private volatile long received;
+
+		@Override
+		public void append(Bytes bytes)
+			throws IOException
+		{
+			received += bytes.toByteArray().length;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+}
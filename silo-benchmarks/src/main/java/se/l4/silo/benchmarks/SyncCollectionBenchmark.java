@@ -0,0 +1,113 @@
+package se.l4.silo.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reactor.core.publisher.Flux;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.StoreResult;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+
+/**
+ * Compares the cost of operations through the reactive API of a collection
+ * with the same operations through {@link LocalCollection#sync()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SyncCollectionBenchmark
+{
+	private static final int OBJECTS = 10_000;
+
+	private Path root;
+	private LocalSilo silo;
+	private LocalCollection<Integer, BenchmarkData> collection;
+
+	@Setup(Level.Trial)
+	public void setup()
+		throws IOException
+	{
+		root = Files.createTempDirectory("silo-benchmark");
+
+		silo = LocalSilo.open(root)
+			.addCollection(CollectionDef.create(BenchmarkData.class, "data")
+				.withId(Integer.class, BenchmarkData::getId)
+				.withCodec(ObjectCodec.serialized(Serializers.create().build(), BenchmarkData.class))
+			)
+			.start()
+			.block();
+
+		collection = silo.getCollection("data", Integer.class, BenchmarkData.class);
+
+		Flux.range(1, OBJECTS)
+			.map(BenchmarkData::create)
+			.concatMap(collection::store, 256)
+			.blockLast();
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown()
+		throws IOException
+	{
+		silo.close();
+
+		try(Stream<Path> paths = Files.walk(root))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static int randomId()
+	{
+		return ThreadLocalRandom.current().nextInt(OBJECTS) + 1;
+	}
+
+	@Benchmark
+	public BenchmarkData reactiveGet()
+	{
+		return collection.get(randomId()).block();
+	}
+
+	@Benchmark
+	public BenchmarkData syncGet()
+	{
+		return collection.sync().get(randomId());
+	}
+
+	@Benchmark
+	public StoreResult<Integer, BenchmarkData> reactiveStore()
+	{
+		return collection.store(BenchmarkData.create(randomId())).block();
+	}
+
+	@Benchmark
+	public StoreResult<Integer, BenchmarkData> syncStore()
+	{
+		return collection.sync().store(BenchmarkData.create(randomId()));
+	}
+}
@@ -0,0 +1,168 @@
+package se.l4.silo.engine;
+
+import java.io.IOException;
+
+import reactor.core.scheduler.Scheduler;
+import se.l4.silo.engine.internal.DeflateChunkCompression;
+import se.l4.silo.engine.internal.DictionaryChunkCompression;
+import se.l4.silo.engine.internal.NoChunkCompression;
+
+/**
+ * Compression applied to the data of a collection before it is written to
+ * the store. Data is compressed in chunks, so objects that are split into
+ * several chunks can still be read without decompressing all of the data
+ * at once.
+ *
+ * <p>
+ * The identifier of the compression is stored together with the data, which
+ * allows the compression of a collection to be changed while still being
+ * able to read data written with the previous compression. Identifiers below
+ * {@code 16} are reserved for the compressions available via this interface.
+ *
+ * <p>
+ * Custom compressions use an identifier of {@code 16} or above. Data written
+ * with a custom compression remains readable after the compression of the
+ * collection is changed if the custom compression is added via
+ * {@link CollectionDef.Builder#addReadableCompression(ChunkCompression)}.
+ */
+public interface ChunkCompression
+{
+	/**
+	 * Get the identifier of this compression.
+	 *
+	 * @return
+	 */
+	int getId();
+
+	/**
+	 * Compress a chunk of data.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	byte[] compress(byte[] data, int offset, int length)
+		throws IOException;
+
+	/**
+	 * Decompress a chunk of data previously compressed by
+	 * {@link #compress(byte[], int, int)}.
+	 *
+	 * @param data
+	 * @return
+	 * @throws IOException
+	 */
+	byte[] decompress(byte[] data)
+		throws IOException;
+
+	/**
+	 * Get if a chunk compressed by this compression should be compressed
+	 * again, such as when a better dictionary has become available. Chunks
+	 * that are outdated are compressed again during maintenance.
+	 *
+	 * @param data
+	 * @return
+	 * @throws IOException
+	 */
+	default boolean isOutdated(byte[] data)
+		throws IOException
+	{
+		return false;
+	}
+
+	/**
+	 * Open this compression for the data stored using the given prefix.
+	 * Compressions that keep state in the store, such as trained
+	 * dictionaries, return a compression bound to the store. Returns this
+	 * compression by default.
+	 *
+	 * @param store
+	 *   the store the data is kept in
+	 * @param prefix
+	 *   prefix of the maps used for the data
+	 * @param scheduler
+	 *   scheduler to use for background work, or {@code null} if such work
+	 *   should be performed directly
+	 * @return
+	 */
+	default ChunkCompression open(MVStoreManager store, String prefix, Scheduler scheduler)
+	{
+		return this;
+	}
+
+	/**
+	 * Close a compression returned by
+	 * {@link #open(MVStoreManager, String, Scheduler)}, stopping any work it
+	 * has in the background.
+	 */
+	default void close()
+	{
+	}
+
+	/**
+	 * Get a compression that stores data as is.
+	 *
+	 * @return
+	 */
+	static ChunkCompression none()
+	{
+		return NoChunkCompression.INSTANCE;
+	}
+
+	/**
+	 * Get a compression that uses Deflate with the default compression
+	 * level.
+	 *
+	 * @return
+	 */
+	static ChunkCompression deflate()
+	{
+		return DeflateChunkCompression.DEFAULT;
+	}
+
+	/**
+	 * Get a compression that uses Deflate with a specific compression level.
+	 *
+	 * @param level
+	 *   compression level between {@code 0} and {@code 9}
+	 * @return
+	 */
+	static ChunkCompression deflate(int level)
+	{
+		return new DeflateChunkCompression(level);
+	}
+
+	/**
+	 * Get a compression that uses Deflate with a dictionary trained from
+	 * the stored data. Suitable for collections with many small objects
+	 * that share a lot of content, such as field names.
+	 *
+	 * <p>
+	 * The stored data is sampled and a dictionary is trained in the
+	 * background once enough data has been seen, and then again at regular
+	 * intervals. Data compressed with an older dictionary is compressed
+	 * again when it is updated or during {@link Maintenance#compact(java.time.Duration) compaction}.
+	 *
+	 * @return
+	 */
+	static ChunkCompression trainedDictionary()
+	{
+		return DictionaryChunkCompression.DEFAULT;
+	}
+
+	/**
+	 * Get a compression that uses Deflate with a dictionary trained from
+	 * the stored data.
+	 *
+	 * @param dictionarySize
+	 *   the maximum size of the dictionary, at most {@code 32768} bytes
+	 * @return
+	 * @see #trainedDictionary()
+	 */
+	static ChunkCompression trainedDictionary(int dictionarySize)
+	{
+		return DictionaryChunkCompression.DEFAULT.withDictionarySize(dictionarySize);
+	}
+}
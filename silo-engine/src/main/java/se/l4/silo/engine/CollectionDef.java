@@ -40,6 +40,47 @@ public interface CollectionDef<ID, T>
 	 */
 	ListIterable<IndexDef<T>> getIndexes();
 
+	/**
+	 * Get the maximum number of decoded objects to keep in memory for this
+	 * collection. Only used for collections of immutable objects.
+	 *
+	 * @return
+	 *   maximum number of objects to cache, {@code 0} if caching is disabled
+	 */
+	long getCacheSize();
+
+	/**
+	 * Get the number of identifiers the Bloom filter of this collection is
+	 * sized for.
+	 *
+	 * @return
+	 *   expected number of identifiers, {@code 0} if no filter is used
+	 */
+	long getBloomFilterExpectedIds();
+
+	/**
+	 * Get the false positive rate the Bloom filter of this collection is
+	 * sized for.
+	 *
+	 * @return
+	 */
+	double getBloomFilterFalsePositiveRate();
+
+	/**
+	 * Get the compression applied to the stored data of this collection.
+	 *
+	 * @return
+	 */
+	ChunkCompression getCompression();
+
+	/**
+	 * Get custom compressions that data of this collection may have been
+	 * compressed with, in addition to the current compression.
+	 *
+	 * @return
+	 */
+	ListIterable<ChunkCompression> getReadableCompressions();
+
 	/**
 	 * Start building a new {@link CollectionDef}.
 	 *
@@ -92,6 +133,56 @@ public interface CollectionDef<ID, T>
 		 */
 		Builder<ID, T> addIndex(Buildable<? extends IndexDef<T>> buildable);
 
+		/**
+		 * Set the maximum number of decoded objects to keep in memory. When
+		 * caching is enabled the same instance is returned for several
+		 * reads, so caching must only be enabled if the objects are
+		 * immutable. Caching is disabled by default.
+		 *
+		 * @param maximumSize
+		 *   the maximum number of objects to cache, {@code 0} to disable
+		 * @return
+		 */
+		Builder<ID, T> withCacheSize(long maximumSize);
+
+		/**
+		 * Keep a Bloom filter of the stored identifiers in memory. The filter
+		 * lets lookups of identifiers that are not stored, such as via
+		 * {@link se.l4.silo.Collection#contains(Object)}, skip reading from
+		 * storage. The filter is rebuilt when the collection is opened and
+		 * deleted identifiers stay in it until then.
+		 *
+		 * @param expectedIds
+		 *   the number of identifiers expected to be stored
+		 * @param falsePositiveRate
+		 *   the rate of false positives to size the filter for, between
+		 *   {@code 0} and {@code 1}
+		 * @return
+		 */
+		Builder<ID, T> withBloomFilter(long expectedIds, double falsePositiveRate);
+
+		/**
+		 * Set the compression to apply to the stored data of this
+		 * collection. Data is stored without compression by default. Data
+		 * written before the compression was changed remains readable.
+		 *
+		 * @param compression
+		 * @return
+		 */
+		Builder<ID, T> withCompression(ChunkCompression compression);
+
+		/**
+		 * Add a custom compression that data of this collection may have
+		 * been compressed with. Built-in compressions are always readable,
+		 * but data written with a custom compression can only be read
+		 * while it is either the current compression or added here.
+		 *
+		 * @param compression
+		 *   compression using an identifier of at least {@code 16}
+		 * @return
+		 */
+		Builder<ID, T> addReadableCompression(ChunkCompression compression);
+
 		/**
 		 * Build the definition.
 		 *
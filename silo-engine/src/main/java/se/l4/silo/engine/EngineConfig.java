@@ -1,5 +1,6 @@
 package se.l4.silo.engine;
 
+import reactor.core.scheduler.Scheduler;
 import se.l4.silo.engine.internal.EngineConfigImpl;
 
 /**
@@ -27,6 +28,36 @@ public interface EngineConfig
 	 */
 	static int AUTO_COMMIT_BUFFER_SIZE = 1024;
 
+	/**
+	 * Default {@link #getInlineDataThresholdInBytes() threshold for inline data}.
+	 */
+	static int INLINE_DATA_THRESHOLD = 4096;
+
+	/**
+	 * Default {@link #getFileAccess() file access}.
+	 */
+	static FileAccess FILE_ACCESS = FileAccess.CHANNEL;
+
+	/**
+	 * Default {@link #getShards() number of shards}.
+	 */
+	static int SHARDS = 1;
+
+	/**
+	 * Default {@link #getGroupCommitMaxSize() maximum size of group commits}.
+	 */
+	static int GROUP_COMMIT_MAX_SIZE = 128;
+
+	/**
+	 * Default {@link #getGroupCommitWaitInMicros() wait for group commits}.
+	 */
+	static int GROUP_COMMIT_WAIT = 0;
+
+	/**
+	 * Default {@link #getTransactionBufferSizeInKiB() transaction buffer size}.
+	 */
+	static int TRANSACTION_BUFFER_SIZE = 16 * 1024;
+
 	/**
 	 * Get the cache size to use.
 	 *
@@ -58,6 +89,75 @@ public interface EngineConfig
 	 */
 	int getAutoCommitBufferSizeInKiB();
 
+	/**
+	 * Get the largest size of data that will be stored inline with its key.
+	 * Data larger than this is split into chunks that are stored separately.
+	 *
+	 * @return
+	 *   size in bytes
+	 */
+	int getInlineDataThresholdInBytes();
+
+	/**
+	 * Get how files of the main store and of stores shared by indexes are
+	 * accessed.
+	 *
+	 * @return
+	 */
+	FileAccess getFileAccess();
+
+	/**
+	 * Get the number of shards data is split into. Every shard is stored in
+	 * its own file.
+	 *
+	 * @return
+	 */
+	int getShards();
+
+	/**
+	 * Get the maximum number of committed transactions that are applied
+	 * together as a group.
+	 *
+	 * @return
+	 */
+	int getGroupCommitMaxSize();
+
+	/**
+	 * Get how long to wait for more transactions to be committed before a
+	 * group of transactions is applied.
+	 *
+	 * @return
+	 *   time in microseconds
+	 */
+	int getGroupCommitWaitInMicros();
+
+	/**
+	 * Get the amount of KiB that active transactions can buffer in memory
+	 * before their operations are written to the transaction log.
+	 *
+	 * @return
+	 */
+	int getTransactionBufferSizeInKiB();
+
+	/**
+	 * Get the scheduler to use for a workload.
+	 *
+	 * @param workload
+	 * @return
+	 *   the scheduler, or {@code null} if the engine creates its own
+	 */
+	Scheduler getScheduler(Workload workload);
+
+	/**
+	 * Get if the engine should run the tasks of a workload on virtual
+	 * threads. Only used if no {@link #getScheduler(Workload) scheduler} is
+	 * set for the workload.
+	 *
+	 * @param workload
+	 * @return
+	 */
+	boolean isUsingVirtualThreads(Workload workload);
+
 	/**
 	 * Start building an instance of {@link EngineConfig}.
 	 *
@@ -107,6 +207,111 @@ public interface EngineConfig
 		 */
 		Builder withAutoCommitBufferSizeInKiB(int sizeInKiB);
 
+		/**
+		 * Set the largest size in bytes of data that is stored inline with
+		 * its key. Storing data inline requires fewer lookups when reading,
+		 * but larger values are better split into chunks. Defaults to 4 KiB,
+		 * set to {@code 0} to always store data as chunks.
+		 *
+		 * @param sizeInBytes
+		 * @return
+		 */
+		Builder withInlineDataThresholdInBytes(int sizeInBytes);
+
+		/**
+		 * Set how files are accessed. Defaults to
+		 * {@link FileAccess#CHANNEL}. Using
+		 * {@link FileAccess#MEMORY_MAPPED} lets the operating system cache
+		 * data, in which case a smaller cache size can be used.
+		 *
+		 * @param access
+		 * @return
+		 */
+		Builder withFileAccess(FileAccess access);
+
+		/**
+		 * Set the number of shards that data is split into. Every shard is
+		 * stored in its own file with its own commit pipeline and the
+		 * collections are spread over the shards, allowing writes to
+		 * different collections to happen in parallel. Defaults to
+		 * {@code 1}.
+		 *
+		 * <p>
+		 * A collection stays in the shard it was first created in, changing
+		 * the number of shards only affects new collections.
+		 *
+		 * <p>
+		 * Shards are committed independently of each other, so a transaction
+		 * that modifies collections in several shards is only kept whole
+		 * after a crash if the entries of the log are recovered. Using more
+		 * than one shard therefore requires a {@link se.l4.silo.engine.log.Log#isDurable() durable}
+		 * log, such as {@link se.l4.silo.engine.log.FileLog}, and the
+		 * storage fails to open with other logs. Snapshots of storages with
+		 * several shards are ZIP archives with one entry for every shard.
+		 *
+		 * @param shards
+		 * @return
+		 */
+		Builder withShards(int shards);
+
+		/**
+		 * Set the maximum number of committed transactions that are applied
+		 * together. Transactions committed while another group is being
+		 * applied are applied together, sharing the locking and cleanup of
+		 * the transaction log. Defaults to {@code 128}, set to {@code 1}
+		 * to apply every transaction on its own.
+		 *
+		 * @param maxSize
+		 * @return
+		 */
+		Builder withGroupCommitMaxSize(int maxSize);
+
+		/**
+		 * Set how long to wait for more transactions to be committed before
+		 * applying a group. Waiting can create larger groups when there are
+		 * many concurrent writers, but delays every commit. Defaults to
+		 * {@code 0}, which only groups transactions that are committed while
+		 * another group is being applied.
+		 *
+		 * @param waitInMicros
+		 * @return
+		 */
+		Builder withGroupCommitWaitInMicros(int waitInMicros);
+
+		/**
+		 * Set the amount of KiB that active transactions can buffer in
+		 * memory. Operations of transactions are kept in memory until they
+		 * are committed, transactions that do not fit in the buffer or that
+		 * are active for a long time are written to the transaction log in
+		 * the store instead. Defaults to 16 MiB, set to {@code 0} to always
+		 * write operations to the transaction log.
+		 *
+		 * @param sizeInKiB
+		 * @return
+		 */
+		Builder withTransactionBufferSizeInKiB(int sizeInKiB);
+
+		/**
+		 * Set the scheduler to run the tasks of a workload on. The
+		 * scheduler is not disposed when the engine is closed. By default
+		 * the engine creates a bounded scheduler for every workload.
+		 *
+		 * @param workload
+		 * @param scheduler
+		 * @return
+		 */
+		Builder withScheduler(Workload workload, Scheduler scheduler);
+
+		/**
+		 * Run the tasks of a workload on virtual threads created by the
+		 * engine, starting a new thread whenever all of the existing ones are
+		 * busy. Requires a runtime with support for virtual threads.
+		 *
+		 * @param workload
+		 * @return
+		 */
+		Builder withVirtualThreads(Workload workload);
+
 		/**
 		 * Build the instance.
 		 *
@@ -0,0 +1,30 @@
+package se.l4.silo.engine;
+
+/**
+ * Strategy used to access the files of the storage engine.
+ */
+public enum FileAccess
+{
+	/**
+	 * Access files via a regular file channel. Data is read into the
+	 * on-heap page cache of the store.
+	 */
+	CHANNEL,
+
+	/**
+	 * Access files by mapping them into memory. Reads are served from the
+	 * page cache of the operating system, which is suitable for read-heavy
+	 * use where a smaller {@link EngineConfig#getCacheSizeInMiB() cache} can
+	 * be used.
+	 *
+	 * <p>
+	 * The size of a mapped file is limited by the available address space,
+	 * so this should only be used on 64-bit systems.
+	 */
+	MEMORY_MAPPED,
+
+	/**
+	 * Access files via an asynchronous file channel.
+	 */
+	ASYNC
+}
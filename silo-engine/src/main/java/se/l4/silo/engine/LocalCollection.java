@@ -1,5 +1,9 @@
 package se.l4.silo.engine;
 
+import java.nio.ByteBuffer;
+
+import org.reactivestreams.Publisher;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.l4.silo.Collection;
@@ -36,6 +40,80 @@ public interface LocalCollection<ID, T>
 	 */
 	long getDeletes();
 
+	/**
+	 * Get a blocking view of this collection. The view runs operations
+	 * directly on the calling thread, see {@link SyncCollection}.
+	 *
+	 * @return
+	 */
+	SyncCollection<ID, T> sync();
+
+	/**
+	 * Stream all of the objects in this collection. Objects are returned in
+	 * the order they are stored and are read from a single version of the
+	 * collection.
+	 *
+	 * @return
+	 */
+	Flux<T> stream();
+
+	/**
+	 * Stream all of the objects in this collection using the given options.
+	 * Objects are read from a single version of the collection, even when
+	 * the collection is read in parallel.
+	 *
+	 * @param options
+	 * @return
+	 */
+	Flux<T> stream(ScanOptions options);
+
+	/**
+	 * Store binary data as a stream of bytes. The data is written to the
+	 * transaction log as it is received and is never held in memory as a
+	 * whole, which makes it suitable for large data.
+	 *
+	 * <p>
+	 * Binary data is kept apart from the objects of this collection. It is
+	 * only read via {@link #openStream(Object)} and is never returned by
+	 * {@link #get(Object)} or {@link #stream()}. Deleting an identifier
+	 * removes both the object and the binary data stored for it.
+	 *
+	 * @param id
+	 *   the identifier to store the data as
+	 * @param data
+	 *   the data to store
+	 * @return
+	 *   mono that completes when the data has been stored
+	 */
+	Mono<Void> storeStream(ID id, Publisher<ByteBuffer> data);
+
+	/**
+	 * Open a stream of the binary data stored via
+	 * {@link #storeStream(Object, Publisher)}. Data is read as it is
+	 * requested.
+	 *
+	 * @param id
+	 *   the identifier of the data
+	 * @return
+	 *   flux with the data, empty if no data is stored
+	 */
+	Flux<ByteBuffer> openStream(ID id);
+
+	/**
+	 * Open a stream of a range of the binary data stored via
+	 * {@link #storeStream(Object, Publisher)}.
+	 *
+	 * @param id
+	 *   the identifier of the data
+	 * @param offset
+	 *   the offset of the first byte to read
+	 * @param length
+	 *   the maximum number of bytes to read
+	 * @return
+	 *   flux with the data, empty if no data is stored
+	 */
+	Flux<ByteBuffer> openStream(ID id, long offset, long length);
+
 	/**
 	 * Get information about a specific index.
 	 *
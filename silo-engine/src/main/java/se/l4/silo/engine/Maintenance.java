@@ -18,7 +18,9 @@ public interface Maintenance
 	void compact(Duration maxTime);
 
 	/**
-	 * Create a snapshot of this instance.
+	 * Create a snapshot of this instance. When data is split into several
+	 * shards the snapshot is a ZIP archive with an entry for the file of
+	 * every shard, taken while no transactions are being applied.
 	 *
 	 * @return
 	 */
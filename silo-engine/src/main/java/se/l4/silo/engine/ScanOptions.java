@@ -0,0 +1,64 @@
+package se.l4.silo.engine;
+
+import se.l4.silo.engine.internal.ScanOptionsImpl;
+
+/**
+ * Options for scanning all of the objects in a {@link LocalCollection}.
+ */
+public interface ScanOptions
+{
+	/**
+	 * Get the number of ranges the collection is split into and read in
+	 * parallel.
+	 *
+	 * @return
+	 */
+	int getParallelism();
+
+	/**
+	 * Get if objects should be returned in the order they are stored.
+	 *
+	 * @return
+	 */
+	boolean isOrdered();
+
+	/**
+	 * Get a copy of these options with a different parallelism.
+	 *
+	 * @param parallelism
+	 *   the number of ranges to read in parallel, at least {@code 1}
+	 * @return
+	 */
+	ScanOptions withParallelism(int parallelism);
+
+	/**
+	 * Get a copy of these options that will return objects in the order they
+	 * are stored. Results of ranges read in parallel are buffered until
+	 * earlier ranges have been returned.
+	 *
+	 * @return
+	 */
+	ScanOptions ordered();
+
+	/**
+	 * Get the default options, a scan of a single range in order.
+	 *
+	 * @return
+	 */
+	static ScanOptions defaults()
+	{
+		return ScanOptionsImpl.DEFAULT;
+	}
+
+	/**
+	 * Get options for a scan that reads the given number of ranges in
+	 * parallel. Objects are returned in no particular order.
+	 *
+	 * @param parallelism
+	 * @return
+	 */
+	static ScanOptions parallelism(int parallelism)
+	{
+		return new ScanOptionsImpl(parallelism, false);
+	}
+}
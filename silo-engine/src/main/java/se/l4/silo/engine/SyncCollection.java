@@ -0,0 +1,72 @@
+package se.l4.silo.engine;
+
+import se.l4.silo.DeleteResult;
+import se.l4.silo.FetchResult;
+import se.l4.silo.StoreResult;
+import se.l4.silo.index.Query;
+
+/**
+ * Blocking view of a {@link LocalCollection}. Operations run directly on the
+ * calling thread without building a reactive pipeline, which makes this view
+ * cheaper for small operations such as point lookups. Operations that write
+ * block until the changes have been applied, so this view is intended to be
+ * used from threads that are allowed to block, such as virtual threads.
+ *
+ * <p>
+ * Operations join a transaction started using
+ * {@link se.l4.silo.Transactions#inTransaction(Runnable)} on the same
+ * thread, otherwise every operation runs in its own transaction.
+ */
+public interface SyncCollection<ID, T>
+{
+	/**
+	 * Get the name of this collection.
+	 *
+	 * @return
+	 */
+	String getName();
+
+	/**
+	 * Get stored object using an identifier.
+	 *
+	 * @param id
+	 * @return
+	 *   the object, or {@code null} if no object is stored
+	 */
+	T get(ID id);
+
+	/**
+	 * Check if an object with the given identifier exists.
+	 *
+	 * @param id
+	 * @return
+	 */
+	boolean contains(ID id);
+
+	/**
+	 * Store an object in this collection. If the id of the object already
+	 * exists it will be replaced, if the id does not exist a new object will
+	 * be stored.
+	 *
+	 * @param object
+	 * @return
+	 */
+	StoreResult<ID, T> store(T object);
+
+	/**
+	 * Delete object with the given identifier.
+	 *
+	 * @param id
+	 * @return
+	 */
+	DeleteResult<ID, T> delete(ID id);
+
+	/**
+	 * Fetch objects using the given query. Blocks until the index is
+	 * queryable.
+	 *
+	 * @param query
+	 * @return
+	 */
+	<R, FR extends FetchResult<R>> FR fetch(Query<T, R, FR> query);
+}
@@ -1,5 +1,10 @@
 package se.l4.silo.engine;
 
+/**
+ * Value that is shared by everything running within a transaction, such as a
+ * read-only version of a map. Values are generated when first needed and
+ * are then reused for the rest of the transaction.
+ */
 public interface TransactionValue<V>
 {
 	/**
@@ -0,0 +1,37 @@
+package se.l4.silo.engine;
+
+/**
+ * Class of work performed by the storage engine. Every workload runs its
+ * tasks on its own scheduler, so that work of one class can not starve the
+ * others, such as an index rebuild using all of the threads available for
+ * queries.
+ *
+ * @see EngineConfig.Builder#withScheduler(Workload, reactor.core.scheduler.Scheduler)
+ * @see EngineConfig.Builder#withVirtualThreads(Workload)
+ */
+public enum Workload
+{
+	/**
+	 * Tasks that read data, such as the ranges of a parallel scan.
+	 */
+	QUERIES,
+
+	/**
+	 * Tasks that apply committed transactions, used when transactions for
+	 * different collections are applied in parallel.
+	 */
+	WRITES,
+
+	/**
+	 * Tasks that maintain indexes, such as rebuilding indexes and
+	 * committing their data.
+	 */
+	INDEX_MAINTENANCE,
+
+	/**
+	 * Periodic tasks of the engine, such as checkpoints, commits of stores
+	 * and removal of stale transactions. Also used to train compression
+	 * dictionaries.
+	 */
+	BACKGROUND
+}
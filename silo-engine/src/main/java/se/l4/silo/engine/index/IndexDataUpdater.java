@@ -31,13 +31,16 @@ public interface IndexDataUpdater
 	void clear();
 
 	/**
-	 * Apply previously generated data.
+	 * Apply previously generated data for {@code dataId}, replacing any data
+	 * applied for it earlier. Called both when the index has data for the
+	 * identifier and when it does not, such as when an object is first
+	 * stored or during a rebuild.
 	 *
 	 * @param opId
 	 * @param dataId
 	 * @param in
 	 */
-	void apply(long opId, long dataId, InputStream in)
+	void replace(long opId, long dataId, InputStream in)
 		throws IOException;
 
 	/**
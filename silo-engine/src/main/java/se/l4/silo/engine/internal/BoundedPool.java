@@ -0,0 +1,81 @@
+package se.l4.silo.engine.internal;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Pool of reusable instances, such as buffers, that keeps at most a fixed
+ * number of idle instances. Used instead of thread locals so that the
+ * number of instances kept does not grow with the number of threads, which
+ * matters when operations run on short lived virtual threads.
+ *
+ * <p>
+ * Acquiring never blocks, a new instance is created if the pool is empty.
+ * Instances released when the pool is full are discarded.
+ */
+public class BoundedPool<T>
+{
+	private final Supplier<T> factory;
+	private final BlockingQueue<T> idle;
+
+	/**
+	 * Create a new pool.
+	 *
+	 * @param factory
+	 *   factory used to create new instances
+	 * @param capacity
+	 *   the maximum number of idle instances to keep
+	 */
+	public BoundedPool(Supplier<T> factory, int capacity)
+	{
+		this.factory = Objects.requireNonNull(factory);
+		this.idle = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Create a pool that keeps a number of idle instances based on the
+	 * number of processors.
+	 *
+	 * @param factory
+	 *   factory used to create new instances
+	 * @return
+	 */
+	public static <T> BoundedPool<T> perProcessor(Supplier<T> factory)
+	{
+		return new BoundedPool<>(factory, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Acquire an instance, reusing an idle one if available. The instance
+	 * should be {@link #release(Object) released} when no longer used.
+	 *
+	 * @return
+	 */
+	public T acquire()
+	{
+		T result = idle.poll();
+		return result == null ? factory.get() : result;
+	}
+
+	/**
+	 * Release an instance so that it can be reused.
+	 *
+	 * @param instance
+	 */
+	public void release(T instance)
+	{
+		idle.offer(instance);
+	}
+
+	/**
+	 * Get the number of idle instances currently kept.
+	 *
+	 * @return
+	 */
+	public int idleCount()
+	{
+		return idle.size();
+	}
+}
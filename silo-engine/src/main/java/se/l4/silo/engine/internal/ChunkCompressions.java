@@ -0,0 +1,68 @@
+package se.l4.silo.engine.internal;
+
+import se.l4.silo.engine.ChunkCompression;
+
+/**
+ * Helpers for working with the identifiers of {@link ChunkCompression}s.
+ */
+public class ChunkCompressions
+{
+	/**
+	 * The lowest identifier available to compressions not provided by
+	 * {@link ChunkCompression}.
+	 */
+	public static final int MIN_CUSTOM_ID = 16;
+
+	private ChunkCompressions()
+	{
+	}
+
+	/**
+	 * Get the built-in compression for the given identifier.
+	 *
+	 * @param id
+	 * @return
+	 *   compression or {@code null} if the identifier is not used by a
+	 *   built-in compression
+	 */
+	public static ChunkCompression builtIn(int id)
+	{
+		switch(id)
+		{
+			case NoChunkCompression.ID:
+				return NoChunkCompression.INSTANCE;
+			case DeflateChunkCompression.ID:
+				return DeflateChunkCompression.DEFAULT;
+			case DictionaryChunkCompression.ID:
+				return DictionaryChunkCompression.DEFAULT;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Check that a compression is either built-in or uses an identifier
+	 * outside of the reserved range.
+	 *
+	 * @param compression
+	 * @throws IllegalArgumentException
+	 *   if a custom compression uses a reserved identifier
+	 */
+	public static void check(ChunkCompression compression)
+	{
+		if(compression instanceof NoChunkCompression
+			|| compression instanceof DeflateChunkCompression
+			|| compression instanceof DictionaryChunkCompression)
+		{
+			return;
+		}
+
+		if(compression.getId() < MIN_CUSTOM_ID)
+		{
+			throw new IllegalArgumentException(
+				"Identifiers below " + MIN_CUSTOM_ID + " are reserved, "
+				+ compression + " uses " + compression.getId()
+			);
+		}
+	}
+}
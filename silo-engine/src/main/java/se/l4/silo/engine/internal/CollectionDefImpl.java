@@ -8,6 +8,7 @@ import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
 
 import se.l4.silo.engine.Buildable;
+import se.l4.silo.engine.ChunkCompression;
 import se.l4.silo.engine.CollectionDef;
 import se.l4.silo.engine.ObjectCodec;
 import se.l4.silo.engine.index.IndexDef;
@@ -26,6 +27,11 @@ public class CollectionDefImpl<ID, T>
 	private final ObjectCodec<T> codec;
 	private final Function<T, ID> idSupplier;
 	private final ImmutableList<IndexDef<T>> indexes;
+	private final long cacheSize;
+	private final long bloomFilterExpectedIds;
+	private final double bloomFilterFalsePositiveRate;
+	private final ChunkCompression compression;
+	private final ImmutableList<ChunkCompression> readableCompressions;
 
 	public CollectionDefImpl(
 		String name,
@@ -33,7 +39,12 @@ public class CollectionDefImpl<ID, T>
 		TypeRef objectType,
 		ObjectCodec<T> codec,
 		Function<T, ID> idSupplier,
-		ImmutableList<IndexDef<T>> indexes
+		ImmutableList<IndexDef<T>> indexes,
+		long cacheSize,
+		long bloomFilterExpectedIds,
+		double bloomFilterFalsePositiveRate,
+		ChunkCompression compression,
+		ImmutableList<ChunkCompression> readableCompressions
 	)
 	{
 		this.name = name;
@@ -42,6 +53,11 @@ public class CollectionDefImpl<ID, T>
 		this.codec = codec;
 		this.idSupplier = idSupplier;
 		this.indexes = indexes;
+		this.cacheSize = cacheSize;
+		this.bloomFilterExpectedIds = bloomFilterExpectedIds;
+		this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+		this.compression = compression;
+		this.readableCompressions = readableCompressions;
 	}
 
 	@Override
@@ -80,11 +96,41 @@ public class CollectionDefImpl<ID, T>
 		return indexes;
 	}
 
+	@Override
+	public long getCacheSize()
+	{
+		return cacheSize;
+	}
+
+	@Override
+	public long getBloomFilterExpectedIds()
+	{
+		return bloomFilterExpectedIds;
+	}
+
+	@Override
+	public double getBloomFilterFalsePositiveRate()
+	{
+		return bloomFilterFalsePositiveRate;
+	}
+
+	@Override
+	public ChunkCompression getCompression()
+	{
+		return compression;
+	}
+
+	@Override
+	public ListIterable<ChunkCompression> getReadableCompressions()
+	{
+		return readableCompressions;
+	}
+
 	public static <T> Builder<Void, T> create(String name, Class<T> type)
 	{
 		Objects.requireNonNull(name, "name must be specified");
 		Objects.requireNonNull(type, "type must be specified");
-		return new BuilderImpl<>(name, null, Types.reference(type), null, null, Lists.immutable.empty());
+		return new BuilderImpl<>(name, null, Types.reference(type), null, null, Lists.immutable.empty(), 0, 0, 0, ChunkCompression.none(), Lists.immutable.empty());
 	}
 
 	public static class BuilderImpl<ID, T>
@@ -96,6 +142,11 @@ public class CollectionDefImpl<ID, T>
 		private final ObjectCodec<T> codec;
 		private final Function<T, ID> idSupplier;
 		private final ImmutableList<IndexDef<T>> indexes;
+		private final long cacheSize;
+		private final long bloomFilterExpectedIds;
+		private final double bloomFilterFalsePositiveRate;
+		private final ChunkCompression compression;
+		private final ImmutableList<ChunkCompression> readableCompressions;
 
 		public BuilderImpl(
 			String name,
@@ -103,7 +154,12 @@ public class CollectionDefImpl<ID, T>
 			TypeRef objectType,
 			ObjectCodec<T> codec,
 			Function<T, ID> idSupplier,
-			ImmutableList<IndexDef<T>> indexes
+			ImmutableList<IndexDef<T>> indexes,
+			long cacheSize,
+			long bloomFilterExpectedIds,
+			double bloomFilterFalsePositiveRate,
+			ChunkCompression compression,
+			ImmutableList<ChunkCompression> readableCompressions
 		)
 		{
 			this.name = name;
@@ -112,6 +168,11 @@ public class CollectionDefImpl<ID, T>
 			this.codec = codec;
 			this.idSupplier = idSupplier;
 			this.indexes = indexes;
+			this.cacheSize = cacheSize;
+			this.bloomFilterExpectedIds = bloomFilterExpectedIds;
+			this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+			this.compression = compression;
+			this.readableCompressions = readableCompressions;
 		}
 
 		@Override
@@ -123,7 +184,12 @@ public class CollectionDefImpl<ID, T>
 				objectType,
 				codec,
 				idSupplier,
-				indexes
+				indexes,
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
 			);
 		}
 
@@ -145,7 +211,12 @@ public class CollectionDefImpl<ID, T>
 				objectType,
 				codec,
 				idFunction,
-				indexes
+				indexes,
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
 			);
 		}
 
@@ -160,7 +231,12 @@ public class CollectionDefImpl<ID, T>
 				objectType,
 				codec,
 				idSupplier,
-				indexes.newWith(definition)
+				indexes.newWith(definition),
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
 			);
 		}
 
@@ -170,13 +246,118 @@ public class CollectionDefImpl<ID, T>
 			return addIndex(buildable.build());
 		}
 
+		@Override
+		public Builder<ID, T> withCacheSize(long maximumSize)
+		{
+			if(maximumSize < 0)
+			{
+				throw new IllegalArgumentException("maximumSize can't be less than 0");
+			}
+
+			return new BuilderImpl<>(
+				name,
+				idType,
+				objectType,
+				codec,
+				idSupplier,
+				indexes,
+				maximumSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
+			);
+		}
+
+		@Override
+		public Builder<ID, T> withBloomFilter(long expectedIds, double falsePositiveRate)
+		{
+			if(expectedIds < 0)
+			{
+				throw new IllegalArgumentException("expectedIds can't be less than 0");
+			}
+
+			if(falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			{
+				throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+			}
+
+			return new BuilderImpl<>(
+				name,
+				idType,
+				objectType,
+				codec,
+				idSupplier,
+				indexes,
+				cacheSize,
+				expectedIds,
+				falsePositiveRate,
+				compression,
+				readableCompressions
+			);
+		}
+
+		@Override
+		public Builder<ID, T> withCompression(ChunkCompression compression)
+		{
+			Objects.requireNonNull(compression, "compression must be specified");
+			ChunkCompressions.check(compression);
+
+			return new BuilderImpl<>(
+				name,
+				idType,
+				objectType,
+				codec,
+				idSupplier,
+				indexes,
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
+			);
+		}
+
+		@Override
+		public Builder<ID, T> addReadableCompression(ChunkCompression readableCompression)
+		{
+			Objects.requireNonNull(readableCompression, "compression must be specified");
+			ChunkCompressions.check(readableCompression);
+
+			return new BuilderImpl<>(
+				name,
+				idType,
+				objectType,
+				codec,
+				idSupplier,
+				indexes,
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions.newWith(readableCompression)
+			);
+		}
+
 		@Override
 		public CollectionDef<ID, T> build()
 		{
 			Objects.requireNonNull(codec, "codec must be specified");
 			Objects.requireNonNull(idSupplier, "idSupplier must be specified");
 
-			return new CollectionDefImpl<>(name, idType, objectType, codec, idSupplier, indexes);
+			return new CollectionDefImpl<>(
+				name,
+				idType,
+				objectType,
+				codec,
+				idSupplier,
+				indexes,
+				cacheSize,
+				bloomFilterExpectedIds,
+				bloomFilterFalsePositiveRate,
+				compression,
+				readableCompressions
+			);
 		}
 	}
 }
@@ -1,13 +1,18 @@
 package se.l4.silo.engine.internal;
 
+import java.nio.ByteBuffer;
 import java.util.function.Function;
 
+import org.reactivestreams.Publisher;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.l4.silo.DeleteResult;
 import se.l4.silo.FetchResult;
 import se.l4.silo.StoreResult;
 import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.ScanOptions;
+import se.l4.silo.engine.SyncCollection;
 import se.l4.silo.engine.index.LocalIndex;
 import se.l4.silo.index.Query;
 
@@ -17,6 +22,7 @@ public class CollectionImpl<ID, T>
 	private final String name;
 	private final Function<T, ID> idSupplier;
 	private final Storage<T> storage;
+	private final SyncCollection<ID, T> sync;
 
 	public CollectionImpl(
 		String name,
@@ -27,6 +33,8 @@ public class CollectionImpl<ID, T>
 		this.name = name;
 		this.idSupplier = idSupplier;
 		this.storage = storage;
+
+		sync = new SyncCollectionImpl<>(name, idSupplier, storage);
 	}
 
 	@Override
@@ -35,6 +43,12 @@ public class CollectionImpl<ID, T>
 		return name;
 	}
 
+	@Override
+	public SyncCollection<ID, T> sync()
+	{
+		return sync;
+	}
+
 	@Override
 	public long getReads()
 	{
@@ -59,6 +73,20 @@ public class CollectionImpl<ID, T>
 		return storage.get(id);
 	}
 
+	@Override
+	public Flux<T> getAll(Iterable<? extends ID> ids)
+	{
+		return storage.getAll(ids);
+	}
+
+	@Override
+	public Flux<T> getAll(Publisher<? extends ID> ids)
+	{
+		return Flux.from(ids)
+			.collectList()
+			.flatMapMany(storage::getAll);
+	}
+
 	@Override
 	public Mono<Boolean> contains(ID id)
 	{
@@ -92,6 +120,36 @@ public class CollectionImpl<ID, T>
 		return storage.stream(query);
 	}
 
+	@Override
+	public Flux<T> stream()
+	{
+		return storage.stream();
+	}
+
+	@Override
+	public Flux<T> stream(ScanOptions options)
+	{
+		return storage.stream(options);
+	}
+
+	@Override
+	public Mono<Void> storeStream(ID id, Publisher<ByteBuffer> data)
+	{
+		return storage.storeStream(id, data);
+	}
+
+	@Override
+	public Flux<ByteBuffer> openStream(ID id)
+	{
+		return storage.openStream(id, 0, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Flux<ByteBuffer> openStream(ID id, long offset, long length)
+	{
+		return storage.openStream(id, offset, length);
+	}
+
 	@Override
 	public Mono<LocalIndex> index(String name)
 	{
@@ -3,6 +3,9 @@ package se.l4.silo.engine.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
 
 import se.l4.silo.engine.TransactionValueProvider;
 import se.l4.silo.engine.internal.tx.WriteableTransactionExchange;
@@ -25,6 +28,20 @@ public interface DataStorage
 	long store(IOConsumer<OutputStream> out)
 		throws IOException;
 
+	/**
+	 * Replace the bytes associated with an id that has previously been
+	 * returned by {@link #store(IOConsumer)}. The data is written before the
+	 * old data is removed.
+	 *
+	 * @param id
+	 *   the identifier to replace data for
+	 * @param out
+	 *   consumer that generates data
+	 * @throws IOException
+	 */
+	void replace(long id, IOConsumer<OutputStream> out)
+		throws IOException;
+
 	/**
 	 * Load bytes associated with a certain id.
 	 *
@@ -36,6 +53,73 @@ public interface DataStorage
 	InputStream get(WriteableTransactionExchange exchange, long id)
 		throws IOException;
 
+	/**
+	 * Load bytes associated with a certain id, starting at the given offset.
+	 * Data before the offset is skipped without being read if possible.
+	 *
+	 * @param exchange
+	 *   the exchange to read within, or {@code null} to read the latest data
+	 * @param id
+	 *   the identifier of the data
+	 * @param offset
+	 *   the offset of the first byte to read
+	 * @return
+	 *   stream with the data from the offset, or {@code null} if no data is
+	 *   stored for the identifier
+	 * @throws IOException
+	 */
+	InputStream get(WriteableTransactionExchange exchange, long id, long offset)
+		throws IOException;
+
+	/**
+	 * Iterate over stored data in the order of the identifiers. Data is read
+	 * sequentially which avoids looking up every identifier on its own.
+	 *
+	 * @param exchange
+	 *   the exchange to read within, or {@code null} to read the latest data
+	 * @param minIdExclusive
+	 *   the identifier to start after
+	 * @param maxIdInclusive
+	 *   the largest identifier to include
+	 * @return
+	 *   iterator with pairs of identifiers and data, the data should be read
+	 *   before the next pair is requested
+	 */
+	Iterator<LongObjectPair<InputStream>> iterator(
+		WriteableTransactionExchange exchange,
+		long minIdExclusive,
+		long maxIdInclusive
+	);
+
+	/**
+	 * Split the stored data into ranges of about the same size. Used to read
+	 * data in parallel via {@link #iterator(WriteableTransactionExchange, long, long)}.
+	 *
+	 * @param exchange
+	 *   the exchange to read within, or {@code null} to read the latest data
+	 * @param parts
+	 *   the number of ranges to split into
+	 * @return
+	 *   the boundaries of the ranges, range {@code i} starts after
+	 *   {@code boundaries[i]} and includes {@code boundaries[i + 1]}
+	 */
+	long[] split(WriteableTransactionExchange exchange, int parts);
+
+	/**
+	 * Compress a batch of data again if it was compressed with an outdated
+	 * compression. Continues where the previous call stopped. Must not be
+	 * called at the same time as data is being modified.
+	 *
+	 * @param maxEntries
+	 *   the maximum number of entries to check
+	 * @return
+	 *   {@code true} if more entries need to be checked, {@code false} if
+	 *   all entries have been checked
+	 * @throws IOException
+	 */
+	boolean reencode(int maxEntries)
+		throws IOException;
+
 	/**
 	 * Delete data associated with a certain id.
 	 *
@@ -0,0 +1,240 @@
+package se.l4.silo.engine.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import se.l4.silo.engine.ChunkCompression;
+
+/**
+ * {@link ChunkCompression} using Deflate. Compressed chunks start with the
+ * uncompressed length as a four byte integer, so that chunks can be
+ * inflated into a buffer of the correct size.
+ */
+public class DeflateChunkCompression
+	implements ChunkCompression
+{
+	public static final int ID = 1;
+
+	public static final ChunkCompression DEFAULT = new DeflateChunkCompression(Deflater.DEFAULT_COMPRESSION);
+
+	private final int level;
+
+	public DeflateChunkCompression(int level)
+	{
+		if(level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+		{
+			throw new IllegalArgumentException("level must be between 0 and 9, got: " + level);
+		}
+
+		this.level = level;
+	}
+
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+		out.write(length >>> 24);
+		out.write(length >>> 16);
+		out.write(length >>> 8);
+		out.write(length);
+
+		deflate(level, null, out, data, offset, length);
+		return out.toByteArray();
+	}
+
+	@Override
+	public byte[] decompress(byte[] data)
+		throws IOException
+	{
+		if(data.length < 4)
+		{
+			throw new IOException("Compressed chunk is too short");
+		}
+
+		int length = (data[0] & 0xff) << 24
+			| (data[1] & 0xff) << 16
+			| (data[2] & 0xff) << 8
+			| (data[3] & 0xff);
+
+		return inflate(null, data, 4, length);
+	}
+
+	/**
+	 * Deflate some data, optionally using a preset dictionary. The
+	 * compressed data is written after anything already in the stream.
+	 *
+	 * @param level
+	 * @param dictionary
+	 *   dictionary to use, or {@code null} for none
+	 * @param out
+	 *   stream to write the compressed data to
+	 * @param data
+	 * @param offset
+	 * @param length
+	 */
+	static void deflate(
+		int level,
+		byte[] dictionary,
+		ByteArrayOutputStream out,
+		byte[] data,
+		int offset,
+		int length
+	)
+	{
+		Deflater deflater = new Deflater(level, true);
+		try
+		{
+			if(dictionary != null)
+			{
+				deflater.setDictionary(dictionary);
+			}
+
+			deflater.setInput(data, offset, length);
+			deflater.finish();
+
+			byte[] buffer = new byte[Math.min(Math.max(length, 64), 16 * 1024)];
+			while(! deflater.finished())
+			{
+				int count = deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Inflate data previously deflated by
+	 * {@link #deflate(int, byte[], ByteArrayOutputStream, byte[], int, int)}.
+	 *
+	 * @param dictionary
+	 *   dictionary used when deflating, or {@code null} for none
+	 * @param data
+	 * @param start
+	 *   the offset where the compressed data starts, used to skip headers
+	 * @param length
+	 *   the uncompressed length of the data
+	 * @return
+	 * @throws IOException
+	 */
+	static byte[] inflate(byte[] dictionary, byte[] data, int start, int length)
+		throws IOException
+	{
+		Inflater inflater = new Inflater(true);
+		try
+		{
+			inflater.setInput(data, start, data.length - start);
+			if(dictionary != null)
+			{
+				// Raw streams do not request a dictionary, set it up front
+				inflater.setDictionary(dictionary);
+			}
+
+			byte[] result = new byte[length];
+			int read = 0;
+			while(read < length)
+			{
+				int count = inflater.inflate(result, read, length - read);
+				if(count == 0 && (inflater.finished() || inflater.needsInput()))
+				{
+					throw new IOException("Compressed chunk ended early, expected " + length + " bytes but got " + read);
+				}
+
+				read += count;
+			}
+
+			return result;
+		}
+		catch(DataFormatException e)
+		{
+			throw new IOException("Could not inflate chunk; " + e.getMessage(), e);
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Write a positive integer using as few bytes as possible.
+	 *
+	 * @param out
+	 * @param value
+	 */
+	static void writeVarInt(ByteArrayOutputStream out, int value)
+	{
+		while((value & ~0x7f) != 0)
+		{
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+
+		out.write(value);
+	}
+
+	/**
+	 * Get the number of bytes {@link #writeVarInt(ByteArrayOutputStream, int)}
+	 * uses for a value.
+	 *
+	 * @param value
+	 * @return
+	 */
+	static int varIntLength(int value)
+	{
+		int length = 1;
+		while((value & ~0x7f) != 0)
+		{
+			length++;
+			value >>>= 7;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Read an integer written by {@link #writeVarInt(ByteArrayOutputStream, int)}.
+	 *
+	 * @param data
+	 * @param offset
+	 * @return
+	 * @throws IOException
+	 */
+	static int readVarInt(byte[] data, int offset)
+		throws IOException
+	{
+		int result = 0;
+		for(int shift=0; shift<32; shift+=7)
+		{
+			if(offset >= data.length)
+			{
+				throw new IOException("Compressed chunk is too short");
+			}
+
+			int b = data[offset++];
+			result |= (b & 0x7f) << shift;
+			if((b & 0x80) == 0)
+			{
+				return result;
+			}
+		}
+
+		throw new IOException("Malformed length in compressed chunk");
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DeflateChunkCompression{level=" + level + "}";
+	}
+}
@@ -0,0 +1,178 @@
+package se.l4.silo.engine.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import reactor.core.scheduler.Scheduler;
+import se.l4.silo.engine.ChunkCompression;
+import se.l4.silo.engine.MVStoreManager;
+
+/**
+ * {@link ChunkCompression} that compresses data using Deflate with a
+ * dictionary trained from the stored data. Dictionaries are trained once
+ * this compression is {@link #open(MVStoreManager, String, Scheduler) opened}
+ * for a storage, until then data is compressed without a dictionary.
+ *
+ * <p>
+ * Compressed chunks start with the version of the dictionary used, where
+ * version {@code 0} means that no dictionary was used, followed by the
+ * uncompressed length. Both are encoded as variable length integers.
+ */
+public class DictionaryChunkCompression
+	implements ChunkCompression
+{
+	public static final int ID = 2;
+
+	public static final DictionaryChunkCompression DEFAULT = new DictionaryChunkCompression(
+		Deflater.DEFAULT_COMPRESSION,
+		16 * 1024,
+		512,
+		4 * 1024,
+		100_000
+	);
+
+	private final int level;
+	private final int dictionarySize;
+	private final int sampleCount;
+	private final int maxSampleSize;
+	private final long retrainInterval;
+
+	public DictionaryChunkCompression(
+		int level,
+		int dictionarySize,
+		int sampleCount,
+		int maxSampleSize,
+		long retrainInterval
+	)
+	{
+		if(level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+		{
+			throw new IllegalArgumentException("level must be between 0 and 9, got: " + level);
+		}
+
+		if(dictionarySize <= 0 || dictionarySize > 32 * 1024)
+		{
+			throw new IllegalArgumentException("dictionarySize must be between 1 and 32768, got: " + dictionarySize);
+		}
+
+		this.level = level;
+		this.dictionarySize = dictionarySize;
+		this.sampleCount = sampleCount;
+		this.maxSampleSize = maxSampleSize;
+		this.retrainInterval = retrainInterval;
+	}
+
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		return compress(level, 0, null, data, offset, length);
+	}
+
+	@Override
+	public byte[] decompress(byte[] data)
+		throws IOException
+	{
+		int version = DeflateChunkCompression.readVarInt(data, 0);
+		if(version != 0)
+		{
+			throw new IOException("Data was compressed using dictionary " + version + ", compression must be opened for its storage");
+		}
+
+		return inflate(data, null);
+	}
+
+	/**
+	 * Get a copy of this compression with a different dictionary size.
+	 *
+	 * @param dictionarySize
+	 * @return
+	 */
+	public DictionaryChunkCompression withDictionarySize(int dictionarySize)
+	{
+		return new DictionaryChunkCompression(
+			level,
+			dictionarySize,
+			sampleCount,
+			maxSampleSize,
+			retrainInterval
+		);
+	}
+
+	/**
+	 * Open this compression for the storage using the given prefix. The
+	 * dictionaries are stored in a map next to the data and are trained
+	 * using the given scheduler.
+	 */
+	@Override
+	public TrainedDictionaryCompression open(MVStoreManager store, String prefix, Scheduler scheduler)
+	{
+		return new TrainedDictionaryCompression(
+			store.openMap(prefix + ".dictionaries", TrainedDictionaryCompression.mapBuilder()),
+			scheduler,
+			level,
+			dictionarySize,
+			sampleCount,
+			maxSampleSize,
+			retrainInterval
+		);
+	}
+
+	/**
+	 * Compress a chunk using the given dictionary.
+	 *
+	 * @param level
+	 * @param version
+	 *   version of the dictionary, {@code 0} if no dictionary is used
+	 * @param dictionary
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	static byte[] compress(int level, int version, byte[] dictionary, byte[] data, int offset, int length)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+		DeflateChunkCompression.writeVarInt(out, version);
+		DeflateChunkCompression.writeVarInt(out, length);
+
+		DeflateChunkCompression.deflate(level, dictionary, out, data, offset, length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decompress a chunk using the dictionary its version refers to.
+	 *
+	 * @param data
+	 * @param dictionary
+	 * @return
+	 * @throws IOException
+	 */
+	static byte[] inflate(byte[] data, byte[] dictionary)
+		throws IOException
+	{
+		int start = DeflateChunkCompression.varIntLength(DeflateChunkCompression.readVarInt(data, 0));
+
+		int length = DeflateChunkCompression.readVarInt(data, start);
+		start += DeflateChunkCompression.varIntLength(length);
+
+		return DeflateChunkCompression.inflate(dictionary, data, start, length);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DictionaryChunkCompression{level=" + level
+			+ ", dictionarySize=" + dictionarySize
+			+ ", sampleCount=" + sampleCount
+			+ ", maxSampleSize=" + maxSampleSize
+			+ ", retrainInterval=" + retrainInterval
+			+ "}";
+	}
+}
@@ -0,0 +1,169 @@
+package se.l4.silo.engine.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+
+/**
+ * Trainer of dictionaries for {@link DictionaryChunkCompression}. Picks the
+ * segments of the samples that contain the content most commonly shared
+ * between samples.
+ *
+ * <p>
+ * Content is tracked as grams of {@link #GRAM} bytes. Every segment is
+ * scored by how many samples its grams occur in. Segments are picked
+ * greedily, and once a segment has been picked its grams no longer count
+ * towards the score of other segments so that the same content is not
+ * included twice.
+ */
+public class DictionaryTrainer
+{
+	private static final int GRAM = 8;
+	private static final int SEGMENT = 64;
+
+	private DictionaryTrainer()
+	{
+	}
+
+	/**
+	 * Train a dictionary from the given samples.
+	 *
+	 * @param samples
+	 * @param maxSize
+	 *   the maximum size of the dictionary in bytes
+	 * @return
+	 *   dictionary, empty if the samples do not share any content
+	 */
+	public static byte[] train(List<byte[]> samples, int maxSize)
+	{
+		// Count the number of samples every gram occurs in
+		LongIntHashMap counts = new LongIntHashMap();
+		for(byte[] sample : samples)
+		{
+			LongHashSet seen = new LongHashSet();
+			for(int i=0, n=sample.length-GRAM; i<=n; i++)
+			{
+				long gram = gram(sample, i);
+				if(seen.add(gram))
+				{
+					counts.addToValue(gram, 1);
+				}
+			}
+		}
+
+		// Score segments overlapping each other by half of their length
+		PriorityQueue<Segment> queue = new PriorityQueue<>();
+		for(byte[] sample : samples)
+		{
+			for(int start=0; start<sample.length; start+=SEGMENT/2)
+			{
+				Segment segment = new Segment(sample, start, Math.min(sample.length, start + SEGMENT));
+				segment.score(counts);
+				if(segment.score > 0)
+				{
+					queue.add(segment);
+				}
+			}
+		}
+
+		MutableList<Segment> picked = Lists.mutable.empty();
+		int size = 0;
+		while(size < maxSize && ! queue.isEmpty())
+		{
+			Segment segment = queue.poll();
+
+			// Scores only decrease, rescore and pick if still the best
+			segment.score(counts);
+			if(segment.score <= 0) continue;
+
+			Segment next = queue.peek();
+			if(next != null && next.score > segment.score)
+			{
+				queue.add(segment);
+				continue;
+			}
+
+			picked.add(segment);
+			size += segment.end - segment.start;
+
+			// Content of the segment has been covered
+			for(int i=segment.start, n=segment.end-GRAM; i<=n; i++)
+			{
+				counts.put(gram(segment.data, i), 0);
+			}
+		}
+
+		/*
+		 * Deflate references earlier data by distance, so place the most
+		 * valuable segments at the end of the dictionary.
+		 */
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(size, maxSize));
+		int excess = Math.max(0, size - maxSize);
+		for(Segment segment : picked.asReversed())
+		{
+			// Trim the least valuable segments if too much has been picked
+			int length = segment.end - segment.start;
+			int skip = Math.min(excess, length);
+			excess -= skip;
+
+			out.write(segment.data, segment.start + skip, length - skip);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static long gram(byte[] data, int offset)
+	{
+		long result = 0;
+		for(int i=0; i<GRAM; i++)
+		{
+			result = (result << 8) | (data[offset + i] & 0xff);
+		}
+		return result;
+	}
+
+	private static class Segment
+		implements Comparable<Segment>
+	{
+		private final byte[] data;
+		private final int start;
+		private final int end;
+
+		private long score;
+
+		public Segment(byte[] data, int start, int end)
+		{
+			this.data = data;
+			this.start = start;
+			this.end = end;
+		}
+
+		public void score(LongIntHashMap counts)
+		{
+			long result = 0;
+			for(int i=start, n=end-GRAM; i<=n; i++)
+			{
+				int count = counts.get(gram(data, i));
+
+				// Only content shared between samples is of value
+				if(count > 1)
+				{
+					result += count;
+				}
+			}
+
+			score = result;
+		}
+
+		@Override
+		public int compareTo(Segment o)
+		{
+			return Long.compare(o.score, score);
+		}
+	}
+}
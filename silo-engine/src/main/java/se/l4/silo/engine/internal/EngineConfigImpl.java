@@ -1,6 +1,14 @@
 package se.l4.silo.engine.internal;
 
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.set.ImmutableSet;
+
+import reactor.core.scheduler.Scheduler;
 import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.FileAccess;
+import se.l4.silo.engine.Workload;
 
 /**
  * Implementation of {@link EngineConfig}.
@@ -8,22 +16,52 @@ import se.l4.silo.engine.EngineConfig;
 public class EngineConfigImpl
 	implements EngineConfig
 {
+	/**
+	 * The largest value allowed for the inline threshold, matches the size
+	 * of chunks in {@link MVDataStorage}.
+	 */
+	private static final int MAX_INLINE_DATA_THRESHOLD = 256 * 1024;
+
 	private final int cacheSizeInMiB;
 	private final int cacheConcurrency;
 	private final int autoCompactFillRate;
 	private final int autoCommitBufferSizeInKiB;
+	private final int inlineDataThresholdInBytes;
+	private final FileAccess fileAccess;
+	private final int shards;
+	private final int groupCommitMaxSize;
+	private final int groupCommitWaitInMicros;
+	private final int transactionBufferSizeInKiB;
+	private final ImmutableMap<Workload, Scheduler> schedulers;
+	private final ImmutableSet<Workload> virtualThreads;
 
 	public EngineConfigImpl(
 		int cacheSizeInMiB,
 		int cacheConcurrency,
 		int autoCompactFillRate,
-		int autoCommitBufferSizeInKiB
+		int autoCommitBufferSizeInKiB,
+		int inlineDataThresholdInBytes,
+		FileAccess fileAccess,
+		int shards,
+		int groupCommitMaxSize,
+		int groupCommitWaitInMicros,
+		int transactionBufferSizeInKiB,
+		ImmutableMap<Workload, Scheduler> schedulers,
+		ImmutableSet<Workload> virtualThreads
 	)
 	{
 		this.cacheSizeInMiB = cacheSizeInMiB;
 		this.cacheConcurrency = cacheConcurrency;
 		this.autoCompactFillRate = autoCompactFillRate;
 		this.autoCommitBufferSizeInKiB = autoCommitBufferSizeInKiB;
+		this.inlineDataThresholdInBytes = inlineDataThresholdInBytes;
+		this.fileAccess = fileAccess;
+		this.shards = shards;
+		this.groupCommitMaxSize = groupCommitMaxSize;
+		this.groupCommitWaitInMicros = groupCommitWaitInMicros;
+		this.transactionBufferSizeInKiB = transactionBufferSizeInKiB;
+		this.schedulers = schedulers;
+		this.virtualThreads = virtualThreads;
 	}
 
 	@Override
@@ -50,13 +88,69 @@ public class EngineConfigImpl
 		return autoCommitBufferSizeInKiB;
 	}
 
+	@Override
+	public int getInlineDataThresholdInBytes()
+	{
+		return inlineDataThresholdInBytes;
+	}
+
+	@Override
+	public FileAccess getFileAccess()
+	{
+		return fileAccess;
+	}
+
+	@Override
+	public int getShards()
+	{
+		return shards;
+	}
+
+	@Override
+	public int getGroupCommitMaxSize()
+	{
+		return groupCommitMaxSize;
+	}
+
+	@Override
+	public int getGroupCommitWaitInMicros()
+	{
+		return groupCommitWaitInMicros;
+	}
+
+	@Override
+	public int getTransactionBufferSizeInKiB()
+	{
+		return transactionBufferSizeInKiB;
+	}
+
+	@Override
+	public Scheduler getScheduler(Workload workload)
+	{
+		return schedulers.get(workload);
+	}
+
+	@Override
+	public boolean isUsingVirtualThreads(Workload workload)
+	{
+		return virtualThreads.contains(workload);
+	}
+
 	public static Builder create()
 	{
 		return new BuilderImpl(
 			EngineConfig.CACHE_SIZE_IN_MIB,
 			EngineConfig.CACHE_CONCURRENCY,
 			EngineConfig.AUTO_COMPACT_FILL_RATE,
-			EngineConfig.AUTO_COMMIT_BUFFER_SIZE
+			EngineConfig.AUTO_COMMIT_BUFFER_SIZE,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			EngineConfig.FILE_ACCESS,
+			EngineConfig.SHARDS,
+			EngineConfig.GROUP_COMMIT_MAX_SIZE,
+			EngineConfig.GROUP_COMMIT_WAIT,
+			EngineConfig.TRANSACTION_BUFFER_SIZE,
+			Maps.immutable.empty(),
+			Sets.immutable.empty()
 		);
 	}
 
@@ -67,18 +161,42 @@ public class EngineConfigImpl
 		private final int cacheConcurrency;
 		private final int autoCompactFillRate;
 		private final int autoCommitBufferSizeInKiB;
+		private final int inlineDataThresholdInBytes;
+		private final FileAccess fileAccess;
+		private final int shards;
+		private final int groupCommitMaxSize;
+		private final int groupCommitWaitInMicros;
+		private final int transactionBufferSizeInKiB;
+		private final ImmutableMap<Workload, Scheduler> schedulers;
+		private final ImmutableSet<Workload> virtualThreads;
 
 		public BuilderImpl(
 			int cacheSizeInMiB,
 			int cacheConcurrency,
 			int autoCompactFillRate,
-			int autoCommitBufferSizeInKiB
+			int autoCommitBufferSizeInKiB,
+			int inlineDataThresholdInBytes,
+			FileAccess fileAccess,
+			int shards,
+			int groupCommitMaxSize,
+			int groupCommitWaitInMicros,
+			int transactionBufferSizeInKiB,
+			ImmutableMap<Workload, Scheduler> schedulers,
+			ImmutableSet<Workload> virtualThreads
 		)
 		{
 			this.cacheSizeInMiB = cacheSizeInMiB;
 			this.cacheConcurrency = cacheConcurrency;
 			this.autoCompactFillRate = autoCompactFillRate;
 			this.autoCommitBufferSizeInKiB = autoCommitBufferSizeInKiB;
+			this.inlineDataThresholdInBytes = inlineDataThresholdInBytes;
+			this.fileAccess = fileAccess;
+			this.shards = shards;
+			this.groupCommitMaxSize = groupCommitMaxSize;
+			this.groupCommitWaitInMicros = groupCommitWaitInMicros;
+			this.transactionBufferSizeInKiB = transactionBufferSizeInKiB;
+			this.schedulers = schedulers;
+			this.virtualThreads = virtualThreads;
 		}
 
 		@Override
@@ -93,7 +211,15 @@ public class EngineConfigImpl
 				sizeInMiB,
 				cacheConcurrency,
 				autoCompactFillRate,
-				autoCommitBufferSizeInKiB
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
 			);
 		}
 
@@ -109,7 +235,15 @@ public class EngineConfigImpl
 				cacheSizeInMiB,
 				concurrency,
 				autoCompactFillRate,
-				autoCommitBufferSizeInKiB
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
 			);
 		}
 
@@ -130,7 +264,15 @@ public class EngineConfigImpl
 				cacheSizeInMiB,
 				cacheConcurrency,
 				percentage,
-				autoCommitBufferSizeInKiB
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
 			);
 		}
 
@@ -146,7 +288,222 @@ public class EngineConfigImpl
 				cacheSizeInMiB,
 				cacheConcurrency,
 				autoCompactFillRate,
-				sizeInKiB
+				sizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withInlineDataThresholdInBytes(int sizeInBytes)
+		{
+			if(sizeInBytes < 0)
+			{
+				throw new IllegalArgumentException("inlineDataThresholdInBytes can't be less than 0");
+			}
+
+			if(sizeInBytes > MAX_INLINE_DATA_THRESHOLD)
+			{
+				throw new IllegalArgumentException("inlineDataThresholdInBytes can't be more than " + MAX_INLINE_DATA_THRESHOLD);
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				sizeInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withFileAccess(FileAccess access)
+		{
+			if(access == null)
+			{
+				throw new IllegalArgumentException("fileAccess can't be null");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				access,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withShards(int shards)
+		{
+			if(shards < 1)
+			{
+				throw new IllegalArgumentException("shards can't be less than 1");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withGroupCommitMaxSize(int maxSize)
+		{
+			if(maxSize < 1)
+			{
+				throw new IllegalArgumentException("groupCommitMaxSize can't be less than 1");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				maxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withGroupCommitWaitInMicros(int waitInMicros)
+		{
+			if(waitInMicros < 0)
+			{
+				throw new IllegalArgumentException("groupCommitWaitInMicros can't be less than 0");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				waitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withTransactionBufferSizeInKiB(int sizeInKiB)
+		{
+			if(sizeInKiB < 0)
+			{
+				throw new IllegalArgumentException("transactionBufferSizeInKiB can't be less than 0");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				sizeInKiB,
+				schedulers,
+				virtualThreads
+			);
+		}
+
+		@Override
+		public Builder withScheduler(Workload workload, Scheduler scheduler)
+		{
+			if(workload == null)
+			{
+				throw new IllegalArgumentException("workload can't be null");
+			}
+
+			if(scheduler == null)
+			{
+				throw new IllegalArgumentException("scheduler can't be null");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers.newWithKeyValue(workload, scheduler),
+				virtualThreads.newWithout(workload)
+			);
+		}
+
+		@Override
+		public Builder withVirtualThreads(Workload workload)
+		{
+			if(workload == null)
+			{
+				throw new IllegalArgumentException("workload can't be null");
+			}
+
+			if(! VirtualThreads.isSupported())
+			{
+				throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+			}
+
+			return new BuilderImpl(
+				cacheSizeInMiB,
+				cacheConcurrency,
+				autoCompactFillRate,
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers.newWithoutKey(workload),
+				virtualThreads.newWith(workload)
 			);
 		}
 
@@ -157,7 +514,15 @@ public class EngineConfigImpl
 				cacheSizeInMiB,
 				cacheConcurrency,
 				autoCompactFillRate,
-				autoCommitBufferSizeInKiB
+				autoCommitBufferSizeInKiB,
+				inlineDataThresholdInBytes,
+				fileAccess,
+				shards,
+				groupCommitMaxSize,
+				groupCommitWaitInMicros,
+				transactionBufferSizeInKiB,
+				schedulers,
+				virtualThreads
 			);
 		}
 	}
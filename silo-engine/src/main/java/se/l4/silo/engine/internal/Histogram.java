@@ -0,0 +1,114 @@
+package se.l4.silo.engine.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+
+/**
+ * Histogram of positive values, such as sizes or durations. Values are
+ * counted in buckets that are powers of two, which keeps recording cheap
+ * at the cost of percentiles being estimates.
+ */
+public class Histogram
+{
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray counts;
+	private final LongAdder sum;
+
+	public Histogram()
+	{
+		counts = new AtomicLongArray(BUCKETS);
+		sum = new LongAdder();
+	}
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value
+	 */
+	public void record(long value)
+	{
+		long v = Math.max(0, value);
+		counts.incrementAndGet(bucket(v));
+		sum.add(v);
+	}
+
+	private static int bucket(long value)
+	{
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	/**
+	 * Get the largest value that is counted in the given bucket.
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	private static long upperBound(int bucket)
+	{
+		return bucket == 0 ? 0 : (1l << bucket) - 1;
+	}
+
+	/**
+	 * Create a probe that samples the values recorded since the previous
+	 * sample.
+	 *
+	 * @return
+	 */
+	public SampledProbe<HistogramSnapshot> createProbe()
+	{
+		return () -> new Sampler<HistogramSnapshot>()
+		{
+			private final long[] last = new long[BUCKETS];
+			private long lastSum;
+
+			@Override
+			public HistogramSnapshot sample()
+			{
+				long[] delta = new long[BUCKETS];
+				long count = 0;
+				for(int i=0; i<BUCKETS; i++)
+				{
+					long current = counts.get(i);
+					delta[i] = current - last[i];
+					last[i] = current;
+					count += delta[i];
+				}
+
+				long currentSum = sum.sum();
+				long deltaSum = currentSum - lastSum;
+				lastSum = currentSum;
+
+				return new HistogramSnapshot(
+					count,
+					count == 0 ? 0.0 : deltaSum / (double) count,
+					percentile(delta, count, 0.5),
+					percentile(delta, count, 0.9),
+					percentile(delta, count, 0.99),
+					percentile(delta, count, 1.0)
+				);
+			}
+		};
+	}
+
+	private static long percentile(long[] counts, long total, double percentile)
+	{
+		if(total == 0) return 0;
+
+		long target = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++)
+		{
+			seen += counts[i];
+			if(seen >= target)
+			{
+				return upperBound(i);
+			}
+		}
+
+		return upperBound(BUCKETS - 1);
+	}
+}
@@ -0,0 +1,77 @@
+package se.l4.silo.engine.internal;
+
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+
+/**
+ * Values sampled from a {@link Histogram}. Percentiles are the upper bound
+ * of the bucket the percentile falls in.
+ */
+public class HistogramSnapshot
+	implements Snapshot
+{
+	private final long count;
+	private final double mean;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long max;
+
+	public HistogramSnapshot(
+		long count,
+		double mean,
+		long p50,
+		long p90,
+		long p99,
+		long max
+	)
+	{
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public double getMean()
+	{
+		return mean;
+	}
+
+	public long getP50()
+	{
+		return p50;
+	}
+
+	public long getP90()
+	{
+		return p90;
+	}
+
+	public long getP99()
+	{
+		return p99;
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	@Override
+	public void mapToKeyValues(KeyValueReceiver receiver)
+	{
+		receiver.add("count", count);
+		receiver.add("mean", mean);
+		receiver.add("p50", p50);
+		receiver.add("p90", p90);
+		receiver.add("p99", p99);
+		receiver.add("max", max);
+	}
+}
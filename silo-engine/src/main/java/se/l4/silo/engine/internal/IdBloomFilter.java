@@ -0,0 +1,271 @@
+package se.l4.silo.engine.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+
+/**
+ * Bloom filter over the identifiers stored in a {@link PrimaryIndex}. Used
+ * to answer lookups of identifiers that are not stored without touching the
+ * store.
+ *
+ * <p>
+ * Identifiers are only ever added to the filter, removing an identifier
+ * leaves its bits set. The filter lives in memory and is rebuilt from the
+ * primary index when a collection is opened.
+ */
+public class IdBloomFilter
+{
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	private final LongAdder negatives;
+	private final LongAdder falsePositives;
+
+	public IdBloomFilter(long expectedIds, double falsePositiveRate)
+	{
+		negatives = new LongAdder();
+		falsePositives = new LongAdder();
+
+		if(expectedIds <= 0)
+		{
+			bits = null;
+			bitCount = 0;
+			hashCount = 0;
+			return;
+		}
+
+		if(falsePositiveRate <= 0 || falsePositiveRate >= 1)
+		{
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+
+		double ln2 = Math.log(2);
+		long optimalBits = (long) Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (ln2 * ln2));
+		int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimalBits + 63) / 64));
+
+		bits = new AtomicLongArray(words);
+		bitCount = words * 64l;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedIds * ln2));
+	}
+
+	/**
+	 * Get if this filter is enabled.
+	 *
+	 * @return
+	 */
+	public boolean isEnabled()
+	{
+		return bits != null;
+	}
+
+	/**
+	 * Add an identifier to this filter.
+	 *
+	 * @param id
+	 */
+	public void add(Object id)
+	{
+		if(bits == null) return;
+
+		long h1 = hash(id);
+		long h2 = secondHash(h1);
+
+		for(int i=1; i<=hashCount; i++)
+		{
+			long bit = index(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1l << bit;
+
+			long current = bits.get(word);
+			while((current & mask) == 0 && ! bits.compareAndSet(word, current, current | mask))
+			{
+				current = bits.get(word);
+			}
+		}
+	}
+
+	/**
+	 * Check if an identifier might have been added to this filter. Returns
+	 * {@code false} only if the identifier has never been added.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public boolean mightContain(Object id)
+	{
+		if(bits == null) return true;
+
+		long h1 = hash(id);
+		long h2 = secondHash(h1);
+
+		for(int i=1; i<=hashCount; i++)
+		{
+			long bit = index(h1 + i * h2);
+			if((bits.get((int) (bit >>> 6)) & (1l << bit)) == 0)
+			{
+				negatives.increment();
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Record that {@link #mightContain(Object)} returned {@code true} for an
+	 * identifier that was not stored.
+	 */
+	public void recordFalsePositive()
+	{
+		falsePositives.increment();
+	}
+
+	private long index(long combinedHash)
+	{
+		return index(combinedHash, bitCount);
+	}
+
+	/**
+	 * Get the index of the bit for a combined hash. All 64 bits of the hash
+	 * are used so that every bit of filters with more than 2^31 bits is
+	 * reachable.
+	 *
+	 * @param combinedHash
+	 * @param bitCount
+	 * @return
+	 */
+	static long index(long combinedHash, long bitCount)
+	{
+		return Long.remainderUnsigned(combinedHash, bitCount);
+	}
+
+	/**
+	 * Derive a second 64-bit hash from the first one, used together with
+	 * the first to generate the indexes of the bits of an identifier.
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private static long secondHash(long hash)
+	{
+		// Mixer from SplitMix64, forced to be odd so that it is never zero
+		long z = hash + 0x9e3779b97f4a7c15l;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9l;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebl;
+		return (z ^ (z >>> 31)) | 1;
+	}
+
+	private static long hash(Object id)
+	{
+		long base;
+		if(id instanceof Long)
+		{
+			base = (Long) id;
+		}
+		else if(id instanceof Integer)
+		{
+			base = (Integer) id;
+		}
+		else if(id instanceof byte[])
+		{
+			base = Arrays.hashCode((byte[]) id);
+		}
+		else
+		{
+			base = id.hashCode();
+		}
+
+		// Finalizer from MurmurHash3 to spread the bits
+		base ^= base >>> 33;
+		base *= 0xff51afd7ed558ccdl;
+		base ^= base >>> 33;
+		base *= 0xc4ceb9fe1a85ec53l;
+		base ^= base >>> 33;
+		return base;
+	}
+
+	/**
+	 * Estimate the current false positive rate from the number of bits set.
+	 *
+	 * @return
+	 */
+	private double estimateFalsePositiveRate()
+	{
+		if(bits == null) return 0;
+
+		long set = 0;
+		for(int i=0, n=bits.length(); i<n; i++)
+		{
+			set += Long.bitCount(bits.get(i));
+		}
+
+		return Math.pow((double) set / bitCount, hashCount);
+	}
+
+	/**
+	 * Create a probe that reports how this filter is performing.
+	 *
+	 * @return
+	 */
+	public SampledProbe<Health> createProbe()
+	{
+		return () -> new Sampler<Health>()
+		{
+			private long lastNegatives;
+			private long lastFalsePositives;
+
+			@Override
+			public Health sample()
+			{
+				long totalNegatives = negatives.sum();
+				long totalFalsePositives = falsePositives.sum();
+
+				Health health = new Health(
+					totalNegatives - lastNegatives,
+					totalFalsePositives - lastFalsePositives,
+					estimateFalsePositiveRate()
+				);
+
+				lastNegatives = totalNegatives;
+				lastFalsePositives = totalFalsePositives;
+
+				return health;
+			}
+		};
+	}
+
+	/**
+	 * Information about how a filter has been performing.
+	 */
+	public static class Health
+		implements Snapshot
+	{
+		private final long negatives;
+		private final long falsePositives;
+		private final double estimatedFalsePositiveRate;
+
+		public Health(long negatives, long falsePositives, double estimatedFalsePositiveRate)
+		{
+			this.negatives = negatives;
+			this.falsePositives = falsePositives;
+			this.estimatedFalsePositiveRate = estimatedFalsePositiveRate;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			long total = negatives + falsePositives;
+			receiver.add("negatives", negatives);
+			receiver.add("falsePositives", falsePositives);
+			receiver.add("falsePositiveRate", total == 0l ? 0.0 : falsePositives / (double) total);
+			receiver.add("estimatedFalsePositiveRate", estimatedFalsePositiveRate);
+		}
+	}
+}
@@ -218,10 +218,18 @@ public class LocalSiloImpl
 						def.getIdSupplier(),
 						storageEngine.createStorage(def.getName(), def.getCodec())
 							.addIndexes(def.getIndexes())
+							.withIdType(def.getIdType().getErasedType())
+							.withCacheSize(def.getCacheSize())
+							.withBloomFilter(def.getBloomFilterExpectedIds(), def.getBloomFilterFalsePositiveRate())
+							.withCompression(def.getCompression())
+							.addReadableCompressions(def.getReadableCompressions())
 							.build()
 					);
 				}).toMap(v -> v.getName(), v -> v).toImmutable();
 
+				// Storages are available, recover anything left in the log
+				storageEngine.recover();
+
 				return new LocalSiloImpl(
 					storageEngine,
 					collections
@@ -1,27 +1,49 @@
 package se.l4.silo.engine.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Enumeration;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.primitive.MutableLongList;
+import org.eclipse.collections.api.map.primitive.ImmutableIntObjectMap;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
+import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
+import org.eclipse.collections.impl.EmptyIterator;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.tuple.primitive.PrimitiveTuples;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import reactor.core.scheduler.Scheduler;
+import se.l4.silo.StorageException;
+import se.l4.silo.engine.ChunkCompression;
+import se.l4.silo.engine.EngineConfig;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.TransactionValue;
 import se.l4.silo.engine.internal.log.ChunkOutputStream;
+import se.l4.silo.engine.internal.tx.StoreTransactionValue;
 import se.l4.silo.engine.internal.tx.WriteableTransactionExchange;
 import se.l4.silo.engine.internal.types.ByteChunkFieldType;
 import se.l4.silo.engine.internal.types.KeyLongType;
@@ -31,7 +53,21 @@ import se.l4.ylem.io.IOConsumer;
 /**
  * Data storage that uses {@link MVStore} to store all of the data. This
  * storage will split the data into smaller pieces so that only a subset
- * of the data needs to be loaded into memory at the same time.
+ * of the data needs to be loaded into memory at the same time. Every piece
+ * except the last is of the same size, which lets reads at an offset skip
+ * the pieces before it.
+ *
+ * <p>
+ * Data that is small enough, as determined by the inline threshold, is
+ * stored directly together with its key. This avoids the extra lookups of
+ * chunks for the small objects that commonly make up most of a collection.
+ *
+ * <p>
+ * Data can be compressed using a {@link ChunkCompression}. Every chunk is
+ * compressed on its own and the compression used is stored in the entry of
+ * the data, so data written with an earlier compression remains readable.
+ * Custom compressions used earlier must be passed as readable compressions
+ * for their data to remain readable.
  *
  * @author Andreas Holstenson
  *
@@ -43,30 +79,134 @@ public class MVDataStorage
 
 	private static final int CHUNK_SIZE = 256 * 1024;
 
-	private final TransactionValue<MVMap<Long, long[]>> readonlyKeys;
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * The number of chunk identifiers reserved at a time.
+	 */
+	private static final int CHUNK_ID_RANGE = 64;
+
+	/**
+	 * Buffers used for stores. Taken while a store is active so that a
+	 * nested store gets a buffer of its own.
+	 */
+	private static final BoundedPool<byte[]> BUFFERS = BoundedPool.perProcessor(() -> new byte[CHUNK_SIZE]);
+
+	private final TransactionValue<MVMap<Long, Entry>> readonlyKeys;
 	private final TransactionValue<MVMap<Long, byte[]>> readonlyChunks;
 
-	private final MVMap<Long, long[]> keys;
+	private final MVMap<Long, Entry> keys;
 	private final MVMap<Long, byte[]> chunks;
 
+	private final MVStoreManager store;
+	private final String prefix;
+
+	/**
+	 * The largest size in bytes that is stored inline.
+	 */
+	private final int inlineThreshold;
+
+	/**
+	 * The compression applied to new data.
+	 */
+	private final ChunkCompression compression;
 	/**
-	 * Buffer used for all stores.
+	 * Custom compressions that data may have been compressed with, by
+	 * identifier.
 	 */
-	private final byte[] buffer;
+	private final ImmutableIntObjectMap<ChunkCompression> readableCompressions;
 	/**
-	 * Lock used to protect stores. Ensures that only a single thread can
-	 * store something in this storage at once.
+	 * Scheduler used by compressions for work in the background.
 	 */
-	private final Lock storeLock;
+	private final Scheduler scheduler;
+	/**
+	 * The number of bytes written before and after compression.
+	 */
+	private final LongAdder uncompressedBytes;
+	private final LongAdder compressedBytes;
+	/**
+	 * Compressions opened to read data, by identifier. Contains the current
+	 * compression and those opened for data written with an earlier
+	 * compression.
+	 */
+	private final ConcurrentHashMap<Integer, ChunkCompression> decoders;
+	/**
+	 * The last identifier checked by {@link #reencode(int)}.
+	 */
+	private long reencodeCursor;
+
+	/**
+	 * The last identifier handed out for stored data.
+	 */
+	private final AtomicLong lastId;
+	/**
+	 * The last chunk identifier that has been reserved by a thread.
+	 */
+	private final AtomicLong lastChunkId;
+	/**
+	 * Ranges of chunk identifiers that have been reserved but not used up.
+	 * Taken while a store is active.
+	 */
+	private final BoundedPool<ChunkIdRange> chunkIds;
 
 	public MVDataStorage(
 		String prefix,
 		MVStoreManager store
 	)
 	{
-		keys = store.openMap(prefix + ".keys", new MVMap.Builder<Long, long[]>()
+		this(prefix, store, EngineConfig.INLINE_DATA_THRESHOLD);
+	}
+
+	public MVDataStorage(
+		String prefix,
+		MVStoreManager store,
+		int inlineThreshold
+	)
+	{
+		this(prefix, store, inlineThreshold, ChunkCompression.none());
+	}
+
+	public MVDataStorage(
+		String prefix,
+		MVStoreManager store,
+		int inlineThreshold,
+		ChunkCompression compression
+	)
+	{
+		this(prefix, store, inlineThreshold, compression, Lists.immutable.empty(), null);
+	}
+
+	public MVDataStorage(
+		String prefix,
+		MVStoreManager store,
+		int inlineThreshold,
+		ChunkCompression compression,
+		ListIterable<ChunkCompression> readableCompressions,
+		Scheduler scheduler
+	)
+	{
+		ChunkCompressions.check(compression);
+
+		MutableIntObjectMap<ChunkCompression> readable = IntObjectMaps.mutable.empty();
+		for(ChunkCompression readableCompression : readableCompressions)
+		{
+			ChunkCompressions.check(readableCompression);
+
+			ChunkCompression previous = readable.put(readableCompression.getId(), readableCompression);
+			if(previous != null)
+			{
+				throw new IllegalArgumentException(
+					"Compressions " + previous + " and " + readableCompression
+					+ " use the same identifier " + readableCompression.getId()
+				);
+			}
+		}
+
+		this.readableCompressions = readable.toImmutable();
+
+		keys = store.openMap(prefix + ".keys", new MVMap.Builder<Long, Entry>()
 			.keyType(KeyLongType.INSTANCE)
-			.valueType(LongArrayFieldType.INSTANCE)
+			.valueType(EntryType.INSTANCE)
 		);
 
 		chunks = store.openMap(prefix + ".chunks", new MVMap.Builder<Long, byte[]>()
@@ -74,11 +214,29 @@ public class MVDataStorage
 			.valueType(ByteChunkFieldType.INSTANCE)
 		);
 
-		readonlyChunks = version -> chunks.openVersion(version);
-		readonlyKeys = version -> keys.openVersion(version);
+		readonlyChunks = StoreTransactionValue.create(chunks.getStore(), chunks::openVersion);
+		readonlyKeys = StoreTransactionValue.create(keys.getStore(), keys::openVersion);
 
-		storeLock = new ReentrantLock();
-		buffer = new byte[CHUNK_SIZE];
+		this.inlineThreshold = inlineThreshold;
+		this.store = store;
+		this.prefix = prefix;
+
+		this.scheduler = scheduler;
+		this.compression = compression.open(store, prefix, scheduler);
+
+		decoders = new ConcurrentHashMap<>();
+		decoders.put(this.compression.getId(), this.compression);
+
+		uncompressedBytes = new LongAdder();
+		compressedBytes = new LongAdder();
+
+		Long lastKey = keys.lastKey();
+		lastId = new AtomicLong(lastKey == null ? 0 : lastKey);
+
+		Long lastChunkKey = chunks.lastKey();
+		lastChunkId = new AtomicLong(lastChunkKey == null ? 0 : lastChunkKey);
+
+		chunkIds = BoundedPool.perProcessor(ChunkIdRange::new);
 	}
 
 	@Override
@@ -94,46 +252,75 @@ public class MVDataStorage
 	public long store(IOConsumer<OutputStream> generator)
 		throws IOException
 	{
-		storeLock.lock();
-		try
+		long id = lastId.incrementAndGet();
+
+		Entry entry = write(generator);
+
+		if(log.isTraceEnabled())
 		{
-			Long lastId = keys.lastKey();
-			long id = lastId == null ? 1 : lastId + 1;
+			log.trace("Store: Mapped " + id + " to " + entry);
+		}
 
-			MutableLongList ids = new LongArrayList();
+		// Store the entry pointing to the data
+		keys.put(id, entry);
 
-			ChunkOutputStream.Control control = (data, offset, length) -> {
-				long nextId = nextInternalId();
-				ids.add(nextId);
+		return id;
+	}
 
-				byte[] buf = Arrays.copyOfRange(data, offset, offset + length);
-				chunks.put(nextId, buf);
+	@Override
+	public void replace(long id, IOConsumer<OutputStream> generator)
+		throws IOException
+	{
+		Entry entry = write(generator);
+
+		if(log.isTraceEnabled())
+		{
+			log.trace("Replace: Mapped " + id + " to " + entry);
+		}
+
+		// Point to the new data and then remove the chunks of the old data
+		Entry previous = keys.put(id, entry);
+		if(previous != null)
+		{
+			removeChunks(previous);
+		}
+	}
 
-				if(log.isTraceEnabled())
+	/**
+	 * Write the output of a generator into chunks, returning the entry
+	 * pointing to the data.
+	 *
+	 * @param generator
+	 * @return
+	 * @throws IOException
+	 */
+	private Entry write(IOConsumer<OutputStream> generator)
+		throws IOException
+	{
+		byte[] buffer = BUFFERS.acquire();
+		ChunkIdRange range = chunkIds.acquire();
+		try
+		{
+			EntryWriter writer = new EntryWriter(range);
+			try(OutputStream chunkOutput = new ChunkOutputStream(buffer, writer)
+			{
+				@Override
+				public void flush()
 				{
-					log.trace("Store: Wrote " + nextId + " with data " + Base64.getEncoder().encodeToString(buf));
+					// Chunks are always kept full so that reads can seek by chunk
 				}
-			};
-
-			try(OutputStream chunkOutput = new ChunkOutputStream(buffer, control))
+			})
 			{
 				// Ask the generator to write output
 				generator.accept(chunkOutput);
 			}
 
-			if(log.isTraceEnabled())
-			{
-				log.trace("Store: Mapped " + id + " to " + Arrays.toString(ids.toArray()));
-			}
-
-			// Store the new ids
-			keys.put(id, ids.toArray());
-
-			return id;
+			return writer.toEntry();
 		}
 		finally
 		{
-			storeLock.unlock();
+			chunkIds.release(range);
+			BUFFERS.release(buffer);
 		}
 	}
 
@@ -141,63 +328,706 @@ public class MVDataStorage
 	public InputStream get(WriteableTransactionExchange exchange, long id)
 		throws IOException
 	{
-		MVMap<Long, long[]> keys = exchange == null ? this.keys : exchange.get(readonlyKeys);
+		MVMap<Long, Entry> keys = exchange == null ? this.keys : exchange.get(readonlyKeys);
 
-		long[] ids = keys.get(id);
+		Entry entry = keys.get(id);
 
 		if(log.isTraceEnabled())
 		{
-			log.trace("Get: Mapped " + id + " to " + Arrays.toString(ids));
+			log.trace("Get: Mapped " + id + " to " + entry);
 		}
 
-		if(ids == null) return null;
+		if(entry == null) return null;
+
+		ChunkCompression compression = compressionFor(entry);
+		if(entry.isInline())
+		{
+			return new ByteArrayInputStream(compression.decompress(entry.getData()));
+		}
 
 		return new SequenceInputStream(
 			new ChunkedInputStreamEnumeration(
 				exchange == null ? this.chunks : exchange.get(readonlyChunks),
-				ids
+				compression,
+				entry.getChunks()
 			)
 		);
 	}
 
+	@Override
+	public InputStream get(WriteableTransactionExchange exchange, long id, long offset)
+		throws IOException
+	{
+		MVMap<Long, Entry> keys = exchange == null ? this.keys : exchange.get(readonlyKeys);
+
+		Entry entry = keys.get(id);
+		if(entry == null) return null;
+
+		ChunkCompression compression = compressionFor(entry);
+		InputStream in;
+		long toSkip;
+		if(entry.isInline())
+		{
+			in = new ByteArrayInputStream(compression.decompress(entry.getData()));
+			toSkip = offset;
+		}
+		else
+		{
+			// Every chunk except the last is full, skip chunks without reading them
+			long[] ids = entry.getChunks();
+			int first = (int) Math.min(ids.length, offset / CHUNK_SIZE);
+
+			in = new SequenceInputStream(
+				new ChunkedInputStreamEnumeration(
+					exchange == null ? this.chunks : exchange.get(readonlyChunks),
+					compression,
+					Arrays.copyOfRange(ids, first, ids.length)
+				)
+			);
+			toSkip = offset - (long) first * CHUNK_SIZE;
+		}
+
+		while(toSkip > 0)
+		{
+			long skipped = in.skip(toSkip);
+			if(skipped <= 0)
+			{
+				// Skip stops at the end of a chunk, check for the end of the data
+				if(in.read() == -1) break;
+
+				skipped = 1;
+			}
+
+			toSkip -= skipped;
+		}
+
+		return in;
+	}
+
+	@Override
+	public Iterator<LongObjectPair<InputStream>> iterator(
+		WriteableTransactionExchange exchange,
+		long minIdExclusive,
+		long maxIdInclusive
+	)
+	{
+		if(minIdExclusive >= maxIdInclusive)
+		{
+			return EmptyIterator.getInstance();
+		}
+
+		MVMap<Long, Entry> keys = exchange == null ? this.keys : exchange.get(readonlyKeys);
+		MVMap<Long, byte[]> chunks = exchange == null ? this.chunks : exchange.get(readonlyChunks);
+
+		Cursor<Long, Entry> cursor = keys.cursor(minIdExclusive + 1);
+		ChunkReader reader = new ChunkReader(chunks);
+		return new Iterator<LongObjectPair<InputStream>>()
+		{
+			private long nextId;
+			private Entry nextEntry;
+
+			@Override
+			public boolean hasNext()
+			{
+				return nextEntry != null || findNext();
+			}
+
+			@Override
+			public LongObjectPair<InputStream> next()
+			{
+				if(nextEntry == null && ! findNext())
+				{
+					throw new NoSuchElementException();
+				}
+
+				Entry entry = nextEntry;
+				nextEntry = null;
+
+				ChunkCompression compression = compressionFor(entry);
+				InputStream in;
+				if(entry.isInline())
+				{
+					try
+					{
+						in = new ByteArrayInputStream(compression.decompress(entry.getData()));
+					}
+					catch(IOException e)
+					{
+						throw new StorageException("Could not decompress data for " + nextId + "; " + e.getMessage(), e);
+					}
+				}
+				else
+				{
+					in = new SequenceInputStream(new ChunkReaderEnumeration(reader, compression, entry.getChunks()));
+				}
+
+				return PrimitiveTuples.pair(nextId, in);
+			}
+
+			private boolean findNext()
+			{
+				if(! cursor.hasNext()) return false;
+
+				long id = cursor.next();
+				if(id > maxIdInclusive) return false;
+
+				nextId = id;
+				nextEntry = cursor.getValue();
+				return true;
+			}
+		};
+	}
+
+	@Override
+	public long[] split(WriteableTransactionExchange exchange, int parts)
+	{
+		MVMap<Long, Entry> keys = exchange == null ? this.keys : exchange.get(readonlyKeys);
+
+		long size = keys.sizeAsLong();
+		if(size == 0 || parts <= 1)
+		{
+			return new long[] { 0, Long.MAX_VALUE };
+		}
+
+		int actualParts = (int) Math.min(parts, size);
+		long[] boundaries = new long[actualParts + 1];
+		boundaries[0] = 0;
+		for(int i=1; i<actualParts; i++)
+		{
+			// Use the position in the map to find the last key of the range
+			boundaries[i] = keys.getKey(size * i / actualParts - 1);
+		}
+		boundaries[actualParts] = Long.MAX_VALUE;
+
+		return boundaries;
+	}
+
 	@Override
 	public void delete(long id) throws IOException
 	{
-		long[] ids = keys.get(id);
-		if(ids == null) return;
+		Entry entry = keys.get(id);
+		if(entry == null) return;
 
 		if(log.isTraceEnabled())
 		{
-			log.trace("Delete: Mapped " + id + " to " + Arrays.toString(ids));
+			log.trace("Delete: Mapped " + id + " to " + entry);
+		}
+
+		removeChunks(entry);
+
+		keys.remove(id);
+	}
+
+	/**
+	 * Copy the data stored for the given identifier into another storage,
+	 * keeping the identifier. Used when data is moved between storages.
+	 *
+	 * @param id
+	 *   the identifier of the data to copy
+	 * @param target
+	 *   the storage to copy the data into
+	 * @return
+	 *   {@code true} if data was copied, {@code false} if no data is stored
+	 *   for the identifier
+	 */
+	public boolean copyTo(long id, MVDataStorage target)
+	{
+		Entry entry = keys.get(id);
+		if(entry == null) return false;
+
+		Entry copy;
+		if(entry.isInline())
+		{
+			copy = entry;
+		}
+		else
+		{
+			long[] ids = entry.getChunks();
+			long[] copiedIds = new long[ids.length];
+			ChunkIdRange range = target.chunkIds.acquire();
+			try
+			{
+				for(int i=0; i<ids.length; i++)
+				{
+					byte[] data = chunks.get(ids[i]);
+					if(data == null)
+					{
+						throw new StorageException("Chunk " + ids[i] + " is missing from storage");
+					}
+
+					copiedIds[i] = target.nextChunkId(range);
+					target.chunks.put(copiedIds[i], data);
+				}
+			}
+			finally
+			{
+				target.chunkIds.release(range);
+			}
+
+			copy = new Entry(null, copiedIds, entry.getCompression());
+		}
+
+		target.keys.put(id, copy);
+		target.lastId.accumulateAndGet(id, Math::max);
+		return true;
+	}
+
+	/**
+	 * Remove all of the data in this storage by removing the maps used. The
+	 * storage can not be used after this has been called.
+	 */
+	public void drop()
+	{
+		MVStore store = keys.getStore();
+		store.removeMap(keys);
+		store.removeMap(chunks);
+
+		String dictionaries = prefix + ".dictionaries";
+		if(store.hasMap(dictionaries))
+		{
+			store.removeMap(dictionaries);
+		}
+	}
+
+	@Override
+	public boolean reencode(int maxEntries)
+		throws IOException
+	{
+		Iterator<Long> it = keys.keyIterator(reencodeCursor + 1);
+		for(int i=0; i<maxEntries; i++)
+		{
+			if(! it.hasNext())
+			{
+				// Reached the end, start over on the next call
+				reencodeCursor = 0;
+				return false;
+			}
+
+			long id = it.next();
+			reencodeCursor = id;
+
+			Entry entry = keys.get(id);
+			if(entry == null || ! isOutdated(entry)) continue;
+
+			try(InputStream in = get(null, id))
+			{
+				replace(id, in::transferTo);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get if the data of an entry was compressed in a way that is no longer
+	 * the current one.
+	 *
+	 * @param entry
+	 * @return
+	 * @throws IOException
+	 */
+	private boolean isOutdated(Entry entry)
+		throws IOException
+	{
+		if(entry.getCompression() != compression.getId())
+		{
+			return true;
+		}
+
+		if(entry.isInline())
+		{
+			return compression.isOutdated(entry.getData());
+		}
+
+		long[] ids = entry.getChunks();
+		return ids.length > 0 && compression.isOutdated(chunks.get(ids[0]));
+	}
+
+	/**
+	 * Go through all of the stored data and move data that was stored as
+	 * chunks inline if it is small enough. Used to migrate data that was
+	 * stored before inline storage was supported.
+	 */
+	public void inlineSmallValues()
+	{
+		long migrated = 0;
+
+		Iterator<Long> it = keys.keyIterator(null);
+		while(it.hasNext())
+		{
+			Long id = it.next();
+			Entry entry = keys.get(id);
+			if(entry == null || entry.isInline()) continue;
+
+			// Compressed data was written after inline storage was supported
+			if(entry.getCompression() != NoChunkCompression.ID) continue;
+
+			byte[] data = readIfSmall(entry.getChunks());
+			if(data == null) continue;
+
+			keys.put(id, new Entry(data, null));
+			removeChunks(entry);
+
+			migrated++;
+		}
+
+		log.debug("Moved {} values to be stored inline", migrated);
+	}
+
+	/**
+	 * Read the data of the given chunks if the combined size is within the
+	 * inline threshold.
+	 *
+	 * @param ids
+	 * @return
+	 *   data if small enough, otherwise {@code null}
+	 */
+	private byte[] readIfSmall(long[] ids)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(long chunkId : ids)
+		{
+			byte[] data = chunks.get(chunkId);
+			if(data == null)
+			{
+				throw new StorageException("Chunk " + chunkId + " is missing from storage");
+			}
+
+			if(out.size() + data.length > inlineThreshold)
+			{
+				return null;
+			}
+
+			out.write(data, 0, data.length);
 		}
 
-		for(long chunk : ids)
+		return out.toByteArray();
+	}
+
+	private void removeChunks(Entry entry)
+	{
+		if(entry.isInline()) return;
+
+		for(long chunk : entry.getChunks())
 		{
 			chunks.remove(chunk);
 		}
+	}
 
-		keys.remove(id);
+	/**
+	 * Get the compression used for the data of an entry.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	private ChunkCompression compressionFor(Entry entry)
+	{
+		int id = entry.getCompression();
+		if(id == compression.getId())
+		{
+			return compression;
+		}
+
+		return decoders.computeIfAbsent(id, this::openDecoder);
+	}
+
+	/**
+	 * Open a compression able to read data compressed with the given
+	 * identifier.
+	 *
+	 * @param id
+	 * @return
+	 */
+	private ChunkCompression openDecoder(int id)
+	{
+		ChunkCompression decoder = readableCompressions.get(id);
+		if(decoder == null)
+		{
+			decoder = ChunkCompressions.builtIn(id);
+		}
+
+		if(decoder == null)
+		{
+			throw new StorageException("Data has been compressed using an unknown compression: " + id);
+		}
+
+		return decoder.open(store, prefix, scheduler);
+	}
+
+	/**
+	 * Close this storage, stopping any work the compressions perform in the
+	 * background. Waits for such work that is currently running.
+	 */
+	public void close()
+	{
+		for(ChunkCompression decoder : decoders.values())
+		{
+			decoder.close();
+		}
+	}
+
+	/**
+	 * Compress a chunk using the current compression, keeping track of the
+	 * size before and after.
+	 *
+	 * @param data
+	 * @return
+	 */
+	private byte[] compress(byte[] data, int offset, int length)
+	{
+		try
+		{
+			byte[] result = compression.compress(data, offset, length);
+
+			uncompressedBytes.add(length);
+			compressedBytes.add(result.length);
+
+			return result;
+		}
+		catch(IOException e)
+		{
+			throw new StorageException("Could not compress data; " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Get the total number of bytes written before compression.
+	 *
+	 * @return
+	 */
+	long uncompressedBytes()
+	{
+		return uncompressedBytes.sum();
+	}
+
+	/**
+	 * Get the total number of bytes written after compression.
+	 *
+	 * @return
+	 */
+	long compressedBytes()
+	{
+		return compressedBytes.sum();
+	}
+
+	/**
+	 * Get the number of entries currently stored.
+	 *
+	 * @return
+	 */
+	long entryCount()
+	{
+		return keys.sizeAsLong();
+	}
+
+	/**
+	 * Get the number of chunks currently stored.
+	 *
+	 * @return
+	 */
+	long chunkCount()
+	{
+		return chunks.sizeAsLong();
+	}
+
+	/**
+	 * Get the next chunk identifier from a range, reserving a new range of
+	 * identifiers if the range has been used up.
+	 *
+	 * @param range
+	 * @return
+	 */
+	private long nextChunkId(ChunkIdRange range)
+	{
+		if(range.next > range.last)
+		{
+			long last = lastChunkId.addAndGet(CHUNK_ID_RANGE);
+			range.next = last - CHUNK_ID_RANGE + 1;
+			range.last = last;
+		}
+
+		return range.next++;
+	}
+
+	/**
+	 * Range of reserved chunk identifiers.
+	 */
+	private static class ChunkIdRange
+	{
+		private long next = 1;
+		private long last = 0;
+	}
+
+	/**
+	 * Control for {@link ChunkOutputStream} that writes chunks to the
+	 * storage. The first chunk is held back until it is known if the data
+	 * should be stored inline or not.
+	 */
+	private class EntryWriter
+		implements ChunkOutputStream.Control
+	{
+		private final ChunkIdRange range;
+		private final MutableLongList ids;
+		private byte[] first;
+
+		public EntryWriter(ChunkIdRange range)
+		{
+			this.range = range;
+			ids = new LongArrayList();
+		}
+
+		@Override
+		public void consume(byte[] data, int offset, int length)
+		{
+			if(first == null && ids.isEmpty())
+			{
+				first = Arrays.copyOfRange(data, offset, offset + length);
+				return;
+			}
+
+			if(first != null)
+			{
+				writeChunk(first, 0, first.length);
+				first = null;
+			}
+
+			writeChunk(data, offset, length);
+		}
+
+		private void writeChunk(byte[] data, int offset, int length)
+		{
+			long nextId = nextChunkId(range);
+			ids.add(nextId);
+
+			byte[] chunk = compress(data, offset, length);
+			chunks.put(nextId, chunk);
+
+			if(log.isTraceEnabled())
+			{
+				log.trace("Store: Wrote " + nextId + " with data " + Base64.getEncoder().encodeToString(chunk));
+			}
+		}
+
+		/**
+		 * Get the entry that represents the written data.
+		 *
+		 * @return
+		 */
+		public Entry toEntry()
+		{
+			if(ids.isEmpty())
+			{
+				byte[] data = first == null ? EMPTY : first;
+				if(data.length <= inlineThreshold)
+				{
+					return new Entry(compress(data, 0, data.length), null, compression.getId());
+				}
+
+				writeChunk(data, 0, data.length);
+			}
+
+			return new Entry(null, ids.toArray(), compression.getId());
+		}
+	}
+
+	/**
+	 * Reader of chunks that keeps a cursor over the chunk map. Chunks of
+	 * data stored after each other usually have identifiers that follow each
+	 * other, in which case the cursor is moved forward instead of looking up
+	 * every chunk from the root of the map.
+	 */
+	private static class ChunkReader
+	{
+		private final MVMap<Long, byte[]> chunks;
+
+		private Cursor<Long, byte[]> cursor;
+		private long expectedNext;
+
+		public ChunkReader(MVMap<Long, byte[]> chunks)
+		{
+			this.chunks = chunks;
+		}
+
+		public byte[] read(long id)
+		{
+			if(cursor != null && expectedNext == id && cursor.hasNext())
+			{
+				if(cursor.next() == id)
+				{
+					expectedNext = id + 1;
+					return cursor.getValue();
+				}
+			}
+
+			// Not the next chunk, start a new cursor at the requested chunk
+			cursor = chunks.cursor(id);
+			if(cursor.hasNext() && cursor.next() == id)
+			{
+				expectedNext = id + 1;
+				return cursor.getValue();
+			}
+
+			cursor = null;
+			throw new StorageException("Chunk " + id + " is missing from storage");
+		}
 	}
 
-	long nextInternalId()
+	private static class ChunkReaderEnumeration
+		implements Enumeration<InputStream>
 	{
-		Long lastKey = chunks.lastKey();
-		return lastKey == null ? 1 : lastKey + 1;
+		private final ChunkReader reader;
+		private final ChunkCompression compression;
+		private final long[] ids;
+		private int idx;
+
+		public ChunkReaderEnumeration(
+			ChunkReader reader,
+			ChunkCompression compression,
+			long[] ids
+		)
+		{
+			this.reader = reader;
+			this.compression = compression;
+			this.ids = ids;
+		}
+
+		@Override
+		public boolean hasMoreElements()
+		{
+			return idx < ids.length;
+		}
+
+		@Override
+		public InputStream nextElement()
+		{
+			long id = ids[idx++];
+			try
+			{
+				return new ByteArrayInputStream(compression.decompress(reader.read(id)));
+			}
+			catch(IOException e)
+			{
+				throw new StorageException("Could not decompress chunk " + id + "; " + e.getMessage(), e);
+			}
+		}
 	}
 
 	private class ChunkedInputStreamEnumeration
 		implements Enumeration<InputStream>
 	{
 		private final MVMap<Long, byte[]> chunks;
+		private final ChunkCompression compression;
 		private final long[] ids;
 		private int idx;
 
 		public ChunkedInputStreamEnumeration(
 			MVMap<Long, byte[]> chunks,
+			ChunkCompression compression,
 			long[] ids
 		)
 		{
 			this.chunks = chunks;
+			this.compression = compression;
 			this.ids = ids;
 			idx = 0;
 		}
@@ -219,7 +1049,187 @@ public class MVDataStorage
 				log.trace("read " + id + " with data " + Base64.getEncoder().encodeToString(data));
 			}
 
-			return new ByteArrayInputStream(data);
+			try
+			{
+				return new ByteArrayInputStream(compression.decompress(data));
+			}
+			catch(IOException e)
+			{
+				throw new StorageException("Could not decompress chunk " + id + "; " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Entry as stored for every key. Either contains the data directly or
+	 * the identifiers of the chunks the data has been split into.
+	 */
+	private static class Entry
+	{
+		private final byte[] data;
+		private final long[] chunks;
+		private final int compression;
+
+		public Entry(
+			byte[] data,
+			long[] chunks
+		)
+		{
+			this(data, chunks, NoChunkCompression.ID);
+		}
+
+		public Entry(
+			byte[] data,
+			long[] chunks,
+			int compression
+		)
+		{
+			this.data = data;
+			this.chunks = chunks;
+			this.compression = compression;
+		}
+
+		public boolean isInline()
+		{
+			return data != null;
+		}
+
+		public byte[] getData()
+		{
+			return data;
+		}
+
+		public long[] getChunks()
+		{
+			return chunks;
+		}
+
+		public int getCompression()
+		{
+			return compression;
+		}
+
+		@Override
+		public String toString()
+		{
+			return isInline()
+				? "Inline{size=" + data.length + ", compression=" + compression + "}"
+				: "Chunked{chunks=" + Arrays.toString(chunks) + ", compression=" + compression + "}";
+		}
+	}
+
+	/**
+	 * {@link DataType} for {@link Entry}. Reads chunk lists written by
+	 * {@link LongArrayFieldType} so that data stored before inline storage
+	 * was introduced can still be read.
+	 */
+	private static class EntryType
+		implements DataType
+	{
+		public static final DataType INSTANCE = new EntryType();
+
+		private static final byte TAG_LEGACY_0_2 = 0x01;
+		private static final byte TAG_CHUNKED = 0x02;
+		private static final byte TAG_INLINE = 0x03;
+		private static final byte TAG_COMPRESSED_CHUNKED = 0x04;
+		private static final byte TAG_COMPRESSED_INLINE = 0x05;
+
+		@Override
+		public int compare(Object a, Object b)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int getMemory(Object obj)
+		{
+			Entry entry = (Entry) obj;
+			return entry.isInline()
+				? 64 + entry.data.length
+				: 64 + entry.chunks.length * 8;
+		}
+
+		@Override
+		public void write(WriteBuffer buff, Object obj)
+		{
+			Entry entry = (Entry) obj;
+			boolean compressed = entry.compression != NoChunkCompression.ID;
+			if(entry.isInline())
+			{
+				buff.put(compressed ? TAG_COMPRESSED_INLINE : TAG_INLINE);
+				if(compressed)
+				{
+					buff.putVarInt(entry.compression);
+				}
+
+				buff.putVarInt(entry.data.length);
+				buff.put(entry.data);
+			}
+			else
+			{
+				if(compressed)
+				{
+					buff.put(TAG_COMPRESSED_CHUNKED);
+					buff.putVarInt(entry.compression);
+				}
+
+				LongArrayFieldType.INSTANCE.write(buff, entry.chunks);
+			}
+		}
+
+		@Override
+		public void write(WriteBuffer buff, Object[] obj, int len, boolean key)
+		{
+			for(int i=0; i<len; i++)
+			{
+				write(buff, obj[i]);
+			}
+		}
+
+		@Override
+		public Object read(ByteBuffer buff)
+		{
+			byte tag = buff.get(buff.position());
+			switch(tag)
+			{
+				case TAG_LEGACY_0_2:
+				case TAG_CHUNKED:
+					return new Entry(null, LongArrayFieldType.INSTANCE.read(buff));
+				case TAG_INLINE:
+					buff.get();
+					return new Entry(readInline(buff), null);
+				case TAG_COMPRESSED_CHUNKED:
+				{
+					buff.get();
+					int compression = DataUtils.readVarInt(buff);
+					return new Entry(null, LongArrayFieldType.INSTANCE.read(buff), compression);
+				}
+				case TAG_COMPRESSED_INLINE:
+				{
+					buff.get();
+					int compression = DataUtils.readVarInt(buff);
+					return new Entry(readInline(buff), null, compression);
+				}
+				default:
+					throw new StorageException("Unknown type of data entry: " + tag);
+			}
+		}
+
+		private static byte[] readInline(ByteBuffer buff)
+		{
+			int length = DataUtils.readVarInt(buff);
+			byte[] data = new byte[length];
+			buff.get(data);
+			return data;
+		}
+
+		@Override
+		public void read(ByteBuffer buff, Object[] obj, int len, boolean key)
+		{
+			for(int i=0; i<len; i++)
+			{
+				obj[i] = read(buff);
+			}
 		}
 	}
 }
@@ -0,0 +1,70 @@
+package se.l4.silo.engine.internal;
+
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+
+/**
+ * Size information extracted from a {@link MVDataStorage}. Byte counts are
+ * the number of bytes written since the previous sample.
+ */
+public class MVDataStorageHealth
+	implements Snapshot
+{
+	private final long entries;
+	private final long chunks;
+	private final long uncompressedBytes;
+	private final long compressedBytes;
+
+	public MVDataStorageHealth(
+		long entries,
+		long chunks,
+		long uncompressedBytes,
+		long compressedBytes
+	)
+	{
+		this.entries = entries;
+		this.chunks = chunks;
+		this.uncompressedBytes = uncompressedBytes;
+		this.compressedBytes = compressedBytes;
+	}
+
+	@Override
+	public void mapToKeyValues(KeyValueReceiver receiver)
+	{
+		receiver.add("entries", entries);
+		receiver.add("chunks", chunks);
+		receiver.add("uncompressedBytes", uncompressedBytes);
+		receiver.add("compressedBytes", compressedBytes);
+		receiver.add("compressionRatio", uncompressedBytes == 0l ? 1.0 : compressedBytes / (double) uncompressedBytes);
+	}
+
+	public static SampledProbe<MVDataStorageHealth> createProbe(MVDataStorage storage)
+	{
+		return () -> new Sampler<MVDataStorageHealth>()
+		{
+			private long lastUncompressed;
+			private long lastCompressed;
+
+			@Override
+			public MVDataStorageHealth sample()
+			{
+				long uncompressed = storage.uncompressedBytes();
+				long compressed = storage.compressedBytes();
+
+				MVDataStorageHealth health = new MVDataStorageHealth(
+					storage.entryCount(),
+					storage.chunkCount(),
+					uncompressed - lastUncompressed,
+					compressed - lastCompressed
+				);
+
+				lastUncompressed = uncompressed;
+				lastCompressed = compressed;
+
+				return health;
+			}
+		};
+	}
+}
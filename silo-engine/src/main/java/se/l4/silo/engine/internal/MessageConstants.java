@@ -16,6 +16,7 @@ public class MessageConstants
 
 	public static final int STORE_CHUNK = 10;
 	public static final int DELETE = 11;
+	public static final int BLOB_CHUNK = 12;
 
 	public static final int INDEX_CHUNK = 20;
 
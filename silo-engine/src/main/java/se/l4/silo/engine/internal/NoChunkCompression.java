@@ -0,0 +1,44 @@
+package se.l4.silo.engine.internal;
+
+import java.util.Arrays;
+
+import se.l4.silo.engine.ChunkCompression;
+
+/**
+ * {@link ChunkCompression} that leaves data as is.
+ */
+public class NoChunkCompression
+	implements ChunkCompression
+{
+	public static final int ID = 0;
+
+	public static final ChunkCompression INSTANCE = new NoChunkCompression();
+
+	private NoChunkCompression()
+	{
+	}
+
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	@Override
+	public byte[] decompress(byte[] data)
+	{
+		return data;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "NoChunkCompression{}";
+	}
+}
@@ -0,0 +1,218 @@
+package se.l4.silo.engine.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.h2.mvstore.MVStore;
+
+import se.l4.silo.engine.TransactionValue;
+import se.l4.silo.engine.TransactionValueProvider;
+import se.l4.silo.engine.internal.tx.StoreTransactionValue;
+import se.l4.silo.engine.internal.tx.WriteableTransactionExchange;
+import se.l4.vibe.operations.Change;
+import se.l4.vibe.probes.CountingProbe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.snapshots.MapSnapshot;
+
+/**
+ * Cache of decoded objects for a {@link Storage}, keyed on the internal
+ * identifier of the data.
+ *
+ * <p>
+ * Every modification increases a generation, which is captured as a
+ * {@link TransactionValue} of the store the objects are in, making it part
+ * of the same view as the data. Cached objects keep the range of
+ * generations they are valid for, so readers never see data from a version
+ * newer or older than the one they are reading, while readers of an older
+ * view can still use objects that have not been modified since.
+ *
+ * <p>
+ * The same instance is returned to every reader of a cached object, so
+ * caching must only be enabled for collections of immutable objects.
+ */
+public class ObjectCache<T>
+	implements TransactionValueProvider
+{
+	private final Cache<Long, Cached<T>> cache;
+
+	private final AtomicLong generation;
+	private final TransactionValue<Long> generationValue;
+
+	private final CountingProbe hits;
+	private final CountingProbe misses;
+	private final CountingProbe evictions;
+
+	/**
+	 * Create a new cache.
+	 *
+	 * @param store
+	 *   the store the cached objects are read from
+	 * @param maximumSize
+	 *   the maximum number of objects, {@code 0} to disable the cache
+	 */
+	public ObjectCache(MVStore store, long maximumSize)
+	{
+		hits = new CountingProbe();
+		misses = new CountingProbe();
+		evictions = new CountingProbe();
+
+		generation = new AtomicLong();
+		generationValue = StoreTransactionValue.create(store, v -> generation.get());
+
+		if(maximumSize > 0)
+		{
+			cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.<Long, Cached<T>>removalListener((key, value, cause) -> {
+					if(cause.wasEvicted())
+					{
+						evictions.increase();
+					}
+				})
+				.build();
+		}
+		else
+		{
+			cache = null;
+		}
+	}
+
+	@Override
+	public void provideTransactionValues(
+		Consumer<? super TransactionValue<?>> consumer
+	)
+	{
+		consumer.accept(generationValue);
+	}
+
+	/**
+	 * Get if this cache is enabled.
+	 *
+	 * @return
+	 */
+	public boolean isEnabled()
+	{
+		return cache != null;
+	}
+
+	/**
+	 * Get an object from the cache, loading it if it is not present.
+	 *
+	 * @param exchange
+	 *   the exchange the object is being read within
+	 * @param id
+	 *   internal identifier of the object
+	 * @param loader
+	 *   function used to load the object if it is not cached
+	 * @return
+	 */
+	public T get(
+		WriteableTransactionExchange exchange,
+		long id,
+		LongFunction<T> loader
+	)
+	{
+		Long exchangeGeneration = exchange == null ? null : exchange.get(generationValue);
+		if(cache == null || exchangeGeneration == null)
+		{
+			return loader.apply(id);
+		}
+
+		long current = exchangeGeneration;
+		Cached<T> cached = cache.getIfPresent(id);
+		if(cached != null && cached.isValidFor(current))
+		{
+			hits.increase();
+			return cached.value;
+		}
+
+		misses.increase();
+
+		T loaded = loader.apply(id);
+		if(loaded != null)
+		{
+			cache.asMap().compute(id, (key, existing) -> {
+				/*
+				 * If nothing has been modified since the view of the
+				 * exchange the object is valid until the next invalidation.
+				 * Otherwise it might have been modified, in which case it is
+				 * only valid for the generation it was read in.
+				 */
+				long until = generation.get() == current ? Long.MAX_VALUE : current + 1;
+				if(existing != null && existing.until >= until)
+				{
+					return existing;
+				}
+
+				return new Cached<>(current, until, loaded);
+			});
+		}
+
+		return loaded;
+	}
+
+	/**
+	 * Invalidate an object after it has been modified. Must be called after
+	 * the modification is visible in the storage.
+	 *
+	 * @param id
+	 */
+	public void invalidate(long id)
+	{
+		long invalidated = generation.incrementAndGet();
+
+		if(cache != null)
+		{
+			// Keep the object for readers of views from before the modification
+			cache.asMap().computeIfPresent(id, (key, existing) ->
+				existing.until <= invalidated ? existing : new Cached<>(existing.from, invalidated, existing.value)
+			);
+		}
+	}
+
+	/**
+	 * Create a probe that reports hits, misses and evictions of this cache.
+	 *
+	 * @return
+	 */
+	public SampledProbe<MapSnapshot> createProbe()
+	{
+		return SampledProbe.merged()
+			.add("hits", hits.apply(Change.changeAsLong()))
+			.add("misses", misses.apply(Change.changeAsLong()))
+			.add("evictions", evictions.apply(Change.changeAsLong()))
+			.build();
+	}
+
+	/**
+	 * Object in the cache together with the generations it is valid for.
+	 */
+	private static class Cached<T>
+	{
+		/**
+		 * The first generation the object is valid for.
+		 */
+		private final long from;
+		/**
+		 * The generation the object is no longer valid for.
+		 */
+		private final long until;
+		private final T value;
+
+		public Cached(long from, long until, T value)
+		{
+			this.from = from;
+			this.until = until;
+			this.value = value;
+		}
+
+		public boolean isValidFor(long generation)
+		{
+			return generation >= from && generation < until;
+		}
+	}
+}
@@ -1,46 +1,151 @@
 package se.l4.silo.engine.internal;
 
+import java.util.Iterator;
 import java.util.function.Consumer;
 
 import org.h2.mvstore.MVMap;
+import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.ObjectDataType;
 
+import se.l4.silo.StorageException;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.TransactionValue;
 import se.l4.silo.engine.TransactionValueProvider;
+import se.l4.silo.engine.internal.tx.StoreTransactionValue;
 import se.l4.silo.engine.internal.tx.TransactionSupport;
 import se.l4.silo.engine.internal.tx.WriteableTransactionExchange;
+import se.l4.silo.engine.internal.types.ByteArrayKeyType;
+import se.l4.silo.engine.internal.types.IntKeyType;
 import se.l4.silo.engine.internal.types.KeyLongType;
+import se.l4.silo.engine.internal.types.LongKeyType;
+import se.l4.silo.engine.internal.types.StringKeyType;
 
 /**
  * Index that helps map objects to internal long identifiers.
+ *
+ * <p>
+ * Identifiers of the types supported by collections are stored using a
+ * {@link DataType} specific to the type. Other types fall back to
+ * {@link ObjectDataType}.
  */
 public class PrimaryIndex
 	implements TransactionValueProvider
 {
 	private final TransactionValue<MVMap<Object, Long>> readonlyMap;
 
+	private final Class<?> idType;
+	private final IdBloomFilter filter;
+
 	private final MVMap<Object, Long> map;
 	private final MVMap<Long, Object> reverse;
 
 	public PrimaryIndex(
 		MVStoreManager storeManager,
 		TransactionSupport transactionSupport,
-		String name
+		String name,
+		Class<?> idType,
+		IdBloomFilter filter
 	)
 	{
-		map = storeManager.openMap("primary.toExternal." + name, new MVMap.Builder<Object, Long>()
-			.keyType(new ObjectDataType())
+		this(storeManager, transactionSupport, "primary", name, idType, filter);
+	}
+
+	/**
+	 * Create an index that stores its maps using the given prefix.
+	 *
+	 * @param storeManager
+	 * @param transactionSupport
+	 * @param prefix
+	 *   prefix of the maps, {@code primary} for the objects of a collection
+	 * @param name
+	 *   the name of the collection the index belongs to
+	 * @param idType
+	 * @param filter
+	 */
+	public PrimaryIndex(
+		MVStoreManager storeManager,
+		TransactionSupport transactionSupport,
+		String prefix,
+		String name,
+		Class<?> idType,
+		IdBloomFilter filter
+	)
+	{
+		this.idType = wrap(idType);
+		this.filter = filter;
+
+		DataType keyType = keyType(this.idType);
+
+		map = storeManager.openMap(prefix + ".keys." + name, new MVMap.Builder<Object, Long>()
+			.keyType(keyType)
 			.valueType(KeyLongType.INSTANCE)
 		);
 
-		reverse = storeManager.openMap("primary.fromExternal." + name, new MVMap.Builder<Long, Object>()
+		reverse = storeManager.openMap(prefix + ".ids." + name, new MVMap.Builder<Long, Object>()
 			.keyType(KeyLongType.INSTANCE)
-			.valueType(new ObjectDataType())
+			.valueType(keyType)
 		);
 
-		readonlyMap = v -> map.openVersion(v);
-		transactionSupport.registerValue(readonlyMap);
+		if(filter.isEnabled())
+		{
+			// Fill the filter with all of the stored identifiers
+			Iterator<Object> it = map.keyIterator(null);
+			while(it.hasNext())
+			{
+				filter.add(it.next());
+			}
+		}
+
+		readonlyMap = StoreTransactionValue.create(map.getStore(), map::openVersion);
+		transactionSupport.registerValue(name, readonlyMap);
+	}
+
+	/**
+	 * Get the wrapper type for primitive types of identifiers.
+	 *
+	 * @param type
+	 * @return
+	 */
+	private static Class<?> wrap(Class<?> type)
+	{
+		if(type == long.class)
+		{
+			return Long.class;
+		}
+		else if(type == int.class)
+		{
+			return Integer.class;
+		}
+
+		return type;
+	}
+
+	/**
+	 * Get the {@link DataType} to use for the given type of identifier.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public static DataType keyType(Class<?> type)
+	{
+		if(type == Long.class)
+		{
+			return LongKeyType.INSTANCE;
+		}
+		else if(type == Integer.class)
+		{
+			return IntKeyType.INSTANCE;
+		}
+		else if(type == String.class)
+		{
+			return StringKeyType.INSTANCE;
+		}
+		else if(type == byte[].class)
+		{
+			return ByteArrayKeyType.INSTANCE;
+		}
+
+		return new ObjectDataType();
 	}
 
 	@Override
@@ -59,6 +164,11 @@ public class PrimaryIndex
 	 */
 	public long get(WriteableTransactionExchange exchange, Object key)
 	{
+		if(! idType.isInstance(key) || ! filter.mightContain(key))
+		{
+			return 0;
+		}
+
 		MVMap<Object, Long> map;
 		if(exchange != null)
 		{
@@ -70,7 +180,17 @@ public class PrimaryIndex
 		}
 
 		Long id = map.get(key);
-		return id == null ? 0 : id;
+		if(id == null)
+		{
+			if(filter.isEnabled())
+			{
+				filter.recordFalsePositive();
+			}
+
+			return 0;
+		}
+
+		return id;
 	}
 
 	/**
@@ -81,6 +201,14 @@ public class PrimaryIndex
 	 */
 	public void store(Object key, long id)
 	{
+		if(! idType.isInstance(key))
+		{
+			throw new StorageException("Invalid identifier " + key + ", expected type " + idType.getName());
+		}
+
+		// Add to the filter before the key becomes visible
+		filter.add(key);
+
 		map.put(key, id);
 		reverse.put(id, key);
 	}
@@ -92,6 +220,11 @@ public class PrimaryIndex
 	 */
 	public void remove(Object key)
 	{
+		if(! idType.isInstance(key))
+		{
+			return;
+		}
+
 		Long removed = map.remove(key);
 		if(removed != null)
 		{
@@ -0,0 +1,59 @@
+package se.l4.silo.engine.internal;
+
+import se.l4.silo.engine.ScanOptions;
+
+/**
+ * Implementation of {@link ScanOptions}.
+ */
+public class ScanOptionsImpl
+	implements ScanOptions
+{
+	public static final ScanOptions DEFAULT = new ScanOptionsImpl(1, true);
+
+	private final int parallelism;
+	private final boolean ordered;
+
+	public ScanOptionsImpl(
+		int parallelism,
+		boolean ordered
+	)
+	{
+		if(parallelism < 1)
+		{
+			throw new IllegalArgumentException("parallelism can't be less than 1");
+		}
+
+		this.parallelism = parallelism;
+		this.ordered = ordered;
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	@Override
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+
+	@Override
+	public ScanOptions withParallelism(int parallelism)
+	{
+		return new ScanOptionsImpl(parallelism, ordered);
+	}
+
+	@Override
+	public ScanOptions ordered()
+	{
+		return new ScanOptionsImpl(parallelism, true);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ScanOptions{parallelism=" + parallelism + ", ordered=" + ordered + "}";
+	}
+}
@@ -1,11 +1,17 @@
 package se.l4.silo.engine.internal;
 
+import java.nio.ByteBuffer;
+
+import org.reactivestreams.Publisher;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.l4.silo.Collection;
 import se.l4.silo.DeleteResult;
 import se.l4.silo.FetchResult;
 import se.l4.silo.StoreResult;
+import se.l4.silo.engine.ChunkCompression;
+import se.l4.silo.engine.ScanOptions;
 import se.l4.silo.engine.index.IndexDef;
 import se.l4.silo.engine.index.LocalIndex;
 import se.l4.silo.index.Query;
@@ -70,6 +76,15 @@ public interface Storage<T>
 	 */
 	Mono<T> get(Object id);
 
+	/**
+	 * Get several objects in this storage. Objects are returned in no
+	 * particular order.
+	 *
+	 * @param ids
+	 * @return
+	 */
+	Flux<T> getAll(Iterable<?> ids);
+
 	/**
 	 * Check if some data exists in this storage.
 	 *
@@ -104,6 +119,50 @@ public interface Storage<T>
 	 */
 	<R> Flux<R> stream(Query<T, R, ?> query);
 
+	/**
+	 * Store some data in this storage, blocking the calling thread until
+	 * it has been stored.
+	 *
+	 * @param id
+	 * @param data
+	 * @return
+	 */
+	<ID> StoreResult<ID, T> storeBlocking(ID id, T data);
+
+	/**
+	 * Get some data in this storage on the calling thread.
+	 *
+	 * @param id
+	 * @return
+	 *   the data, or {@code null} if nothing is stored
+	 */
+	T getBlocking(Object id);
+
+	/**
+	 * Check if some data exists in this storage on the calling thread.
+	 *
+	 * @param id
+	 * @return
+	 */
+	boolean containsBlocking(Object id);
+
+	/**
+	 * Delete some data in this storage, blocking the calling thread until
+	 * it has been deleted.
+	 *
+	 * @param id
+	 * @return
+	 */
+	<ID> DeleteResult<ID, T> deleteBlocking(ID id);
+
+	/**
+	 * Invoke a query engine on the calling thread.
+	 *
+	 * @param query
+	 * @return
+	 */
+	<R, FR extends FetchResult<R>> FR fetchBlocking(Query<T, R, FR> query);
+
 	/**
 	 * Stream everything in this storage.
 	 *
@@ -111,6 +170,34 @@ public interface Storage<T>
 	 */
 	Flux<T> stream();
 
+	/**
+	 * Stream everything in this storage using the given options.
+	 *
+	 * @param options
+	 * @return
+	 */
+	Flux<T> stream(ScanOptions options);
+
+	/**
+	 * Store binary data for the given id as a stream of bytes. Binary data
+	 * is kept apart from the objects in this storage.
+	 *
+	 * @param id
+	 * @param data
+	 * @return
+	 */
+	Mono<Void> storeStream(Object id, Publisher<ByteBuffer> data);
+
+	/**
+	 * Open a stream of a range of the binary data stored for the given id.
+	 *
+	 * @param id
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	Flux<ByteBuffer> openStream(Object id, long offset, long length);
+
 	interface Builder<T>
 	{
 		/**
@@ -131,6 +218,57 @@ public interface Storage<T>
 		 */
 		Builder<T> addIndexes(Iterable<IndexDef<T>> indexes);
 
+		/**
+		 * Set the type of identifiers used for this storage. Used to pick how
+		 * identifiers are stored.
+		 *
+		 * @param type
+		 * @return
+		 *   new instance
+		 */
+		Builder<T> withIdType(Class<?> type);
+
+		/**
+		 * Set the maximum number of decoded objects to cache.
+		 *
+		 * @param maximumSize
+		 *   the maximum number of objects, {@code 0} to disable caching
+		 * @return
+		 *   new instance
+		 */
+		Builder<T> withCacheSize(long maximumSize);
+
+		/**
+		 * Use a Bloom filter for identifiers in this storage.
+		 *
+		 * @param expectedIds
+		 *   the number of identifiers expected, {@code 0} to disable
+		 * @param falsePositiveRate
+		 *   the false positive rate to size the filter for
+		 * @return
+		 *   new instance
+		 */
+		Builder<T> withBloomFilter(long expectedIds, double falsePositiveRate);
+
+		/**
+		 * Set the compression to apply to the data in this storage.
+		 *
+		 * @param compression
+		 * @return
+		 *   new instance
+		 */
+		Builder<T> withCompression(ChunkCompression compression);
+
+		/**
+		 * Add custom compressions that data in this storage may have been
+		 * compressed with.
+		 *
+		 * @param compressions
+		 * @return
+		 *   new instance
+		 */
+		Builder<T> addReadableCompressions(Iterable<ChunkCompression> compressions);
+
 		/**
 		 * Build and return the storage.
 		 *
@@ -3,6 +3,8 @@ package se.l4.silo.engine.internal;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.eclipse.collections.api.set.SetIterable;
+
 /**
  * Interface representing the operations that actually modify the underlying
  * storage.
@@ -10,7 +12,22 @@ import java.io.InputStream;
 public interface StorageApplier
 {
 	/**
-	 * Callback called when a specific transaction has been completely applied.
+	 * Callback called when a group of transactions is about to be applied.
+	 * Groups that modify different collections may be applied concurrently
+	 * from different threads, but a group is always applied by a single
+	 * thread. Every group is completed via {@link #batchComplete(SetIterable)}
+	 * before the transactions in it are
+	 * {@link #transactionComplete(long, Throwable) completed}.
+	 *
+	 * @param collections
+	 *   the collections that the transactions in the group modify
+	 */
+	default void batchStart(SetIterable<String> collections)
+	{
+	}
+
+	/**
+	 * Callback called when a specific transaction is about to be applied.
 	 *
 	 * @param id
 	 */
@@ -27,6 +44,19 @@ public interface StorageApplier
 	void store(String collection, Object id, InputStream data)
 		throws IOException;
 
+	/**
+	 * Store binary data for the given collection and identifier. Binary
+	 * data is kept apart from the objects stored via
+	 * {@link #store(String, Object, InputStream)}.
+	 *
+	 * @param collection
+	 * @param id
+	 * @param data
+	 * @throws IOException
+	 */
+	void storeBlob(String collection, Object id, InputStream data)
+		throws IOException;
+
 	/**
 	 * Delete data for the given collection and identifier.
 	 *
@@ -48,11 +78,24 @@ public interface StorageApplier
 	void index(String collection, String index, Object id, InputStream data)
 		throws IOException;
 
+	/**
+	 * Callback called when all of the transactions in a group have been
+	 * applied.
+	 *
+	 * @param collections
+	 *   the collections that the transactions in the group modify, same as
+	 *   given to {@link #batchStart(SetIterable)}
+	 */
+	default void batchComplete(SetIterable<String> collections)
+	{
+	}
+
 	/**
 	 * Callback called when a specific transaction has been completely applied.
 	 *
 	 * @param id
 	 * @param throwable
+	 *   error that occurred while applying the transaction, or {@code null}
 	 */
 	void transactionComplete(long id, Throwable throwable);
 }
@@ -7,41 +7,52 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MapIterable;
+import org.eclipse.collections.api.set.SetIterable;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import reactor.core.publisher.Mono;
+import reactor.core.Disposable;
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 import se.l4.silo.Collection;
 import se.l4.silo.StorageException;
-import se.l4.silo.StorageTransactionException;
+import se.l4.silo.engine.ChunkCompression;
 import se.l4.silo.engine.CollectionDef;
 import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.ObjectCodec;
 import se.l4.silo.engine.Snapshot;
+import se.l4.silo.engine.Workload;
 import se.l4.silo.engine.index.IndexDef;
 import se.l4.silo.engine.internal.log.TransactionLog;
 import se.l4.silo.engine.internal.log.TransactionLogImpl;
 import se.l4.silo.engine.internal.migration.Migration;
 import se.l4.silo.engine.internal.mvstore.MVStoreCacheHealth;
 import se.l4.silo.engine.internal.mvstore.MVStoreHealth;
+import se.l4.silo.engine.internal.mvstore.MVStoreFiles;
 import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+import se.l4.silo.engine.internal.mvstore.Shard;
 import se.l4.silo.engine.internal.mvstore.SharedStorages;
+import se.l4.silo.engine.internal.mvstore.ZipSnapshot;
 import se.l4.silo.engine.internal.tx.LogBasedTransactionSupport;
 import se.l4.silo.engine.internal.tx.TransactionLogApplier;
 import se.l4.silo.engine.internal.tx.TransactionSupport;
-import se.l4.silo.engine.internal.tx.TransactionWaiter;
+import se.l4.silo.engine.internal.tx.TransactionWaiterImpl;
 import se.l4.silo.engine.log.Log;
 import se.l4.silo.engine.log.LogBuilder;
+import se.l4.silo.engine.types.IntFieldType;
+import se.l4.silo.engine.types.LongFieldType;
+import se.l4.silo.engine.types.StringFieldType;
 import se.l4.vibe.Vibe;
 import se.l4.vibe.operations.Change;
 import se.l4.vibe.probes.CountingProbe;
@@ -61,6 +72,16 @@ public class StorageEngine
 {
 	private static final Logger logger = LoggerFactory.getLogger(StorageEngine.class);
 
+	/**
+	 * How often the log is checkpointed, in seconds.
+	 */
+	private static final long CHECKPOINT_INTERVAL = 5;
+
+	/**
+	 * Key in {@link #logState} of the position that has been applied.
+	 */
+	private static final String APPLIED_POSITION = "applied";
+
 	/**
 	 * The log to use for replicating data. Created via the log builder passed
 	 * to the storage engine.
@@ -74,19 +95,50 @@ public class StorageEngine
 	private final Map<String, StorageImpl<?>> storages;
 
 	/**
-	 * The store used for storing main data.
+	 * The main store, contains the transaction log and is the first shard.
 	 */
 	private final MVStoreManagerImpl store;
 
 	/**
-	 * {@link DataStorage} used for collection data.
+	 * The shards that collections are stored in, ordered by their index.
+	 */
+	private final ImmutableList<Shard> shards;
+
+	/**
+	 * The number of shards new collections are spread over.
+	 */
+	private final int configuredShards;
+
+	/**
+	 * The index of the shard every collection has been placed in.
+	 */
+	private final MVMap<String, Integer> shardAssignments;
+
+	/**
+	 * State of the log stored together with the data, such as the position
+	 * that has been applied when the log was last checkpointed.
+	 */
+	private final MVMap<String, Long> logState;
+
+	/**
+	 * Locks held while changes are applied to a collection.
 	 */
-	private final MVDataStorage dataStorage;
+	private final Map<String, Lock> collectionLocks;
 
 	/**
-	 * {@link DataStorage} used for index data.
+	 * The configuration used for stores.
 	 */
-	private final MVDataStorage indexDataStorage;
+	private final EngineConfig config;
+
+	/**
+	 * The largest size of data that is stored inline in {@link MVDataStorage}.
+	 */
+	private final int inlineDataThreshold;
+
+	/**
+	 * Instance of {@link Vibe} used for monitoring, may be {@code null}.
+	 */
+	private final Vibe vibe;
 
 	/**
 	 * The generator used for creating identifiers for transactions.
@@ -108,7 +160,7 @@ public class StorageEngine
 	/**
 	 * Helper for working with transactions.
 	 */
-	private final TransactionSupport transactionSupport;
+	private final LogBasedTransactionSupport transactionSupport;
 
 	/**
 	 * Helper used to wait for a transaction being applied.
@@ -121,19 +173,31 @@ public class StorageEngine
 	private final Path root;
 
 	/**
-	 * Lock used for all mutations of this engine.
+	 * Schedulers for performing asynchronous tasks for this engine, one for
+	 * every workload.
 	 */
-	private final Lock mutationLock;
+	private final WorkloadSchedulers schedulers;
 
 	/**
-	 * Scheduler for performing asynchronous tasks for this engine.
+	 * Instance of {@link SharedStorages} for use by things such as indexes.
 	 */
-	private final Scheduler scheduler;
+	private final SharedStorages sharedStorages;
 
 	/**
-	 * Instance of {@link SharedStorages} for use by things such as indexes.
+	 * Data storages created by this engine, closed together with the
+	 * engine.
 	 */
-	private final SharedStorages sharedStorages;
+	private final MutableList<MVDataStorage> dataStorages;
+
+	/**
+	 * Task that checkpoints the log.
+	 */
+	private final Disposable checkpointTask;
+
+	/**
+	 * Task that removes stale transactions.
+	 */
+	private final Disposable staleTask;
 
 	private final CountingProbe stores;
 	private final CountingProbe deletes;
@@ -151,16 +215,18 @@ public class StorageEngine
 		logger.debug("Creating new storage engine in {}", root);
 
 		this.root = root;
+		this.vibe = vibe;
+		this.config = config;
 
-		scheduler = Schedulers.newBoundedElastic(
-			Runtime.getRuntime().availableProcessors() + 2,
-			Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
-			"silo"
-		);
-
-		this.sharedStorages = new SharedStorages(scheduler, root, vibe);
+		schedulers = WorkloadSchedulers.create(config);
+		dataStorages = Lists.mutable.<MVDataStorage>empty().asSynchronized();
 
-		mutationLock = new ReentrantLock();
+		this.sharedStorages = new SharedStorages(
+			schedulers.get(Workload.BACKGROUND),
+			root,
+			config.getFileAccess(),
+			vibe
+		);
 
 		try
 		{
@@ -171,19 +237,39 @@ public class StorageEngine
 			throw new StorageException("Could not create initial directory; " + e.getMessage(), e);
 		}
 
-		this.store = new MVStoreManagerImpl(scheduler, new MVStore.Builder()
-			.compress()
-			.backgroundExceptionHandler((thread, t) -> {
-				logger.error("Error occured in background for data store; " + t.getMessage(), t);
-			})
-			.cacheSize(config.getCacheSizeInMiB())
-			.cacheConcurrency(config.getCacheConcurrency())
-			.autoCompactFillRate(config.getAutoCompactFillRate())
-			.autoCommitBufferSize(config.getAutoCommitBufferSizeInKiB())
-			.fileName(root.resolve("storage.mv.bin").toString()));
+		this.store = openStore(root.resolve(fileNameOf(0)));
 
 		// Request a migration of the store
-		Migration.migrate(store.getStore());
+		MapIterable<String, Class<?>> idTypes = collectionDefs.<String, Class<?>>toMap(
+			CollectionDef::getName,
+			def -> def.getIdType().getErasedType()
+		);
+		Migration.migrate(store, config, idTypes);
+
+		/*
+		 * Open the shards, which includes shards that collections have been
+		 * placed in even if fewer shards are now configured.
+		 */
+		configuredShards = config.getShards();
+		shardAssignments = store.openMap("storage.shards", StringFieldType.INSTANCE, IntFieldType.INSTANCE);
+		logState = store.openMap("storage.log", StringFieldType.INSTANCE, LongFieldType.INSTANCE);
+
+		int shardCount = configuredShards;
+		for(int index : shardAssignments.values())
+		{
+			shardCount = Math.max(shardCount, index + 1);
+		}
+
+		MutableList<Shard> shards = Lists.mutable.of(new Shard(0, store));
+		for(int i=1; i<shardCount; i++)
+		{
+			MVStoreManagerImpl shardStore = openStore(root.resolve(fileNameOf(i)));
+			Migration.migrate(shardStore, config, idTypes);
+			shards.add(new Shard(i, shardStore));
+		}
+
+		this.shards = shards.toImmutable();
+		collectionLocks = new ConcurrentHashMap<>();
 
 		ids = new SequenceLongIdGenerator();
 		storages = new ConcurrentHashMap<>();
@@ -205,38 +291,147 @@ public class StorageEngine
 				.at("ops", "summary")
 				.done();
 
-			// Monitor our main store
-			MVStore store = this.store.getStore();
-			vibe.export(MVStoreCacheHealth.createProbe(store))
-				.at("store", "cache")
-				.done();
-
-			vibe.export(MVStoreHealth.createProbe(store))
-				.at("store", "data")
-				.done();
+			// Monitor our stores
+			for(Shard shard : this.shards)
+			{
+				String name = shard.getIndex() == 0 ? "store" : "store-" + shard.getIndex();
+				MVStore store = shard.getStore().getStore();
+				vibe.export(MVStoreCacheHealth.createProbe(store))
+					.at(name, "cache")
+					.done();
+
+				vibe.export(MVStoreHealth.createProbe(store))
+					.at(name, "data")
+					.done();
+			}
 		}
 
 		// Build log and start receiving log entries
-		transactionAdapter = new TransactionLogApplier(vibe, scheduler, store, createApplier());
+		transactionAdapter = new TransactionLogApplier(
+			vibe,
+			schedulers.get(Workload.WRITES),
+			store,
+			createApplier(),
+			config.getGroupCommitMaxSize(),
+			config.getGroupCommitWaitInMicros(),
+			config.getTransactionBufferSizeInKiB()
+		);
 		log = logBuilder.build(transactionAdapter);
 
-		transactionWaiter = new TransactionWaiterImpl();
+		if(this.shards.size() > 1 && ! log.isDurable())
+		{
+			closeQuietly();
+			throw new StorageException(
+				"Data is split into " + this.shards.size() + " shards, which requires a durable log such as FileLog;"
+				+ " without one a crash can leave transactions that span shards partially applied"
+			);
+		}
+
+		transactionWaiter = new TransactionWaiterImpl(schedulers.get(Workload.WRITES));
 		transactionLog = new TransactionLogImpl(log, ids);
 		transactionSupport = new LogBasedTransactionSupport(
-			store,
+			this.shards,
 			transactionLog,
-			mutationLock,
 			transactionWaiter
 		);
 
-		dataStorage = new MVDataStorage("data", store);
-		dataStorage.provideTransactionValues(transactionSupport::registerValue);
+		inlineDataThreshold = config.getInlineDataThresholdInBytes();
 
-		indexDataStorage = new MVDataStorage("index.data", store);
+		Scheduler background = schedulers.get(Workload.BACKGROUND);
+		checkpointTask = background.schedulePeriodically(
+			this::checkpointQuietly,
+			CHECKPOINT_INTERVAL,
+			CHECKPOINT_INTERVAL,
+			TimeUnit.SECONDS
+		);
+
+		staleTask = background.schedulePeriodically(
+			transactionAdapter::removeStale,
+			1,
+			5,
+			TimeUnit.MINUTES
+		);
 
 		// FIXME: Policies for waiting for query engines
 	}
 
+	/**
+	 * Close what has been opened when the engine can not be created.
+	 */
+	private void closeQuietly()
+	{
+		try
+		{
+			log.close();
+
+			for(Shard shard : shards.asReversed())
+			{
+				shard.getStore().close();
+			}
+		}
+		catch(IOException e)
+		{
+			logger.warn("Could not close storage; " + e.getMessage(), e);
+		}
+
+		schedulers.dispose();
+	}
+
+	/**
+	 * Open a store using the file access and cache settings of this engine.
+	 *
+	 * @param file
+	 * @return
+	 */
+	private MVStoreManagerImpl openStore(Path file)
+	{
+		return new MVStoreManagerImpl(schedulers.get(Workload.BACKGROUND), new MVStore.Builder()
+			.compress()
+			.backgroundExceptionHandler((thread, t) -> {
+				logger.error("Error occured in background for data store; " + t.getMessage(), t);
+			})
+			.cacheSize(config.getCacheSizeInMiB())
+			.cacheConcurrency(config.getCacheConcurrency())
+			.autoCompactFillRate(config.getAutoCompactFillRate())
+			.autoCommitBufferSize(config.getAutoCommitBufferSizeInKiB())
+			.fileName(MVStoreFiles.fileName(file, config.getFileAccess())));
+	}
+
+	/**
+	 * Get the shard a collection is stored in, placing the collection in a
+	 * shard if this is the first time it is used.
+	 *
+	 * @param collection
+	 * @return
+	 */
+	private Shard shardFor(String collection)
+	{
+		Integer index = shardAssignments.get(collection);
+		if(index == null)
+		{
+			// Collections with data from before sharding stay in the main store
+			MVStore main = store.getStore();
+			boolean hasData = main.hasMap("primary.keys." + collection)
+				|| main.hasMap("primary.toExternal." + collection);
+
+			index = hasData ? 0 : Math.floorMod(collection.hashCode(), configuredShards);
+			shardAssignments.put(collection, index);
+		}
+
+		return shards.get(index);
+	}
+
+	/**
+	 * Get the lock held while changes are applied to the given collection.
+	 *
+	 * @param collection
+	 * @return
+	 */
+	private Lock lockFor(String collection)
+	{
+		return collectionLocks.computeIfAbsent(collection, k -> new ReentrantLock());
+	}
+
 	/**
 	 * Create the instance of {@link StorageApplier} that is used for this
 	 * engine.
@@ -247,10 +442,17 @@ public class StorageEngine
 	{
 		return new StorageApplier()
 		{
+			@Override
+			public void batchStart(SetIterable<String> collections)
+			{
+				// Collections are always locked in order to avoid deadlocks
+				collections.toSortedList()
+					.each(collection -> lockFor(collection).lock());
+			}
+
 			@Override
 			public void transactionStart(long id)
 			{
-				mutationLock.lock();
 			}
 
 			@Override
@@ -268,12 +470,26 @@ public class StorageEngine
 				storage.directStore(id, data);
 			}
 
+			@Override
+			public void storeBlob(String collection, Object id, InputStream data)
+				throws IOException
+			{
+				stores.increase();
+
+				StorageImpl storage = storages.get(collection);
+				if(storage == null)
+				{
+					return;
+				}
+
+				storage.directStoreBlob(id, data);
+			}
+
 			@Override
 			public void delete(String collection, Object id)
 				throws IOException
 			{
 				deletes.increase();
-				mutationLock.lock();
 
 				StorageImpl storage = storages.get(collection);
 				if(storage == null)
@@ -297,11 +513,21 @@ public class StorageEngine
 				storage.directIndex(index, id, data);
 			}
 
+			@Override
+			public void batchComplete(SetIterable<String> collections)
+			{
+				// Make the changes visible to readers before unlocking
+				transactionSupport.publish(collections);
+
+				collections.toSortedList()
+					.asReversed()
+					.each(collection -> lockFor(collection).unlock());
+			}
+
 			@Override
 			public void transactionComplete(long id, Throwable throwable)
 			{
-				mutationLock.unlock();
-				transactionWaiter.complete(id);
+				transactionWaiter.complete(id, throwable);
 			}
 		};
 	}
@@ -310,6 +536,17 @@ public class StorageEngine
 	public void close()
 			throws IOException
 	{
+		checkpointTask.dispose();
+		staleTask.dispose();
+
+		// Let groups applied in parallel finish before anything is closed
+		transactionAdapter.awaitIdle();
+
+		// Stop training of dictionaries before the stores are closed
+		dataStorages.forEach(MVDataStorage::close);
+
+		checkpoint();
+
 		log.close();
 
 		for(StorageImpl storage : storages.values())
@@ -317,8 +554,12 @@ public class StorageEngine
 			storage.close();
 		}
 
-		scheduler.dispose();
-		store.close();
+		schedulers.dispose();
+
+		for(Shard shard : shards.asReversed())
+		{
+			shard.getStore().close();
+		}
 	}
 
 	/**
@@ -353,6 +594,12 @@ public class StorageEngine
 		return new Storage.Builder<T>()
 		{
 			private final MutableList<IndexDef<T>> indexes = Lists.mutable.empty();
+			private long cacheSize;
+			private Class<?> idType = Object.class;
+			private long bloomFilterExpectedIds;
+			private double bloomFilterFalsePositiveRate;
+			private ChunkCompression compression = ChunkCompression.none();
+			private final MutableList<ChunkCompression> readableCompressions = Lists.mutable.empty();
 
 			@Override
 			public Storage.Builder<T> addIndexes(Iterable<IndexDef<T>> indexes)
@@ -368,23 +615,105 @@ public class StorageEngine
 				return this;
 			}
 
+			@Override
+			public Storage.Builder<T> withIdType(Class<?> type)
+			{
+				this.idType = type;
+				return this;
+			}
+
+			@Override
+			public Storage.Builder<T> withCacheSize(long maximumSize)
+			{
+				this.cacheSize = maximumSize;
+				return this;
+			}
+
+			@Override
+			public Storage.Builder<T> withBloomFilter(long expectedIds, double falsePositiveRate)
+			{
+				this.bloomFilterExpectedIds = expectedIds;
+				this.bloomFilterFalsePositiveRate = falsePositiveRate;
+				return this;
+			}
+
+			@Override
+			public Storage.Builder<T> withCompression(ChunkCompression compression)
+			{
+				this.compression = compression;
+				return this;
+			}
+
+			@Override
+			public Storage.Builder<T> addReadableCompressions(Iterable<ChunkCompression> compressions)
+			{
+				this.readableCompressions.withAll(compressions);
+				return this;
+			}
+
 			@Override
 			public Storage<T> build()
 			{
+				// Every collection stores its data in its own maps
+				Shard shard = shardFor(storageName);
+				MVStoreManagerImpl shardStore = shard.getStore();
+
+				MVDataStorage dataStorage = createDataStorage(
+					shardStore,
+					"data." + storageName,
+					compression,
+					readableCompressions
+				);
+				dataStorage.provideTransactionValues(v -> transactionSupport.registerValue(storageName, v));
+
+				// Binary data is kept apart so that it is never decoded as an object
+				MVDataStorage blobStorage = createDataStorage(
+					shardStore,
+					"blob.data." + storageName,
+					compression,
+					readableCompressions
+				);
+				blobStorage.provideTransactionValues(v -> transactionSupport.registerValue(storageName, v));
+
+				ObjectCache<T> cache = new ObjectCache<>(shardStore.getStore(), cacheSize);
+				if(vibe != null && cache.isEnabled())
+				{
+					vibe.export(cache.createProbe())
+						.at("cache", storageName)
+						.done();
+				}
+
+				IdBloomFilter filter = new IdBloomFilter(
+					bloomFilterExpectedIds,
+					bloomFilterFalsePositiveRate
+				);
+
+				if(vibe != null && filter.isEnabled())
+				{
+					vibe.export(filter.createProbe())
+						.at("filter", storageName)
+						.done();
+				}
+
 				// Create a new storage instance
 				StorageImpl storage = new StorageImpl(
 					StorageEngine.this,
 					sharedStorages,
-					scheduler,
+					schedulers.get(Workload.QUERIES),
+					schedulers.get(Workload.INDEX_MAINTENANCE),
 					transactionSupport,
 
-					store,
+					shardStore,
 					dataStorage,
+					blobStorage,
 
 					storageName,
+					idType,
+					filter,
 					codec,
+					cache,
 
-					indexDataStorage,
+					uniqueName -> createDataStorage(shardStore, "index.data." + uniqueName, ChunkCompression.none(), Lists.immutable.empty()),
 					root.resolve("index").resolve(name),
 					indexes
 				);
@@ -396,77 +725,203 @@ public class StorageEngine
 		};
 	}
 
+	/**
+	 * Create a {@link MVDataStorage} that stores its data in maps using the
+	 * given prefix.
+	 *
+	 * @param store
+	 * @param prefix
+	 * @param compression
+	 * @param readableCompressions
+	 * @return
+	 */
+	private MVDataStorage createDataStorage(
+		MVStoreManager store,
+		String prefix,
+		ChunkCompression compression,
+		ListIterable<ChunkCompression> readableCompressions
+	)
+	{
+		MVDataStorage storage = new MVDataStorage(
+			prefix,
+			store,
+			inlineDataThreshold,
+			compression,
+			readableCompressions,
+			schedulers.get(Workload.BACKGROUND)
+		);
+
+		dataStorages.add(storage);
+
+		if(vibe != null)
+		{
+			vibe.export(MVDataStorageHealth.createProbe(storage))
+				.at("storage", prefix)
+				.done();
+		}
+
+		return storage;
+	}
+
 	/**
 	 * Create a snapshot of the data stored in this storage engine. This
 	 * can be transfered to another engine or used as a backup.
 	 *
+	 * <p>
+	 * Snapshots contain a single store, so they can not be created when
+	 * data is split into several shards.
+	 *
 	 * @return
 	 */
 	public Snapshot createSnapshot()
 	{
-		return store.createSnapshot();
+		if(shards.size() == 1)
+		{
+			return store.createSnapshot();
+		}
+
+		/*
+		 * Hold the lock of every collection so that no transactions are
+		 * applied while the shards are committed, keeping transactions that
+		 * span shards whole in the snapshot.
+		 */
+		ListIterable<Lock> locks = Lists.mutable.withAll(collectionLocks.keySet())
+			.sortThis()
+			.collect(this::lockFor);
+
+		locks.each(Lock::lock);
+		try
+		{
+			return new ZipSnapshot(
+				shards.collect(shard -> fileNameOf(shard.getIndex())),
+				shards.collect(shard -> shard.getStore().createSnapshot())
+			);
+		}
+		finally
+		{
+			locks.asReversed().each(Lock::unlock);
+		}
 	}
 
-	public void compact(long timeInMillis)
+	/**
+	 * Get the name of the file that stores the given shard.
+	 *
+	 * @param shard
+	 * @return
+	 */
+	private static String fileNameOf(int shard)
 	{
-		store.compact(timeInMillis);
+		return shard == 0 ? "storage.mv.bin" : "storage-" + shard + ".mv.bin";
 	}
 
 	/**
-	 * Implementation of {@link TransactionWaiter} that uses latches to wait
-	 * for transactions.
+	 * Recover entries from the log that might not have been applied before
+	 * the engine was last closed. Called after all storages have been
+	 * created.
 	 */
-	private static class TransactionWaiterImpl
-		implements TransactionWaiter
+	public void recover()
 	{
-		private final ConcurrentHashMap<Long, CountDownLatch> latches;
+		Long applied = logState.get(APPLIED_POSITION);
+		transactionAdapter.startRecovery(applied == null ? 0 : applied);
+		try
+		{
+			log.recover();
+		}
+		catch(IOException e)
+		{
+			throw new StorageException("Could not recover entries from log; " + e.getMessage(), e);
+		}
+		finally
+		{
+			transactionAdapter.finishRecovery();
+		}
+
+		transactionAdapter.awaitIdle();
+	}
+
+	/**
+	 * Checkpoint the log, committing the stores so that the log can discard
+	 * entries that have been durably applied.
+	 */
+	public void checkpoint()
+	{
+		try
+		{
+			log.checkpoint(this::persist);
+		}
+		catch(IOException e)
+		{
+			throw new StorageException("Could not checkpoint log; " + e.getMessage(), e);
+		}
+	}
 
-		public TransactionWaiterImpl()
+	private void checkpointQuietly()
+	{
+		try
+		{
+			checkpoint();
+		}
+		catch(Throwable t)
 		{
-			latches = new ConcurrentHashMap<>();
+			logger.warn("Could not checkpoint; " + t.getMessage(), t);
 		}
+	}
+
+	/**
+	 * Commit all of the stores used for data, making what has been applied
+	 * durable.
+	 *
+	 * @return
+	 *   position of the oldest log entry needed by active transactions
+	 */
+	private long persist(long appliedPosition)
+	{
+		// Let the stores contain every commit before the position
+		transactionAdapter.awaitIdle();
+
+		// Transactions active before the commit must be kept in the log
+		long needed = transactionAdapter.getOldestActivePosition();
 
-		/**
-		 * Complete the given transaction.
-		 *
-		 * @param tx
+		/*
+		 * The main store records the applied position and is committed last,
+		 * so the other shards are never older than the position.
 		 */
-		public void complete(long tx)
+		for(Shard shard : shards.asReversed())
 		{
-			/*
-			 * Remove the latch associated with the given transaction and if
-			 * it's available count it down.
-			 */
-			CountDownLatch latch = latches.remove(tx);
-			if(latch != null)
+			if(shard.getIndex() == 0)
 			{
-				latch.countDown();
+				logState.put(APPLIED_POSITION, appliedPosition);
 			}
+
+			shard.getStore().getStore().commit();
 		}
 
-		@Override
-		public Mono<Void> getWaiter(long tx)
+		return needed;
+	}
+
+	public void compact(long timeInMillis)
+	{
+		// Use up to half of the time to compress data with outdated compression
+		long start = System.currentTimeMillis();
+		long deadline = start + timeInMillis / 2;
+		for(Map.Entry<String, StorageImpl<?>> e : storages.entrySet())
 		{
-			/*
-			 * This is called from {@link LogBasedTransactionSupport} to
-			 * retrieve a mono that will represent the end of a transaction.
-			 *
-			 * Create a latch, store it and return a mono that will await it.
-			 */
-			CountDownLatch latch = new CountDownLatch(1);
-			latches.put(tx, latch);
-
-			return Mono.fromRunnable(() -> {
-				try
-				{
-					latch.await();
-				}
-				catch(InterruptedException e)
-				{
-					Thread.currentThread().interrupt();
-					throw new StorageTransactionException("Aborted waiting for transaction, thread was interrupted", e);
-				}
-			});
+			try
+			{
+				e.getValue().reencode(lockFor(e.getKey()), deadline);
+			}
+			catch(IOException ex)
+			{
+				throw new StorageException("Could not compress data again; " + ex.getMessage(), ex);
+			}
+		}
+
+		// Split the remaining time between the shards
+		long remaining = timeInMillis - (System.currentTimeMillis() - start);
+		long perShard = Math.max(0, remaining) / shards.size();
+		for(Shard shard : shards)
+		{
+			shard.getStore().compact(perShard);
 		}
 	}
 }
@@ -3,17 +3,24 @@ package se.l4.silo.engine.internal;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
 import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableLongList;
 import org.eclipse.collections.api.map.ImmutableMap;
 import org.eclipse.collections.api.map.MapIterable;
 import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.eclipse.collections.impl.tuple.primitive.PrimitiveTuples;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +34,7 @@ import se.l4.silo.StorageException;
 import se.l4.silo.StoreResult;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.ScanOptions;
 import se.l4.silo.engine.index.Index;
 import se.l4.silo.engine.index.IndexDef;
 import se.l4.silo.engine.index.LocalIndex;
@@ -46,13 +54,39 @@ public class StorageImpl<T>
 	implements Storage<T>, Closeable
 {
 	private static final Logger log = LoggerFactory.getLogger(StorageImpl.class);
+
+	/**
+	 * The number of entries checked by {@link #reencode(Lock, long)} while
+	 * holding the lock.
+	 */
+	private static final int REENCODE_BATCH_SIZE = 1000;
+
+	/**
+	 * The size of buffers emitted by {@link #openStream(Object, long, long)}.
+	 */
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The number of buffers requested at a time by
+	 * {@link #storeStream(Object, Publisher)}.
+	 */
+	private static final int STREAM_PREFETCH = 4;
+
+	private final Scheduler queryScheduler;
 	private final TransactionSupport transactionSupport;
 	private final DataStorage mainDataStorage;
+	private final DataStorage blobDataStorage;
 
 	private final String name;
 	private final ObjectCodec<T> codec;
+	private final ObjectCache<T> cache;
 
 	private final PrimaryIndex primary;
+	/**
+	 * Index of binary data stored via {@link #storeStream(Object, Publisher)},
+	 * kept apart from the objects of this storage.
+	 */
+	private final PrimaryIndex blobs;
 	private final MapIterable<String, Index<T, ?>> queryEngines;
 	private final MapIterable<String, IndexEngineController<T, ?>> queryControllers;
 
@@ -66,30 +100,49 @@ public class StorageImpl<T>
 		StorageEngine engine,
 		SharedStorages storages,
 
-		Scheduler scheduler,
+		Scheduler queryScheduler,
+		Scheduler indexScheduler,
 		TransactionSupport transactionSupport,
 
 		MVStoreManager store,
 		DataStorage mainDataStorage,
+		DataStorage blobDataStorage,
 
 		String name,
+		Class<?> idType,
+		IdBloomFilter filter,
 		ObjectCodec<T> codec,
+		ObjectCache<T> cache,
 
-		DataStorage indexDataStorage,
+		Function<String, DataStorage> indexDataStorages,
 		Path indexDataPath,
 		RichIterable<IndexDef<?>> indexes
 	)
 	{
 		this.name = name;
+		this.queryScheduler = queryScheduler;
 		this.transactionSupport = transactionSupport;
 		this.mainDataStorage = mainDataStorage;
+		this.blobDataStorage = blobDataStorage;
 		this.primary = new PrimaryIndex(
 			store,
 			transactionSupport,
-			name
+			name,
+			idType,
+			filter
+		);
+		this.blobs = new PrimaryIndex(
+			store,
+			transactionSupport,
+			"blob",
+			name,
+			idType,
+			new IdBloomFilter(0, 0)
 		);
 
 		this.codec = codec;
+		this.cache = cache;
+		cache.provideTransactionValues(v -> transactionSupport.registerValue(name, v));
 
 		reads = new LongAdder();
 		stores = new LongAdder();
@@ -99,7 +152,7 @@ public class StorageImpl<T>
 			String key = def.getName();
 			return def.create(new IndexEngineCreationEncounterImpl(
 				storages,
-				scheduler,
+				indexScheduler,
 				indexDataPath,
 				key,
 				name + "-" + key
@@ -108,14 +161,14 @@ public class StorageImpl<T>
 
 		this.queryControllers = this.queryEngines.collectValues((key, e) -> new IndexEngineController<>(
 			store,
-			mainDataStorage,
+			indexDataStorages.apply(name + "-" + key),
 			e,
 			name + "-" + key
 		));
 
 		// Register transactional values used by query engines
 		queryControllers
-			.each(q -> q.provideTransactionValues(transactionSupport::registerValue));
+			.each(q -> q.provideTransactionValues(v -> transactionSupport.registerValue(name, v)));
 
 		// Start each of the indexes using the executor
 		long largestId = primary.latest();
@@ -141,7 +194,7 @@ public class StorageImpl<T>
 
 		disposables = Flux.fromIterable(queryControllers)
 			.parallel()
-			.runOn(scheduler)
+			.runOn(indexScheduler)
 			.flatMap(c -> c.start(rebuild))
 			.sequential()
 			.collectList()
@@ -198,79 +251,267 @@ public class StorageImpl<T>
 	@Override
 	public <ID> Mono<StoreResult<ID, T>> store(ID id, T instance)
 	{
-		return transactionSupport.withExchange(tx -> {
-			if(log.isTraceEnabled())
+		return transactionSupport.withExchange(tx -> store(tx, id, instance));
+	}
+
+	@Override
+	public <ID> StoreResult<ID, T> storeBlocking(ID id, T instance)
+	{
+		return transactionSupport.withExchangeBlocking(tx -> store(tx, id, instance));
+	}
+
+	/**
+	 * Store an object within an exchange.
+	 *
+	 * @param tx
+	 * @param id
+	 * @param instance
+	 * @return
+	 */
+	private <ID> StoreResult<ID, T> store(
+		WriteableTransactionExchange tx,
+		ID id,
+		T instance
+	)
+	{
+		if(log.isTraceEnabled())
+		{
+			log.trace("[" + name + "] TX store of " + id);
+		}
+
+		try
+		{
+			// Encode the main object
+			tx.store(name, id, out -> codec.encode(instance, out));
+
+			// Generate index data for the object
+			for(IndexEngineController<T, ?> controller : queryControllers)
 			{
-				log.trace("[" + name + "] TX store of " + id);
+				tx.index(name, controller.getName(), id, out -> {
+					controller.generate(instance, out);
+				});
 			}
 
-			try
-			{
-				// Encode the main object
-				tx.store(name, id, out -> codec.encode(instance, out));
+			return new StoreResultImpl<>(
+				id,
+				instance
+			);
+		}
+		catch(Throwable e)
+		{
+			throw new StorageException("Unable to store data with id " + id + "; " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public <ID> Mono<DeleteResult<ID, T>> delete(ID id)
+	{
+		return transactionSupport.withExchange(tx -> delete(tx, id), primary, blobs);
+	}
+
+	@Override
+	public <ID> DeleteResult<ID, T> deleteBlocking(ID id)
+	{
+		return transactionSupport.withExchangeBlocking(tx -> delete(tx, id), primary, blobs);
+	}
+
+	/**
+	 * Delete an object within an exchange.
+	 *
+	 * @param tx
+	 * @param id
+	 * @return
+	 */
+	private <ID> DeleteResult<ID, T> delete(
+		WriteableTransactionExchange tx,
+		ID id
+	)
+	{
+		if(log.isTraceEnabled())
+		{
+			log.trace("[" + name + "] TX delete of " + id);
+		}
+
+		if(primary.get(tx, id) == 0 && blobs.get(tx, id) == 0)
+		{
+			return new DeleteResultImpl<>(id, false);
+		}
+
+		try
+		{
+			tx.delete(name, id);
+			return new DeleteResultImpl<ID,T>(id, true);
+		}
+		catch(Throwable e)
+		{
+			throw new StorageException("Unable to delete data with id " + id + "; " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public Mono<T> get(Object id)
+	{
+		return transactionSupport.withExchange(tx -> get(tx, id), mainDataStorage, primary, cache);
+	}
+
+	@Override
+	public T getBlocking(Object id)
+	{
+		return transactionSupport.withExchangeBlocking(tx -> get(tx, id), mainDataStorage, primary, cache);
+	}
+
+	/**
+	 * Get an object within an exchange.
+	 *
+	 * @param tx
+	 * @param id
+	 * @return
+	 *   the object, or {@code null} if no object is stored
+	 */
+	private T get(WriteableTransactionExchange tx, Object id)
+	{
+		long internalId = primary.get(tx, id);
+
+		if(log.isTraceEnabled())
+		{
+			log.trace("[" + name + "] Getting " + id + " mapped to internal id " + internalId);
+		}
+
+		if(internalId == 0) return null;
+
+		return getInternal(tx, internalId);
+	}
 
-				// Generate index data for the object
-				for(IndexEngineController<T, ?> controller : queryControllers)
+	@Override
+	public Flux<T> getAll(Iterable<?> ids)
+	{
+		return transactionSupport.fluxWithExchange(tx -> {
+			MutableLongList internalIds = new LongArrayList();
+			for(Object id : ids)
+			{
+				long internalId = primary.get(tx, id);
+				if(internalId != 0)
 				{
-					tx.index(name, controller.getName(), id, out -> {
-						controller.generate(instance, out);
-					});
+					internalIds.add(internalId);
 				}
-
-				return new StoreResultImpl<>(
-					id,
-					instance
-				);
 			}
-			catch(Throwable e)
+
+			if(log.isTraceEnabled())
 			{
-				throw new StorageException("Unable to store data with id " + id + "; " + e.getMessage(), e);
+				log.trace("[" + name + "] Getting " + internalIds.size() + " objects");
 			}
-		});
+
+			// Sort the identifiers so that data is read in storage order
+			MutableLongList sorted = internalIds.distinct().sortThis();
+			return Flux.range(0, sorted.size())
+				.<T>handle((idx, sink) -> {
+					T object = getInternal(tx, sorted.get(idx));
+					if(object != null)
+					{
+						sink.next(object);
+					}
+				});
+		}, mainDataStorage, primary, cache);
 	}
 
 	@Override
-	public <ID> Mono<DeleteResult<ID, T>> delete(ID id)
+	public Mono<Void> storeStream(Object id, Publisher<ByteBuffer> data)
 	{
-		return transactionSupport.withExchange(tx -> {
+		return transactionSupport.monoWithExchange(tx -> {
 			if(log.isTraceEnabled())
 			{
-				log.trace("[" + name + "] TX delete of " + id);
+				log.trace("[" + name + "] TX stream store of " + id);
 			}
 
-			long internalId = primary.get(tx, id);
-			if(internalId == 0)
-			{
-				return new DeleteResultImpl<>(id, false);
-			}
+			OutputStream out = tx.openBlob(name, id);
+			return Flux.from(data)
+				.limitRate(STREAM_PREFETCH)
+				.doOnNext(buffer -> write(out, id, buffer))
+				.then(Mono.fromRunnable(() -> {
+					try
+					{
+						out.close();
+					}
+					catch(IOException e)
+					{
+						throw new StorageException("Unable to store stream with id " + id + "; " + e.getMessage(), e);
+					}
+				}));
+		});
+	}
 
-			try
+	/**
+	 * Write a buffer to a stream.
+	 *
+	 * @param out
+	 * @param id
+	 * @param buffer
+	 */
+	private void write(OutputStream out, Object id, ByteBuffer buffer)
+	{
+		try
+		{
+			if(buffer.hasArray())
 			{
-				tx.delete(name, id);
-				return new DeleteResultImpl<ID,T>(id, true);
+				out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				buffer.position(buffer.limit());
 			}
-			catch(Throwable e)
+			else
 			{
-				throw new StorageException("Unable to delete data with id " + id + "; " + e.getMessage(), e);
+				byte[] data = new byte[Math.min(buffer.remaining(), STREAM_BUFFER_SIZE)];
+				while(buffer.hasRemaining())
+				{
+					int length = Math.min(buffer.remaining(), data.length);
+					buffer.get(data, 0, length);
+					out.write(data, 0, length);
+				}
 			}
-		}, primary);
+		}
+		catch(IOException e)
+		{
+			throw new StorageException("Unable to store stream with id " + id + "; " + e.getMessage(), e);
+		}
 	}
 
 	@Override
-	public Mono<T> get(Object id)
+	public Flux<ByteBuffer> openStream(Object id, long offset, long length)
 	{
-		return transactionSupport.withExchange(tx -> {
-			long internalId = primary.get(tx, id);
+		if(offset < 0 || length < 0)
+		{
+			return Flux.error(new IllegalArgumentException("offset and length can not be negative"));
+		}
 
-			if(log.isTraceEnabled())
-			{
-				log.trace("[" + name + "] Getting " + id + " mapped to internal id " + internalId);
-			}
+		return transactionSupport.fluxWithExchange(tx -> {
+			long internalId = blobs.get(tx, id);
+			if(internalId == 0) return Flux.empty();
 
-			if(internalId == 0) return null;
+			reads.increment();
+
+			return Flux.<ByteBuffer, RangeReader>generate(
+				() -> new RangeReader(blobDataStorage.get(tx, internalId, offset), length),
+				(reader, sink) -> {
+					try
+					{
+						ByteBuffer buffer = reader.next();
+						if(buffer == null)
+						{
+							sink.complete();
+						}
+						else
+						{
+							sink.next(buffer);
+						}
+					}
+					catch(IOException e)
+					{
+						sink.error(new StorageException("Unable to read stream with id " + id + "; " + e.getMessage(), e));
+					}
 
-			return getInternal(tx, internalId);
-		}, mainDataStorage, primary);
+					return reader;
+				},
+				RangeReader::close
+			);
+		}, blobDataStorage, blobs);
 	}
 
 	@Override
@@ -281,12 +522,32 @@ public class StorageImpl<T>
 		});
 	}
 
+	@Override
+	public boolean containsBlocking(Object id)
+	{
+		return transactionSupport.withExchangeBlocking(tx -> {
+			return primary.get(tx, id) > 0;
+		});
+	}
+
 	public T getInternal(WriteableTransactionExchange exchange, long id)
+	{
+		reads.increment();
+
+		return cache.get(exchange, id, internalId -> read(exchange, internalId));
+	}
+
+	/**
+	 * Read and decode the data with the given internal id.
+	 *
+	 * @param exchange
+	 * @param id
+	 * @return
+	 */
+	private T read(WriteableTransactionExchange exchange, long id)
 	{
 		try
 		{
-			reads.increment();
-
 			try(InputStream in = mainDataStorage.get(exchange, id);)
 			{
 				return codec.decode(in);
@@ -334,10 +595,36 @@ public class StorageImpl<T>
 
 		return controller.whenQueryable().then(transactionSupport.monoWithExchange(tx ->
 			controller.fetch(createQueryEncounter(tx, query)),
-			mainDataStorage, primary, controller
+			mainDataStorage, primary, cache, controller
 		));
 	}
 
+	@Override
+	public <R, FR extends FetchResult<R>> FR fetchBlocking(
+		Query<T, R, FR> query
+	)
+	{
+		IndexEngineController<?, ?> controller = queryControllers.get(query.getIndex());
+		if(controller == null)
+		{
+			throw new StorageException("Unknown query engine `" + query.getIndex() + "`");
+		}
+
+		if(! controller.isQueryable())
+		{
+			controller.whenQueryable().block();
+		}
+
+		/*
+		 * Query runners are reactive, but the exchange is held on this
+		 * thread until the result is available.
+		 */
+		return transactionSupport.withExchangeBlocking(tx ->
+			controller.<R, FR>fetch(createQueryEncounter(tx, query)).block(),
+			mainDataStorage, primary, cache, controller
+		);
+	}
+
 	@Override
 	public <R> Flux<R> stream(Query<T, R, ?> query)
 	{
@@ -349,49 +636,38 @@ public class StorageImpl<T>
 
 		return controller.whenQueryable().thenMany(transactionSupport.fluxWithExchange(tx ->
 			controller.stream(createQueryEncounter(tx, query)),
-			mainDataStorage, primary, controller
+			mainDataStorage, primary, cache, controller
 		));
 	}
 
 	public Iterator<LongObjectPair<T>> createIterator(long minIdExclusive, long maxIdInclusive)
 	{
-		long first = primary.nextAfter(minIdExclusive);
-		if(first == 0)
-		{
-			return Collections.emptyIterator();
-		}
+		return decode(mainDataStorage.iterator(null, minIdExclusive, maxIdInclusive));
+	}
 
+	/**
+	 * Decode data as it is iterated over.
+	 *
+	 * @param it
+	 * @return
+	 */
+	private Iterator<LongObjectPair<T>> decode(Iterator<LongObjectPair<InputStream>> it)
+	{
 		return new Iterator<LongObjectPair<T>>()
 		{
-			private long current = first;
-
 			@Override
 			public boolean hasNext()
 			{
-				return current != 0;
+				return it.hasNext();
 			}
 
 			@Override
 			public LongObjectPair<T> next()
 			{
-				if(current == 0)
-				{
-					throw new NoSuchElementException();
-				}
-
-				try
+				LongObjectPair<InputStream> pair = it.next();
+				try(InputStream in = pair.getTwo())
 				{
-					long toFetch = current;
-					current = primary.nextAfter(current);
-					if(current > maxIdInclusive)
-					{
-						current = 0;
-					}
-
-					try(InputStream in = mainDataStorage.get(null, toFetch))
-					{
-						return PrimitiveTuples.pair(toFetch, codec.decode(in));
-					}
+					return PrimitiveTuples.pair(pair.getOne(), codec.decode(in));
 				}
 				catch(IOException e)
 				{
@@ -404,47 +680,42 @@ public class StorageImpl<T>
 	@Override
 	public Flux<T> stream()
 	{
-		return Flux.fromIterable(() -> {
-			long first = primary.first();
-			if(first == 0)
-			{
-				return Collections.emptyIterator();
-			}
+		return transactionSupport.fluxWithExchange(tx ->
+			Flux.fromIterable(() -> decode(mainDataStorage.iterator(tx, 0, Long.MAX_VALUE)))
+				.map(LongObjectPair::getTwo),
+			mainDataStorage
+		);
+	}
 
-			return new Iterator<T>()
-			{
-				private long current = first;
+	@Override
+	public Flux<T> stream(ScanOptions options)
+	{
+		if(options.getParallelism() <= 1)
+		{
+			return stream();
+		}
 
-				@Override
-				public boolean hasNext()
-				{
-					return current != 0;
-				}
+		return transactionSupport.fluxWithExchange(tx -> {
+			long[] boundaries = mainDataStorage.split(tx, options.getParallelism());
 
-				@Override
-				public T next()
-				{
-					if(current == 0)
-					{
-						throw new NoSuchElementException();
-					}
+			// Read every range on its own thread from the same version
+			MutableList<Flux<T>> ranges = Lists.mutable.empty();
+			for(int i=0; i<boundaries.length-1; i++)
+			{
+				long min = boundaries[i];
+				long max = boundaries[i + 1];
 
-					try
-					{
-						long toFetch = current;
-						current = primary.nextAfter(current);
-						try(InputStream in = mainDataStorage.get(null, toFetch))
-						{
-							return codec.decode(in);
-						}
-					}
-					catch(IOException e)
-					{
-						throw new StorageException("Unable to get next item; " + e.getMessage(), e);
-					}
-				}
-			};
-		});
+				ranges.add(
+					Flux.fromIterable(() -> decode(mainDataStorage.iterator(tx, min, max)))
+						.map(LongObjectPair::getTwo)
+						.subscribeOn(queryScheduler)
+				);
+			}
+
+			return options.isOrdered()
+				? Flux.mergeSequential(ranges)
+				: Flux.merge(ranges);
+		}, mainDataStorage);
 	}
 
 	/**
@@ -463,25 +734,89 @@ public class StorageImpl<T>
 		}
 
 		long previousInternalId = primary.get(null, id);
+		if(previousInternalId != 0)
+		{
+			/*
+			 * Rewrite the data using the same internal id. Indexes replace
+			 * their data for the id when the new index data is applied so
+			 * they do not need to be told about a delete.
+			 */
+			mainDataStorage.replace(previousInternalId, in::transferTo);
+			cache.invalidate(previousInternalId);
+		}
+		else
+		{
+			// Store the new data and associate it with the primary index
+			long internalId = mainDataStorage.store(in::transferTo);
+			primary.store(id, internalId);
+		}
+
+		stores.increment();
+	}
 
-		// Store the new data and associate it with the primary index
-		long internalId = mainDataStorage.store(in::transferTo);
-		primary.store(id, internalId);
+	/**
+	 * Store binary data that has been stored via
+	 * {@link #storeStream(Object, Publisher)}.
+	 *
+	 * @param id
+	 * @param in
+	 * @throws IOException
+	 */
+	public void directStoreBlob(Object id, InputStream in)
+		throws IOException
+	{
+		if(log.isTraceEnabled())
+		{
+			log.trace("[" + name + "] Direct store of binary data for " + id);
+		}
 
-		// TODO: Replacement for indexes?
+		long previousInternalId = blobs.get(null, id);
 		if(previousInternalId != 0)
 		{
-			// Remove the old data
-			mainDataStorage.delete(previousInternalId);
-
-			queryControllers.each(e -> e.delete(previousInternalId));
+			blobDataStorage.replace(previousInternalId, in::transferTo);
+		}
+		else
+		{
+			long internalId = blobDataStorage.store(in::transferTo);
+			blobs.store(id, internalId);
 		}
 
 		stores.increment();
 	}
 
 	/**
-	 * Delete a previously stored entry.
+	 * Compress data again if it was compressed in an outdated way, such as
+	 * with an older dictionary. The lock is held for every batch of entries
+	 * so that other modifications can happen in between.
+	 *
+	 * @param lock
+	 *   lock used for mutations
+	 * @param deadline
+	 *   time in milliseconds when to stop
+	 * @throws IOException
+	 */
+	public void reencode(Lock lock, long deadline)
+		throws IOException
+	{
+		boolean more = true;
+		while(more && System.currentTimeMillis() < deadline)
+		{
+			lock.lock();
+			try
+			{
+				more = mainDataStorage.reencode(REENCODE_BATCH_SIZE)
+					| blobDataStorage.reencode(REENCODE_BATCH_SIZE);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Delete a previously stored entry together with any binary data
+	 * stored for it.
 	 *
 	 * @param id
 	 * @throws IOException
@@ -489,6 +824,13 @@ public class StorageImpl<T>
 	public void directDelete(Object id)
 		throws IOException
 	{
+		long blobId = blobs.get(null, id);
+		if(blobId != 0)
+		{
+			blobDataStorage.delete(blobId);
+			blobs.remove(id);
+		}
+
 		long internalId = primary.get(null, id);
 
 		if(log.isTraceEnabled())
@@ -502,6 +844,7 @@ public class StorageImpl<T>
 
 		mainDataStorage.delete(internalId);
 		primary.remove(id);
+		cache.invalidate(internalId);
 
 		deletes.increment();
 	}
@@ -517,4 +860,54 @@ public class StorageImpl<T>
 			controller.store(internalId, data);
 		}
 	}
+
+	/**
+	 * Reader of a range of binary data, used to emit buffers as they are
+	 * requested. The stream read from starts at the first byte of the range.
+	 */
+	private static class RangeReader
+	{
+		private final InputStream in;
+		private long remaining;
+
+		public RangeReader(InputStream in, long length)
+		{
+			this.in = in;
+			this.remaining = length;
+		}
+
+		/**
+		 * Read the next buffer.
+		 *
+		 * @return
+		 *   buffer or {@code null} if the end of the range has been reached
+		 * @throws IOException
+		 */
+		public ByteBuffer next()
+			throws IOException
+		{
+			if(in == null || remaining == 0) return null;
+
+			byte[] data = new byte[(int) Math.min(remaining, STREAM_BUFFER_SIZE)];
+			int read = in.readNBytes(data, 0, data.length);
+			if(read == 0) return null;
+
+			remaining -= read;
+			return ByteBuffer.wrap(data, 0, read);
+		}
+
+		public void close()
+		{
+			if(in == null) return;
+
+			try
+			{
+				in.close();
+			}
+			catch(IOException e)
+			{
+				log.warn("Could not close stream; " + e.getMessage(), e);
+			}
+		}
+	}
 }
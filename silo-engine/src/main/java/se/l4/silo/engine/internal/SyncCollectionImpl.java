@@ -0,0 +1,68 @@
+package se.l4.silo.engine.internal;
+
+import java.util.function.Function;
+
+import se.l4.silo.DeleteResult;
+import se.l4.silo.FetchResult;
+import se.l4.silo.StoreResult;
+import se.l4.silo.engine.SyncCollection;
+import se.l4.silo.index.Query;
+
+/**
+ * Implementation of {@link SyncCollection} over a {@link Storage}.
+ */
+public class SyncCollectionImpl<ID, T>
+	implements SyncCollection<ID, T>
+{
+	private final String name;
+	private final Function<T, ID> idSupplier;
+	private final Storage<T> storage;
+
+	public SyncCollectionImpl(
+		String name,
+		Function<T, ID> idSupplier,
+		Storage<T> storage
+	)
+	{
+		this.name = name;
+		this.idSupplier = idSupplier;
+		this.storage = storage;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public T get(ID id)
+	{
+		return storage.getBlocking(id);
+	}
+
+	@Override
+	public boolean contains(ID id)
+	{
+		return storage.containsBlocking(id);
+	}
+
+	@Override
+	public StoreResult<ID, T> store(T object)
+	{
+		ID id = idSupplier.apply(object);
+		return storage.storeBlocking(id, object);
+	}
+
+	@Override
+	public DeleteResult<ID, T> delete(ID id)
+	{
+		return storage.deleteBlocking(id);
+	}
+
+	@Override
+	public <R, FR extends FetchResult<R>> FR fetch(Query<T, R, FR> query)
+	{
+		return storage.fetchBlocking(query);
+	}
+}
@@ -0,0 +1,334 @@
+package se.l4.silo.engine.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.scheduler.Scheduler;
+import se.l4.silo.engine.ChunkCompression;
+import se.l4.silo.engine.internal.types.ByteChunkFieldType;
+import se.l4.silo.engine.internal.types.KeyLongType;
+
+/**
+ * {@link DictionaryChunkCompression} bound to a storage. Samples the data
+ * being compressed and trains a new dictionary in the background when
+ * enough data has been stored. Training runs on the scheduler given, or
+ * directly on the thread storing data if no scheduler is available.
+ *
+ * <p>
+ * Dictionaries are versioned and every version is kept in the store, as
+ * data compressed with an older dictionary needs it to be decompressed.
+ */
+public class TrainedDictionaryCompression
+	implements ChunkCompression
+{
+	private static final Logger log = LoggerFactory.getLogger(TrainedDictionaryCompression.class);
+
+	/**
+	 * How much smaller the samples must become for a new dictionary to be
+	 * used.
+	 */
+	private static final double MIN_IMPROVEMENT = 0.95;
+
+	private final MVMap<Long, byte[]> dictionaries;
+	private final Scheduler scheduler;
+
+	private final int level;
+	private final int dictionarySize;
+	private final int maxSampleSize;
+	private final long retrainInterval;
+
+	/**
+	 * Reservoir of samples, guarded by itself.
+	 */
+	private final byte[][] samples;
+	private int sampleCount;
+	private long sampled;
+
+	private final AtomicLong storesSinceTraining;
+	private final AtomicBoolean training;
+
+	/**
+	 * Lock held while training, taken by {@link #close()} to wait for
+	 * training to finish. Guards {@link #closed}.
+	 */
+	private final Object trainingLock;
+	private boolean closed;
+
+	private volatile Dictionary current;
+
+	public TrainedDictionaryCompression(
+		MVMap<Long, byte[]> dictionaries,
+		Scheduler scheduler,
+		int level,
+		int dictionarySize,
+		int sampleCount,
+		int maxSampleSize,
+		long retrainInterval
+	)
+	{
+		this.dictionaries = dictionaries;
+		this.scheduler = scheduler;
+		this.level = level;
+		this.dictionarySize = dictionarySize;
+		this.maxSampleSize = maxSampleSize;
+		this.retrainInterval = retrainInterval;
+
+		samples = new byte[sampleCount][];
+		storesSinceTraining = new AtomicLong();
+		training = new AtomicBoolean();
+		trainingLock = new Object();
+
+		Long latest = dictionaries.lastKey();
+		current = latest == null
+			? new Dictionary(0, null)
+			: new Dictionary(latest.intValue(), dictionaries.get(latest));
+	}
+
+	static MVMap.Builder<Long, byte[]> mapBuilder()
+	{
+		return new MVMap.Builder<Long, byte[]>()
+			.keyType(KeyLongType.INSTANCE)
+			.valueType(ByteChunkFieldType.INSTANCE);
+	}
+
+	@Override
+	public int getId()
+	{
+		return DictionaryChunkCompression.ID;
+	}
+
+	/**
+	 * Get the version of the dictionary currently used to compress data.
+	 *
+	 * @return
+	 */
+	public int getVersion()
+	{
+		return current.version;
+	}
+
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		sample(data, offset, length);
+
+		Dictionary dictionary = current;
+		return DictionaryChunkCompression.compress(level, dictionary.version, dictionary.data, data, offset, length);
+	}
+
+	@Override
+	public byte[] decompress(byte[] data)
+		throws IOException
+	{
+		int version = DeflateChunkCompression.readVarInt(data, 0);
+		return DictionaryChunkCompression.inflate(data, dictionary(version));
+	}
+
+	@Override
+	public boolean isOutdated(byte[] data)
+		throws IOException
+	{
+		return DeflateChunkCompression.readVarInt(data, 0) != current.version;
+	}
+
+	/**
+	 * Get the dictionary with the given version.
+	 *
+	 * @param version
+	 * @return
+	 * @throws IOException
+	 */
+	private byte[] dictionary(int version)
+		throws IOException
+	{
+		if(version == 0) return null;
+
+		Dictionary dictionary = current;
+		if(dictionary.version == version)
+		{
+			return dictionary.data;
+		}
+
+		byte[] data = dictionaries.get((long) version);
+		if(data == null)
+		{
+			throw new IOException("Dictionary " + version + " is missing from storage");
+		}
+
+		return data;
+	}
+
+	/**
+	 * Sample some data, keeping a uniform sample of the data seen in the
+	 * reservoir. Starts training if enough data has been seen.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 */
+	private void sample(byte[] data, int offset, int length)
+	{
+		if(length > maxSampleSize || samples.length == 0) return;
+
+		boolean filled;
+		synchronized(samples)
+		{
+			sampled++;
+			if(sampleCount < samples.length)
+			{
+				samples[sampleCount++] = Arrays.copyOfRange(data, offset, offset + length);
+			}
+			else
+			{
+				long idx = ThreadLocalRandom.current().nextLong(sampled);
+				if(idx < samples.length)
+				{
+					samples[(int) idx] = Arrays.copyOfRange(data, offset, offset + length);
+				}
+			}
+
+			filled = sampleCount == samples.length;
+		}
+
+		long stores = storesSinceTraining.incrementAndGet();
+		long interval = current.version == 0 ? samples.length : retrainInterval;
+		boolean shouldTrain = filled && stores >= interval;
+		if(shouldTrain && training.compareAndSet(false, true))
+		{
+			if(scheduler == null)
+			{
+				runTraining();
+				return;
+			}
+
+			try
+			{
+				scheduler.schedule(this::runTraining);
+			}
+			catch(RejectedExecutionException e)
+			{
+				// Scheduler has been disposed, the engine is closing
+				training.set(false);
+			}
+		}
+	}
+
+	private void runTraining()
+	{
+		try
+		{
+			train();
+		}
+		catch(Throwable t)
+		{
+			log.warn("Could not train dictionary; " + t.getMessage(), t);
+		}
+		finally
+		{
+			training.set(false);
+		}
+	}
+
+	/**
+	 * Train a new dictionary from the current samples. The dictionary is
+	 * only used if it compresses the samples better than the current one.
+	 *
+	 * @return
+	 *   if a new dictionary was stored
+	 */
+	boolean train()
+	{
+		synchronized(trainingLock)
+		{
+			if(closed) return false;
+
+			return trainLocked();
+		}
+	}
+
+	private boolean trainLocked()
+	{
+		List<byte[]> copy;
+		synchronized(samples)
+		{
+			copy = Arrays.asList(Arrays.copyOf(samples, sampleCount));
+		}
+
+		storesSinceTraining.set(0);
+		if(copy.isEmpty()) return false;
+
+		byte[] trained = DictionaryTrainer.train(copy, dictionarySize);
+		if(trained.length == 0) return false;
+
+		Dictionary dictionary = current;
+		long currentSize = compressedSize(copy, dictionary.data);
+		long trainedSize = compressedSize(copy, trained);
+
+		if(trainedSize >= currentSize * MIN_IMPROVEMENT)
+		{
+			log.debug("Trained dictionary not used, samples compressed to {} bytes compared to {} bytes", trainedSize, currentSize);
+			return false;
+		}
+
+		int version = dictionary.version + 1;
+		dictionaries.put((long) version, trained);
+		current = new Dictionary(version, trained);
+
+		log.debug("Using dictionary {}, samples compressed to {} bytes compared to {} bytes", version, trainedSize, currentSize);
+		return true;
+	}
+
+	/**
+	 * Stop training new dictionaries. Waits for training that is currently
+	 * running to finish, training scheduled but not yet started will not
+	 * do anything.
+	 */
+	@Override
+	public void close()
+	{
+		synchronized(trainingLock)
+		{
+			closed = true;
+		}
+	}
+
+	private long compressedSize(List<byte[]> samples, byte[] dictionary)
+	{
+		long size = 0;
+		for(byte[] sample : samples)
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream(sample.length / 2 + 16);
+			DeflateChunkCompression.deflate(level, dictionary, out, sample, 0, sample.length);
+			size += out.size();
+		}
+		return size;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TrainedDictionaryCompression{version=" + current.version + "}";
+	}
+
+	private static class Dictionary
+	{
+		private final int version;
+		private final byte[] data;
+
+		public Dictionary(int version, byte[] data)
+		{
+			this.version = version;
+			this.data = data;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package se.l4.silo.engine.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import se.l4.silo.StorageException;
+
+/**
+ * Access to virtual threads. The engine is built for runtimes without
+ * virtual threads, so they are created via reflection when the runtime
+ * supports them.
+ */
+public class VirtualThreads
+{
+	private static final Method OF_VIRTUAL = findOfVirtual();
+
+	private VirtualThreads()
+	{
+	}
+
+	private static Method findOfVirtual()
+	{
+		try
+		{
+			return Thread.class.getMethod("ofVirtual");
+		}
+		catch(NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Get if the current runtime supports virtual threads.
+	 *
+	 * @return
+	 */
+	public static boolean isSupported()
+	{
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Create a factory that starts a new virtual thread for every task.
+	 *
+	 * @param prefix
+	 *   prefix of the names of the threads
+	 * @return
+	 */
+	public static ThreadFactory createFactory(String prefix)
+	{
+		if(OF_VIRTUAL == null)
+		{
+			throw new StorageException("Virtual threads are not supported by this runtime");
+		}
+
+		try
+		{
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+			Object builder = OF_VIRTUAL.invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class)
+				.invoke(builder, prefix + "-", 0l);
+
+			return (ThreadFactory) builderType.getMethod("factory")
+				.invoke(builder);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			throw new StorageException("Unable to create virtual threads; " + e.getMessage(), e);
+		}
+	}
+}
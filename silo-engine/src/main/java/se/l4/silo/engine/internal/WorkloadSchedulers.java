@@ -0,0 +1,130 @@
+package se.l4.silo.engine.internal;
+
+import java.util.Locale;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.map.MutableMap;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.Workload;
+
+/**
+ * The schedulers used by a {@link StorageEngine}, one for every
+ * {@link Workload}. Schedulers that are created by the engine are disposed
+ * with it, schedulers from the {@link EngineConfig} are owned by the user.
+ */
+public class WorkloadSchedulers
+	implements Disposable
+{
+	/**
+	 * The number of threads of the periodic tasks of the engine.
+	 */
+	private static final int BACKGROUND_THREADS = 2;
+
+	/**
+	 * The maximum number of virtual threads of a workload. Virtual threads
+	 * are cheap, so the cap is high enough that tasks practically never
+	 * wait for a thread.
+	 */
+	private static final int VIRTUAL_THREADS = 10_000;
+
+	/**
+	 * How long idle threads are kept, in seconds.
+	 */
+	private static final int THREAD_TTL = 60;
+
+	private final ImmutableMap<Workload, Scheduler> schedulers;
+	private final MutableList<Scheduler> owned;
+
+	private WorkloadSchedulers(
+		ImmutableMap<Workload, Scheduler> schedulers,
+		MutableList<Scheduler> owned
+	)
+	{
+		this.schedulers = schedulers;
+		this.owned = owned;
+	}
+
+	/**
+	 * Get the scheduler of a workload.
+	 *
+	 * @param workload
+	 * @return
+	 */
+	public Scheduler get(Workload workload)
+	{
+		return schedulers.get(workload);
+	}
+
+	@Override
+	public void dispose()
+	{
+		owned.each(Scheduler::dispose);
+	}
+
+	/**
+	 * Create the schedulers for the given configuration.
+	 *
+	 * @param config
+	 * @return
+	 */
+	public static WorkloadSchedulers create(EngineConfig config)
+	{
+		MutableMap<Workload, Scheduler> schedulers = Maps.mutable.empty();
+		MutableList<Scheduler> owned = Lists.mutable.empty();
+
+		for(Workload workload : Workload.values())
+		{
+			Scheduler configured = config.getScheduler(workload);
+			if(configured != null)
+			{
+				schedulers.put(workload, configured);
+				continue;
+			}
+
+			Scheduler scheduler = createScheduler(
+				workload,
+				config.isUsingVirtualThreads(workload)
+			);
+
+			schedulers.put(workload, scheduler);
+			owned.add(scheduler);
+		}
+
+		return new WorkloadSchedulers(schedulers.toImmutable(), owned);
+	}
+
+	private static Scheduler createScheduler(
+		Workload workload,
+		boolean virtual
+	)
+	{
+		String name = "silo-" + workload.name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+		if(virtual)
+		{
+			return Schedulers.newBoundedElastic(
+				VIRTUAL_THREADS,
+				Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+				VirtualThreads.createFactory(name),
+				THREAD_TTL
+			);
+		}
+
+		int threads = workload == Workload.BACKGROUND
+			? BACKGROUND_THREADS
+			: Runtime.getRuntime().availableProcessors() + 2;
+
+		return Schedulers.newBoundedElastic(
+			threads,
+			Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+			name
+		);
+	}
+}
@@ -278,7 +278,7 @@ public class IndexEngineController<T, Q extends Query<T, ?, ?>>
 				long opId = engineLog.appendRebuild(dataId, storedId);
 				try(InputStream storedStream = dataStorage.get(null, storedId))
 				{
-					dataUpdater.apply(opId, dataId, storedStream);
+					dataUpdater.replace(opId, dataId, storedStream);
 				}
 
 				// Update where we are in the log
@@ -326,7 +326,7 @@ public class IndexEngineController<T, Q extends Query<T, ?, ?>>
 						}
 						else
 						{
-							dataUpdater.apply(opId, entry.getId(), in);
+							dataUpdater.replace(opId, entry.getId(), in);
 						}
 					}
 					break;
@@ -396,7 +396,7 @@ public class IndexEngineController<T, Q extends Query<T, ?, ?>>
 			{
 				try(InputStream storedStream = dataStorage.get(null, storedId))
 				{
-					dataUpdater.apply(opId, id, storedStream);
+					dataUpdater.replace(opId, id, storedStream);
 				}
 
 				softCursor = opId;
@@ -10,6 +10,7 @@ import reactor.core.scheduler.Scheduler;
 import se.l4.silo.StorageException;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.index.IndexEngineCreationEncounter;
+import se.l4.silo.engine.internal.mvstore.MVStoreFiles;
 import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
 import se.l4.silo.engine.internal.mvstore.SharedStorages;
 
@@ -92,7 +93,7 @@ public class IndexEngineCreationEncounterImpl
 		}
 
 		return new MVStoreManagerImpl(scheduler, new MVStore.Builder()
-			.fileName(resolveDataFile(name).toString())
+			.fileName(MVStoreFiles.fileName(resolveDataFile(name), storages.getFileAccess()))
 			.compress());
 	}
 
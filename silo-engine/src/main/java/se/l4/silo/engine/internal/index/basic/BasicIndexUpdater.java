@@ -114,7 +114,7 @@ public class BasicIndexUpdater
 	}
 
 	@Override
-	public void apply(long op, long id, InputStream stream)
+	public void replace(long op, long id, InputStream stream)
 		throws IOException
 	{
 		BinaryDataInput in = BinaryDataInput.forStream(stream);
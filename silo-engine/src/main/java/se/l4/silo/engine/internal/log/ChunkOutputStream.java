@@ -41,7 +41,7 @@ public class ChunkOutputStream
 		while(localIndex < localLength)
 		{
 			int available = Math.min(localLength - localIndex, buffer.length - this.bufferIndex);
-			System.arraycopy(b, localIndex, buffer, bufferIndex, available);
+			System.arraycopy(b, localOffset + localIndex, buffer, bufferIndex, available);
 
 			this.bufferIndex += available;
 			localIndex += available;
@@ -0,0 +1,101 @@
+package se.l4.silo.engine.internal.log;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.WriteBuffer;
+
+import se.l4.silo.engine.internal.BoundedPool;
+import se.l4.silo.engine.io.BinaryDataOutput;
+import se.l4.silo.engine.log.Log;
+
+/**
+ * Reusable buffers used to encode messages written to a {@link Log}.
+ * Instances are kept in a {@link BoundedPool}, a new instance is created if
+ * all of the pooled ones are in use.
+ */
+class LogBuffer
+{
+	/**
+	 * The size used for chunks in the log.
+	 */
+	static final int CHUNK_SIZE = 8192;
+
+	private static final BoundedPool<LogBuffer> POOL = BoundedPool.perProcessor(LogBuffer::new);
+
+	private final byte[] chunk;
+	private final WriteBuffer buffer;
+	private final BinaryDataOutput out;
+
+	private LogBuffer()
+	{
+		chunk = new byte[CHUNK_SIZE];
+		buffer = new WriteBuffer(CHUNK_SIZE + 256);
+		out = BinaryDataOutput.forBuffer(buffer);
+	}
+
+	/**
+	 * Acquire a buffer. The buffer should be {@link #release() released}
+	 * when it is no longer used.
+	 *
+	 * @return
+	 */
+	public static LogBuffer acquire()
+	{
+		return POOL.acquire();
+	}
+
+	/**
+	 * Get the number of idle buffers kept for reuse.
+	 *
+	 * @return
+	 */
+	static int idleCount()
+	{
+		return POOL.idleCount();
+	}
+
+	/**
+	 * Release this buffer so that it can be reused. The buffer may be
+	 * released from another thread than the one that acquired it.
+	 */
+	public void release()
+	{
+		POOL.release(this);
+	}
+
+	/**
+	 * Get the array used to buffer data until a full chunk is available.
+	 *
+	 * @return
+	 */
+	public byte[] getChunk()
+	{
+		return chunk;
+	}
+
+	/**
+	 * Start encoding a new message, discarding any previous message.
+	 *
+	 * @return
+	 *   output to write the message to
+	 */
+	public BinaryDataOutput start()
+	{
+		buffer.clear();
+		return out;
+	}
+
+	/**
+	 * Finish encoding the current message. The returned buffer is only
+	 * valid until the next message is started.
+	 *
+	 * @return
+	 *   buffer containing the message
+	 */
+	public ByteBuffer finish()
+	{
+		ByteBuffer result = buffer.getBuffer();
+		result.flip();
+		return result;
+	}
+}
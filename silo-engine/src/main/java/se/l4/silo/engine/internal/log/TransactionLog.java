@@ -34,6 +34,23 @@ public interface TransactionLog
 	 */
 	void store(long tx, String collection, Object id, IOConsumer<OutputStream> generator);
 
+	/**
+	 * Open a stream that stores binary data in this transaction. Binary
+	 * data is kept apart from the objects of the collection. Data is written
+	 * to the log as chunks as it is written to the stream. The data is
+	 * complete when the stream is closed.
+	 *
+	 * @param tx
+	 *   transaction identifier
+	 * @param collection
+	 *   the named collection this is for
+	 * @param id
+	 *   the id to store as
+	 * @return
+	 *   stream to write data to
+	 */
+	OutputStream openBlob(long tx, String collection, Object id);
+
 	/**
 	 * Remove some data in this transaction.
 	 *
@@ -16,7 +16,6 @@ import se.l4.silo.engine.internal.tx.operations.StoreChunkOperation;
 import se.l4.silo.engine.io.BinaryDataOutput;
 import se.l4.silo.engine.log.Log;
 import se.l4.ylem.ids.LongIdGenerator;
-import se.l4.ylem.io.Bytes;
 import se.l4.ylem.io.IOConsumer;
 
 /**
@@ -29,11 +28,6 @@ import se.l4.ylem.io.IOConsumer;
 public class TransactionLogImpl
 	implements TransactionLog
 {
-	/**
-	 * The size used for chunks in the log.
-	 */
-	private static final int CHUNK_SIZE = 8192;
-
 	private static final Logger logger = LoggerFactory.getLogger(TransactionLogImpl.class);
 
 	private final Log log;
@@ -56,14 +50,12 @@ public class TransactionLogImpl
 				logger.trace("[" + tx + "] Transaction started");
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
-
+			append(out -> {
 				out.write(MessageConstants.START_TRANSACTION);
 				out.writeVLong(tx);
 
 				StartOperation.write(out, System.currentTimeMillis());
-			}));
+			});
 		}
 		catch(IOException e)
 		{
@@ -83,48 +75,98 @@ public class TransactionLogImpl
 	{
 		try
 		{
-			ChunkOutputStream.Control control = (data, offset, length) -> {
-				if(logger.isTraceEnabled())
-				{
-					logger.trace("[" + tx + "] Wrote chunk for " + collection + "[" + id + "]: " + Base64.getEncoder().encodeToString(data));
-				}
-
-				log.append(Bytes.capture(stream -> {
-					BinaryDataOutput out = BinaryDataOutput.forStream(stream);
-
-					out.write(MessageConstants.STORE_CHUNK);
-					out.writeVLong(tx);
-
-					StoreChunkOperation.write(out, collection, id, data, offset, length);
-				}));
-			};
-
-			OutputStream chunkOutput = new ChunkOutputStream(new byte[CHUNK_SIZE], control);
+			OutputStream chunkOutput = openChunks(tx, MessageConstants.STORE_CHUNK, collection, id);
 
 			// Ask the generator to write data
 			generator.accept(chunkOutput);
 
-			// Close and flush the output
+			// Close and flush the output, marking the end of the object
 			chunkOutput.close();
+		}
+		catch(IOException e)
+		{
+			throw new StorageException("Could not store " + collection + " with id " + id + " in transaction" + tx + "; " + e.getMessage(), e);
+		}
+	}
 
-			// Write a zero length chunk to indicate end of object
+	@Override
+	public OutputStream openBlob(
+		long tx,
+		String collection,
+		Object id
+	)
+	{
+		return openChunks(tx, MessageConstants.BLOB_CHUNK, collection, id);
+	}
+
+	/**
+	 * Open a stream that writes its data as chunks of the given type. A
+	 * zero length chunk is written when the stream is closed.
+	 *
+	 * @param tx
+	 * @param type
+	 *   either {@link MessageConstants#STORE_CHUNK} or
+	 *   {@link MessageConstants#BLOB_CHUNK}
+	 * @param collection
+	 * @param id
+	 * @return
+	 */
+	private OutputStream openChunks(
+		long tx,
+		int type,
+		String collection,
+		Object id
+	)
+	{
+		LogBuffer buffer = LogBuffer.acquire();
+		ChunkOutputStream.Control control = (data, offset, length) -> {
 			if(logger.isTraceEnabled())
 			{
-				logger.trace("[" + tx + "] Wrote end of data for " + collection + "[" + id + "]");
+				logger.trace("[" + tx + "] Wrote chunk for " + collection + "[" + id + "]: " + Base64.getEncoder().encodeToString(data));
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
-				out.write(MessageConstants.STORE_CHUNK);
+			append(buffer, out -> {
+				out.write(type);
 				out.writeVLong(tx);
 
-				StoreChunkOperation.writeEnd(out, collection, id);
-			}));
-		}
-		catch(IOException e)
+				StoreChunkOperation.write(out, collection, id, data, offset, length);
+			});
+		};
+
+		return new ChunkOutputStream(buffer.getChunk(), control)
 		{
-			throw new StorageException("Could not store " + collection + " with id " + id + " in transaction" + tx + "; " + e.getMessage(), e);
-		}
+			private boolean closed;
+
+			@Override
+			public void close()
+				throws IOException
+			{
+				if(closed) return;
+
+				closed = true;
+				try
+				{
+					super.close();
+
+					// Write a zero length chunk to indicate end of object
+					if(logger.isTraceEnabled())
+					{
+						logger.trace("[" + tx + "] Wrote end of data for " + collection + "[" + id + "]");
+					}
+
+					append(buffer, out -> {
+						out.write(type);
+						out.writeVLong(tx);
+
+						StoreChunkOperation.writeEnd(out, collection, id);
+					});
+				}
+				finally
+				{
+					buffer.release();
+				}
+			}
+		};
 	}
 
 	@Override
@@ -137,14 +179,12 @@ public class TransactionLogImpl
 				logger.trace("[" + tx + "] Wrote delete for " + collection + "[" + id + "]");
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
-
+			append(out -> {
 				out.write(MessageConstants.DELETE);
 				out.writeVLong(tx);
 
 				DeleteOperation.write(out, collection, id);
-			}));
+			});
 		}
 		catch(IOException e)
 		{
@@ -161,6 +201,7 @@ public class TransactionLogImpl
 		IOConsumer<OutputStream> generator
 	)
 	{
+		LogBuffer buffer = LogBuffer.acquire();
 		try
 		{
 			ChunkOutputStream.Control control = (data, offset, length) -> {
@@ -169,9 +210,7 @@ public class TransactionLogImpl
 					logger.trace("[" + tx + "] Wrote index chunk for " + collection + "[" + id + "]: " + Base64.getEncoder().encodeToString(data));
 				}
 
-				log.append(Bytes.capture(stream -> {
-					BinaryDataOutput out = BinaryDataOutput.forStream(stream);
-
+				append(buffer, out -> {
 					out.write(MessageConstants.INDEX_CHUNK);
 					out.writeVLong(tx);
 
@@ -184,10 +223,10 @@ public class TransactionLogImpl
 						offset,
 						length
 					);
-				}));
+				});
 			};
 
-			OutputStream chunkOutput = new ChunkOutputStream(new byte[CHUNK_SIZE], control);
+			OutputStream chunkOutput = new ChunkOutputStream(buffer.getChunk(), control);
 
 			// Ask the generator to write output
 			generator.accept(chunkOutput);
@@ -202,8 +241,7 @@ public class TransactionLogImpl
 				logger.trace("[" + tx + "] Wrote end of data for " + collection + "[" + id + "]");
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
+			append(buffer, out -> {
 				out.write(MessageConstants.INDEX_CHUNK);
 				out.writeVLong(tx);
 
@@ -213,12 +251,16 @@ public class TransactionLogImpl
 					index,
 					id
 				);
-			}));
+			});
 		}
 		catch(IOException e)
 		{
 			throw new StorageException("Could not store index " + index + " in " + collection + " with id " + id + " in transaction" + tx + "; " + e.getMessage(), e);
 		}
+		finally
+		{
+			buffer.release();
+		}
 	}
 
 
@@ -232,11 +274,10 @@ public class TransactionLogImpl
 				logger.trace("[" + tx + "] Transaction committed");
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
+			append(out -> {
 				out.write(MessageConstants.COMMIT_TRANSACTION);
 				out.writeVLong(tx);
-			}));
+			});
 		}
 		catch(IOException e)
 		{
@@ -254,15 +295,49 @@ public class TransactionLogImpl
 				logger.trace("[" + tx + "] Transaction rolled back");
 			}
 
-			log.append(Bytes.capture(stream -> {
-				BinaryDataOutput out = BinaryDataOutput.forStream(stream);
+			append(out -> {
 				out.write(MessageConstants.ROLLBACK_TRANSACTION);
 				out.writeVLong(tx);
-			}));
+			});
 		}
 		catch(IOException e)
 		{
 			throw new StorageException("Could not rollback transaction " +  tx + ", log said: " + e.getMessage(), e);
 		}
 	}
+
+	/**
+	 * Encode a message using a buffer reused by the current thread and
+	 * append it to the log.
+	 *
+	 * @param encoder
+	 * @throws IOException
+	 */
+	private void append(IOConsumer<BinaryDataOutput> encoder)
+		throws IOException
+	{
+		LogBuffer buffer = LogBuffer.acquire();
+		try
+		{
+			append(buffer, encoder);
+		}
+		finally
+		{
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Encode a message into the given buffer and append it to the log.
+	 *
+	 * @param buffer
+	 * @param encoder
+	 * @throws IOException
+	 */
+	private void append(LogBuffer buffer, IOConsumer<BinaryDataOutput> encoder)
+		throws IOException
+	{
+		encoder.accept(buffer.start());
+		log.append(buffer.finish());
+	}
 }
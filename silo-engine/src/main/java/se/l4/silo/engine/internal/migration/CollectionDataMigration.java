@@ -0,0 +1,124 @@
+package se.l4.silo.engine.internal.migration;
+
+import java.util.Iterator;
+
+import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.ObjectDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.MVDataStorage;
+import se.l4.silo.engine.internal.index.IndexEngineLog;
+import se.l4.silo.engine.internal.types.KeyLongType;
+
+/**
+ * Migration of data stored in the shared {@code data} and
+ * {@code index.data} storages into storages for every collection and index.
+ * Data keeps its internal identifier so that primary indexes and index logs
+ * remain valid.
+ */
+public class CollectionDataMigration
+{
+	private static final Logger log = LoggerFactory.getLogger(CollectionDataMigration.class);
+
+	private static final String PRIMARY_PREFIX = "primary.fromExternal.";
+	private static final String INDEX_LOG_PREFIX = "index.log.";
+
+	private CollectionDataMigration()
+	{
+	}
+
+	public static void migrate(
+		MVStoreManager manager,
+		MVStore store,
+		int inlineThreshold
+	)
+	{
+		if(store.hasMap("data.keys"))
+		{
+			MVDataStorage legacy = new MVDataStorage("data", manager, inlineThreshold);
+
+			for(String name : store.getMapNames())
+			{
+				if(name.startsWith(PRIMARY_PREFIX))
+				{
+					String collection = name.substring(PRIMARY_PREFIX.length());
+					migrateCollection(manager, legacy, name, collection, inlineThreshold);
+				}
+				else if(name.startsWith(INDEX_LOG_PREFIX))
+				{
+					String index = name.substring(INDEX_LOG_PREFIX.length());
+					migrateIndex(manager, legacy, name, index, inlineThreshold);
+				}
+			}
+
+			legacy.drop();
+		}
+
+		if(store.hasMap("index.data.keys"))
+		{
+			// Index data was never written to this storage, remove it
+			new MVDataStorage("index.data", manager, inlineThreshold)
+				.drop();
+		}
+	}
+
+	private static void migrateCollection(
+		MVStoreManager manager,
+		MVDataStorage legacy,
+		String mapName,
+		String collection,
+		int inlineThreshold
+	)
+	{
+		MVMap<Long, Object> reverse = manager.openMap(mapName, new MVMap.Builder<Long, Object>()
+			.keyType(KeyLongType.INSTANCE)
+			.valueType(new ObjectDataType())
+		);
+
+		MVDataStorage target = new MVDataStorage("data." + collection, manager, inlineThreshold);
+
+		long copied = 0;
+		Iterator<Long> it = reverse.keyIterator(null);
+		while(it.hasNext())
+		{
+			if(legacy.copyTo(it.next(), target))
+			{
+				copied++;
+			}
+		}
+
+		log.debug("Moved {} entries into storage for collection {}", copied, collection);
+	}
+
+	private static void migrateIndex(
+		MVStoreManager manager,
+		MVDataStorage legacy,
+		String mapName,
+		String index,
+		int inlineThreshold
+	)
+	{
+		IndexEngineLog engineLog = new IndexEngineLog(manager, mapName, id -> {});
+
+		MVDataStorage target = new MVDataStorage("index.data." + index, manager, inlineThreshold);
+
+		long copied = 0;
+		Iterator<LongObjectPair<IndexEngineLog.Entry>> it = engineLog.iterator(0);
+		while(it.hasNext())
+		{
+			IndexEngineLog.Entry entry = it.next().getTwo();
+			if(entry.getType() != IndexEngineLog.EntryType.STORE) continue;
+
+			if(legacy.copyTo(entry.getIndexDataId(), target))
+			{
+				copied++;
+			}
+		}
+
+		log.debug("Moved {} entries into storage for index {}", copied, index);
+	}
+}
@@ -0,0 +1,38 @@
+package se.l4.silo.engine.internal.migration;
+
+import org.h2.mvstore.MVStore;
+
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.MVDataStorage;
+
+/**
+ * Migration of data stored before support for inline data in
+ * {@link MVDataStorage}. Will move data that is small enough to be stored
+ * inline with its key.
+ */
+public class InlineDataMigration
+{
+	private static final String[] STORAGES = { "data", "index.data" };
+
+	private InlineDataMigration()
+	{
+	}
+
+	public static void migrate(
+		MVStoreManager manager,
+		MVStore store,
+		int inlineThreshold
+	)
+	{
+		for(String prefix : STORAGES)
+		{
+			if(! store.hasMap(prefix + ".keys"))
+			{
+				continue;
+			}
+
+			new MVDataStorage(prefix, manager, inlineThreshold)
+				.inlineSmallValues();
+		}
+	}
+}
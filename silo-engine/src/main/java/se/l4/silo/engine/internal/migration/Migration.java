@@ -1,21 +1,39 @@
 package se.l4.silo.engine.internal.migration;
 
+import org.eclipse.collections.api.map.MapIterable;
 import org.h2.mvstore.MVStore;
 
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+
 /**
  * Migration support for stores. Used to provide backward compatibility with
  * old data files.
  */
 public class Migration
 {
-	private static final int CURRENT = 1;
+	private static final int CURRENT = 4;
 
 	private Migration()
 	{
 	}
 
-	public static void migrate(MVStore store)
+	/**
+	 * Migrate the given store to the current version.
+	 *
+	 * @param manager
+	 * @param config
+	 * @param idTypes
+	 *   the declared identifier type of every collection, keyed on the name
+	 *   of the collection
+	 */
+	public static void migrate(
+		MVStoreManagerImpl manager,
+		EngineConfig config,
+		MapIterable<String, Class<?>> idTypes
+	)
 	{
+		MVStore store = manager.getStore();
 		if(store.getCurrentVersion() == 0)
 		{
 			// If there's no data written set latest version and return
@@ -29,9 +47,21 @@ public class Migration
 			case 0:
 				// This store is from the 0.2 series
 				Migrate_0_2.migrate(store);
+				// Fall through to migrate the data
+			case 1:
+				// Data is stored as chunks, move small data to be inline
+				InlineDataMigration.migrate(manager, store, config.getInlineDataThresholdInBytes());
+				// Fall through to split data per collection
+			case 2:
+				// Data is stored in shared maps, move it to maps per collection
+				CollectionDataMigration.migrate(manager, store, config.getInlineDataThresholdInBytes());
+				// Fall through to store identifiers with specific types
+			case 3:
+				// Primary indexes use ObjectDataType, move to typed maps
+				PrimaryIndexMigration.migrate(manager, store, idTypes);
 				store.setStoreVersion(CURRENT);
 				break;
-			case 1:
+			case 4:
 				// Current version - do nothing
 				break;
 		}
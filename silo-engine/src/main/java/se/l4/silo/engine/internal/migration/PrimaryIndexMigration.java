@@ -0,0 +1,123 @@
+package se.l4.silo.engine.internal.migration;
+
+import org.eclipse.collections.api.map.MapIterable;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.ObjectDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.silo.StorageException;
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.PrimaryIndex;
+import se.l4.silo.engine.internal.types.KeyLongType;
+
+/**
+ * Migration of primary indexes stored using {@link ObjectDataType} into
+ * maps that store identifiers with a type specific to the identifier. The
+ * type is the identifier type declared for the collection. For collections
+ * that are no longer declared the type is taken from the stored identifiers.
+ */
+public class PrimaryIndexMigration
+{
+	private static final Logger log = LoggerFactory.getLogger(PrimaryIndexMigration.class);
+
+	private static final String LEGACY_PREFIX = "primary.toExternal.";
+	private static final String LEGACY_REVERSE_PREFIX = "primary.fromExternal.";
+
+	private PrimaryIndexMigration()
+	{
+	}
+
+	/**
+	 * Migrate all of the primary indexes in the given store.
+	 *
+	 * @param manager
+	 * @param store
+	 * @param idTypes
+	 *   the declared identifier type of every collection, keyed on the name
+	 *   of the collection
+	 */
+	public static void migrate(
+		MVStoreManager manager,
+		MVStore store,
+		MapIterable<String, Class<?>> idTypes
+	)
+	{
+		for(String name : store.getMapNames())
+		{
+			if(name.startsWith(LEGACY_PREFIX))
+			{
+				String collection = name.substring(LEGACY_PREFIX.length());
+				migrateCollection(manager, store, name, collection, idTypes.get(collection));
+			}
+		}
+
+		for(String name : store.getMapNames())
+		{
+			if(name.startsWith(LEGACY_REVERSE_PREFIX))
+			{
+				// Reverse maps are rebuilt from the forward maps
+				store.removeMap(name);
+			}
+		}
+	}
+
+	private static void migrateCollection(
+		MVStoreManager manager,
+		MVStore store,
+		String mapName,
+		String collection,
+		Class<?> declaredType
+	)
+	{
+		MVMap<Object, Long> legacy = manager.openMap(mapName, new MVMap.Builder<Object, Long>()
+			.keyType(new ObjectDataType())
+			.valueType(KeyLongType.INSTANCE)
+		);
+
+		Class<?> idType = declaredType;
+		if(idType == null)
+		{
+			// The collection is no longer declared, use the type of the stored identifiers
+			Object first = legacy.firstKey();
+			idType = first == null ? Object.class : first.getClass();
+		}
+
+		DataType keyType = PrimaryIndex.keyType(idType);
+		MVMap<Object, Long> keys = manager.openMap("primary.keys." + collection, new MVMap.Builder<Object, Long>()
+			.keyType(keyType)
+			.valueType(KeyLongType.INSTANCE)
+		);
+
+		MVMap<Long, Object> ids = manager.openMap("primary.ids." + collection, new MVMap.Builder<Long, Object>()
+			.keyType(KeyLongType.INSTANCE)
+			.valueType(keyType)
+		);
+
+		long migrated = 0;
+		Cursor<Object, Long> cursor = legacy.cursor(null);
+		while(cursor.hasNext())
+		{
+			Object key = cursor.next();
+			if(! idType.isInstance(key))
+			{
+				throw new StorageException(
+					"Stored identifier " + key + " of collection " + collection
+					+ " is not of type " + idType.getName()
+				);
+			}
+
+			long id = cursor.getValue();
+			keys.put(key, id);
+			ids.put(id, key);
+			migrated++;
+		}
+
+		store.removeMap(legacy);
+
+		log.debug("Moved {} identifiers into typed primary index for collection {}", migrated, collection);
+	}
+}
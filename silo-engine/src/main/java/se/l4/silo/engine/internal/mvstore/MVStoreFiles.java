@@ -0,0 +1,36 @@
+package se.l4.silo.engine.internal.mvstore;
+
+import java.nio.file.Path;
+
+import se.l4.silo.engine.FileAccess;
+
+/**
+ * Helpers for files used by {@link org.h2.mvstore.MVStore}.
+ */
+public class MVStoreFiles
+{
+	private MVStoreFiles()
+	{
+	}
+
+	/**
+	 * Get the file name to pass to the store so that the given path is
+	 * accessed using a certain strategy.
+	 *
+	 * @param path
+	 * @param access
+	 * @return
+	 */
+	public static String fileName(Path path, FileAccess access)
+	{
+		switch(access)
+		{
+			case MEMORY_MAPPED:
+				return "nioMapped:" + path.toString();
+			case ASYNC:
+				return "async:" + path.toString();
+			default:
+				return path.toString();
+		}
+	}
+}
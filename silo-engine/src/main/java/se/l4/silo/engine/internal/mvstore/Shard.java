@@ -0,0 +1,42 @@
+package se.l4.silo.engine.internal.mvstore;
+
+/**
+ * Shard of the data in a storage engine. Every shard has its own store.
+ */
+public class Shard
+{
+	private final int index;
+	private final MVStoreManagerImpl store;
+
+	public Shard(int index, MVStoreManagerImpl store)
+	{
+		this.index = index;
+		this.store = store;
+	}
+
+	/**
+	 * Get the index of this shard.
+	 *
+	 * @return
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * Get the store of this shard.
+	 *
+	 * @return
+	 */
+	public MVStoreManagerImpl getStore()
+	{
+		return store;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Shard{index=" + index + "}";
+	}
+}
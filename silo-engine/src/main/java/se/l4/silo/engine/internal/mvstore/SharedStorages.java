@@ -15,6 +15,7 @@ import org.h2.mvstore.MVStore;
 
 import reactor.core.scheduler.Scheduler;
 import se.l4.silo.StorageException;
+import se.l4.silo.engine.FileAccess;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.Snapshot;
 import se.l4.silo.engine.types.FieldType;
@@ -30,6 +31,7 @@ public class SharedStorages
 {
 	private final Scheduler scheduler;
 	private final Path root;
+	private final FileAccess fileAccess;
 	private final Vibe vibe;
 
 	private final Lock fetchLock;
@@ -38,16 +40,28 @@ public class SharedStorages
 	public SharedStorages(
 		Scheduler scheduler,
 		Path root,
+		FileAccess fileAccess,
 		Vibe vibe
 	)
 	{
 		this.scheduler = scheduler;
 		this.root = root;
+		this.fileAccess = fileAccess;
 		this.vibe = vibe;
 		fetchLock = new ReentrantLock();
 		storages = new HashMap<>();
 	}
 
+	/**
+	 * Get how files of stores opened for this engine should be accessed.
+	 *
+	 * @return
+	 */
+	public FileAccess getFileAccess()
+	{
+		return fileAccess;
+	}
+
 	public MVStoreManager get(String name)
 	{
 		Path absolutePath = root.resolve(name.replace('/', File.separatorChar) + ".mv.bin").normalize();
@@ -64,7 +78,7 @@ public class SharedStorages
 			// Create a new storage for the given path
 			Files.createDirectories(absolutePath.getParent());
 			MVStoreManagerImpl manager = new MVStoreManagerImpl(scheduler, new MVStore.Builder()
-				.fileName(absolutePath.toString())
+				.fileName(MVStoreFiles.fileName(absolutePath, fileAccess))
 				.compress());
 
 			// Register health monitoring if in use
@@ -0,0 +1,199 @@
+package se.l4.silo.engine.internal.mvstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.collections.api.list.ListIterable;
+
+import se.l4.silo.engine.Snapshot;
+
+/**
+ * {@link Snapshot} that combines the snapshots of several files into a
+ * ZIP archive, with one entry for every file. The archive is created while
+ * it is read.
+ */
+public class ZipSnapshot
+	implements Snapshot
+{
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final ListIterable<String> names;
+	private final ListIterable<Snapshot> snapshots;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param names
+	 *   the names of the entries in the archive
+	 * @param snapshots
+	 *   the snapshots to store in the entries, closed together with this
+	 *   snapshot
+	 */
+	public ZipSnapshot(ListIterable<String> names, ListIterable<Snapshot> snapshots)
+	{
+		this.names = names;
+		this.snapshots = snapshots;
+	}
+
+	@Override
+	public InputStream asStream()
+		throws IOException
+	{
+		return new ArchiveStream();
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		IOException error = null;
+		for(Snapshot snapshot : snapshots)
+		{
+			try
+			{
+				snapshot.close();
+			}
+			catch(IOException e)
+			{
+				error = e;
+			}
+		}
+
+		if(error != null)
+		{
+			throw error;
+		}
+	}
+
+	/**
+	 * Buffer that the archive is written to, exposing its data for reading.
+	 */
+	private static class Buffer
+		extends ByteArrayOutputStream
+	{
+		public Buffer()
+		{
+			super(CHUNK_SIZE);
+		}
+
+		public byte[] data()
+		{
+			return buf;
+		}
+	}
+
+	/**
+	 * Stream that creates the archive as it is read, by compressing a
+	 * chunk of the current entry whenever more data is needed.
+	 */
+	private class ArchiveStream
+		extends InputStream
+	{
+		private final Buffer buffer;
+		private final ZipOutputStream zip;
+		private final byte[] chunk;
+
+		private int next;
+		private InputStream current;
+		private int offset;
+		private boolean finished;
+
+		public ArchiveStream()
+		{
+			buffer = new Buffer();
+			zip = new ZipOutputStream(buffer);
+			zip.setLevel(Deflater.BEST_SPEED);
+			chunk = new byte[CHUNK_SIZE];
+		}
+
+		@Override
+		public int read()
+			throws IOException
+		{
+			byte[] single = new byte[1];
+			int read = read(single, 0, 1);
+			return read < 0 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+			throws IOException
+		{
+			if(len == 0) return 0;
+
+			while(offset >= buffer.size())
+			{
+				if(! fill())
+				{
+					return -1;
+				}
+			}
+
+			int count = Math.min(len, buffer.size() - offset);
+			System.arraycopy(buffer.data(), offset, b, off, count);
+			offset += count;
+			return count;
+		}
+
+		/**
+		 * Write more of the archive to the buffer.
+		 *
+		 * @return
+		 *   {@code false} if the archive has been fully written
+		 * @throws IOException
+		 */
+		private boolean fill()
+			throws IOException
+		{
+			if(finished) return false;
+
+			buffer.reset();
+			offset = 0;
+
+			if(current == null)
+			{
+				if(next == snapshots.size())
+				{
+					zip.finish();
+					finished = true;
+					return true;
+				}
+
+				zip.putNextEntry(new ZipEntry(names.get(next)));
+				current = snapshots.get(next).asStream();
+				next++;
+			}
+
+			int read = current.read(chunk);
+			if(read < 0)
+			{
+				current.close();
+				current = null;
+				zip.closeEntry();
+			}
+			else
+			{
+				zip.write(chunk, 0, read);
+			}
+
+			return true;
+		}
+
+		@Override
+		public void close()
+			throws IOException
+		{
+			if(current != null)
+			{
+				current.close();
+				current = null;
+			}
+
+			finished = true;
+		}
+	}
+}
@@ -9,8 +9,15 @@ import java.util.function.Supplier;
 
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.ImmutableMap;
 import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.SetIterable;
+import org.h2.mvstore.MVStore;
 import org.reactivestreams.Publisher;
 
 import reactor.core.publisher.Flux;
@@ -22,6 +29,7 @@ import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.TransactionValue;
 import se.l4.silo.engine.TransactionValueProvider;
 import se.l4.silo.engine.internal.log.TransactionLog;
+import se.l4.silo.engine.internal.mvstore.Shard;
 import se.l4.ylem.io.IOConsumer;
 
 /**
@@ -31,35 +39,193 @@ import se.l4.ylem.io.IOConsumer;
 public class LogBasedTransactionSupport
 	implements TransactionSupport
 {
-	private final MVStoreManager storeManager;
+	private final ListIterable<Shard> shards;
 	private final TransactionLog log;
 
-	private final Lock acquireLock;
 	private final TransactionWaiter waiter;
 
 	private final ThreadLocal<ExchangeImpl> activeExchange;
-	private final MutableList<TransactionValue<?>> values;
 
+	/**
+	 * Lock held while values are registered or a view is published.
+	 */
+	private final Lock publishLock;
+
+	private volatile ImmutableList<TransactionValue<?>> values;
+
+	/**
+	 * Values that read from a store, for every collection.
+	 */
+	private final MutableMap<String, ImmutableList<TransactionValue<?>>> storeValues;
+
+	/**
+	 * The store of every collection with values.
+	 */
+	private final MutableMap<String, MVStoreManager> collectionStores;
+
+	/**
+	 * The collection every value that reads from a store belongs to.
+	 */
+	private ImmutableMap<TransactionValue<?>, String> owners;
+
+	/**
+	 * The latest published view, exchanges use it to read data without
+	 * locking the collections.
+	 */
+	private volatile ReadView view;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param shards
+	 *   the shards of the engine, the first shard contains the main store
+	 * @param log
+	 * @param waiter
+	 */
 	public LogBasedTransactionSupport(
-		MVStoreManager storeManager,
+		ListIterable<Shard> shards,
 		TransactionLog log,
-		Lock acquireLock,
 		TransactionWaiter waiter
 	)
 	{
-		this.storeManager = storeManager;
+		this.shards = shards;
 		this.log = log;
-		this.acquireLock = acquireLock;
 		this.waiter = waiter;
 
 		activeExchange = new ThreadLocal<>();
-		values = Lists.mutable.empty();
+		publishLock = new ReentrantLock();
+
+		values = Lists.immutable.empty();
+		storeValues = Maps.mutable.empty();
+		collectionStores = Maps.mutable.empty();
+		owners = Maps.immutable.empty();
+
+		view = new ReadView(getMainVersion(), owners, Maps.immutable.empty());
+	}
+
+	private long getMainVersion()
+	{
+		return shards.getFirst().getStore().getStore().getCurrentVersion();
 	}
 
 	@Override
-	public void registerValue(TransactionValue<?> value)
+	public void registerValue(String collection, TransactionValue<?> value)
+	{
+		publishLock.lock();
+		try
+		{
+			values = values.newWith(value);
+
+			if(value instanceof StoreTransactionValue)
+			{
+				MVStore store = ((StoreTransactionValue<?>) value).getStore();
+				Shard shard = shards.detect(s -> s.getStore().getStore() == store);
+				if(shard == null)
+				{
+					throw new StorageException("Value reads from a store that is not part of this engine");
+				}
+
+				collectionStores.put(collection, shard.getStore());
+				storeValues.put(
+					collection,
+					storeValues.getIfAbsentValue(collection, Lists.immutable.empty()).newWith(value)
+				);
+				owners = owners.newWithKeyValue(value, collection);
+
+				/*
+				 * Values are registered while the collection is created, no
+				 * changes are applied to it yet so it can be published
+				 * without being locked.
+				 */
+				publishLocked(Sets.immutable.of(collection));
+			}
+		}
+		finally
+		{
+			publishLock.unlock();
+		}
+	}
+
+	/**
+	 * Publish the current state of some collections, making changes applied
+	 * to them visible to new exchanges. Must be called while no changes are
+	 * being applied to the collections.
+	 *
+	 * @param changed
+	 *   the collections that have been changed
+	 */
+	public void publish(SetIterable<String> changed)
+	{
+		if(changed.isEmpty())
+		{
+			return;
+		}
+
+		publishLock.lock();
+		try
+		{
+			publishLocked(changed);
+		}
+		finally
+		{
+			publishLock.unlock();
+		}
+	}
+
+	/**
+	 * Publish a new view, must be called while holding the publish lock.
+	 *
+	 * @param changed
+	 *   the collections that have been changed
+	 */
+	private void publishLocked(SetIterable<String> changed)
 	{
-		values.add(value);
+		ReadView current = view;
+
+		MutableMap<String, ReadView.CollectionView> collections = Maps.mutable.empty();
+		current.getCollections().forEachKeyValue((name, collectionView) -> {
+			if(! changed.contains(name))
+			{
+				// Views of collections that have not changed are shared
+				collectionView.retain();
+				collections.put(name, collectionView);
+			}
+		});
+
+		for(String name : changed)
+		{
+			ImmutableList<TransactionValue<?>> valuesOfCollection = storeValues.get(name);
+			if(valuesOfCollection != null)
+			{
+				collections.put(name, ReadView.CollectionView.create(
+					collectionStores.get(name),
+					valuesOfCollection
+				));
+			}
+		}
+
+		view = new ReadView(getMainVersion(), owners, collections.toImmutable());
+
+		// Release the reference held while the view was the latest
+		current.release();
+	}
+
+	/**
+	 * Acquire the latest published view. This never blocks, if the view is
+	 * released before it can be acquired a newer view has been published.
+	 *
+	 * @return
+	 */
+	private ReadView acquireView()
+	{
+		while(true)
+		{
+			ReadView current = view;
+			if(current.acquire())
+			{
+				return current;
+			}
+		}
 	}
 
 	private Context getOrCreateExchange(
@@ -72,20 +238,17 @@ public class LogBasedTransactionSupport
 			ExchangeImpl exchange = activeExchange.get();
 			if(exchange == null)
 			{
-				acquireLock.lock();
-				try
-				{
-					exchange = new ExchangeImpl(
-						log,
-						waiter,
-						storeManager.acquireVersionHandle(),
-						valuesToCapture
-					);
-				}
-				finally
-				{
-					acquireLock.unlock();
-				}
+				/*
+				 * Collections are only published after a group of
+				 * transactions has been applied to them, so no transaction
+				 * is partially seen.
+				 */
+				exchange = new ExchangeImpl(
+					log,
+					waiter,
+					acquireView(),
+					valuesToCapture
+				);
 			}
 
 			return context.put(ExchangeImpl.class, exchange);
@@ -130,6 +293,45 @@ public class LogBasedTransactionSupport
 		).contextWrite(ctx -> getOrCreateExchange(ctx, generateValues(valuesToCapture)));
 	}
 
+	@Override
+	public <V> V withExchangeBlocking(
+		Function<WriteableTransactionExchange, V> func,
+		TransactionValueProvider... valuesToCapture
+	)
+	{
+		ExchangeImpl exchange = activeExchange.get();
+		if(exchange == null)
+		{
+			exchange = new ExchangeImpl(
+				log,
+				waiter,
+				acquireView(),
+				generateValues(valuesToCapture)
+			);
+		}
+
+		exchange.acquire();
+
+		V result;
+		try
+		{
+			result = func.apply(exchange);
+		}
+		catch(RuntimeException | Error e)
+		{
+			exchange.rollbackNow();
+			throw e;
+		}
+
+		Mono<Void> applied = exchange.commitNow();
+		if(applied != null)
+		{
+			applied.block();
+		}
+
+		return result;
+	}
+
 	@Override
 	public <V> Mono<V> monoWithExchange(
 		Function<WriteableTransactionExchange, Mono<V>> func,
@@ -256,9 +458,20 @@ public class LogBasedTransactionSupport
 		private final TransactionLog log;
 		private final TransactionWaiter waiter;
 
-		private final MVStoreManager.VersionHandle versionHandle;
+		/**
+		 * View the exchange reads from.
+		 */
+		private final ReadView view;
 		private final ReentrantLock lock;
 
+		/**
+		 * Values that may be generated within this exchange.
+		 */
+		private final SetIterable<TransactionValue<?>> captured;
+
+		/**
+		 * Values that have been generated.
+		 */
 		private final MutableMap<TransactionValue<?>, Object> sharedData;
 
 		/** The id of the exchange */
@@ -267,30 +480,40 @@ public class LogBasedTransactionSupport
 		/** The number of functions currently using this exchange */
 		private int handles;
 
+		/** If the values of this exchange have been released */
+		private boolean released;
+
 		public ExchangeImpl(
 			TransactionLog log,
 			TransactionWaiter waiter,
-			MVStoreManager.VersionHandle versionHandle,
+			ReadView view,
 			RichIterable<? extends TransactionValue<?>> values
 		)
 		{
 			this.log = log;
 			this.waiter = waiter;
+			this.view = view;
 
-			this.versionHandle = versionHandle;
 			this.lock = new ReentrantLock();
 
-			long version = versionHandle.getVersion();
-			this.sharedData = values.toMap(
-				v -> v,
-				v -> v.generate(version)
-			);
+			/*
+			 * Values that read from a store are taken from the view, other
+			 * values are generated when first requested.
+			 */
+			captured = Sets.immutable.withAll(values);
+			sharedData = Maps.mutable.empty();
+		}
+
+		private Object generate(TransactionValue<?> value)
+		{
+			Object result = view.get(value);
+			return result != null ? result : value.generate(getVersion());
 		}
 
 		@Override
 		public long getVersion()
 		{
-			return versionHandle.getVersion();
+			return view.getVersion();
 		}
 
 		@Override
@@ -301,6 +524,14 @@ public class LogBasedTransactionSupport
 			log.store(this.id, collection, id, generator);
 		}
 
+		@Override
+		public OutputStream openBlob(String collection, Object id)
+		{
+			prepareWrite();
+
+			return log.openBlob(this.id, collection, id);
+		}
+
 		@Override
 		public void delete(String collection, Object id)
 		{
@@ -352,95 +583,154 @@ public class LogBasedTransactionSupport
 
 		public Mono<Void> rollback()
 		{
-			return Mono.fromRunnable(() -> {
-				lock.lock();
-				try
+			return Mono.fromRunnable(this::rollbackNow);
+		}
+
+		/**
+		 * Release a handle and roll back if it was the last one, on the
+		 * calling thread.
+		 */
+		public void rollbackNow()
+		{
+			lock.lock();
+			try
+			{
+				if(id == -1)
 				{
-					if(id == -1)
-					{
-						throw new StorageException("Transaction has already been committed or rolled back");
-					}
+					throw new StorageException("Transaction has already been committed or rolled back");
+				}
 
-					if(--handles == 0)
+				if(--handles == 0)
+				{
+					if(id > 0)
 					{
-						if(id > 0)
-						{
-							/*
-							 * An identifier indicates that this TX has writes,
-							 * log that it has been rolled back.
-							 */
-							log.rollbackTransaction(id);
+						/*
+						 * An identifier indicates that this TX has writes,
+						 * log that it has been rolled back.
+						 */
+						log.rollbackTransaction(id);
 
-							id = -1;
-						}
-
-						release();
+						id = -1;
 					}
+
+					release();
 				}
-				finally
-				{
-					lock.unlock();
-				}
-			});
+			}
+			finally
+			{
+				lock.unlock();
+			}
 		}
 
 		public Mono<Void> commit()
 		{
 			return Mono.defer(() -> {
-				Mono<Void> result = Mono.empty();
+				Mono<Void> result = commitNow();
+				return result == null ? Mono.empty() : result;
+			});
+		}
 
-				lock.lock();
-				try
+		/**
+		 * Release a handle and commit if it was the last one, on the calling
+		 * thread.
+		 *
+		 * @return
+		 *   {@link Mono} that waits for the transaction to be applied, or
+		 *   {@code null} if there is nothing to wait for
+		 */
+		public Mono<Void> commitNow()
+		{
+			Mono<Void> result = null;
+
+			lock.lock();
+			try
+			{
+				if(id == -1)
 				{
-					if(id == -1)
-					{
-						throw new StorageException("Transaction has already been committed or rolled back");
-					}
+					throw new StorageException("Transaction has already been committed or rolled back");
+				}
 
-					if(--handles == 0)
+				if(--handles == 0)
+				{
+					if(id > 0)
 					{
-						if(id > 0)
-						{
-							/*
-							 * An identifier indicates that this TX has writes,
-							 * commit it and wait for it to be applied.
-							 */
-							result = waiter.getWaiter(id);
+						/*
+						 * An identifier indicates that this TX has writes,
+						 * commit it and wait for it to be applied.
+						 */
+						result = waiter.getWaiter(id);
 
+						try
+						{
 							log.commitTransaction(id);
-
-							id = -1;
+						}
+						catch(RuntimeException | Error e)
+						{
+							// Nothing will complete the waiter, stop waiting
+							waiter.cancel(id);
+							throw e;
 						}
 
-						release();
+						id = -1;
 					}
+
+					release();
 				}
-				finally
-				{
-					lock.unlock();
-				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
 
-				return result;
-			});
+			return result;
 		}
 
 		private void release()
 		{
-			sharedData.each(v -> {
-				if(v instanceof TransactionValue.Releasable)
+			released = true;
+
+			sharedData.forEachKeyValue((k, v) -> {
+				// Values taken from the view are released with it
+				if(v instanceof TransactionValue.Releasable
+					&& view.get(k) == null)
 				{
 					((TransactionValue.Releasable) v).release();
 				}
 			});
 
-			versionHandle.release();
+			view.release();
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
 		public <T> T get(TransactionValue<T> key)
 		{
-			return (T) sharedData.get(key);
+			lock.lock();
+			try
+			{
+				if(sharedData.containsKey(key))
+				{
+					return (T) sharedData.get(key);
+				}
+
+				if(! captured.contains(key))
+				{
+					return null;
+				}
+
+				if(released)
+				{
+					throw new StorageException("Transaction has already been committed or rolled back");
+				}
+
+				Object value = generate(key);
+				sharedData.put(key, value);
+				return (T) value;
+			}
+			finally
+			{
+				lock.unlock();
+			}
 		}
 
 		@Override
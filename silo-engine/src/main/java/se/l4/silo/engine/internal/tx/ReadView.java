@@ -0,0 +1,214 @@
+package se.l4.silo.engine.internal.tx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.map.MutableMap;
+
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.TransactionValue;
+
+/**
+ * View of the data in all collections as it was after a group of
+ * transactions was applied. Views are published by
+ * {@link LogBasedTransactionSupport} and used by exchanges to read data
+ * without locking the collections.
+ *
+ * <p>
+ * A view is reference counted, it starts with a single reference held
+ * until a newer view is published. Acquiring a reference fails once the
+ * count has reached zero, in which case a newer view is available.
+ */
+class ReadView
+{
+	private final long version;
+	private final ImmutableMap<TransactionValue<?>, String> owners;
+	private final ImmutableMap<String, CollectionView> collections;
+	private final AtomicInteger references;
+
+	/**
+	 * Create a new view.
+	 *
+	 * @param version
+	 *   the version of the main store
+	 * @param owners
+	 *   the collection of every value that is part of the view
+	 * @param collections
+	 *   the views of the collections
+	 */
+	public ReadView(
+		long version,
+		ImmutableMap<TransactionValue<?>, String> owners,
+		ImmutableMap<String, CollectionView> collections
+	)
+	{
+		this.version = version;
+		this.owners = owners;
+		this.collections = collections;
+
+		references = new AtomicInteger(1);
+	}
+
+	/**
+	 * Get the views of the collections.
+	 *
+	 * @return
+	 */
+	public ImmutableMap<String, CollectionView> getCollections()
+	{
+		return collections;
+	}
+
+	/**
+	 * Get the version of the main store when this view was published.
+	 *
+	 * @return
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Get a value that was generated when the view of its collection was
+	 * published.
+	 *
+	 * @param value
+	 * @return
+	 *   the generated value, or {@code null} if the value is not part of
+	 *   this view
+	 */
+	public Object get(TransactionValue<?> value)
+	{
+		String collection = owners.get(value);
+		if(collection == null)
+		{
+			return null;
+		}
+
+		CollectionView view = collections.get(collection);
+		return view == null ? null : view.get(value);
+	}
+
+	/**
+	 * Try to acquire a reference to this view.
+	 *
+	 * @return
+	 *   {@code false} if this view has already been released
+	 */
+	public boolean acquire()
+	{
+		while(true)
+		{
+			int current = references.get();
+			if(current == 0)
+			{
+				return false;
+			}
+
+			if(references.compareAndSet(current, current + 1))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Release a reference to this view.
+	 */
+	public void release()
+	{
+		if(references.decrementAndGet() == 0)
+		{
+			collections.each(CollectionView::release);
+		}
+	}
+
+	/**
+	 * View of a single collection. Views of collections that have not
+	 * changed are shared between several {@link ReadView}s.
+	 */
+	static class CollectionView
+	{
+		private final MVStoreManager.VersionHandle handle;
+		private final ImmutableMap<TransactionValue<?>, Object> values;
+		private final AtomicInteger references;
+
+		private CollectionView(
+			MVStoreManager.VersionHandle handle,
+			ImmutableMap<TransactionValue<?>, Object> values
+		)
+		{
+			this.handle = handle;
+			this.values = values;
+
+			references = new AtomicInteger(1);
+		}
+
+		/**
+		 * Create a view of a collection. No changes may be applied to the
+		 * collection while the view is created.
+		 *
+		 * @param store
+		 *   the store the collection is in
+		 * @param values
+		 *   the values of the collection that read from the store
+		 * @return
+		 */
+		public static CollectionView create(
+			MVStoreManager store,
+			ListIterable<TransactionValue<?>> values
+		)
+		{
+			MVStoreManager.VersionHandle handle = store.acquireVersionHandle();
+
+			MutableMap<TransactionValue<?>, Object> generated = Maps.mutable.empty();
+			for(TransactionValue<?> value : values)
+			{
+				generated.put(value, value.generate(handle.getVersion()));
+			}
+
+			return new CollectionView(handle, generated.toImmutable());
+		}
+
+		/**
+		 * Get a generated value.
+		 *
+		 * @param value
+		 * @return
+		 */
+		public Object get(TransactionValue<?> value)
+		{
+			return values.get(value);
+		}
+
+		/**
+		 * Add a reference to this view, used when it is shared with a
+		 * newer {@link ReadView}.
+		 */
+		public void retain()
+		{
+			references.incrementAndGet();
+		}
+
+		/**
+		 * Release a reference to this view.
+		 */
+		public void release()
+		{
+			if(references.decrementAndGet() == 0)
+			{
+				values.each(v -> {
+					if(v instanceof TransactionValue.Releasable)
+					{
+						((TransactionValue.Releasable) v).release();
+					}
+				});
+
+				handle.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package se.l4.silo.engine.internal.tx;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.set.MutableSet;
+
+import se.l4.silo.engine.internal.tx.operations.TransactionOperation;
+
+/**
+ * Transaction that is active in {@link TransactionLogApplier}. Operations
+ * are buffered in memory until the transaction is committed or until the
+ * transaction is spilled, after which its operations are kept in the
+ * transaction log of the store.
+ */
+class StagedTransaction
+{
+	private final long position;
+	private final long started;
+	private final MutableSet<String> collections;
+
+	private MutableList<TransactionOperation> operations;
+	private long memory;
+	private long nextId;
+
+	public StagedTransaction(long position, long started)
+	{
+		this.position = position;
+		this.started = started;
+
+		collections = Sets.mutable.empty();
+		operations = Lists.mutable.empty();
+	}
+
+	/**
+	 * Get the position in the log of the entry that started this
+	 * transaction.
+	 *
+	 * @return
+	 */
+	public long getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Get when this transaction was started.
+	 *
+	 * @return
+	 *   timestamp in milliseconds
+	 */
+	public long getStarted()
+	{
+		return started;
+	}
+
+	/**
+	 * Get the collections modified by this transaction.
+	 *
+	 * @return
+	 */
+	public MutableSet<String> getCollections()
+	{
+		return collections;
+	}
+
+	/**
+	 * Get if the operations of this transaction are kept in the transaction
+	 * log instead of in memory.
+	 *
+	 * @return
+	 */
+	public boolean isSpilled()
+	{
+		return operations == null;
+	}
+
+	/**
+	 * Get the operations buffered in memory. The index of an operation is
+	 * its identifier within the transaction.
+	 *
+	 * @return
+	 */
+	public ListIterable<TransactionOperation> getOperations()
+	{
+		return operations;
+	}
+
+	/**
+	 * Get the estimated memory used by the buffered operations.
+	 *
+	 * @return
+	 */
+	public long getMemory()
+	{
+		return memory;
+	}
+
+	/**
+	 * Buffer an operation in memory.
+	 *
+	 * @param op
+	 * @param memory
+	 */
+	public void add(TransactionOperation op, int memory)
+	{
+		operations.add(op);
+		this.memory += memory;
+		nextId++;
+	}
+
+	/**
+	 * Mark that the buffered operations have been written to the transaction
+	 * log.
+	 */
+	public void markSpilled()
+	{
+		operations = null;
+		memory = 0;
+	}
+
+	/**
+	 * Get the identifier to use for the next operation written to the
+	 * transaction log.
+	 *
+	 * @return
+	 */
+	public long nextId()
+	{
+		return nextId++;
+	}
+}
@@ -0,0 +1,46 @@
+package se.l4.silo.engine.internal.tx;
+
+import org.h2.mvstore.MVStore;
+
+import se.l4.silo.engine.TransactionValue;
+
+/**
+ * {@link TransactionValue} that reads from a specific store. The value is
+ * generated using the version of that store, which allows exchanges to
+ * span data in several stores.
+ */
+public interface StoreTransactionValue<V>
+	extends TransactionValue<V>
+{
+	/**
+	 * Get the store this value reads from.
+	 *
+	 * @return
+	 */
+	MVStore getStore();
+
+	/**
+	 * Create a value that reads from the given store.
+	 *
+	 * @param store
+	 * @param value
+	 * @return
+	 */
+	static <V> StoreTransactionValue<V> create(MVStore store, TransactionValue<V> value)
+	{
+		return new StoreTransactionValue<V>()
+		{
+			@Override
+			public MVStore getStore()
+			{
+				return store;
+			}
+
+			@Override
+			public V generate(long txVersion)
+			{
+				return value.generate(txVersion);
+			}
+		};
+	}
+}
@@ -9,8 +9,23 @@ import java.util.Base64;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
 import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
 import org.h2.mvstore.MVMap;
@@ -18,9 +33,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import reactor.core.scheduler.Scheduler;
+import se.l4.silo.engine.EngineConfig;
 import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.Histogram;
 import se.l4.silo.engine.internal.MessageConstants;
 import se.l4.silo.engine.internal.StorageApplier;
+import se.l4.silo.engine.internal.tx.operations.BlobChunkOperation;
 import se.l4.silo.engine.internal.tx.operations.ChunkOperation;
 import se.l4.silo.engine.internal.tx.operations.DeleteOperation;
 import se.l4.silo.engine.internal.tx.operations.IndexChunkOperation;
@@ -49,16 +67,82 @@ public class TransactionLogApplier
 
 	private static final Logger logger = LoggerFactory.getLogger(TransactionLogApplier.class);
 
+	/**
+	 * The longest time to park at a time while waiting for a group to fill.
+	 */
+	private static final long WAIT_STEP = TimeUnit.MICROSECONDS.toNanos(50);
+
 	private final StorageApplier applier;
 
 	private final MVMap<long[], TransactionOperation> log;
 
+	/**
+	 * The longest time operations of a transaction are buffered in memory.
+	 */
+	private static final long BUFFER_TIME = TimeUnit.SECONDS.toMillis(30);
+
+	/**
+	 * Active transactions and their buffered operations. Transactions
+	 * started before a restart are not tracked and have their operations
+	 * and collections looked up in the log when applied.
+	 */
+	private final Map<Long, StagedTransaction> transactions;
+
+	/**
+	 * The estimated memory used by operations buffered for all active
+	 * transactions.
+	 */
+	private final AtomicLong bufferedMemory;
+	private final long maxBufferedMemory;
+
+	/**
+	 * Scheduler used to apply groups in parallel, if {@code null} all
+	 * groups are applied by the thread that takes them.
+	 */
+	private final Scheduler scheduler;
+
+	/**
+	 * Lock held while commits are taken to be applied.
+	 */
+	private final Lock dispatchLock;
+	private final Condition idle;
+
+	/**
+	 * Commits waiting to be applied, in the order they were received.
+	 */
+	private final MutableList<PendingCommit> pendingCommits;
+	private final AtomicInteger pendingCount;
+	private long commitSequence;
+
+	/**
+	 * Collections that groups are currently being applied to.
+	 */
+	private final MutableSet<String> busyCollections;
+
+	private final int maxGroupSize;
+	private final long maxWait;
+
+	private final Histogram groupSizes;
+	private final Histogram commitWaits;
+
+	/**
+	 * If entries are being recovered from the log.
+	 */
+	private volatile boolean recovering;
+
+	/**
+	 * When recovering, the position of the first entry that has not been
+	 * applied to the stored data.
+	 */
+	private volatile long appliedPosition;
+
 	private final CountingProbe activeTx;
 	private final CountingProbe logEvents;
 
 	private final CountingProbe txStarts;
 	private final CountingProbe txCommits;
 	private final CountingProbe txRollbacks;
+	private final CountingProbe txSpills;
 
 	public TransactionLogApplier(
 		Vibe vibe,
@@ -66,14 +150,67 @@ public class TransactionLogApplier
 		MVStoreManager store,
 		StorageApplier applier
 	)
+	{
+		this(
+			vibe,
+			scheduler,
+			store,
+			applier,
+			EngineConfig.GROUP_COMMIT_MAX_SIZE,
+			EngineConfig.GROUP_COMMIT_WAIT,
+			EngineConfig.TRANSACTION_BUFFER_SIZE
+		);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param vibe
+	 * @param scheduler
+	 * @param store
+	 * @param applier
+	 * @param maxGroupSize
+	 *   the maximum number of commits to apply together
+	 * @param maxWaitInMicros
+	 *   how long to wait for more commits before applying a group
+	 * @param maxBufferedInKiB
+	 *   the amount of memory active transactions can buffer operations in
+	 */
+	public TransactionLogApplier(
+		Vibe vibe,
+		Scheduler scheduler,
+		MVStoreManager store,
+		StorageApplier applier,
+		int maxGroupSize,
+		int maxWaitInMicros,
+		int maxBufferedInKiB
+	)
 	{
 		this.applier = applier;
+		this.scheduler = scheduler;
+		this.maxGroupSize = maxGroupSize;
+		this.maxWait = TimeUnit.MICROSECONDS.toNanos(maxWaitInMicros);
+
+		this.maxBufferedMemory = maxBufferedInKiB * 1024l;
+
+		transactions = new ConcurrentHashMap<>();
+		bufferedMemory = new AtomicLong();
+
+		dispatchLock = new ReentrantLock();
+		idle = dispatchLock.newCondition();
+		pendingCommits = Lists.mutable.empty();
+		pendingCount = new AtomicInteger();
+		busyCollections = Sets.mutable.empty();
+
+		groupSizes = new Histogram();
+		commitWaits = new Histogram();
 
 		activeTx = new CountingProbe();
 
 		txStarts = new CountingProbe();
 		txCommits = new CountingProbe();
 		txRollbacks = new CountingProbe();
+		txSpills = new CountingProbe();
 
 		logEvents = new CountingProbe();
 
@@ -84,6 +221,7 @@ public class TransactionLogApplier
 				.add("starts", txStarts.apply(Change.changeAsLong()))
 				.add("commits", txCommits.apply(Change.changeAsLong()))
 				.add("rollbacks", txRollbacks.apply(Change.changeAsLong()))
+				.add("spills", txSpills.apply(Change.changeAsLong()))
 				.build();
 
 			vibe.export(summaryProbe)
@@ -93,6 +231,14 @@ public class TransactionLogApplier
 			vibe.export(logEvents.apply(Change.changeAsLong()))
 				.at("log", "events")
 				.done();
+
+			vibe.export(groupSizes.createProbe())
+				.at("tx", "groupSize")
+				.done();
+
+			vibe.export(commitWaits.createProbe())
+				.at("tx", "commitWaitInMicros")
+				.done();
 		}
 
 		log = store.openMap("tx.log", new MVMap.Builder<long[], TransactionOperation>()
@@ -115,11 +261,6 @@ public class TransactionLogApplier
 		}
 
 		logger.debug(activeTx.read() + " active transactions spread over " + log.size() + " entries in the log");
-
-		if(scheduler != null)
-		{
-			scheduler.schedulePeriodically(this::removeStale, 1, 5, TimeUnit.MINUTES);
-		}
 	}
 
 	@Override
@@ -128,56 +269,149 @@ public class TransactionLogApplier
 	{
 		logEvents.increase();
 
-		try(InputStream stream = item.getData().asInputStream())
+		BinaryDataInput in = BinaryDataInput.forBuffer(item.getBuffer());
+		int msgType = in.read();
+
+		long tx = in.readVLong();
+
+		if(recovering
+			&& msgType != MessageConstants.START_TRANSACTION
+			&& ! transactions.containsKey(tx))
 		{
-			BinaryDataInput in = BinaryDataInput.forStream(stream);
-			int msgType = in.read();
+			/*
+			 * The transaction started before the recovered entries, which
+			 * means that it was completed before the log was checkpointed.
+			 */
+			return;
+		}
 
-			long tx = in.readVLong();
-			long[] key = new long[] { tx, findNextId(tx) };
+		switch(msgType)
+		{
+			case MessageConstants.START_TRANSACTION:
+				// TODO: This should start an automatic transaction rollback timer
+				StartOperation start = StartOperation.read(in);
 
-			switch(msgType)
-			{
-				case MessageConstants.START_TRANSACTION:
-					// TODO: This should start an automatic transaction rollback timer
-					log.put(key, StartOperation.read(in));
+				/*
+				 * A transaction with the same id can remain from before a
+				 * restart, such as when a log recovers its entries.
+				 */
+				if(discard(tx))
+				{
+					activeTx.decrease();
+				}
 
-					activeTx.increase();
-					txStarts.increase();
+				transactions.put(tx, new StagedTransaction(item.getPosition(), start.getTimestamp()));
+				stage(tx, null, start);
 
-					if(logger.isTraceEnabled())
-					{
-						logger.trace("[" + tx + "] Starting transaction");
-					}
+				activeTx.increase();
+				txStarts.increase();
 
-					break;
-				case MessageConstants.STORE_CHUNK:
-					log.put(key, StoreChunkOperation.read(in));
-					break;
-				case MessageConstants.INDEX_CHUNK:
-					log.put(key, IndexChunkOperation.read(in));
-					break;
-				case MessageConstants.DELETE:
-					log.put(key, DeleteOperation.read(in));
-					break;
-				case MessageConstants.COMMIT_TRANSACTION:
-					txCommits.increase();
-					applyTransaction(tx);
-					break;
-				case MessageConstants.ROLLBACK_TRANSACTION:
-					txRollbacks.increase();
+				if(logger.isTraceEnabled())
+				{
+					logger.trace("[" + tx + "] Starting transaction");
+				}
+
+				break;
+			case MessageConstants.STORE_CHUNK:
+				StoreChunkOperation storeChunk = StoreChunkOperation.read(in);
+				stage(tx, storeChunk.getCollection(), storeChunk);
+				break;
+			case MessageConstants.BLOB_CHUNK:
+				BlobChunkOperation blobChunk = BlobChunkOperation.read(in);
+				stage(tx, blobChunk.getCollection(), blobChunk);
+				break;
+			case MessageConstants.INDEX_CHUNK:
+				IndexChunkOperation indexChunk = IndexChunkOperation.read(in);
+				stage(tx, indexChunk.getCollection(), indexChunk);
+				break;
+			case MessageConstants.DELETE:
+				DeleteOperation delete = DeleteOperation.read(in);
+				stage(tx, delete.getCollection(), delete);
+				break;
+			case MessageConstants.COMMIT_TRANSACTION:
+				if(recovering && item.getPosition() < appliedPosition)
+				{
+					// Commit is already part of the stored data
 					removeTransaction(tx);
 					break;
-			}
+				}
+
+				txCommits.increase();
+
+				SetIterable<String> collections = Sets.immutable.withAll(collectionsOf(tx));
+
+				dispatchLock.lock();
+				try
+				{
+					pendingCommits.add(new PendingCommit(++commitSequence, tx, collections));
+					pendingCount.incrementAndGet();
+				}
+				finally
+				{
+					dispatchLock.unlock();
+				}
+
+				if(scheduler == null)
+				{
+					applyPending();
+				}
+				else
+				{
+					// Apply on the scheduler so the log can pass on the next entry
+					scheduler.schedule(this::applyPending);
+				}
+				break;
+			case MessageConstants.ROLLBACK_TRANSACTION:
+				txRollbacks.increase();
+				removeTransaction(tx);
+				break;
 		}
 	}
 
+	/**
+	 * Start recovering entries from the log. Until
+	 * {@link #finishRecovery()} is called, entries of transactions whose
+	 * start is not seen are skipped and commits before the given position
+	 * are discarded instead of applied.
+	 *
+	 * @param appliedPosition
+	 *   the position of the first entry that has not been applied to the
+	 *   stored data
+	 */
+	public void startRecovery(long appliedPosition)
+	{
+		this.appliedPosition = appliedPosition;
+		recovering = true;
+	}
+
+	/**
+	 * Stop recovering entries, see {@link #startRecovery(long)}.
+	 */
+	public void finishRecovery()
+	{
+		recovering = false;
+	}
+
+	/**
+	 * Remove transactions that have been active for too long. Called
+	 * periodically by the engine.
+	 */
 	public void removeStale()
 	{
 		logger.trace("Looking for stale transactions");
+
+		long time = System.currentTimeMillis();
+		MutableLongSet toRemove = new LongHashSet();
+		for(Map.Entry<Long, StagedTransaction> e : transactions.entrySet())
+		{
+			if(time - e.getValue().getStarted() >= TIMEOUT)
+			{
+				toRemove.add(e.getKey());
+			}
+		}
+
 		if(! log.isEmpty())
 		{
-			MutableLongSet toRemove = new LongHashSet();
 			Iterator<long[]> it = log.keyIterator(log.firstKey());
 			while(it.hasNext())
 			{
@@ -185,23 +419,202 @@ public class TransactionLogApplier
 				TransactionOperation op = log.get(key);
 				if(op instanceof StartOperation)
 				{
-					long time = System.currentTimeMillis();
 					if(time - ((StartOperation) op).getTimestamp() >= TIMEOUT)
 					{
 						toRemove.add(key[0]);
 					}
 				}
 			}
+		}
+
+		if(! toRemove.isEmpty())
+		{
+			logger.info("Removing " + toRemove.size() + " stale transactions");
+
+			toRemove.each(this::removeTransaction);
+
+			logger.info("Reduced to " + activeTx.read() + " active transactions");
+		}
+	}
+
+	/**
+	 * Get the position in the log of the oldest entry that is needed by
+	 * active transactions.
+	 *
+	 * @return
+	 *   position, or {@link Long#MAX_VALUE} if there are no active
+	 *   transactions
+	 */
+	public long getOldestActivePosition()
+	{
+		long result = Long.MAX_VALUE;
+		for(StagedTransaction staged : transactions.values())
+		{
+			result = Math.min(result, staged.getPosition());
+		}
+		return result;
+	}
+
+	/**
+	 * Stage an operation of a transaction. Operations are buffered in memory
+	 * if there is room in the buffer and the transaction has not been active
+	 * for too long, otherwise the transaction is spilled to the log.
+	 *
+	 * @param tx
+	 * @param collection
+	 *   the collection the operation modifies, or {@code null}
+	 * @param op
+	 */
+	private void stage(long tx, String collection, TransactionOperation op)
+	{
+		StagedTransaction staged = transactions.get(tx);
+		if(staged == null)
+		{
+			// Transaction is not tracked, write directly to the log
+			log.put(new long[] { tx, findNextId(tx) }, op);
+			return;
+		}
+
+		synchronized(staged)
+		{
+			if(collection != null)
+			{
+				staged.getCollections().add(collection);
+			}
+
+			if(! staged.isSpilled())
+			{
+				int memory = op.estimateMemory();
+				if(bufferedMemory.get() + memory <= maxBufferedMemory
+					&& System.currentTimeMillis() - staged.getStarted() < BUFFER_TIME)
+				{
+					staged.add(op, memory);
+					bufferedMemory.addAndGet(memory);
+					return;
+				}
+
+				spill(tx, staged);
+			}
+
+			log.put(new long[] { tx, staged.nextId() }, op);
+		}
+	}
+
+	/**
+	 * Write the operations buffered for a transaction to the log.
+	 *
+	 * @param tx
+	 * @param staged
+	 */
+	private void spill(long tx, StagedTransaction staged)
+	{
+		if(logger.isTraceEnabled())
+		{
+			logger.trace("[" + tx + "] Spilling transaction to the stored log");
+		}
+
+		ListIterable<TransactionOperation> operations = staged.getOperations();
+		for(int i=0, n=operations.size(); i<n; i++)
+		{
+			log.put(new long[] { tx, i }, operations.get(i));
+		}
+
+		bufferedMemory.addAndGet(-staged.getMemory());
+		staged.markSpilled();
+
+		txSpills.increase();
+	}
+
+	/**
+	 * Stop tracking a transaction, releasing any memory used by its
+	 * buffered operations.
+	 *
+	 * @param tx
+	 * @return
+	 *   if the transaction was tracked
+	 */
+	private boolean release(long tx)
+	{
+		StagedTransaction staged = transactions.remove(tx);
+		if(staged == null) return false;
+
+		synchronized(staged)
+		{
+			if(! staged.isSpilled())
+			{
+				bufferedMemory.addAndGet(-staged.getMemory());
+				staged.markSpilled();
+			}
+		}
 
-			if(! toRemove.isEmpty())
+		return true;
+	}
+
+	/**
+	 * Discard anything stored for a transaction, without applying it.
+	 *
+	 * @param tx
+	 * @return
+	 *   if something was stored for the transaction
+	 */
+	private boolean discard(long tx)
+	{
+		boolean result = release(tx);
+
+		long[] first = log.ceilingKey(new long[] { tx, 0l });
+		if(first != null && first[0] == tx)
+		{
+			List<long[]> keys = new ArrayList<>();
+			collectKeys(tx, keys);
+			for(long[] key : keys)
 			{
-				logger.info("Removing " + toRemove.size() + " stale transactions");
+				log.remove(key);
+			}
 
-				toRemove.each(this::removeTransaction);
+			result = true;
+		}
+
+		return result;
+	}
 
-				logger.info("Reduced to " + activeTx.read() + " active transactions");
+	/**
+	 * Get the collections modified by a transaction.
+	 *
+	 * @param tx
+	 * @return
+	 */
+	private SetIterable<String> collectionsOf(long tx)
+	{
+		StagedTransaction staged = transactions.get(tx);
+		if(staged != null)
+		{
+			return staged.getCollections();
+		}
+
+		// Transaction is not tracked, find the collections in the log
+		MutableSet<String> result = Sets.mutable.empty();
+		Iterator<long[]> it = log.keyIterator(new long[] { tx, 0l });
+		while(it.hasNext())
+		{
+			long[] key = it.next();
+			if(key[0] != tx) break;
+
+			TransactionOperation op = log.get(key);
+			if(op instanceof DeleteOperation)
+			{
+				result.add(((DeleteOperation) op).getCollection());
+			}
+			else if(op instanceof StoreChunkOperation)
+			{
+				result.add(((StoreChunkOperation) op).getCollection());
+			}
+			else if(op instanceof IndexChunkOperation)
+			{
+				result.add(((IndexChunkOperation) op).getCollection());
 			}
 		}
+
+		return result;
 	}
 
 	private long findNextId(long tx)
@@ -225,14 +638,7 @@ public class TransactionLogApplier
 	private void removeTransaction(long tx)
 	{
 		List<long[]> keysToRemove = new ArrayList<>();
-		Iterator<long[]> it = log.keyIterator(new long[] { tx, 0l });
-		while(it.hasNext())
-		{
-			long[] key = it.next();
-			if(key[0] != tx) break;
-
-			keysToRemove.add(key);
-		}
+		collectKeys(tx, keysToRemove);
 
 		for(Object o : keysToRemove)
 		{
@@ -240,6 +646,7 @@ public class TransactionLogApplier
 		}
 
 		activeTx.decrease();
+		release(tx);
 
 		if(logger.isTraceEnabled())
 		{
@@ -247,91 +654,447 @@ public class TransactionLogApplier
 		}
 	}
 
+	/**
+	 * Apply pending commits. Commits are taken in groups where every group
+	 * modifies a different set of collections. The current thread applies
+	 * the first group and the others are applied in parallel using the
+	 * scheduler. When a scheduler is used this is always called from it, so
+	 * that receiving entries never waits for commits being applied. Commits that modify a collection that is already being
+	 * applied to are left pending and are picked up by the thread applying
+	 * to the collection once it is done, keeping the commit order of every
+	 * collection. Waiting for commits is handled by
+	 * {@link StorageApplier#transactionComplete(long, Throwable)}.
+	 */
+	private void applyPending()
+	{
+		while(pendingCount.get() > 0)
+		{
+			awaitGroup();
+
+			ListIterable<MutableList<PendingCommit>> groups = takeGroups();
+			if(groups.isEmpty())
+			{
+				// All pending commits wait for collections being applied to
+				return;
+			}
+
+			if(scheduler == null)
+			{
+				groups.each(this::applyAndRelease);
+				continue;
+			}
+
+			for(int i=1, n=groups.size(); i<n; i++)
+			{
+				ListIterable<PendingCommit> group = groups.get(i);
+				scheduler.schedule(() -> {
+					try
+					{
+						applyAndRelease(group);
+					}
+					catch(RuntimeException e)
+					{
+						logger.error("Could not apply group of transactions; " + e.getMessage(), e);
+					}
+
+					applyPending();
+				});
+			}
+
+			applyAndRelease(groups.getFirst());
+		}
+	}
+
+	/**
+	 * Take pending commits that can be applied, split into groups that
+	 * modify different collections. The collections of the groups are
+	 * marked as busy until the groups have been applied.
+	 *
+	 * @return
+	 */
+	private ListIterable<MutableList<PendingCommit>> takeGroups()
+	{
+		dispatchLock.lock();
+		try
+		{
+			MutableSet<String> blocked = Sets.mutable.withAll(busyCollections);
+
+			MutableList<MutableList<PendingCommit>> groups = Lists.mutable.empty();
+			MutableList<MutableSet<String>> groupCollections = Lists.mutable.empty();
+
+			int taken = 0;
+			Iterator<PendingCommit> it = pendingCommits.iterator();
+			while(taken < maxGroupSize && it.hasNext())
+			{
+				PendingCommit commit = it.next();
+				if(commit.collections.anySatisfy(blocked::contains))
+				{
+					// Later commits to the same collections must wait for this one
+					blocked.addAllIterable(commit.collections);
+					continue;
+				}
+
+				it.remove();
+				pendingCount.decrementAndGet();
+				taken++;
+
+				// Merge the groups that share a collection with the commit
+				MutableList<PendingCommit> group = Lists.mutable.of(commit);
+				MutableSet<String> collections = Sets.mutable.withAll(commit.collections);
+				for(int i=groups.size()-1; i>=0; i--)
+				{
+					if(groupCollections.get(i).anySatisfy(commit.collections::contains))
+					{
+						group.addAll(groups.remove(i));
+						collections.addAll(groupCollections.remove(i));
+					}
+				}
+
+				group.sortThisByLong(c -> c.sequence);
+				groups.add(group);
+				groupCollections.add(collections);
+			}
+
+			groupCollections.each(busyCollections::addAll);
+
+			return groups;
+		}
+		finally
+		{
+			dispatchLock.unlock();
+		}
+	}
+
+	/**
+	 * Apply a group and then release its collections so that commits
+	 * waiting for them can be taken. Transactions are completed after the
+	 * collections have been released, so that anything waiting for them
+	 * can modify the same collections.
+	 *
+	 * @param group
+	 */
+	private void applyAndRelease(ListIterable<PendingCommit> group)
+	{
+		MutableSet<String> collections = Sets.mutable.empty();
+		group.each(commit -> collections.addAllIterable(commit.collections));
+
+		Throwable[] errors;
+		try
+		{
+			errors = applyGroup(group, collections);
+		}
+		finally
+		{
+			dispatchLock.lock();
+			try
+			{
+				busyCollections.removeAll(collections);
+				if(busyCollections.isEmpty())
+				{
+					idle.signalAll();
+				}
+			}
+			finally
+			{
+				dispatchLock.unlock();
+			}
+		}
+
+		for(int i=0, n=group.size(); i<n; i++)
+		{
+			// Indicate that the TX has been applied
+			applier.transactionComplete(group.get(i).tx, errors[i]);
+		}
+	}
+
+	/**
+	 * Wait until every commit received has been applied.
+	 */
+	public void awaitIdle()
+	{
+		dispatchLock.lock();
+		try
+		{
+			while(! busyCollections.isEmpty() || pendingCount.get() > 0)
+			{
+				idle.awaitUninterruptibly();
+			}
+		}
+		finally
+		{
+			dispatchLock.unlock();
+		}
+	}
+
+	/**
+	 * Wait for more commits to arrive, if configured to do so.
+	 */
+	private void awaitGroup()
+	{
+		if(maxWait <= 0) return;
+
+		long deadline = System.nanoTime() + maxWait;
+		long remaining;
+		while(pendingCount.get() < maxGroupSize && (remaining = deadline - System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(Math.min(remaining, WAIT_STEP));
+		}
+	}
+
+	/**
+	 * Apply a group of transactions to the storage. The operations of all
+	 * transactions are removed from the log after the group has been
+	 * applied.
+	 *
+	 * @param group
+	 * @param groupCollections
+	 *   the collections modified by the transactions in the group
+	 * @return
+	 *   the error that occurred for every transaction, if any
+	 */
+	private Throwable[] applyGroup(ListIterable<PendingCommit> group, SetIterable<String> groupCollections)
+	{
+		long start = System.nanoTime();
+		groupSizes.record(group.size());
+
+		for(PendingCommit commit : group)
+		{
+			commitWaits.record(TimeUnit.NANOSECONDS.toMicros(start - commit.received));
+		}
+
+		List<long[]> keysToRemove = new ArrayList<>();
+		Throwable[] errors = new Throwable[group.size()];
+
+		applier.batchStart(groupCollections);
+		try
+		{
+			for(int i=0, n=group.size(); i<n; i++)
+			{
+				long tx = group.get(i).tx;
+				try
+				{
+					applyTransaction(tx, keysToRemove);
+				}
+				catch(IOException | RuntimeException e)
+				{
+					logger.error("[" + tx + "] Could not apply transaction; " + e.getMessage(), e);
+					errors[i] = e;
+
+					// Make sure that the rest of the transaction is removed
+					collectKeys(tx, keysToRemove);
+				}
+			}
+
+			for(long[] key : keysToRemove)
+			{
+				log.remove(key);
+			}
+		}
+		finally
+		{
+			applier.batchComplete(groupCollections);
+		}
+
+		for(int i=0, n=group.size(); i<n; i++)
+		{
+			long tx = group.get(i).tx;
+
+			activeTx.decrease();
+			release(tx);
+
+			if(logger.isTraceEnabled())
+			{
+				logger.trace("[" + tx + "] Removing from stored log");
+			}
+		}
+
+		return errors;
+	}
+
+	/**
+	 * Collect the keys in the log used by a transaction.
+	 *
+	 * @param tx
+	 * @param keys
+	 */
+	private void collectKeys(long tx, List<long[]> keys)
+	{
+		Iterator<long[]> it = log.keyIterator(new long[] { tx, 0l });
+		while(it.hasNext())
+		{
+			long[] key = it.next();
+			if(key[0] != tx) break;
+
+			keys.add(key);
+		}
+	}
+
 	/**
 	 * Apply a transaction to the storage.
 	 *
 	 * @param tx
+	 * @param keysToRemove
+	 *   list that receives the keys in the log used by the transaction
 	 */
-	private void applyTransaction(long tx)
+	private void applyTransaction(long tx, List<long[]> keysToRemove)
 		throws IOException
 	{
 		applier.transactionStart(tx);
 
+		MutableList<Supplier<byte[]>> chunks = Lists.mutable.empty();
+
+		StagedTransaction staged = transactions.get(tx);
+		if(staged != null && ! staged.isSpilled())
+		{
+			// Operations are buffered in memory, the log is never touched
+			for(TransactionOperation op : staged.getOperations())
+			{
+				applyOperation(op, chunks, () -> ((ChunkOperation) op).getData());
+			}
+
+			return;
+		}
+
 		Iterator<long[]> it = log.keyIterator(new long[] { tx, 0l });
-		List<long[]> keys = new ArrayList<>();
 		while(it.hasNext())
 		{
 			long[] key = it.next();
 			if(key[0] != tx) break;
 
+			keysToRemove.add(key);
+
 			TransactionOperation op = log.get(key);
-			if(op instanceof DeleteOperation)
-			{
-				DeleteOperation delete = (DeleteOperation) op;
-				applier.delete(delete.getCollection(), delete.getId());
-			}
-			else if(op instanceof StoreChunkOperation)
+			applyOperation(op, chunks, () -> readChunk(key));
+		}
+	}
+
+	/**
+	 * Apply a single operation of a transaction. Chunks of data are
+	 * collected until a zero length chunk is seen, at which point the data
+	 * is passed to the storage.
+	 *
+	 * @param op
+	 * @param chunks
+	 *   the chunks collected for the current object
+	 * @param chunk
+	 *   supplier of the data in the operation, used to avoid keeping the
+	 *   data of chunks read from the log in memory
+	 */
+	private void applyOperation(
+		TransactionOperation op,
+		MutableList<Supplier<byte[]>> chunks,
+		Supplier<byte[]> chunk
+	)
+		throws IOException
+	{
+		if(op instanceof DeleteOperation)
+		{
+			DeleteOperation delete = (DeleteOperation) op;
+			applier.delete(delete.getCollection(), delete.getId());
+		}
+		else if(op instanceof StoreChunkOperation)
+		{
+			StoreChunkOperation store = (StoreChunkOperation) op;
+			if(store.getData().length == 0)
 			{
-				StoreChunkOperation store = (StoreChunkOperation) op;
-				if(store.getData().length == 0)
+				// Zero length chunk means end of data
+				try(InputStream in = new SequenceInputStream(new InputStreamEnumeration(chunks)))
 				{
-					// Zero length chunk means end of data
-					try(InputStream in = new SequenceInputStream(new InputStreamEnumeration(keys)))
+					if(store instanceof BlobChunkOperation)
 					{
-						applier.store(
+						applier.storeBlob(
 							store.getCollection(),
 							store.getId(),
 							in
 						);
 					}
-
-					keys.clear();
-				}
-				else
-				{
-					keys.add(key);
-				}
-			}
-			else if(op instanceof IndexChunkOperation)
-			{
-				IndexChunkOperation indexChunk = (IndexChunkOperation) op;
-				if(indexChunk.getData().length == 0)
-				{
-					// Zero length chunk means end of data
-					try(InputStream in = new SequenceInputStream(new InputStreamEnumeration(keys)))
+					else
 					{
-						applier.index(
-							indexChunk.getCollection(),
-							indexChunk.getIndex(),
-							indexChunk.getId(),
+						applier.store(
+							store.getCollection(),
+							store.getId(),
 							in
 						);
 					}
-
-					keys.clear();
 				}
-				else
+
+				chunks.clear();
+			}
+			else
+			{
+				chunks.add(chunk);
+			}
+		}
+		else if(op instanceof IndexChunkOperation)
+		{
+			IndexChunkOperation indexChunk = (IndexChunkOperation) op;
+			if(indexChunk.getData().length == 0)
+			{
+				// Zero length chunk means end of data
+				try(InputStream in = new SequenceInputStream(new InputStreamEnumeration(chunks)))
 				{
-					keys.add(key);
+					applier.index(
+						indexChunk.getCollection(),
+						indexChunk.getIndex(),
+						indexChunk.getId(),
+						in
+					);
 				}
+
+				chunks.clear();
+			}
+			else
+			{
+				chunks.add(chunk);
 			}
 		}
+	}
 
-		removeTransaction(tx);
+	/**
+	 * Read the data of a chunk stored in the log.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private byte[] readChunk(long[] key)
+	{
+		byte[] data = ((ChunkOperation) log.get(key)).getData();
 
-		// Indicate that the TX has been applied
-		applier.transactionComplete(tx, null);
+		if(logger.isTraceEnabled())
+		{
+			logger.trace("[" + key[0] + "] Reading id " + key[1] + " with data " + Base64.getEncoder().encodeToString(data));
+		}
+
+		return data;
 	}
 
-	private class InputStreamEnumeration
-		implements Enumeration<InputStream>
+	/**
+	 * Commit that has been received but not yet applied.
+	 */
+	private static class PendingCommit
 	{
-		private final Iterator<long[]> it;
+		private final long sequence;
+		private final long tx;
+		private final SetIterable<String> collections;
+		private final long received;
 
+		public PendingCommit(long sequence, long tx, SetIterable<String> collections)
+		{
+			this.sequence = sequence;
+			this.tx = tx;
+			this.collections = collections;
+			this.received = System.nanoTime();
+		}
+	}
+
+	private static class InputStreamEnumeration
+		implements Enumeration<InputStream>
+	{
+		private final Iterator<Supplier<byte[]>> it;
 
-		public InputStreamEnumeration(List<long[]> keys)
+		public InputStreamEnumeration(List<Supplier<byte[]>> chunks)
 		{
-			it = keys.iterator();
+			it = chunks.iterator();
 		}
 
 		@Override
@@ -343,15 +1106,7 @@ public class TransactionLogApplier
 		@Override
 		public InputStream nextElement()
 		{
-			long[] key = it.next();
-			byte[] data = ((ChunkOperation) log.get(key)).getData();
-
-			if(logger.isTraceEnabled())
-			{
-				logger.trace("[" + key[0] + "] Reading id " + key[1] + " with data " + Base64.getEncoder().encodeToString(data));
-			}
-
-			return new ByteArrayInputStream(data);
+			return new ByteArrayInputStream(it.next().get());
 		}
 	}
 }
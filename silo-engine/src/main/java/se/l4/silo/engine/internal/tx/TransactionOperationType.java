@@ -8,6 +8,7 @@ import org.h2.mvstore.type.DataType;
 
 import se.l4.silo.StorageException;
 import se.l4.silo.engine.internal.MessageConstants;
+import se.l4.silo.engine.internal.tx.operations.BlobChunkOperation;
 import se.l4.silo.engine.internal.tx.operations.CommitOperation;
 import se.l4.silo.engine.internal.tx.operations.DeleteOperation;
 import se.l4.silo.engine.internal.tx.operations.IndexChunkOperation;
@@ -60,6 +61,12 @@ public class TransactionOperationType
 
 				DeleteOperation.write(out, (DeleteOperation) object);
 			}
+			else if(object instanceof BlobChunkOperation)
+			{
+				out.write(MessageConstants.BLOB_CHUNK);
+
+				StoreChunkOperation.write(out, (BlobChunkOperation) object);
+			}
 			else if(object instanceof StoreChunkOperation)
 			{
 				out.write(MessageConstants.STORE_CHUNK);
@@ -108,6 +115,8 @@ public class TransactionOperationType
 					return DeleteOperation.read(in);
 				case MessageConstants.STORE_CHUNK:
 					return StoreChunkOperation.read(in);
+				case MessageConstants.BLOB_CHUNK:
+					return BlobChunkOperation.read(in);
 				case MessageConstants.INDEX_CHUNK:
 					return IndexChunkOperation.read(in);
 				default:
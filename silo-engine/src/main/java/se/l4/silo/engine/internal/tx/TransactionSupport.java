@@ -18,9 +18,11 @@ public interface TransactionSupport
 	 * Register a value that should be provided in instances of
 	 * {@link WriteableTransactionExchange}.
 	 *
+	 * @param collection
+	 *   the collection the value reads from
 	 * @param value
 	 */
-	void registerValue(TransactionValue<?> value);
+	void registerValue(String collection, TransactionValue<?> value);
 
 	/**
 	 * Execute a function that should have access to an instance of
@@ -35,6 +37,23 @@ public interface TransactionSupport
 		TransactionValueProvider... valuesToCapture
 	);
 
+	/**
+	 * Execute a function that should have access to an instance of
+	 * {@link WriteableTransactionExchange} directly on the calling thread.
+	 * The exchange of a transaction active on the thread is used if there
+	 * is one, otherwise a new exchange is created and committed after the
+	 * function returns, blocking until its changes have been applied.
+	 *
+	 * @param <V>
+	 * @param func
+	 * @return
+	 *   the result of the function
+	 */
+	<V> V withExchangeBlocking(
+		Function<WriteableTransactionExchange, V> func,
+		TransactionValueProvider... valuesToCapture
+	);
+
 	/**
 	 * Execute a function that should have access to an instance of
 	 * {@link WriteableTransactionExchange}.
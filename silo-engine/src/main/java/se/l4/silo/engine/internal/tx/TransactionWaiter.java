@@ -13,4 +13,12 @@ public interface TransactionWaiter
 	 * @param tx
 	 */
 	Mono<Void> getWaiter(long tx);
+
+	/**
+	 * Stop waiting for a transaction, used if the transaction could not be
+	 * committed after {@link #getWaiter(long)} was called.
+	 *
+	 * @param tx
+	 */
+	void cancel(long tx);
 }
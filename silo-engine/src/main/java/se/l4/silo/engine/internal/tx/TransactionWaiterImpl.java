@@ -0,0 +1,108 @@
+package se.l4.silo.engine.internal.tx;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import se.l4.silo.StorageTransactionException;
+
+/**
+ * Implementation of {@link TransactionWaiter} that uses sinks to signal
+ * when transactions have been applied, no threads are blocked while
+ * waiting.
+ */
+public class TransactionWaiterImpl
+	implements TransactionWaiter
+{
+	private final ConcurrentHashMap<Long, Sinks.One<Void>> waiters;
+
+	/**
+	 * Scheduler that results are published on, or {@code null} to publish
+	 * on the thread completing the transaction.
+	 */
+	private final Scheduler scheduler;
+
+	public TransactionWaiterImpl()
+	{
+		this(null);
+	}
+
+	/**
+	 * Create a new instance that publishes results on the given scheduler,
+	 * so that whatever runs after a transaction is never run by the thread
+	 * applying transactions.
+	 *
+	 * @param scheduler
+	 */
+	public TransactionWaiterImpl(Scheduler scheduler)
+	{
+		this.scheduler = scheduler;
+
+		waiters = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get the number of transactions that are being waited for.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return waiters.size();
+	}
+
+	/**
+	 * Complete the given transaction.
+	 *
+	 * @param tx
+	 * @param throwable
+	 *   error that occurred while applying the transaction
+	 */
+	public void complete(long tx, Throwable throwable)
+	{
+		/*
+		 * Remove the sink associated with the given transaction and if
+		 * it's available emit the result.
+		 */
+		Sinks.One<Void> waiter = waiters.remove(tx);
+		if(waiter == null)
+		{
+			return;
+		}
+
+		if(throwable == null)
+		{
+			waiter.tryEmitEmpty();
+		}
+		else
+		{
+			waiter.tryEmitError(new StorageTransactionException(
+				"Transaction could not be applied; " + throwable.getMessage(),
+				throwable
+			));
+		}
+	}
+
+	@Override
+	public Mono<Void> getWaiter(long tx)
+	{
+		/*
+		 * This is called from {@link LogBasedTransactionSupport} to
+		 * retrieve a mono that will represent the end of a transaction.
+		 *
+		 * The sink is registered before the transaction is committed and
+		 * keeps its result, so the transaction may be applied before
+		 * the mono is subscribed to.
+		 */
+		Sinks.One<Void> waiter = Sinks.one();
+		waiters.put(tx, waiter);
+		return scheduler == null ? waiter.asMono() : waiter.asMono().publishOn(scheduler);
+	}
+
+	@Override
+	public void cancel(long tx)
+	{
+		waiters.remove(tx);
+	}
+}
@@ -29,6 +29,17 @@ public interface WriteableTransactionExchange
 	 */
 	void store(String collection, Object id, IOConsumer<OutputStream> generator);
 
+	/**
+	 * Open a stream for storing binary data for a collection. Binary data is
+	 * kept apart from the objects of the collection. The data is stored when
+	 * the stream is closed.
+	 *
+	 * @param collection
+	 * @param id
+	 * @return
+	 */
+	OutputStream openBlob(String collection, Object id);
+
 	/**
 	 * Delete data associated with a collection.
 	 *
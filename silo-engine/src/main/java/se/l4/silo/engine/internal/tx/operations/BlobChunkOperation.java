@@ -0,0 +1,67 @@
+package se.l4.silo.engine.internal.tx.operations;
+
+import java.io.IOException;
+
+import se.l4.silo.engine.io.BinaryDataInput;
+
+/**
+ * Operation indicating a chunk of binary data is being stored in a
+ * collection. Binary data is kept apart from the objects of the collection
+ * and is written using the same format as {@link StoreChunkOperation}.
+ */
+public class BlobChunkOperation
+	extends StoreChunkOperation
+{
+	public BlobChunkOperation(
+		String collection,
+		Object id,
+		byte[] chunk
+	)
+	{
+		super(collection, id, chunk);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BlobOperation{collection=" + getCollection() + ", id=" + getId() + ", chunkSize=" + getData().length + "}";
+	}
+
+	/**
+	 * Create an instance of this operation.
+	 *
+	 * @param collection
+	 * @param id
+	 * @param chunk
+	 * @return
+	 */
+	public static BlobChunkOperation create(
+		String collection,
+		Object id,
+		byte[] chunk
+	)
+	{
+		return new BlobChunkOperation(collection, id, chunk);
+	}
+
+	/**
+	 * Read this operation from the given input.
+	 *
+	 * @param in
+	 *   input to read from
+	 * @return
+	 *   read operation
+	 * @throws IOException
+	 */
+	public static BlobChunkOperation read(
+		BinaryDataInput in
+	)
+		throws IOException
+	{
+		String collection = in.readString();
+		Object id = in.readId();
+		byte[] data = in.readByteArray();
+
+		return new BlobChunkOperation(collection, id, data);
+	}
+}
@@ -0,0 +1,65 @@
+package se.l4.silo.engine.internal.types;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+
+/**
+ * {@link DataType} for non-null {@code byte[]} keys. Values are stored
+ * prefixed with their length and compared as unsigned bytes.
+ */
+public class ByteArrayKeyType
+	implements DataType
+{
+	public static final DataType INSTANCE = new ByteArrayKeyType();
+
+	@Override
+	public int compare(Object a, Object b)
+	{
+		return Arrays.compareUnsigned((byte[]) a, (byte[]) b);
+	}
+
+	@Override
+	public int getMemory(Object obj)
+	{
+		return 24 + ((byte[]) obj).length;
+	}
+
+	@Override
+	public Object read(ByteBuffer buff)
+	{
+		int length = DataUtils.readVarInt(buff);
+		byte[] data = new byte[length];
+		buff.get(data);
+		return data;
+	}
+
+	@Override
+	public void read(ByteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			obj[i] = read(buff);
+		}
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object obj)
+	{
+		byte[] data = (byte[]) obj;
+		buff.putVarInt(data.length);
+		buff.put(data);
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			write(buff, obj[i]);
+		}
+	}
+}
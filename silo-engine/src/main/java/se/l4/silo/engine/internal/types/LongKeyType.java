@@ -0,0 +1,59 @@
+package se.l4.silo.engine.internal.types;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+
+/**
+ * {@link DataType} for non-null {@code long} keys. Values are stored as
+ * eight big-endian bytes with the sign bit flipped. Keys are ordered using
+ * their decoded values.
+ */
+public class LongKeyType
+	implements DataType
+{
+	public static final DataType INSTANCE = new LongKeyType();
+
+	@Override
+	public int compare(Object a, Object b)
+	{
+		return Long.compare((Long) a, (Long) b);
+	}
+
+	@Override
+	public int getMemory(Object obj)
+	{
+		return 24;
+	}
+
+	@Override
+	public Object read(ByteBuffer buff)
+	{
+		return buff.getLong() ^ Long.MIN_VALUE;
+	}
+
+	@Override
+	public void read(ByteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			obj[i] = read(buff);
+		}
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object obj)
+	{
+		buff.putLong((Long) obj ^ Long.MIN_VALUE);
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			write(buff, obj[i]);
+		}
+	}
+}
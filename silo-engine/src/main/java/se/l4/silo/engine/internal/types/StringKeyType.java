@@ -0,0 +1,65 @@
+package se.l4.silo.engine.internal.types;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+
+/**
+ * {@link DataType} for non-null {@link String} keys. Values are stored as
+ * UTF-8 prefixed with their length in bytes.
+ */
+public class StringKeyType
+	implements DataType
+{
+	public static final DataType INSTANCE = new StringKeyType();
+
+	@Override
+	public int compare(Object a, Object b)
+	{
+		return ((String) a).compareTo((String) b);
+	}
+
+	@Override
+	public int getMemory(Object obj)
+	{
+		return 24 + 2 * ((String) obj).length();
+	}
+
+	@Override
+	public Object read(ByteBuffer buff)
+	{
+		int length = DataUtils.readVarInt(buff);
+		byte[] data = new byte[length];
+		buff.get(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void read(ByteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			obj[i] = read(buff);
+		}
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object obj)
+	{
+		byte[] data = ((String) obj).getBytes(StandardCharsets.UTF_8);
+		buff.putVarInt(data.length);
+		buff.put(data);
+	}
+
+	@Override
+	public void write(WriteBuffer buff, Object[] obj, int len, boolean key)
+	{
+		for(int i=0; i<len; i++)
+		{
+			write(buff, obj[i]);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package se.l4.silo.engine.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import se.l4.ylem.io.Bytes;
+
+/**
+ * Implementation of {@link LogEntry} that wraps a buffer without copying
+ * it. The data is only copied if it is requested via {@link #getData()}.
+ */
+public class ByteBufferLogEntry
+	implements LogEntry
+{
+	private final long position;
+	private final long timestamp;
+	private final ByteBuffer buffer;
+
+	public ByteBufferLogEntry(long timestamp, ByteBuffer buffer)
+	{
+		this(0, timestamp, buffer);
+	}
+
+	public ByteBufferLogEntry(long position, long timestamp, ByteBuffer buffer)
+	{
+		this.position = position;
+		this.timestamp = timestamp;
+		this.buffer = buffer;
+	}
+
+	@Override
+	public long getPosition()
+	{
+		return position;
+	}
+
+	@Override
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	@Override
+	public Bytes getData()
+	{
+		try
+		{
+			return copy(buffer);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Could not copy data; " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public ByteBuffer getBuffer()
+	{
+		return buffer.duplicate();
+	}
+
+	/**
+	 * Copy the remaining data of a buffer into an instance of {@link Bytes}.
+	 * The position of the buffer is not changed.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws IOException
+	 */
+	static Bytes copy(ByteBuffer buffer)
+		throws IOException
+	{
+		ByteBuffer data = buffer.duplicate();
+		return Bytes.capture(out -> {
+			if(data.hasArray())
+			{
+				out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			}
+			else
+			{
+				byte[] chunk = new byte[Math.min(data.remaining(), 8192)];
+				while(data.hasRemaining())
+				{
+					int length = Math.min(data.remaining(), chunk.length);
+					data.get(chunk, 0, length);
+					out.write(chunk, 0, length);
+				}
+			}
+		});
+	}
+}
@@ -1,6 +1,7 @@
 package se.l4.silo.engine.log;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import se.l4.ylem.io.Bytes;
 import se.l4.ylem.io.IOConsumer;
@@ -35,6 +36,19 @@ public class DirectApplyLog
 		consumer.accept(new DefaultLogEntry(System.currentTimeMillis(), bytes));
 	}
 
+	@Override
+	public void append(ByteBuffer buffer)
+		throws IOException
+	{
+		if(closed)
+		{
+			throw new IOException("Log has been closed");
+		}
+
+		// Consumer is called directly, so the buffer can be passed as is
+		consumer.accept(new ByteBufferLogEntry(System.currentTimeMillis(), buffer));
+	}
+
 	@Override
 	public void close()
 		throws IOException
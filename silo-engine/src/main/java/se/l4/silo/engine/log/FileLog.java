@@ -0,0 +1,847 @@
+package se.l4.silo.engine.log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.StorageException;
+import se.l4.silo.engine.internal.BoundedPool;
+import se.l4.ylem.io.Bytes;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * {@link Log} that writes entries to segment files in a directory before
+ * they are applied. Entries that have not been durably stored by the
+ * storage when a crash happens are recovered from the segments when the
+ * storage is opened again, and segments are removed when the storage has
+ * been {@link #checkpoint(Checkpoint) checkpointed}.
+ *
+ * <p>
+ * Every record in a segment contains the length of the entry, a CRC32C
+ * checksum, the timestamp of the entry and the entry itself. Partially
+ * written records at the end of the last segment, such as from a crash
+ * while appending, are discarded when the log is opened.
+ *
+ * <p>
+ * Entries are passed to the consumer one at a time in the order of their
+ * positions, so that recovered entries are applied in the same order as
+ * when they were appended. A checkpoint records the position that has been
+ * applied and where recovery needs to start, so that entries already
+ * stored are not recovered again.
+ *
+ * <p>
+ * How much can be lost in a crash depends on the {@link SyncPolicy}. Use
+ * with {@link se.l4.silo.engine.LocalSilo#open(LogBuilder, Path)}.
+ */
+public class FileLog
+	implements Log
+{
+	private static final Logger logger = LoggerFactory.getLogger(FileLog.class);
+
+	/**
+	 * Default {@link Builder#withSegmentSizeInMiB(int) segment size}.
+	 */
+	public static final int SEGMENT_SIZE = 64;
+
+	/**
+	 * Default {@link Builder#withSyncIntervalInMillis(int) sync interval}.
+	 */
+	public static final int SYNC_INTERVAL = 100;
+
+	private static final String PREFIX = "log-";
+	private static final String SUFFIX = ".seg";
+	private static final String CHECKPOINT = "checkpoint";
+
+	/**
+	 * Size of the header of every record; length, checksum and timestamp.
+	 */
+	private static final int HEADER_SIZE = 16;
+
+	private static final BoundedPool<RecordEncoder> ENCODERS = BoundedPool.perProcessor(RecordEncoder::new);
+
+	private final Path directory;
+	private final IOConsumer<LogEntry> consumer;
+	private final long segmentSize;
+	private final SyncPolicy syncPolicy;
+
+	/**
+	 * Lock used when writing records or changing segments.
+	 */
+	private final Lock writeLock;
+
+	/**
+	 * Segments by the position of their first entry, guarded by
+	 * {@link #writeLock}.
+	 */
+	private final NavigableMap<Long, Path> segments;
+
+	/**
+	 * Lock held while an entry is passed to the consumer or while the log
+	 * is checkpointed or recovered.
+	 */
+	private final Lock applyLock;
+	private final Condition applyTurn;
+
+	/**
+	 * The position of the next entry to pass to the consumer, guarded by
+	 * {@link #applyLock}.
+	 */
+	private long applyPosition;
+
+	/**
+	 * The position recovery starts at, guarded by {@link #applyLock}.
+	 */
+	private long recoveryStart;
+
+	private final Object syncLock;
+	private final Scheduler syncScheduler;
+	private final Disposable syncTask;
+
+	private volatile FileChannel channel;
+	private long segmentStart;
+	private long segmentBytes;
+	private long nextPosition;
+
+	private volatile long writtenPosition;
+	private volatile long syncedPosition;
+
+	/**
+	 * If the entries stored before the log was opened have been recovered.
+	 */
+	private volatile boolean recovered;
+
+	private volatile boolean closed;
+
+	private FileLog(
+		Path directory,
+		IOConsumer<LogEntry> consumer,
+		long segmentSize,
+		SyncPolicy syncPolicy,
+		int syncIntervalInMillis
+	)
+		throws IOException
+	{
+		this.directory = directory;
+		this.consumer = consumer;
+		this.segmentSize = segmentSize;
+		this.syncPolicy = syncPolicy;
+
+		writeLock = new ReentrantLock();
+		segments = new TreeMap<>();
+		applyLock = new ReentrantLock();
+		applyTurn = applyLock.newCondition();
+		syncLock = new Object();
+
+		Files.createDirectories(directory);
+		try(Stream<Path> files = Files.list(directory))
+		{
+			files.filter(FileLog::isSegment)
+				.forEach(file -> segments.put(startOf(file), file));
+		}
+
+		// Find where the stored entries end, repairing the last segment
+		Map.Entry<Long, Path> last = segments.lastEntry();
+		nextPosition = last == null ? 0 : last.getKey() + scan(last.getValue(), last.getKey(), null, true);
+		recoveryStart = Math.max(readCheckpoint(), segments.isEmpty() ? nextPosition : segments.firstKey());
+		recovered = recoveryStart >= nextPosition;
+		applyPosition = nextPosition;
+
+		writtenPosition = nextPosition - 1;
+		syncedPosition = nextPosition;
+
+		openSegment(nextPosition);
+
+		if(syncPolicy == SyncPolicy.INTERVAL)
+		{
+			syncScheduler = Schedulers.newSingle("silo-log-sync", true);
+			syncTask = syncScheduler.schedulePeriodically(
+				this::syncQuietly,
+				syncIntervalInMillis,
+				syncIntervalInMillis,
+				TimeUnit.MILLISECONDS
+			);
+		}
+		else
+		{
+			syncScheduler = null;
+			syncTask = null;
+		}
+	}
+
+	@Override
+	public void append(Bytes bytes)
+		throws IOException
+	{
+		append(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+	@Override
+	public void append(ByteBuffer buffer)
+		throws IOException
+	{
+		if(closed)
+		{
+			throw new IOException("Log has been closed");
+		}
+
+		long timestamp = System.currentTimeMillis();
+		int start = buffer.position();
+
+		RecordEncoder encoder = ENCODERS.acquire();
+		encoder.encode(timestamp, buffer);
+
+		long position;
+		writeLock.lock();
+		try
+		{
+			if(segmentBytes >= segmentSize)
+			{
+				roll();
+			}
+
+			position = nextPosition;
+
+			ByteBuffer[] buffers = encoder.buffers;
+			while(buffers[0].hasRemaining() || buffer.hasRemaining())
+			{
+				channel.write(buffers);
+			}
+
+			nextPosition++;
+			segmentBytes += HEADER_SIZE + buffer.limit() - start;
+
+			writtenPosition = position;
+		}
+		finally
+		{
+			buffer.position(start);
+			writeLock.unlock();
+
+			ENCODERS.release(encoder);
+		}
+
+		applyLock.lock();
+		try
+		{
+			// Wait for the entries before this one to be applied
+			while(applyPosition != position)
+			{
+				applyTurn.awaitUninterruptibly();
+			}
+
+			try
+			{
+				if(syncPolicy == SyncPolicy.ALWAYS)
+				{
+					sync(position);
+				}
+
+				consumer.accept(new ByteBufferLogEntry(position, timestamp, buffer));
+			}
+			finally
+			{
+				applyPosition = position + 1;
+				applyTurn.signalAll();
+			}
+		}
+		finally
+		{
+			applyLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isDurable()
+	{
+		return true;
+	}
+
+	@Override
+	public void recover()
+		throws IOException
+	{
+		applyLock.lock();
+		try
+		{
+			if(recovered) return;
+
+			NavigableMap<Long, Path> toRecover;
+			writeLock.lock();
+			try
+			{
+				toRecover = new TreeMap<>(segments.headMap(segmentStart, false));
+			}
+			finally
+			{
+				writeLock.unlock();
+			}
+
+			long start = recoveryStart;
+			for(Map.Entry<Long, Path> e : toRecover.entrySet())
+			{
+				Long next = toRecover.higherKey(e.getKey());
+				if(next != null && next <= start)
+				{
+					// Every entry in the segment has been checkpointed
+					continue;
+				}
+
+				scan(e.getValue(), e.getKey(), entry -> {
+					if(entry.getPosition() >= start)
+					{
+						consumer.accept(entry);
+					}
+				}, false);
+			}
+
+			recovered = true;
+
+			if(segmentStart > start)
+			{
+				logger.info("Recovered {} entries from log in {}", segmentStart - start, directory);
+			}
+		}
+		finally
+		{
+			applyLock.unlock();
+		}
+	}
+
+	@Override
+	public void checkpoint(Checkpoint checkpoint)
+		throws IOException
+	{
+		if(closed || ! recovered) return;
+
+		long start;
+		applyLock.lock();
+		try
+		{
+			// No entries are applied while the storage is persisted
+			long applied = applyPosition;
+			long needed = checkpoint.persist(applied);
+
+			start = Math.min(applied, needed);
+			if(start > recoveryStart)
+			{
+				writeCheckpoint(start);
+				recoveryStart = start;
+			}
+		}
+		finally
+		{
+			applyLock.unlock();
+		}
+
+		MutableList<Path> toRemove = Lists.mutable.empty();
+		writeLock.lock();
+		try
+		{
+			/*
+			 * Segments before the one containing the start of recovery only
+			 * contain entries that are no longer needed.
+			 */
+			Long containing = segments.floorKey(start);
+			if(containing != null)
+			{
+				NavigableMap<Long, Path> head = segments.headMap(containing, false);
+				toRemove.addAll(head.values());
+				head.clear();
+			}
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+
+		for(Path file : toRemove)
+		{
+			Files.deleteIfExists(file);
+		}
+
+		if(! toRemove.isEmpty())
+		{
+			logger.debug("Removed {} segments from log in {}", toRemove.size(), directory);
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		if(closed) return;
+
+		closed = true;
+
+		if(syncScheduler != null)
+		{
+			syncTask.dispose();
+			syncScheduler.dispose();
+		}
+
+		writeLock.lock();
+		try
+		{
+			synchronized(syncLock)
+			{
+				channel.force(false);
+				channel.close();
+			}
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Make sure that the entry at the given position has been written to
+	 * disk. Concurrent appends share the same sync.
+	 *
+	 * @param position
+	 * @throws IOException
+	 */
+	private void sync(long position)
+		throws IOException
+	{
+		if(syncedPosition > position) return;
+
+		synchronized(syncLock)
+		{
+			if(syncedPosition > position) return;
+
+			// Earlier segments are synced when a new segment is started
+			long written = writtenPosition;
+			channel.force(false);
+			syncedPosition = written + 1;
+		}
+	}
+
+	private void syncQuietly()
+	{
+		if(closed) return;
+
+		try
+		{
+			sync(writtenPosition);
+		}
+		catch(IOException e)
+		{
+			logger.warn("Could not sync log; " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Start a new segment, syncing and closing the current one. Must be
+	 * called while holding {@link #writeLock}.
+	 *
+	 * @throws IOException
+	 */
+	private void roll()
+		throws IOException
+	{
+		synchronized(syncLock)
+		{
+			channel.force(false);
+			channel.close();
+
+			openSegment(nextPosition);
+		}
+	}
+
+	/**
+	 * Read the position recovery starts at from the checkpoint file.
+	 *
+	 * @return
+	 *   the position, or {@code 0} if the log has never been checkpointed
+	 * @throws IOException
+	 */
+	private long readCheckpoint()
+		throws IOException
+	{
+		Path file = directory.resolve(CHECKPOINT);
+		if(! Files.exists(file))
+		{
+			return 0;
+		}
+
+		byte[] data = Files.readAllBytes(file);
+		if(data.length != 8)
+		{
+			logger.warn("Ignoring invalid checkpoint in {}", directory);
+			return 0;
+		}
+
+		return ByteBuffer.wrap(data).getLong();
+	}
+
+	/**
+	 * Durably replace the checkpoint file with the given position.
+	 *
+	 * @param position
+	 * @throws IOException
+	 */
+	private void writeCheckpoint(long position)
+		throws IOException
+	{
+		Path temp = directory.resolve(CHECKPOINT + ".tmp");
+		try(FileChannel out = FileChannel.open(
+			temp,
+			StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING
+		))
+		{
+			ByteBuffer data = ByteBuffer.allocate(8).putLong(0, position);
+			while(data.hasRemaining())
+			{
+				out.write(data);
+			}
+
+			out.force(false);
+		}
+
+		Files.move(
+			temp,
+			directory.resolve(CHECKPOINT),
+			StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE
+		);
+	}
+
+	private void openSegment(long start)
+		throws IOException
+	{
+		/*
+		 * A segment starting at the same position can only exist if it is
+		 * empty, in which case it is replaced.
+		 */
+		Path file = directory.resolve(PREFIX + String.format("%020d", start) + SUFFIX);
+		channel = FileChannel.open(
+			file,
+			StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING
+		);
+
+		segmentStart = start;
+		segmentBytes = 0;
+		segments.put(start, file);
+	}
+
+	/**
+	 * Read the records in a segment.
+	 *
+	 * @param file
+	 *   the segment to read
+	 * @param start
+	 *   the position of the first entry in the segment
+	 * @param receiver
+	 *   receiver of entries, or {@code null}
+	 * @param repair
+	 *   if the segment should be truncated after the last valid record,
+	 *   otherwise an invalid record causes an exception
+	 * @return
+	 *   the number of valid records
+	 * @throws IOException
+	 */
+	private static long scan(
+		Path file,
+		long start,
+		IOConsumer<LogEntry> receiver,
+		boolean repair
+	)
+		throws IOException
+	{
+		long size = Files.size(file);
+		long offset = 0;
+		long count = 0;
+
+		CRC32C crc = new CRC32C();
+		try(InputStream stream = Files.newInputStream(file))
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+			while(offset < size)
+			{
+				boolean valid = false;
+				try
+				{
+					int length = in.readInt();
+					int checksum = in.readInt();
+					long timestamp = in.readLong();
+
+					if(length >= 0 && length <= size - offset - HEADER_SIZE)
+					{
+						byte[] data = new byte[length];
+						in.readFully(data);
+
+						crc.reset();
+						crc.update(ByteBuffer.allocate(8).putLong(0, timestamp));
+						crc.update(data);
+
+						if((int) crc.getValue() == checksum)
+						{
+							valid = true;
+							if(receiver != null)
+							{
+								receiver.accept(new ByteBufferLogEntry(start + count, timestamp, ByteBuffer.wrap(data)));
+							}
+
+							offset += HEADER_SIZE + length;
+							count++;
+						}
+					}
+				}
+				catch(EOFException e)
+				{
+					// Partial record, handled as invalid
+				}
+
+				if(! valid)
+				{
+					if(! repair)
+					{
+						throw new IOException("Invalid record at offset " + offset + " in " + file);
+					}
+
+					logger.warn("Discarding partially written data at offset {} in {}", offset, file);
+					break;
+				}
+			}
+		}
+
+		if(repair && offset < size)
+		{
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+			{
+				channel.truncate(offset);
+				channel.force(false);
+			}
+		}
+
+		return count;
+	}
+
+	private static boolean isSegment(Path file)
+	{
+		String name = file.getFileName().toString();
+		return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+	}
+
+	private static long startOf(Path file)
+	{
+		String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	/**
+	 * Start building a log that stores segments in the given directory.
+	 *
+	 * @param directory
+	 * @return
+	 */
+	public static Builder builder(Path directory)
+	{
+		return new BuilderImpl(directory, SEGMENT_SIZE, SyncPolicy.INTERVAL, SYNC_INTERVAL);
+	}
+
+	/**
+	 * Policy for when written entries are synced to disk.
+	 */
+	public enum SyncPolicy
+	{
+		/**
+		 * Sync before every entry is applied. Concurrent appends share
+		 * syncs, so a committed transaction is never lost.
+		 */
+		ALWAYS,
+
+		/**
+		 * Sync at a fixed interval, limiting how much can be lost in a
+		 * crash to what was appended during the interval.
+		 */
+		INTERVAL,
+
+		/**
+		 * Never explicitly sync, leaving it to the operating system. Data
+		 * is only lost if the operating system crashes.
+		 */
+		NONE
+	}
+
+	/**
+	 * Builder for instances of {@link FileLog}.
+	 */
+	public interface Builder
+		extends LogBuilder
+	{
+		/**
+		 * Set the size of segments in MiB. A new segment is started when
+		 * the current one reaches this size. Defaults to 64 MiB.
+		 *
+		 * @param sizeInMiB
+		 * @return
+		 */
+		Builder withSegmentSizeInMiB(int sizeInMiB);
+
+		/**
+		 * Set when entries are synced to disk. Defaults to
+		 * {@link SyncPolicy#INTERVAL}.
+		 *
+		 * @param policy
+		 * @return
+		 */
+		Builder withSyncPolicy(SyncPolicy policy);
+
+		/**
+		 * Set the interval used by {@link SyncPolicy#INTERVAL}. Defaults to
+		 * 100 milliseconds.
+		 *
+		 * @param intervalInMillis
+		 * @return
+		 */
+		Builder withSyncIntervalInMillis(int intervalInMillis);
+	}
+
+	private static class BuilderImpl
+		implements Builder
+	{
+		private final Path directory;
+		private final int segmentSizeInMiB;
+		private final SyncPolicy syncPolicy;
+		private final int syncIntervalInMillis;
+
+		public BuilderImpl(
+			Path directory,
+			int segmentSizeInMiB,
+			SyncPolicy syncPolicy,
+			int syncIntervalInMillis
+		)
+		{
+			this.directory = directory;
+			this.segmentSizeInMiB = segmentSizeInMiB;
+			this.syncPolicy = syncPolicy;
+			this.syncIntervalInMillis = syncIntervalInMillis;
+		}
+
+		@Override
+		public Builder withSegmentSizeInMiB(int sizeInMiB)
+		{
+			if(sizeInMiB < 1)
+			{
+				throw new IllegalArgumentException("segmentSizeInMiB can't be less than 1");
+			}
+
+			return new BuilderImpl(directory, sizeInMiB, syncPolicy, syncIntervalInMillis);
+		}
+
+		@Override
+		public Builder withSyncPolicy(SyncPolicy policy)
+		{
+			if(policy == null)
+			{
+				throw new IllegalArgumentException("syncPolicy can't be null");
+			}
+
+			return new BuilderImpl(directory, segmentSizeInMiB, policy, syncIntervalInMillis);
+		}
+
+		@Override
+		public Builder withSyncIntervalInMillis(int intervalInMillis)
+		{
+			if(intervalInMillis < 1)
+			{
+				throw new IllegalArgumentException("syncIntervalInMillis can't be less than 1");
+			}
+
+			return new BuilderImpl(directory, segmentSizeInMiB, syncPolicy, intervalInMillis);
+		}
+
+		@Override
+		public Log build(IOConsumer<LogEntry> consumer)
+		{
+			try
+			{
+				return new FileLog(
+					directory,
+					consumer,
+					segmentSizeInMiB * 1024l * 1024l,
+					syncPolicy,
+					syncIntervalInMillis
+				);
+			}
+			catch(IOException e)
+			{
+				throw new StorageException("Could not open log in " + directory + "; " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Encoder of record headers, reused by every thread.
+	 */
+	private static class RecordEncoder
+	{
+		private final CRC32C crc;
+		private final ByteBuffer header;
+		private final ByteBuffer[] buffers;
+
+		public RecordEncoder()
+		{
+			crc = new CRC32C();
+			header = ByteBuffer.allocate(HEADER_SIZE);
+			buffers = new ByteBuffer[2];
+		}
+
+		/**
+		 * Encode the header for the given entry and prepare the buffers to
+		 * write. The position of the data is kept.
+		 *
+		 * @param timestamp
+		 * @param data
+		 */
+		public void encode(long timestamp, ByteBuffer data)
+		{
+			int start = data.position();
+
+			crc.reset();
+			crc.update(header.clear().putLong(0, timestamp).limit(8));
+			crc.update(data);
+			data.position(start);
+
+			header.clear();
+			header.putInt(data.remaining());
+			header.putInt((int) crc.getValue());
+			header.putLong(timestamp);
+			header.flip();
+
+			buffers[0] = header;
+			buffers[1] = data;
+		}
+	}
+}
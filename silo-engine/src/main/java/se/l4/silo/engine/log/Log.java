@@ -2,6 +2,7 @@ package se.l4.silo.engine.log;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import se.l4.ylem.io.Bytes;
 
@@ -23,4 +24,83 @@ public interface Log
 	 */
 	void append(Bytes bytes)
 		throws IOException;
+
+	/**
+	 * Append the remaining data in a buffer to this log. The buffer is only
+	 * valid during this call, logs that need to keep the data must copy it.
+	 * The default implementation copies the data and calls
+	 * {@link #append(Bytes)}.
+	 *
+	 * @param buffer
+	 */
+	default void append(ByteBuffer buffer)
+		throws IOException
+	{
+		append(ByteBufferLogEntry.copy(buffer));
+	}
+
+	/**
+	 * Get if entries appended to this log survive a crash, in which case
+	 * they are passed to the consumer again by {@link #recover()} if they
+	 * have not been durably applied. The default implementation returns
+	 * {@code false}.
+	 *
+	 * @return
+	 */
+	default boolean isDurable()
+	{
+		return false;
+	}
+
+	/**
+	 * Recover entries stored by this log that may not have been durably
+	 * applied, by passing them to the consumer of the log again in the
+	 * order they were originally applied. Called
+	 * once when the storage is ready to receive entries and before any new
+	 * entries are appended. The default implementation does nothing.
+	 *
+	 * @throws IOException
+	 */
+	default void recover()
+		throws IOException
+	{
+	}
+
+	/**
+	 * Checkpoint this log, allowing it to discard entries that have been
+	 * durably applied. Logs that support this ask the storage to
+	 * {@link Checkpoint#persist() persist} what has been applied and may
+	 * then discard the entries that are no longer needed. The default
+	 * implementation does nothing.
+	 *
+	 * @param checkpoint
+	 * @throws IOException
+	 */
+	default void checkpoint(Checkpoint checkpoint)
+		throws IOException
+	{
+	}
+
+	/**
+	 * Storage being checkpointed by a log.
+	 */
+	interface Checkpoint
+	{
+		/**
+		 * Durably store everything that has been applied so far. No entries
+		 * are passed to the consumer of the log while this is called.
+		 *
+		 * @param appliedPosition
+		 *   the {@link LogEntry#getPosition() position} of the next entry
+		 *   to be applied, every entry before it has been passed to the
+		 *   consumer of the log
+		 * @return
+		 *   the {@link LogEntry#getPosition() position} of the oldest entry
+		 *   that is still needed, or {@link Long#MAX_VALUE} if no entry
+		 *   applied so far is needed
+		 * @throws IOException
+		 */
+		long persist(long appliedPosition)
+			throws IOException;
+	}
 }
@@ -1,5 +1,8 @@
 package se.l4.silo.engine.log;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import se.l4.ylem.io.Bytes;
 
 /**
@@ -18,10 +21,36 @@ public interface LogEntry
 	 */
 	long getTimestamp();
 
+	/**
+	 * Get the position of this entry in the log. Positions increase for
+	 * every entry appended, logs that do not track positions return
+	 * {@code 0}.
+	 *
+	 * @return
+	 */
+	default long getPosition()
+	{
+		return 0;
+	}
+
 	/**
 	 * Get the data of this entry.
 	 *
 	 * @return
 	 */
 	Bytes getData();
+
+	/**
+	 * Get the data of this entry as a buffer. The buffer may be reused
+	 * after the consumer of the entry returns, so the data must be read or
+	 * copied before that.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	default ByteBuffer getBuffer()
+		throws IOException
+	{
+		return ByteBuffer.wrap(getData().toByteArray());
+	}
 }
@@ -0,0 +1,84 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BoundedPool}.
+ */
+public class BoundedPoolTest
+{
+	@Test
+	public void testReleasedInstanceIsReused()
+	{
+		BoundedPool<Object> pool = new BoundedPool<>(Object::new, 2);
+
+		Object first = pool.acquire();
+		pool.release(first);
+
+		assertThat(pool.acquire(), sameInstance(first));
+	}
+
+	@Test
+	public void testNestedAcquireCreatesInstance()
+	{
+		BoundedPool<Object> pool = new BoundedPool<>(Object::new, 2);
+
+		Object first = pool.acquire();
+		Object second = pool.acquire();
+
+		assertThat(second, not(sameInstance(first)));
+	}
+
+	@Test
+	public void testKeepsAtMostCapacity()
+	{
+		AtomicInteger created = new AtomicInteger();
+		BoundedPool<Object> pool = new BoundedPool<>(() -> {
+			created.incrementAndGet();
+			return new Object();
+		}, 2);
+
+		Object[] instances = new Object[4];
+		for(int i=0; i<instances.length; i++)
+		{
+			instances[i] = pool.acquire();
+		}
+
+		for(Object instance : instances)
+		{
+			pool.release(instance);
+		}
+
+		assertThat(pool.idleCount(), is(2));
+		assertThat(created.get(), is(4));
+	}
+
+	@Test
+	public void testManyThreadsKeepBoundedInstances()
+		throws InterruptedException
+	{
+		AtomicInteger created = new AtomicInteger();
+		BoundedPool<Object> pool = new BoundedPool<>(() -> {
+			created.incrementAndGet();
+			return new Object();
+		}, 2);
+
+		// Threads that run one after the other reuse the same instance
+		for(int i=0; i<100; i++)
+		{
+			Thread thread = new Thread(() -> pool.release(pool.acquire()));
+			thread.start();
+			thread.join();
+		}
+
+		assertThat(created.get(), is(1));
+		assertThat(pool.idleCount(), is(1));
+	}
+}
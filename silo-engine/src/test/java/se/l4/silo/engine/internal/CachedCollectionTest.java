@@ -0,0 +1,92 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.Serializers;
+import se.l4.silo.Transaction;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+
+/**
+ * Tests for collections that cache decoded objects.
+ */
+public class CachedCollectionTest
+	extends BasicTest
+{
+	@Override
+	protected LocalSilo.Builder setup(LocalSilo.Builder builder)
+	{
+		return builder.addCollection(
+			CollectionDef.create(TestUserData.class, "test")
+				.withId(Integer.class, TestUserData::getId)
+				.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+				.withCacheSize(100)
+		);
+	}
+
+	protected LocalCollection<Integer, TestUserData> collection()
+	{
+		return instance().getCollection("test", Integer.class, TestUserData.class);
+	}
+
+	@Test
+	public void getReturnsCachedObject()
+	{
+		collection().store(new TestUserData(1, "V1", 20, true)).block();
+
+		TestUserData o1 = collection().get(1).block();
+		assertThat(collection().get(1).block(), sameInstance(o1));
+	}
+
+	@Test
+	public void updateReplacesCachedObject()
+	{
+		collection().store(new TestUserData(1, "V1", 20, true)).block();
+		assertThat(collection().get(1).block(), is(new TestUserData(1, "V1", 20, true)));
+
+		TestUserData o2 = new TestUserData(1, "V2", 20, true);
+		collection().store(o2).block();
+		assertThat(collection().get(1).block(), is(o2));
+	}
+
+	@Test
+	public void transactionDoesNotSeeCachedUpdate()
+	{
+		TestUserData o1 = new TestUserData(1, "V1", 20, true);
+		collection().store(o1).block();
+
+		Transaction tx = instance().transactions().newTransaction().block();
+
+		// Read the object in the transaction to use the current version
+		assertThat(tx.wrap(collection().get(1)).block(), is(o1));
+
+		// Update the object outside of the transaction and read it to cache it
+		TestUserData o2 = new TestUserData(1, "V2", 20, true);
+		collection().store(o2).block();
+		assertThat(collection().get(1).block(), is(o2));
+
+		// The transaction should still see the old object
+		assertThat(tx.wrap(collection().get(1)).block(), is(o1));
+
+		tx.rollback().block();
+	}
+
+	@Test
+	public void deleteInvalidatesCache()
+	{
+		TestUserData o1 = new TestUserData(1, "V1", 20, true);
+		collection().store(o1).block();
+		assertThat(collection().get(1).block(), is(o1));
+
+		collection().delete(1).block();
+		assertThat(collection().get(1).blockOptional(), is(Optional.empty()));
+	}
+}
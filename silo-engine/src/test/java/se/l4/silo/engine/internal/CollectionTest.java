@@ -1,20 +1,27 @@
 package se.l4.silo.engine.internal;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 
 import reactor.core.publisher.Flux;
 import se.l4.exobytes.Serializers;
-import se.l4.silo.Collection;
 import se.l4.silo.Transaction;
 import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.LocalCollection;
 import se.l4.silo.engine.LocalSilo;
 import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.ScanOptions;
 
 public class CollectionTest
 	extends BasicTest
@@ -29,7 +36,7 @@ public class CollectionTest
 		);
 	}
 
-	protected Collection<Integer, TestUserData> collection()
+	protected LocalCollection<Integer, TestUserData> collection()
 	{
 		return instance().getCollection("test", Integer.class, TestUserData.class);
 	}
@@ -176,4 +183,172 @@ public class CollectionTest
 			notNullValue()
 		);
 	}
+
+	@Test
+	public void getAll()
+	{
+		Flux.range(1, 100)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(collection()::store)
+			.blockLast();
+
+		List<TestUserData> result = collection()
+			.getAll(Arrays.asList(50, 2, 200, 7, 2))
+			.collectList()
+			.block();
+
+		assertThat(result, containsInAnyOrder(
+			new TestUserData(2, "V2", 2, true),
+			new TestUserData(7, "V7", 7, false),
+			new TestUserData(50, "V50", 10, true)
+		));
+	}
+
+	@Test
+	public void getAllFromPublisher()
+	{
+		Flux.range(1, 100)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(collection()::store)
+			.blockLast();
+
+		List<TestUserData> result = collection()
+			.getAll(Flux.range(95, 10))
+			.collectList()
+			.block();
+
+		assertThat(result.size(), is(6));
+	}
+
+	@Test
+	public void streamInParallelOrdered()
+	{
+		Flux.range(1, 1000)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(collection()::store)
+			.blockLast();
+
+		List<TestUserData> expected = collection()
+			.stream()
+			.collectList()
+			.block();
+
+		List<TestUserData> result = collection()
+			.stream(ScanOptions.parallelism(4).ordered())
+			.collectList()
+			.block();
+
+		assertThat(result.size(), is(1000));
+		assertThat(result, is(expected));
+	}
+
+	@Test
+	public void streamInParallelUnordered()
+	{
+		Flux.range(1, 1000)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(collection()::store)
+			.blockLast();
+
+		long count = collection()
+			.stream(ScanOptions.parallelism(4))
+			.count()
+			.block();
+
+		assertThat(count, is(1000l));
+	}
+
+	@Test
+	public void storeAndOpenStream()
+	{
+		byte[] data = new byte[200_000];
+		for(int i=0; i<data.length; i++)
+		{
+			data[i] = (byte) i;
+		}
+
+		collection().storeStream(1, Flux.range(0, 4)
+			.map(i -> ByteBuffer.wrap(data, i * 50_000, 50_000))
+		).block();
+
+		assertThat(read(collection().openStream(1)), is(data));
+		assertThat(
+			read(collection().openStream(1, 10_000, 100_000)),
+			is(Arrays.copyOfRange(data, 10_000, 110_000))
+		);
+		assertThat(
+			read(collection().openStream(1, 190_000, 100_000)),
+			is(Arrays.copyOfRange(data, 190_000, 200_000))
+		);
+		assertThat(read(collection().openStream(2)), is(new byte[0]));
+	}
+
+	@Test
+	public void storeStreamIsKeptApartFromObjects()
+	{
+		TestUserData o = new TestUserData(1, "V1", 20, true);
+		byte[] data = new byte[] { 1, 2, 3 };
+
+		collection().store(o).block();
+		collection().storeStream(1, Flux.just(ByteBuffer.wrap(data))).block();
+		collection().storeStream(2, Flux.just(ByteBuffer.wrap(data))).block();
+
+		assertThat(collection().get(1).block(), is(o));
+		assertThat(read(collection().openStream(1)), is(data));
+
+		assertThat(collection().get(2).blockOptional(), is(Optional.empty()));
+		assertThat(collection().stream().collectList().block(), is(List.of(o)));
+
+		assertThat(collection().delete(2).block().wasDeleted(), is(true));
+		assertThat(read(collection().openStream(2)), is(new byte[0]));
+
+		collection().delete(1).block();
+		assertThat(read(collection().openStream(1)), is(new byte[0]));
+	}
+
+	@Test
+	public void syncStoreGetAndDelete()
+	{
+		TestUserData o = new TestUserData(1, "V1", 20, true);
+
+		collection().sync().store(o);
+
+		assertThat(collection().sync().get(1), is(o));
+		assertThat(collection().sync().contains(1), is(true));
+		assertThat(collection().get(1).block(), is(o));
+
+		assertThat(collection().sync().delete(1).wasDeleted(), is(true));
+		assertThat(collection().sync().get(1), nullValue());
+		assertThat(collection().sync().contains(1), is(false));
+	}
+
+	@Test
+	public void syncJoinsActiveTransaction()
+	{
+		TestUserData o1 = new TestUserData(1, "V1", 20, true);
+		TestUserData o2 = new TestUserData(2, "V2", 20, true);
+
+		instance().transactions().inTransaction(() -> {
+			collection().sync().store(o1);
+			collection().sync().store(o2);
+
+			// Nothing is committed until the transaction completes
+			assertThat(collection().get(1).blockOptional(), is(Optional.empty()));
+		}).block();
+
+		assertThat(collection().sync().get(1), is(o1));
+		assertThat(collection().sync().get(2), is(o2));
+	}
+
+	private static byte[] read(Flux<ByteBuffer> flux)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(ByteBuffer buffer : flux.toIterable())
+		{
+			byte[] data = new byte[buffer.remaining()];
+			buffer.get(data);
+			out.write(data, 0, data.length);
+		}
+		return out.toByteArray();
+	}
 }
@@ -0,0 +1,83 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.ScanOptions;
+import se.l4.silo.engine.Workload;
+
+/**
+ * Tests that queries run on a scheduler provided in the configuration.
+ */
+public class ConfiguredSchedulerCollectionTest
+	extends BasicTest
+{
+	private final Scheduler queries = Schedulers.newBoundedElastic(4, 100, "test-queries");
+
+	@Override
+	protected LocalSilo.Builder setup(LocalSilo.Builder builder)
+	{
+		return builder
+			.addCollection(
+				CollectionDef.create(TestUserData.class, "test")
+					.withId(Integer.class, TestUserData::getId)
+					.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+			)
+			.withConfig(EngineConfig.create()
+				.withScheduler(Workload.QUERIES, queries)
+				.build()
+			);
+	}
+
+	protected LocalCollection<Integer, TestUserData> collection()
+	{
+		return instance().getCollection("test", Integer.class, TestUserData.class);
+	}
+
+	@Override
+	public void after()
+		throws Exception
+	{
+		super.after();
+
+		// The engine does not dispose schedulers it does not own
+		assertThat(queries.isDisposed(), is(false));
+		queries.dispose();
+	}
+
+	@Test
+	public void parallelScanRunsOnConfiguredScheduler()
+	{
+		Flux.range(1, 1000)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(collection()::store)
+			.blockLast();
+
+		List<String> threads = collection()
+			.stream(ScanOptions.parallelism(4))
+			.map(o -> Thread.currentThread().getName())
+			.collectList()
+			.block();
+
+		assertThat(threads.size(), is(1000));
+		assertThat(threads, hasItem(startsWith("test-queries")));
+		assertThat(threads, everyItem(not(startsWith("silo-"))));
+	}
+}
@@ -0,0 +1,53 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.silo.engine.ChunkCompression;
+
+/**
+ * Tests for {@link DeflateChunkCompression}.
+ */
+public class DeflateChunkCompressionTest
+{
+	private static byte[] data(int size)
+		throws IOException
+	{
+		try(InputStream in = DataUtils.generate(size))
+		{
+			return in.readAllBytes();
+		}
+	}
+
+	@Test
+	public void testRoundTrip()
+		throws IOException
+	{
+		byte[] data = data(100_000);
+		ChunkCompression compression = ChunkCompression.deflate();
+
+		byte[] compressed = compression.compress(data, 0, data.length);
+		assertThat(compression.decompress(compressed), is(data));
+	}
+
+	@Test
+	public void testLengthIsFixedSizeHeader()
+		throws IOException
+	{
+		byte[] data = data(100_000);
+		byte[] compressed = ChunkCompression.deflate().compress(data, 0, data.length);
+
+		// Chunks start with the length as a four byte integer
+		int length = (compressed[0] & 0xff) << 24
+			| (compressed[1] & 0xff) << 16
+			| (compressed[2] & 0xff) << 8
+			| (compressed[3] & 0xff);
+
+		assertThat(length, is(data.length));
+	}
+}
@@ -0,0 +1,99 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import reactor.core.publisher.Flux;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.FileAccess;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+
+/**
+ * Tests that data is kept when a storage using one of the {@link FileAccess}
+ * strategies is closed and opened again.
+ */
+public class FileAccessTest
+{
+	@TempDir
+	protected Path tmp;
+
+	private static LocalSilo open(Path path, FileAccess access)
+	{
+		return LocalSilo.open(path)
+			.addCollection(
+				CollectionDef.create(TestUserData.class, "test")
+					.withId(Integer.class, TestUserData::getId)
+					.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+			)
+			.withConfig(EngineConfig.create()
+				.withFileAccess(access)
+				.build()
+			)
+			.start()
+			.block();
+	}
+
+	private static LocalCollection<Integer, TestUserData> collection(LocalSilo silo)
+	{
+		return silo.getCollection("test", Integer.class, TestUserData.class);
+	}
+
+	@ParameterizedTest
+	@EnumSource(FileAccess.class)
+	public void testReopenKeepsData(FileAccess access)
+	{
+		byte[] data = new byte[100_000];
+		for(int i=0; i<data.length; i++)
+		{
+			data[i] = (byte) i;
+		}
+
+		LocalSilo silo = open(tmp, access);
+		try
+		{
+			Flux.range(1, 100)
+				.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+				.flatMap(collection(silo)::store)
+				.blockLast();
+
+			collection(silo).delete(50).block();
+			collection(silo).storeStream(1, Flux.just(ByteBuffer.wrap(data))).block();
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		silo = open(tmp, access);
+		try
+		{
+			LocalCollection<Integer, TestUserData> collection = collection(silo);
+			assertThat(collection.get(1).block(), is(new TestUserData(1, "V1", 1, false)));
+			assertThat(collection.get(100).block(), is(new TestUserData(100, "V100", 20, true)));
+			assertThat(collection.contains(50).block(), is(false));
+			assertThat(collection.stream().count().block(), is(99l));
+
+			ByteBuffer read = ByteBuffer.allocate(data.length);
+			for(ByteBuffer buffer : collection.openStream(1).toIterable())
+			{
+				read.put(buffer);
+			}
+			assertThat(read.array(), is(data));
+		}
+		finally
+		{
+			silo.close();
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reactor.core.publisher.Flux;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.Transaction;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.log.FileLog;
+
+/**
+ * Tests that data written to a {@link FileLog} is recovered by the engine
+ * when its stores have not been committed, such as after a crash.
+ */
+public class FileLogRecoveryTest
+{
+	@TempDir
+	protected Path tmp;
+
+	private static LocalSilo open(Path path)
+	{
+		return LocalSilo.open(
+			FileLog.builder(path.resolve("log"))
+				.withSegmentSizeInMiB(1)
+				.withSyncPolicy(FileLog.SyncPolicy.ALWAYS),
+			path
+		)
+			.addCollection(
+				CollectionDef.create(TestUserData.class, "test")
+					.withId(Integer.class, TestUserData::getId)
+					.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+			)
+			.start()
+			.block();
+	}
+
+	private static LocalCollection<Integer, TestUserData> collection(LocalSilo silo)
+	{
+		return silo.getCollection("test", Integer.class, TestUserData.class);
+	}
+
+	/**
+	 * Create an object large enough for its entries to span several
+	 * segments of the log.
+	 */
+	private static TestUserData large(int id)
+	{
+		return new TestUserData(id, String.join("", Collections.nCopies(1536 * 1024, "a")), 20, true);
+	}
+
+	private static List<Path> segments(Path directory)
+		throws IOException
+	{
+		try(Stream<Path> files = Files.list(directory))
+		{
+			return files.filter(file -> file.toString().endsWith(".seg"))
+				.collect(Collectors.toList());
+		}
+	}
+
+	private static void copy(Path from, Path to)
+		throws IOException
+	{
+		if(Files.exists(to))
+		{
+			try(Stream<Path> files = Files.walk(to))
+			{
+				for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				{
+					Files.delete(file);
+				}
+			}
+		}
+
+		try(Stream<Path> files = Files.walk(from))
+		{
+			for(Path file : files.collect(Collectors.toList()))
+			{
+				Files.copy(file, to.resolve(from.relativize(file)));
+			}
+		}
+	}
+
+	@Test
+	public void testRecoverWithoutCommittedStore()
+		throws IOException
+	{
+		Path data = tmp.resolve("data");
+		Path crashed = tmp.resolve("crashed");
+
+		LocalSilo silo = open(data);
+		try
+		{
+			collection(silo).store(new TestUserData(1, "V1", 20, true)).block();
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		// Keep the stores as they were after the clean close
+		copy(data, crashed);
+
+		silo = open(data);
+		try
+		{
+			collection(silo).store(large(2)).block();
+			collection(silo).store(new TestUserData(1, "V2", 20, true)).block();
+			collection(silo).store(new TestUserData(3, "V1", 30, false)).block();
+			collection(silo).delete(3).block();
+
+			assertThat(segments(data.resolve("log")).size(), greaterThan(1));
+
+			// Only the log has the changes, as if the stores were never committed
+			copy(data.resolve("log"), crashed.resolve("log"));
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		silo = open(crashed);
+		try
+		{
+			LocalCollection<Integer, TestUserData> collection = collection(silo);
+			assertThat(collection.get(1).block(), is(new TestUserData(1, "V2", 20, true)));
+			assertThat(collection.get(2).block(), is(large(2)));
+			assertThat(collection.get(3).blockOptional(), is(Optional.empty()));
+		}
+		finally
+		{
+			silo.close();
+		}
+	}
+
+	@Test
+	public void testRecoverStreamsAndTransactions()
+		throws IOException
+	{
+		Path data = tmp.resolve("data");
+		Path crashed = tmp.resolve("crashed");
+
+		byte[] bytes = new byte[100_000];
+		for(int i=0; i<bytes.length; i++)
+		{
+			bytes[i] = (byte) i;
+		}
+
+		LocalSilo silo = open(data);
+		silo.close();
+
+		copy(data, crashed);
+
+		silo = open(data);
+		try
+		{
+			LocalCollection<Integer, TestUserData> collection = collection(silo);
+			collection.storeStream(1, Flux.just(ByteBuffer.wrap(bytes))).block();
+
+			Transaction committed = silo.transactions().newTransaction().block();
+			committed.execute(ignore -> collection.store(new TestUserData(2, "V1", 20, true))).blockLast();
+			committed.commit().block();
+
+			Transaction rolledBack = silo.transactions().newTransaction().block();
+			rolledBack.execute(ignore -> collection.store(new TestUserData(3, "V1", 20, true))).blockLast();
+			rolledBack.rollback().block();
+
+			copy(data.resolve("log"), crashed.resolve("log"));
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		silo = open(crashed);
+		try
+		{
+			LocalCollection<Integer, TestUserData> collection = collection(silo);
+
+			ByteBuffer read = ByteBuffer.allocate(bytes.length);
+			for(ByteBuffer buffer : collection.openStream(1).toIterable())
+			{
+				read.put(buffer);
+			}
+			assertThat(read.array(), is(bytes));
+
+			assertThat(collection.get(1).blockOptional(), is(Optional.empty()));
+			assertThat(collection.get(2).block(), is(new TestUserData(2, "V1", 20, true)));
+			assertThat(collection.get(3).blockOptional(), is(Optional.empty()));
+		}
+		finally
+		{
+			silo.close();
+		}
+	}
+
+	@Test
+	public void testReopenWithTransactionSpanningSegments()
+		throws IOException
+	{
+		Path data = tmp.resolve("data");
+
+		LocalSilo silo = open(data);
+		try
+		{
+			collection(silo).store(new TestUserData(1, "V1", 20, true)).block();
+			collection(silo).store(large(2)).block();
+			collection(silo).store(new TestUserData(1, "V2", 20, true)).block();
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		// The segment with the start of the large object is removed on close
+		silo = open(data);
+		try
+		{
+			LocalCollection<Integer, TestUserData> collection = collection(silo);
+			assertThat(collection.get(1).block(), is(new TestUserData(1, "V2", 20, true)));
+			assertThat(collection.get(2).block(), is(large(2)));
+
+			collection.store(new TestUserData(1, "V3", 20, true)).block();
+		}
+		finally
+		{
+			silo.close();
+		}
+
+		silo = open(data);
+		try
+		{
+			assertThat(collection(silo).get(1).block(), is(new TestUserData(1, "V3", 20, true)));
+		}
+		finally
+		{
+			silo.close();
+		}
+	}
+}
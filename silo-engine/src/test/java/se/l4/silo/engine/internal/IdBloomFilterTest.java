@@ -0,0 +1,81 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link IdBloomFilter}.
+ */
+public class IdBloomFilterTest
+{
+	@Test
+	public void testDisabledFilterContainsEverything()
+	{
+		IdBloomFilter filter = new IdBloomFilter(0, 0);
+
+		assertThat(filter.isEnabled(), is(false));
+		assertThat(filter.mightContain(1l), is(true));
+	}
+
+	@Test
+	public void testAddedIdsAreContained()
+	{
+		IdBloomFilter filter = new IdBloomFilter(1000, 0.01);
+		for(long i=0; i<1000; i++)
+		{
+			filter.add(i);
+			filter.add("id" + i);
+			filter.add(new byte[] { (byte) i, (byte) (i >> 8) });
+		}
+
+		for(long i=0; i<1000; i++)
+		{
+			assertThat(filter.mightContain(i), is(true));
+			assertThat(filter.mightContain("id" + i), is(true));
+			assertThat(filter.mightContain(new byte[] { (byte) i, (byte) (i >> 8) }), is(true));
+		}
+	}
+
+	@Test
+	public void testFalsePositiveRateIsBounded()
+	{
+		IdBloomFilter filter = new IdBloomFilter(10000, 0.01);
+		for(int i=0; i<10000; i++)
+		{
+			filter.add(i);
+		}
+
+		int falsePositives = 0;
+		for(int i=10000; i<110000; i++)
+		{
+			if(filter.mightContain(i))
+			{
+				falsePositives++;
+			}
+		}
+
+		// Allow some slack above the configured rate of 1%
+		assertThat(falsePositives, lessThan(2000));
+	}
+
+	@Test
+	public void testIndexReachesBitsAboveIntRange()
+	{
+		long bitCount = 1l << 36;
+
+		long largest = 0;
+		for(long i=1; i<=1000; i++)
+		{
+			long index = IdBloomFilter.index(i * 0x9e3779b97f4a7c15l, bitCount);
+			assertThat(index, lessThan(bitCount));
+
+			largest = Math.max(largest, index);
+		}
+
+		assertThat(largest, greaterThan((long) Integer.MAX_VALUE));
+	}
+}
@@ -3,10 +3,22 @@ package se.l4.silo.engine.internal;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.OffHeapStore;
 import org.junit.jupiter.api.AfterEach;
@@ -14,6 +26,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import reactor.core.scheduler.Schedulers;
+import se.l4.silo.StorageException;
+import se.l4.silo.engine.ChunkCompression;
+import se.l4.silo.engine.EngineConfig;
 import se.l4.silo.engine.MVStoreManager;
 import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
 
@@ -104,7 +119,7 @@ public class MVDataStorageTest
 		storage.delete(id);
 
 		assertThat(storage.get(null, id), nullValue());
-		assertThat(storage.nextInternalId(), is(1l));
+		assertThat(storage.chunkCount(), is(0l));
 	}
 
 	@Test
@@ -168,4 +183,409 @@ public class MVDataStorageTest
 		DataUtils.assertBytesEquals(storage.get(null, id2), DataUtils.generate(1024 * 1024 * 4));
 		DataUtils.assertBytesEquals(storage.get(null, id3), DataUtils.generate(1024 * 1024 * 2));
 	}
+
+	@Test
+	public void testSmallDataIsStoredInline()
+		throws IOException
+	{
+		long id = storage.store(DataUtils.generate(1024)::transferTo);
+
+		// No chunks should have been used
+		assertThat(storage.chunkCount(), is(0l));
+		DataUtils.assertBytesEquals(storage.get(null, id), DataUtils.generate(1024));
+	}
+
+	@Test
+	public void testDataAboveThresholdIsChunked()
+		throws IOException
+	{
+		long id = storage.store(DataUtils.generate(EngineConfig.INLINE_DATA_THRESHOLD + 1)::transferTo);
+
+		assertThat(storage.chunkCount(), is(1l));
+		DataUtils.assertBytesEquals(storage.get(null, id), DataUtils.generate(EngineConfig.INLINE_DATA_THRESHOLD + 1));
+	}
+
+	@Test
+	public void testInlineSmallValues()
+		throws IOException
+	{
+		MVDataStorage chunked = new MVDataStorage("data", storeManager, 0);
+		long id1 = chunked.store(DataUtils.generate(1024)::transferTo);
+		long id2 = chunked.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		storage.inlineSmallValues();
+
+		DataUtils.assertBytesEquals(storage.get(null, id1), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(storage.get(null, id2), DataUtils.generate(1024 * 1024));
+
+		// Delete the large data, which should leave no chunks behind
+		storage.delete(id2);
+		assertThat(storage.chunkCount(), is(0l));
+	}
+
+	@Test
+	public void testConcurrentStores()
+		throws Exception
+	{
+		int threads = 4;
+		int perThread = 20;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			List<Future<long[]>> futures = new ArrayList<>();
+			for(int t=0; t<threads; t++)
+			{
+				futures.add(executor.submit(() -> {
+					long[] ids = new long[perThread];
+					for(int i=0; i<perThread; i++)
+					{
+						int size = (i % 2 == 0) ? 1024 : 1024 * 600;
+						ids[i] = storage.store(DataUtils.generate(size)::transferTo);
+					}
+					return ids;
+				}));
+			}
+
+			Set<Long> seen = new HashSet<>();
+			for(Future<long[]> future : futures)
+			{
+				long[] ids = future.get();
+				for(int i=0; i<perThread; i++)
+				{
+					assertThat(seen.add(ids[i]), is(true));
+
+					int size = (i % 2 == 0) ? 1024 : 1024 * 600;
+					DataUtils.assertBytesEquals(storage.get(null, ids[i]), DataUtils.generate(size));
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCopyToKeepsId()
+		throws IOException
+	{
+		long id1 = storage.store(DataUtils.generate(1024)::transferTo);
+		long id2 = storage.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		MVDataStorage target = new MVDataStorage("data.target", storeManager);
+		assertThat(storage.copyTo(id1, target), is(true));
+		assertThat(storage.copyTo(id2, target), is(true));
+		assertThat(storage.copyTo(id2 + 1, target), is(false));
+
+		storage.drop();
+
+		DataUtils.assertBytesEquals(target.get(null, id1), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(target.get(null, id2), DataUtils.generate(1024 * 1024));
+
+		// New data should not reuse the copied identifiers
+		long id3 = target.store(DataUtils.generate(10)::transferTo);
+		assertThat(id3 > id2, is(true));
+	}
+
+	@Test
+	public void testReplaceKeepsId()
+		throws IOException
+	{
+		long id = storage.store(DataUtils.generate(1024 * 1024)::transferTo);
+		long chunks = storage.chunkCount();
+
+		storage.replace(id, DataUtils.generate(1024 * 512)::transferTo);
+		DataUtils.assertBytesEquals(storage.get(null, id), DataUtils.generate(1024 * 512));
+
+		// The chunks of the old data should have been removed
+		assertThat(storage.chunkCount() < chunks, is(true));
+
+		storage.replace(id, DataUtils.generate(10)::transferTo);
+		DataUtils.assertBytesEquals(storage.get(null, id), DataUtils.generate(10));
+		assertThat(storage.chunkCount(), is(0l));
+	}
+
+	@Test
+	public void testReadAtOffset()
+		throws IOException
+	{
+		int size = 1024 * 1024;
+		long id = storage.store(DataUtils.generate(size)::transferTo);
+
+		for(int offset : new int[] { 0, 100, 256 * 1024, 256 * 1024 + 10, size - 1, size, size + 10 })
+		{
+			InputStream expected = DataUtils.generate(size);
+			expected.skip(offset);
+
+			DataUtils.assertBytesEquals(storage.get(null, id, offset), expected);
+		}
+	}
+
+	@Test
+	public void testReadSmallDataAtOffset()
+		throws IOException
+	{
+		long id = storage.store(DataUtils.generate(100)::transferTo);
+
+		InputStream expected = DataUtils.generate(100);
+		expected.skip(40);
+
+		DataUtils.assertBytesEquals(storage.get(null, id, 40), expected);
+		assertThat(storage.get(null, id + 1, 40), nullValue());
+	}
+
+	@Test
+	public void testReadAtOffsetAfterFlush()
+		throws IOException
+	{
+		long id = storage.store(out -> {
+			// Flushing should not create chunks that are not full
+			DataUtils.generate(1000).transferTo(out);
+			out.flush();
+			DataUtils.generate(600 * 1024).transferTo(out);
+		});
+
+		InputStream expected = new SequenceInputStream(
+			DataUtils.generate(1000),
+			DataUtils.generate(600 * 1024)
+		);
+		expected.skip(300 * 1024);
+
+		DataUtils.assertBytesEquals(storage.get(null, id, 300 * 1024), expected);
+	}
+
+	@Test
+	public void testDeflateCompression()
+		throws IOException
+	{
+		MVDataStorage compressed = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.deflate()
+		);
+
+		long id1 = compressed.store(DataUtils.generate(0)::transferTo);
+		long id2 = compressed.store(DataUtils.generate(1024)::transferTo);
+		long id3 = compressed.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		DataUtils.assertBytesEquals(compressed.get(null, id1), DataUtils.generate(0));
+		DataUtils.assertBytesEquals(compressed.get(null, id2), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(compressed.get(null, id3), DataUtils.generate(1024 * 1024));
+
+		Iterator<LongObjectPair<InputStream>> it = compressed.iterator(null, 0, Long.MAX_VALUE);
+		it.next();
+		it.next();
+		DataUtils.assertBytesEquals(it.next().getTwo(), DataUtils.generate(1024 * 1024));
+
+		assertThat(compressed.uncompressedBytes(), is(1024l + 1024 * 1024));
+		assertThat(compressed.compressedBytes() < compressed.uncompressedBytes(), is(true));
+	}
+
+	@Test
+	public void testReadAfterCompressionChange()
+		throws IOException
+	{
+		MVDataStorage compressed = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.deflate()
+		);
+
+		long id1 = compressed.store(DataUtils.generate(1024)::transferTo);
+		long id2 = compressed.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		MVDataStorage uncompressed = new MVDataStorage("data.compressed", storeManager);
+		long id3 = uncompressed.store(DataUtils.generate(1024)::transferTo);
+
+		DataUtils.assertBytesEquals(uncompressed.get(null, id1), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(uncompressed.get(null, id2), DataUtils.generate(1024 * 1024));
+		DataUtils.assertBytesEquals(uncompressed.get(null, id3), DataUtils.generate(1024));
+	}
+
+	@Test
+	public void testReencodeAfterCompressionChange()
+		throws IOException
+	{
+		long id1 = storage.store(DataUtils.generate(1024)::transferTo);
+		long id2 = storage.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		MVDataStorage compressed = new MVDataStorage(
+			"data",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.deflate()
+		);
+
+		assertThat(compressed.reencode(1), is(true));
+		assertThat(compressed.reencode(10), is(false));
+
+		assertThat(compressed.uncompressedBytes(), is(1024l + 1024 * 1024));
+		assertThat(compressed.compressedBytes() < compressed.uncompressedBytes(), is(true));
+
+		DataUtils.assertBytesEquals(compressed.get(null, id1), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(compressed.get(null, id2), DataUtils.generate(1024 * 1024));
+	}
+
+	@Test
+	public void testReadCustomCompressionAfterCompressionChange()
+		throws IOException
+	{
+		MVDataStorage custom = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			new XorChunkCompression(16),
+			Lists.immutable.empty(),
+			null
+		);
+
+		long id1 = custom.store(DataUtils.generate(1024)::transferTo);
+		long id2 = custom.store(DataUtils.generate(1024 * 1024)::transferTo);
+
+		MVDataStorage reopened = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.deflate(),
+			Lists.immutable.of(new XorChunkCompression(16)),
+			null
+		);
+
+		long id3 = reopened.store(DataUtils.generate(1024)::transferTo);
+
+		DataUtils.assertBytesEquals(reopened.get(null, id1), DataUtils.generate(1024));
+		DataUtils.assertBytesEquals(reopened.get(null, id2), DataUtils.generate(1024 * 1024));
+		DataUtils.assertBytesEquals(reopened.get(null, id3), DataUtils.generate(1024));
+	}
+
+	@Test
+	public void testUnknownCustomCompressionFails()
+		throws IOException
+	{
+		MVDataStorage custom = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			new XorChunkCompression(16),
+			Lists.immutable.empty(),
+			null
+		);
+
+		long id = custom.store(DataUtils.generate(1024)::transferTo);
+
+		MVDataStorage reopened = new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.deflate()
+		);
+
+		assertThrows(StorageException.class, () -> reopened.get(null, id));
+	}
+
+	@Test
+	public void testCustomCompressionWithReservedIdFails()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			new XorChunkCompression(3)
+		));
+
+		assertThrows(IllegalArgumentException.class, () -> new MVDataStorage(
+			"data.compressed",
+			storeManager,
+			EngineConfig.INLINE_DATA_THRESHOLD,
+			ChunkCompression.none(),
+			Lists.immutable.of(new XorChunkCompression(15)),
+			null
+		));
+	}
+
+	@Test
+	public void testIterator()
+		throws IOException
+	{
+		long id1 = storage.store(DataUtils.generate(1024)::transferTo);
+		long id2 = storage.store(DataUtils.generate(1024 * 1024)::transferTo);
+		long id3 = storage.store(DataUtils.generate(10)::transferTo);
+		long id4 = storage.store(DataUtils.generate(1024 * 700)::transferTo);
+		storage.delete(id3);
+
+		Iterator<LongObjectPair<InputStream>> it = storage.iterator(null, 0, Long.MAX_VALUE);
+
+		LongObjectPair<InputStream> p1 = it.next();
+		assertThat(p1.getOne(), is(id1));
+		DataUtils.assertBytesEquals(p1.getTwo(), DataUtils.generate(1024));
+
+		LongObjectPair<InputStream> p2 = it.next();
+		assertThat(p2.getOne(), is(id2));
+		DataUtils.assertBytesEquals(p2.getTwo(), DataUtils.generate(1024 * 1024));
+
+		LongObjectPair<InputStream> p4 = it.next();
+		assertThat(p4.getOne(), is(id4));
+		DataUtils.assertBytesEquals(p4.getTwo(), DataUtils.generate(1024 * 700));
+
+		assertThat(it.hasNext(), is(false));
+	}
+
+	@Test
+	public void testIteratorRange()
+		throws IOException
+	{
+		long id1 = storage.store(DataUtils.generate(10)::transferTo);
+		long id2 = storage.store(DataUtils.generate(20)::transferTo);
+		long id3 = storage.store(DataUtils.generate(30)::transferTo);
+
+		Iterator<LongObjectPair<InputStream>> it = storage.iterator(null, id1, id2);
+
+		LongObjectPair<InputStream> p2 = it.next();
+		assertThat(p2.getOne(), is(id2));
+		DataUtils.assertBytesEquals(p2.getTwo(), DataUtils.generate(20));
+
+		assertThat(it.hasNext(), is(false));
+		assertThat(storage.iterator(null, id3, id3).hasNext(), is(false));
+	}
+
+	/**
+	 * Custom compression that flips the bits of the data, used to check that
+	 * data is read using the compression it was written with.
+	 */
+	private static class XorChunkCompression
+		implements ChunkCompression
+	{
+		private final int id;
+
+		public XorChunkCompression(int id)
+		{
+			this.id = id;
+		}
+
+		@Override
+		public int getId()
+		{
+			return id;
+		}
+
+		@Override
+		public byte[] compress(byte[] data, int offset, int length)
+		{
+			byte[] result = new byte[length];
+			for(int i=0; i<length; i++)
+			{
+				result[i] = (byte) ~data[offset + i];
+			}
+			return result;
+		}
+
+		@Override
+		public byte[] decompress(byte[] data)
+		{
+			return compress(data, 0, data.length);
+		}
+	}
 }
@@ -0,0 +1,154 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.l4.silo.engine.TransactionValue;
+import se.l4.silo.engine.internal.tx.WriteableTransactionExchange;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * Tests for {@link ObjectCache}.
+ */
+public class ObjectCacheTest
+{
+	private MVStore store;
+	private ObjectCache<String> cache;
+	private AtomicInteger loads;
+
+	@BeforeEach
+	public void before()
+	{
+		store = new MVStore.Builder()
+			.fileStore(new OffHeapStore())
+			.open();
+
+		cache = new ObjectCache<>(store, 100);
+		loads = new AtomicInteger();
+	}
+
+	@AfterEach
+	public void after()
+	{
+		store.close();
+	}
+
+	private String get(long generation, long id, String value)
+	{
+		return cache.get(new GenerationExchange(generation), id, internalId -> {
+			loads.incrementAndGet();
+			return value;
+		});
+	}
+
+	@Test
+	public void testCachedForSameGeneration()
+	{
+		assertThat(get(0, 1, "V1"), is("V1"));
+		assertThat(get(0, 1, "V1"), is("V1"));
+
+		assertThat(loads.get(), is(1));
+	}
+
+	@Test
+	public void testOlderViewUsesCachedObject()
+	{
+		assertThat(get(0, 1, "V1"), is("V1"));
+		assertThat(get(0, 2, "V1"), is("V1"));
+
+		// Modifying another object does not affect the cached object
+		cache.invalidate(2);
+
+		assertThat(get(0, 1, "V1"), is("V1"));
+		assertThat(get(1, 1, "V1"), is("V1"));
+
+		assertThat(loads.get(), is(2));
+	}
+
+	@Test
+	public void testModifiedObjectIsLoadedAgain()
+	{
+		assertThat(get(0, 1, "V1"), is("V1"));
+
+		cache.invalidate(1);
+
+		// Readers of the older view keep seeing the cached object
+		assertThat(get(0, 1, "V2"), is("V1"));
+		assertThat(get(1, 1, "V2"), is("V2"));
+		assertThat(get(1, 1, "V2"), is("V2"));
+
+		assertThat(loads.get(), is(2));
+	}
+
+	@Test
+	public void testLoadDuringModificationIsNotCachedForLaterViews()
+	{
+		cache.invalidate(1);
+
+		// Read in a view from before the modification
+		assertThat(get(0, 1, "V1"), is("V1"));
+		assertThat(get(1, 1, "V2"), is("V2"));
+
+		assertThat(loads.get(), is(2));
+	}
+
+	/**
+	 * Exchange that reads all values as the given generation.
+	 */
+	private static class GenerationExchange
+		implements WriteableTransactionExchange
+	{
+		private final long generation;
+
+		public GenerationExchange(long generation)
+		{
+			this.generation = generation;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <V> V get(TransactionValue<V> value)
+		{
+			return (V) Long.valueOf(generation);
+		}
+
+		@Override
+		public long getVersion()
+		{
+			return generation;
+		}
+
+		@Override
+		public void store(String collection, Object id, IOConsumer<OutputStream> generator)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public OutputStream openBlob(String collection, Object id)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void delete(String collection, Object id)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void index(String collection, String index, Object id, IOConsumer<OutputStream> generator)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
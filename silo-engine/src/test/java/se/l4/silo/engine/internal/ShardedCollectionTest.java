@@ -0,0 +1,147 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import se.l4.exobytes.Serializers;
+import se.l4.silo.StorageException;
+import se.l4.silo.Transaction;
+import se.l4.silo.engine.CollectionDef;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.LocalCollection;
+import se.l4.silo.engine.LocalSilo;
+import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.Snapshot;
+import se.l4.silo.engine.log.FileLog;
+
+/**
+ * Tests for storages that split collections over several shards.
+ */
+public class ShardedCollectionTest
+	extends BasicTest
+{
+	@Override
+	protected LocalSilo.Builder open(Path path)
+	{
+		return LocalSilo.open(FileLog.builder(path.resolve("log")), path);
+	}
+
+	@Override
+	protected LocalSilo.Builder setup(LocalSilo.Builder builder)
+	{
+		return builder
+			.addCollection(
+				CollectionDef.create(TestUserData.class, "test")
+					.withId(Integer.class, TestUserData::getId)
+					.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+			)
+			.addCollection(
+				CollectionDef.create(TestUserData.class, "other")
+					.withId(Integer.class, TestUserData::getId)
+					.withCodec(ObjectCodec.serialized(Serializers.create().build(), TestUserData.class))
+			)
+			.withConfig(EngineConfig.create()
+				.withShards(4)
+				.build()
+			);
+	}
+
+	protected LocalCollection<Integer, TestUserData> collection()
+	{
+		return instance().getCollection("test", Integer.class, TestUserData.class);
+	}
+
+	protected LocalCollection<Integer, TestUserData> other()
+	{
+		return instance().getCollection("other", Integer.class, TestUserData.class);
+	}
+
+	@Test
+	public void storeInSeveralShards()
+	{
+		TestUserData o1 = new TestUserData(1, "V1", 20, true);
+		TestUserData o2 = new TestUserData(2, "V2", 30, false);
+
+		Transaction tx = instance().transactions().newTransaction().block();
+
+		tx.execute(ignore -> collection().store(o1)).blockLast();
+		tx.execute(ignore -> other().store(o2)).blockLast();
+
+		// Nothing should be visible before the commit
+		assertThat(collection().get(1).blockOptional(), is(Optional.empty()));
+		assertThat(other().get(2).blockOptional(), is(Optional.empty()));
+
+		tx.commit().block();
+
+		assertThat(collection().get(1).block(), is(o1));
+		assertThat(other().get(2).block(), is(o2));
+	}
+
+	@Test
+	public void readManyObjectsFromShards()
+	{
+		Flux.range(1, 200)
+			.map(i -> new TestUserData(i, "V" + i, i % 40, i % 2 == 0))
+			.flatMap(o -> o.getId() % 2 == 0 ? collection().store(o) : other().store(o))
+			.blockLast();
+
+		assertThat(collection().stream().count().block(), is(100l));
+		assertThat(other().stream().count().block(), is(100l));
+
+		assertThat(collection().getAll(List.of(2, 3, 4)).count().block(), is(2l));
+		assertThat(other().getAll(List.of(2, 3, 5)).count().block(), is(2l));
+	}
+
+	@Test
+	public void testSnapshotContainsEveryShard()
+		throws IOException
+	{
+		collection().store(new TestUserData(1, "V1", 20, true)).block();
+		other().store(new TestUserData(2, "V2", 30, false)).block();
+
+		List<String> names = new ArrayList<>();
+		try(Snapshot snapshot = instance().maintenance().createSnapshot();
+			InputStream in = snapshot.asStream())
+		{
+			ZipInputStream zip = new ZipInputStream(in);
+			ZipEntry entry;
+			while((entry = zip.getNextEntry()) != null)
+			{
+				names.add(entry.getName());
+				assertThat(zip.readAllBytes().length > 0, is(true));
+			}
+		}
+
+		assertThat(names, is(List.of(
+			"storage.mv.bin",
+			"storage-1.mv.bin",
+			"storage-2.mv.bin",
+			"storage-3.mv.bin"
+		)));
+	}
+
+	@Test
+	public void testRequiresDurableLog()
+	{
+		LocalSilo.Builder builder = LocalSilo.open(tmp.resolve("direct"))
+			.withConfig(EngineConfig.create()
+				.withShards(2)
+				.build()
+			);
+
+		assertThrows(StorageException.class, () -> builder.start().block());
+	}
+}
@@ -32,6 +32,17 @@ public abstract class SiloTest
 		}
 	}
 
+	/**
+	 * Start creating the instance used for the test.
+	 *
+	 * @param path
+	 * @return
+	 */
+	protected LocalSilo.Builder open(Path path)
+	{
+		return LocalSilo.open(path);
+	}
+
 	protected LocalSilo instance(Function<LocalSilo.Builder, LocalSilo.Builder> creator)
 	{
 		if(silo != null)
@@ -39,7 +50,7 @@ public abstract class SiloTest
 			return silo;
 		}
 
-		silo = creator.apply(LocalSilo.open(tmp))
+		silo = creator.apply(open(tmp))
 			.start()
 			.block();
 
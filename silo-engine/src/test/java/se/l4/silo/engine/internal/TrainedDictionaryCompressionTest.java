@@ -0,0 +1,168 @@
+package se.l4.silo.engine.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TrainedDictionaryCompression}.
+ */
+public class TrainedDictionaryCompressionTest
+{
+	private MVStore store;
+	private TrainedDictionaryCompression compression;
+
+	@BeforeEach
+	public void before()
+	{
+		store = new MVStore.Builder()
+			.fileStore(new OffHeapStore())
+			.open();
+
+		compression = createCompression();
+	}
+
+	@AfterEach
+	public void after()
+	{
+		store.close();
+	}
+
+	private TrainedDictionaryCompression createCompression()
+	{
+		// Reservoir is larger than what is stored to avoid training in the background
+		return new TrainedDictionaryCompression(
+			store.openMap("data.dictionaries", TrainedDictionaryCompression.mapBuilder()),
+			null,
+			Deflater.DEFAULT_COMPRESSION,
+			4096,
+			1000,
+			4096,
+			100_000
+		);
+	}
+
+	private static byte[] document(int i)
+	{
+		return ("{\"id\":" + i + ",\"name\":\"User " + i + "\",\"status\":\"ACTIVE\""
+			+ ",\"email\":\"user" + i + "@example.com\",\"roles\":[\"reader\",\"writer\"]}")
+			.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRoundTripWithoutDictionary()
+		throws IOException
+	{
+		byte[] data = document(1);
+		byte[] compressed = compression.compress(data, 0, data.length);
+
+		assertThat(compression.getVersion(), is(0));
+		assertThat(compression.decompress(compressed), is(data));
+	}
+
+	@Test
+	public void testTrainingImprovesCompression()
+		throws IOException
+	{
+		for(int i=0; i<200; i++)
+		{
+			byte[] data = document(i);
+			compression.compress(data, 0, data.length);
+		}
+
+		byte[] data = document(1000);
+		byte[] before = compression.compress(data, 0, data.length);
+
+		assertThat(compression.train(), is(true));
+		assertThat(compression.getVersion(), is(1));
+
+		byte[] after = compression.compress(data, 0, data.length);
+		assertThat(after.length, lessThan(before.length));
+
+		// Data compressed before and after training should be readable
+		assertThat(compression.decompress(before), is(data));
+		assertThat(compression.decompress(after), is(data));
+
+		assertThat(compression.isOutdated(before), is(true));
+		assertThat(compression.isOutdated(after), is(false));
+	}
+
+	@Test
+	public void testDictionaryIsLoadedWhenOpened()
+		throws IOException
+	{
+		for(int i=0; i<200; i++)
+		{
+			byte[] data = document(i);
+			compression.compress(data, 0, data.length);
+		}
+
+		compression.train();
+
+		byte[] data = document(1000);
+		byte[] compressed = compression.compress(data, 0, data.length);
+
+		TrainedDictionaryCompression reopened = createCompression();
+		assertThat(reopened.getVersion(), is(1));
+		assertThat(reopened.decompress(compressed), is(data));
+	}
+
+	@Test
+	public void testNoTrainingAfterClose()
+		throws IOException
+	{
+		for(int i=0; i<200; i++)
+		{
+			byte[] data = document(i);
+			compression.compress(data, 0, data.length);
+		}
+
+		compression.close();
+
+		assertThat(compression.train(), is(false));
+		assertThat(compression.getVersion(), is(0));
+		assertThat(store.openMap("data.dictionaries", TrainedDictionaryCompression.mapBuilder()).size(), is(0));
+	}
+
+	@Test
+	public void testUnopenedCompressionReadsDataWithoutDictionary()
+		throws IOException
+	{
+		byte[] data = document(1);
+		byte[] compressed = compression.compress(data, 0, data.length);
+
+		assertThat(DictionaryChunkCompression.DEFAULT.decompress(compressed), is(data));
+
+		byte[] unopened = DictionaryChunkCompression.DEFAULT.compress(data, 0, data.length);
+		assertThat(compression.decompress(unopened), is(data));
+	}
+
+	@Test
+	public void testUnopenedCompressionFailsForDataWithDictionary()
+		throws IOException
+	{
+		for(int i=0; i<200; i++)
+		{
+			byte[] data = document(i);
+			compression.compress(data, 0, data.length);
+		}
+
+		compression.train();
+
+		byte[] data = document(1000);
+		byte[] compressed = compression.compress(data, 0, data.length);
+
+		assertThrows(IOException.class, () -> DictionaryChunkCompression.DEFAULT.decompress(compressed));
+	}
+}
@@ -302,7 +302,7 @@ public class IndexEngineControllerTest
 				}
 
 				@Override
-				public void apply(long opId, long dataId, InputStream in)
+				public void replace(long opId, long dataId, InputStream in)
 					throws IOException
 				{
 					String value = BinaryDataInput.forStream(in).readString();
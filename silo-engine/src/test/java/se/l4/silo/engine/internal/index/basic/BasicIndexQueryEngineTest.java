@@ -16,6 +16,7 @@ import se.l4.silo.CollectionRef;
 import se.l4.silo.engine.CollectionDef;
 import se.l4.silo.engine.LocalSilo;
 import se.l4.silo.engine.ObjectCodec;
+import se.l4.silo.engine.SyncCollection;
 import se.l4.silo.engine.index.basic.BasicFieldDef;
 import se.l4.silo.engine.index.basic.BasicIndexDef;
 import se.l4.silo.engine.internal.BasicTest;
@@ -91,6 +92,34 @@ public class BasicIndexQueryEngineTest
 		assertThat(fr.first().block(), is(obj));
 	}
 
+	@Test
+	public void testSyncFetch()
+	{
+		SyncCollection<Long, TestData> collection = instance()
+			.getCollection("test", Long.class, TestData.class)
+			.sync();
+
+		TestData obj = new TestData(1, "value1", false, Collections.emptyList());
+		collection.store(obj);
+
+		BasicIndexResult<TestData> fr = collection.fetch(BasicIndexQuery.create("byField1", TestData.class)
+			.field("field1").isEqualTo("value1")
+			.build()
+		);
+
+		assertThat(fr.getSize(), is(1l));
+		assertThat(fr.first().block(), is(obj));
+
+		collection.delete(1l);
+
+		fr = collection.fetch(BasicIndexQuery.create("byField1", TestData.class)
+			.field("field1").isEqualTo("value1")
+			.build()
+		);
+
+		assertThat(fr.getSize(), is(0l));
+	}
+
 	@Test
 	public void testStoreDelete()
 	{
@@ -0,0 +1,233 @@
+package se.l4.silo.engine.internal.log;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.l4.silo.engine.internal.MessageConstants;
+import se.l4.silo.engine.io.BinaryDataOutput;
+import se.l4.silo.engine.log.Log;
+import se.l4.ylem.ids.SimpleLongIdGenerator;
+import se.l4.ylem.io.Bytes;
+
+/**
+ * Tests for {@link LogBuffer} and how {@link TransactionLogImpl} acquires
+ * and releases buffers.
+ */
+public class LogBufferTest
+{
+	private List<LogBuffer> held;
+
+	@BeforeEach
+	public void before()
+	{
+		// Take all of the idle buffers so that the pool starts out empty
+		held = new ArrayList<>();
+		while(LogBuffer.idleCount() > 0)
+		{
+			held.add(LogBuffer.acquire());
+		}
+	}
+
+	@AfterEach
+	public void after()
+	{
+		for(LogBuffer buffer : held)
+		{
+			buffer.release();
+		}
+	}
+
+	private static byte[] message(LogBuffer buffer, int... values)
+		throws IOException
+	{
+		BinaryDataOutput out = buffer.start();
+		for(int value : values)
+		{
+			out.write(value);
+		}
+
+		return read(buffer.finish());
+	}
+
+	private static byte[] read(ByteBuffer buffer)
+	{
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return data;
+	}
+
+	private static void inThread(Runnable runnable)
+		throws InterruptedException
+	{
+		Thread thread = new Thread(runnable);
+		thread.start();
+		thread.join();
+	}
+
+	@Test
+	public void testReleasedBufferIsReused()
+	{
+		LogBuffer buffer = LogBuffer.acquire();
+		buffer.release();
+
+		assertThat(LogBuffer.idleCount(), is(1));
+		assertThat(LogBuffer.acquire(), sameInstance(buffer));
+		assertThat(LogBuffer.idleCount(), is(0));
+	}
+
+	@Test
+	public void testStartDiscardsPreviousMessage()
+		throws IOException
+	{
+		LogBuffer buffer = LogBuffer.acquire();
+
+		assertThat(message(buffer, 1, 2, 3), is(new byte[] { 1, 2, 3 }));
+		assertThat(message(buffer, 4), is(new byte[] { 4 }));
+
+		buffer.release();
+	}
+
+	@Test
+	public void testNestedAcquireUsesSeparateBuffers()
+		throws IOException
+	{
+		LogBuffer outer = LogBuffer.acquire();
+		outer.start().write(1);
+
+		LogBuffer inner = LogBuffer.acquire();
+		assertThat(inner, not(sameInstance(outer)));
+		assertThat(message(inner, 2, 2), is(new byte[] { 2, 2 }));
+		inner.release();
+
+		// The message of the outer buffer is not affected
+		assertThat(read(outer.finish()), is(new byte[] { 1 }));
+		outer.release();
+
+		assertThat(LogBuffer.idleCount(), is(2));
+	}
+
+	@Test
+	public void testReleaseOnOtherThread()
+		throws InterruptedException
+	{
+		LogBuffer buffer = LogBuffer.acquire();
+
+		inThread(buffer::release);
+
+		assertThat(LogBuffer.idleCount(), is(1));
+		assertThat(LogBuffer.acquire(), sameInstance(buffer));
+	}
+
+	@Test
+	public void testStoreReleasesBuffer()
+	{
+		RecordingLog log = new RecordingLog();
+		TransactionLogImpl tx = new TransactionLogImpl(log, new SimpleLongIdGenerator());
+
+		tx.store(1, "test", 1, out -> out.write(new byte[] { 1, 2, 3 }));
+
+		assertThat(LogBuffer.idleCount(), is(1));
+		assertThat(log.types(), is(List.of(MessageConstants.STORE_CHUNK, MessageConstants.STORE_CHUNK)));
+	}
+
+	@Test
+	public void testBlobReleasesBufferOnOtherThread()
+		throws Exception
+	{
+		RecordingLog log = new RecordingLog();
+		TransactionLogImpl tx = new TransactionLogImpl(log, new SimpleLongIdGenerator());
+
+		OutputStream out = tx.openBlob(1, "test", 1);
+		out.write(new byte[] { 1, 2, 3 });
+
+		// The buffer is in use until the stream is closed
+		assertThat(LogBuffer.idleCount(), is(0));
+
+		inThread(() -> {
+			try
+			{
+				out.close();
+			}
+			catch(IOException e)
+			{
+				throw new AssertionError(e);
+			}
+		});
+
+		assertThat(LogBuffer.idleCount(), is(1));
+		assertThat(log.types(), is(List.of(MessageConstants.BLOB_CHUNK, MessageConstants.BLOB_CHUNK)));
+	}
+
+	@Test
+	public void testNestedBlobsUseSeparateBuffers()
+		throws IOException
+	{
+		RecordingLog log = new RecordingLog();
+		TransactionLogImpl tx = new TransactionLogImpl(log, new SimpleLongIdGenerator());
+
+		OutputStream first = tx.openBlob(1, "test", 1);
+		first.write(new byte[] { 1, 1, 1 });
+
+		OutputStream second = tx.openBlob(1, "test", 2);
+		second.write(new byte[] { 2, 2, 2 });
+
+		first.close();
+		second.close();
+
+		assertThat(LogBuffer.idleCount(), is(2));
+
+		// The data chunk ends with the data written to the stream
+		assertThat(log.tail(0, 3), is(new byte[] { 1, 1, 1 }));
+		assertThat(log.tail(2, 3), is(new byte[] { 2, 2, 2 }));
+	}
+
+	/**
+	 * {@link Log} that keeps a copy of every entry appended to it.
+	 */
+	private static class RecordingLog
+		implements Log
+	{
+		private final List<byte[]> entries = new ArrayList<>();
+
+		@Override
+		public void append(Bytes bytes)
+			throws IOException
+		{
+			entries.add(bytes.toByteArray());
+		}
+
+		public List<Integer> types()
+		{
+			List<Integer> result = new ArrayList<>();
+			for(byte[] entry : entries)
+			{
+				result.add((int) entry[0]);
+			}
+			return result;
+		}
+
+		public byte[] tail(int entry, int length)
+		{
+			byte[] data = entries.get(entry);
+			return Arrays.copyOfRange(data, data.length - length, data.length);
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package se.l4.silo.engine.internal.migration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+
+import org.eclipse.collections.api.factory.Maps;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.h2.mvstore.type.ObjectDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.internal.PrimaryIndex;
+import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+import se.l4.silo.engine.internal.types.KeyLongType;
+
+/**
+ * Tests for {@link PrimaryIndexMigration}.
+ */
+public class PrimaryIndexMigrationTest
+{
+	private MVStoreManagerImpl storeManager;
+	private MVStore store;
+
+	@BeforeEach
+	public void before()
+	{
+		storeManager = new MVStoreManagerImpl(
+			Schedulers.newBoundedElastic(1, 100, "test"),
+			new MVStore.Builder()
+				.fileStore(new OffHeapStore())
+		);
+
+		store = storeManager.getStore();
+	}
+
+	@AfterEach
+	public void after()
+		throws IOException
+	{
+		storeManager.close();
+	}
+
+	/**
+	 * Write a primary index the way it was stored before identifiers were
+	 * stored with specific types.
+	 */
+	private void writeLegacy(String collection, Object... keys)
+	{
+		MVMap<Object, Long> toExternal = store.openMap("primary.toExternal." + collection, new MVMap.Builder<Object, Long>()
+			.keyType(new ObjectDataType())
+			.valueType(KeyLongType.INSTANCE)
+		);
+
+		MVMap<Long, Object> fromExternal = store.openMap("primary.fromExternal." + collection, new MVMap.Builder<Long, Object>()
+			.keyType(KeyLongType.INSTANCE)
+			.valueType(new ObjectDataType())
+		);
+
+		long id = 0;
+		for(Object key : keys)
+		{
+			id++;
+			toExternal.put(key, id);
+			fromExternal.put(id, key);
+		}
+
+		store.commit();
+	}
+
+	private MVMap<Object, Long> openKeys(String collection, Class<?> type)
+	{
+		return store.openMap("primary.keys." + collection, new MVMap.Builder<Object, Long>()
+			.keyType(PrimaryIndex.keyType(type))
+			.valueType(KeyLongType.INSTANCE)
+		);
+	}
+
+	private MVMap<Long, Object> openIds(String collection, Class<?> type)
+	{
+		return store.openMap("primary.ids." + collection, new MVMap.Builder<Long, Object>()
+			.keyType(KeyLongType.INSTANCE)
+			.valueType(PrimaryIndex.keyType(type))
+		);
+	}
+
+	@Test
+	public void testMigrateLongIds()
+	{
+		writeLegacy("test", 10l, -10l, Long.MIN_VALUE);
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.<String, Class<?>>of("test", Long.class));
+
+		assertThat(store.hasMap("primary.toExternal.test"), is(false));
+		assertThat(store.hasMap("primary.fromExternal.test"), is(false));
+
+		MVMap<Object, Long> keys = openKeys("test", Long.class);
+		assertThat(keys.size(), is(3));
+		assertThat(keys.get(10l), is(1l));
+		assertThat(keys.get(-10l), is(2l));
+		assertThat(keys.get(Long.MIN_VALUE), is(3l));
+
+		MVMap<Long, Object> ids = openIds("test", Long.class);
+		assertThat((Long) ids.get(2l), is(-10l));
+	}
+
+	@Test
+	public void testMigrateIntIds()
+	{
+		writeLegacy("test", 1, -1);
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.<String, Class<?>>of("test", Integer.class));
+
+		MVMap<Object, Long> keys = openKeys("test", Integer.class);
+		assertThat(keys.get(1), is(1l));
+		assertThat(keys.get(-1), is(2l));
+
+		MVMap<Long, Object> ids = openIds("test", Integer.class);
+		assertThat((Integer) ids.get(2l), is(-1));
+	}
+
+	@Test
+	public void testMigrateStringIds()
+	{
+		writeLegacy("a", "one", "two");
+		writeLegacy("b", "three");
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.<String, Class<?>>of("a", String.class, "b", String.class));
+
+		MVMap<Object, Long> a = openKeys("a", String.class);
+		assertThat(a.get("one"), is(1l));
+		assertThat(a.get("two"), is(2l));
+		assertThat(a.get("three"), nullValue());
+
+		MVMap<Object, Long> b = openKeys("b", String.class);
+		assertThat(b.get("three"), is(1l));
+	}
+
+	@Test
+	public void testMigrateByteArrayIds()
+	{
+		writeLegacy("test", new byte[] { 1, 2 }, new byte[] { -1 });
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.<String, Class<?>>of("test", byte[].class));
+
+		MVMap<Object, Long> keys = openKeys("test", byte[].class);
+		assertThat(keys.get(new byte[] { 1, 2 }), is(1l));
+		assertThat(keys.get(new byte[] { -1 }), is(2l));
+
+		MVMap<Long, Object> ids = openIds("test", byte[].class);
+		assertThat((byte[]) ids.get(2l), is(new byte[] { -1 }));
+	}
+
+	@Test
+	public void testMigrateUsesDeclaredType()
+	{
+		writeLegacy("test", 10l, 1, 20l);
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.<String, Class<?>>of("test", Number.class));
+
+		MVMap<Object, Long> keys = openKeys("test", Number.class);
+		assertThat(keys.get(10l), is(1l));
+		assertThat(keys.get(1), is(2l));
+		assertThat(keys.get(20l), is(3l));
+	}
+
+	@Test
+	public void testMigrateUndeclaredCollection()
+	{
+		writeLegacy("test", "one", "two");
+
+		PrimaryIndexMigration.migrate(storeManager, store, Maps.immutable.empty());
+
+		assertThat(store.hasMap("primary.toExternal.test"), is(false));
+
+		MVMap<Object, Long> keys = openKeys("test", String.class);
+		assertThat(keys.get("one"), is(1l));
+		assertThat(keys.get("two"), is(2l));
+	}
+
+	@Test
+	public void testMigrationUpdatesStoreVersion()
+	{
+		writeLegacy("test", "one");
+		store.setStoreVersion(3);
+
+		Migration.migrate(storeManager, EngineConfig.create().build(), Maps.immutable.<String, Class<?>>of("test", String.class));
+
+		assertThat(store.getStoreVersion(), is(4));
+		assertThat(store.hasMap("primary.toExternal.test"), is(false));
+		assertThat(openKeys("test", String.class).get("one"), is(1l));
+	}
+}
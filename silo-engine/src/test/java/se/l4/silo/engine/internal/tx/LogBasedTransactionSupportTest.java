@@ -0,0 +1,198 @@
+package se.l4.silo.engine.internal.tx;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.StorageException;
+import se.l4.silo.engine.TransactionValue;
+import se.l4.silo.engine.TransactionValueProvider;
+import se.l4.silo.engine.internal.log.TransactionLog;
+import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+import se.l4.silo.engine.internal.mvstore.Shard;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * Tests for how {@link LogBasedTransactionSupport} generates and releases
+ * {@link TransactionValue}s.
+ */
+public class LogBasedTransactionSupportTest
+{
+	private MVStoreManagerImpl store;
+	private LogBasedTransactionSupport support;
+
+	@BeforeEach
+	public void before()
+	{
+		store = new MVStoreManagerImpl(
+			Schedulers.newBoundedElastic(1, 100, "test"),
+			new MVStore.Builder()
+				.fileStore(new OffHeapStore())
+		);
+
+		support = new LogBasedTransactionSupport(
+			Lists.immutable.of(new Shard(0, store)),
+			null,
+			null
+		);
+	}
+
+	@AfterEach
+	public void after()
+		throws IOException
+	{
+		store.close();
+	}
+
+	@Test
+	public void testValueNotGeneratedIfNotUsed()
+	{
+		CountingValue value = new CountingValue();
+
+		support.withExchange(e -> "", value)
+			.block();
+
+		assertThat(value.generated.get(), is(0));
+		assertThat(value.released.get(), is(0));
+	}
+
+	@Test
+	public void testValueGeneratedOnce()
+	{
+		CountingValue value = new CountingValue();
+
+		support.withExchange(e -> {
+			e.get(value);
+			return e.get(value);
+		}, value)
+			.block();
+
+		assertThat(value.generated.get(), is(1));
+		assertThat(value.released.get(), is(1));
+	}
+
+	@Test
+	public void testStoreValueTakenFromView()
+	{
+		CountingValue value = new CountingValue();
+		StoreTransactionValue<TransactionValue.Releasable> storeValue = StoreTransactionValue.create(store.getStore(), value);
+		TransactionValueProvider provider = consumer -> consumer.accept(storeValue);
+
+		support.registerValue("test", storeValue);
+		assertThat(value.generated.get(), is(1));
+
+		support.withExchange(e -> e.get(storeValue), provider)
+			.block();
+
+		support.withExchange(e -> e.get(storeValue), provider)
+			.block();
+
+		assertThat(value.generated.get(), is(1));
+		assertThat(value.released.get(), is(0));
+
+		support.publish(Sets.immutable.of("test"));
+
+		assertThat(value.generated.get(), is(2));
+		assertThat(value.released.get(), is(1));
+	}
+
+	@Test
+	public void testWaiterRemovedIfCommitFails()
+	{
+		TransactionWaiterImpl waiter = new TransactionWaiterImpl();
+		LogBasedTransactionSupport failing = new LogBasedTransactionSupport(
+			Lists.immutable.of(new Shard(0, store)),
+			new FailingCommitLog(),
+			waiter
+		);
+
+		assertThrows(StorageException.class, () -> failing.withExchange(e -> {
+			e.delete("test", 1);
+			return "";
+		}).block());
+
+		assertThat(waiter.size(), is(0));
+	}
+
+	/**
+	 * Log that accepts operations but fails to commit transactions.
+	 */
+	private static class FailingCommitLog
+		implements TransactionLog
+	{
+		@Override
+		public long startTransaction()
+		{
+			return 1;
+		}
+
+		@Override
+		public void store(long tx, String collection, Object id, IOConsumer<OutputStream> generator)
+		{
+		}
+
+		@Override
+		public OutputStream openBlob(long tx, String collection, Object id)
+		{
+			return new ByteArrayOutputStream();
+		}
+
+		@Override
+		public void delete(long tx, String collection, Object id)
+		{
+		}
+
+		@Override
+		public void storeIndex(long tx, String collection, String index, Object id, IOConsumer<OutputStream> generator)
+		{
+		}
+
+		@Override
+		public void commitTransaction(long tx)
+		{
+			throw new StorageException("Could not write commit");
+		}
+
+		@Override
+		public void rollbackTransaction(long tx)
+		{
+		}
+	}
+
+	private static class CountingValue
+		implements TransactionValue<TransactionValue.Releasable>, TransactionValueProvider
+	{
+		private final AtomicInteger generated = new AtomicInteger();
+		private final AtomicInteger released = new AtomicInteger();
+
+		@Override
+		public TransactionValue.Releasable generate(long txVersion)
+		{
+			generated.incrementAndGet();
+			return released::incrementAndGet;
+		}
+
+		@Override
+		public void provideTransactionValues(
+			Consumer<? super TransactionValue<?>> consumer
+		)
+		{
+			consumer.accept(this);
+		}
+	}
+}
@@ -58,6 +58,13 @@ public class TransactionLogApplierTest
 				ops.check("store", collection, id, data);
 			}
 
+			@Override
+			public void storeBlob(String collection, Object id, InputStream data)
+				throws IOException
+			{
+				ops.check("storeBlob", collection, id, data);
+			}
+
 			@Override
 			public void delete(String collection, Object id)
 				throws IOException
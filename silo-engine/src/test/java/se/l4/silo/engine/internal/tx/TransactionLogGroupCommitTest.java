@@ -0,0 +1,240 @@
+package se.l4.silo.engine.internal.tx;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.collections.api.set.SetIterable;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.StorageApplier;
+import se.l4.silo.engine.internal.log.TransactionLogImpl;
+import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+import se.l4.silo.engine.log.DirectApplyLog;
+import se.l4.ylem.ids.SimpleLongIdGenerator;
+
+/**
+ * Tests for applying groups of transactions in {@link TransactionLogApplier}.
+ */
+public class TransactionLogGroupCommitTest
+{
+	private MVStoreManager store;
+
+	@BeforeEach
+	public void before()
+	{
+		store = new MVStoreManagerImpl(
+			Schedulers.newBoundedElastic(1, 100, "test"),
+			new MVStore.Builder()
+				.fileStore(new OffHeapStore())
+		);
+	}
+
+	@AfterEach
+	public void after()
+		throws IOException
+	{
+		store.close();
+	}
+
+	@Test
+	public void testCommitsDuringApplyAreGrouped()
+		throws InterruptedException
+	{
+		CountDownLatch applying = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+		TransactionLogApplier applier = new TransactionLogApplier(null, null, store, new StorageApplier()
+		{
+			@Override
+			public void batchStart(SetIterable<String> collections)
+			{
+				events.add("batchStart");
+			}
+
+			@Override
+			public void transactionStart(long id)
+			{
+			}
+
+			@Override
+			public void store(String collection, Object id, InputStream data)
+			{
+				events.add("store " + id);
+
+				if(id.equals(1))
+				{
+					// Block the first transaction until the others have been committed
+					applying.countDown();
+					try
+					{
+						release.await();
+					}
+					catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+
+			@Override
+			public void storeBlob(String collection, Object id, InputStream data)
+			{
+			}
+
+			@Override
+			public void delete(String collection, Object id)
+			{
+			}
+
+			@Override
+			public void index(String collection, String index, Object id, InputStream data)
+			{
+			}
+
+			@Override
+			public void batchComplete(SetIterable<String> collections)
+			{
+				events.add("batchComplete");
+			}
+
+			@Override
+			public void transactionComplete(long id, Throwable throwable)
+			{
+				events.add("complete");
+			}
+		});
+
+		TransactionLogImpl log = new TransactionLogImpl(
+			DirectApplyLog.builder().build(applier),
+			new SimpleLongIdGenerator()
+		);
+
+		long t1 = log.startTransaction();
+		log.store(t1, "test", 1, out -> {});
+		long t2 = log.startTransaction();
+		log.store(t2, "test", 2, out -> {});
+		long t3 = log.startTransaction();
+		log.store(t3, "test", 3, out -> {});
+
+		Thread leader = new Thread(() -> log.commitTransaction(t1));
+		leader.start();
+		applying.await();
+
+		// Commits while another group is applied are left to the leader
+		log.commitTransaction(t2);
+		log.commitTransaction(t3);
+		assertThat(events, is(List.of("batchStart", "store 1")));
+
+		release.countDown();
+		leader.join();
+
+		assertThat(events, is(List.of(
+			"batchStart", "store 1", "batchComplete", "complete",
+			"batchStart", "store 2", "store 3", "batchComplete", "complete", "complete"
+		)));
+	}
+
+	@Test
+	public void testDisjointCommitsAreAppliedInParallel()
+		throws InterruptedException
+	{
+		CountDownLatch applying = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+		TransactionLogApplier applier = new TransactionLogApplier(null, null, store, new StorageApplier()
+		{
+			@Override
+			public void transactionStart(long id)
+			{
+			}
+
+			@Override
+			public void store(String collection, Object id, InputStream data)
+			{
+				events.add("store " + collection + " " + id);
+
+				if(id.equals(1))
+				{
+					// Block the first transaction until the others have been committed
+					applying.countDown();
+					try
+					{
+						release.await();
+					}
+					catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+
+			@Override
+			public void storeBlob(String collection, Object id, InputStream data)
+			{
+			}
+
+			@Override
+			public void delete(String collection, Object id)
+			{
+			}
+
+			@Override
+			public void index(String collection, String index, Object id, InputStream data)
+			{
+			}
+
+			@Override
+			public void transactionComplete(long id, Throwable throwable)
+			{
+				events.add("complete " + id);
+			}
+		});
+
+		TransactionLogImpl log = new TransactionLogImpl(
+			DirectApplyLog.builder().build(applier),
+			new SimpleLongIdGenerator()
+		);
+
+		long t1 = log.startTransaction();
+		log.store(t1, "a", 1, out -> {});
+		long t2 = log.startTransaction();
+		log.store(t2, "b", 2, out -> {});
+		long t3 = log.startTransaction();
+		log.store(t3, "a", 3, out -> {});
+
+		Thread first = new Thread(() -> log.commitTransaction(t1));
+		first.start();
+		applying.await();
+
+		// A commit to another collection is applied directly
+		log.commitTransaction(t2);
+		assertThat(events, is(List.of("store a 1", "store b 2", "complete " + t2)));
+
+		// A commit to the same collection waits for the first one
+		log.commitTransaction(t3);
+		assertThat(events.size(), is(3));
+
+		release.countDown();
+		first.join();
+
+		assertThat(events, is(List.of(
+			"store a 1", "store b 2", "complete " + t2,
+			"complete " + t1, "store a 3", "complete " + t3
+		)));
+	}
+}
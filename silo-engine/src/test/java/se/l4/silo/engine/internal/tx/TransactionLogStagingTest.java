@@ -0,0 +1,206 @@
+package se.l4.silo.engine.internal.tx;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.engine.EngineConfig;
+import se.l4.silo.engine.MVStoreManager;
+import se.l4.silo.engine.internal.OpChecker;
+import se.l4.silo.engine.internal.StorageApplier;
+import se.l4.silo.engine.internal.log.TransactionLogImpl;
+import se.l4.silo.engine.internal.mvstore.MVStoreManagerImpl;
+import se.l4.silo.engine.internal.tx.operations.TransactionOperation;
+import se.l4.silo.engine.internal.types.LongArrayFieldType;
+import se.l4.silo.engine.log.DirectApplyLog;
+import se.l4.ylem.ids.SimpleLongIdGenerator;
+
+/**
+ * Tests for buffering of transactions in memory and spilling them to the
+ * log in {@link TransactionLogApplier}.
+ */
+public class TransactionLogStagingTest
+{
+	private MVStoreManager store;
+	private OpChecker ops;
+
+	@BeforeEach
+	public void before()
+	{
+		store = new MVStoreManagerImpl(
+			Schedulers.newBoundedElastic(1, 100, "test"),
+			new MVStore.Builder()
+				.fileStore(new OffHeapStore())
+		);
+
+		ops = new OpChecker();
+	}
+
+	@AfterEach
+	public void after()
+		throws IOException
+	{
+		store.close();
+	}
+
+	private TransactionLogImpl createLog(int bufferSizeInKiB)
+	{
+		TransactionLogApplier applier = new TransactionLogApplier(null, null, store, new StorageApplier()
+		{
+			@Override
+			public void transactionStart(long id)
+			{
+				ops.check("txStart");
+			}
+
+			@Override
+			public void store(String collection, Object id, InputStream data)
+				throws IOException
+			{
+				ops.check("store", collection, id, data);
+			}
+
+			@Override
+			public void storeBlob(String collection, Object id, InputStream data)
+				throws IOException
+			{
+				ops.check("storeBlob", collection, id, data);
+			}
+
+			@Override
+			public void delete(String collection, Object id)
+				throws IOException
+			{
+				ops.check("delete", collection, id);
+			}
+
+			@Override
+			public void index(String collection, String index, Object id, InputStream data)
+				throws IOException
+			{
+				ops.check("index", collection, index, id, data);
+			}
+
+			@Override
+			public void transactionComplete(long id, Throwable t)
+			{
+				ops.check("txComplete");
+			}
+		}, EngineConfig.GROUP_COMMIT_MAX_SIZE, EngineConfig.GROUP_COMMIT_WAIT, bufferSizeInKiB);
+
+		return new TransactionLogImpl(
+			DirectApplyLog.builder().build(applier),
+			new SimpleLongIdGenerator()
+		);
+	}
+
+	private MVMap<long[], TransactionOperation> openLog()
+	{
+		return store.openMap("tx.log", new MVMap.Builder<long[], TransactionOperation>()
+			.keyType(LongArrayFieldType.INSTANCE)
+			.valueType(new TransactionOperationType())
+		);
+	}
+
+	private ByteArrayInputStream generateData(int size)
+	{
+		byte[] out = new byte[size];
+		for(int i=0; i<size; i++)
+		{
+			out[i] = (byte) (i % 255);
+		}
+		return new ByteArrayInputStream(out);
+	}
+
+	@Test
+	public void testBufferedTransactionDoesNotUseLog()
+	{
+		TransactionLogImpl tx = createLog(EngineConfig.TRANSACTION_BUFFER_SIZE);
+
+		ops.expect("txStart");
+		ops.expect("store", "test", 1, generateData(1024));
+		ops.expect("txComplete");
+
+		long id = tx.startTransaction();
+		tx.store(id, "test", 1, generateData(1024)::transferTo);
+
+		assertThat(openLog().size(), is(0));
+
+		tx.commitTransaction(id);
+
+		ops.checkEmpty();
+		assertThat(openLog().size(), is(0));
+	}
+
+	@Test
+	public void testWithoutBuffer()
+	{
+		TransactionLogImpl tx = createLog(0);
+
+		ops.expect("txStart");
+		ops.expect("store", "test", 1, generateData(1024));
+		ops.expect("delete", "test", 2);
+		ops.expect("txComplete");
+
+		long id = tx.startTransaction();
+		tx.store(id, "test", 1, generateData(1024)::transferTo);
+		tx.delete(id, "test", 2);
+
+		assertThat(openLog().isEmpty(), is(false));
+
+		tx.commitTransaction(id);
+
+		ops.checkEmpty();
+		assertThat(openLog().size(), is(0));
+	}
+
+	@Test
+	public void testSpillWhenBufferIsFull()
+	{
+		TransactionLogImpl tx = createLog(64);
+
+		ops.expect("txStart");
+		for(int i=0; i<20; i++)
+		{
+			ops.expect("store", "test", i, generateData(4096));
+		}
+		ops.expect("txComplete");
+
+		long id = tx.startTransaction();
+		for(int i=0; i<20; i++)
+		{
+			tx.store(id, "test", i, generateData(4096)::transferTo);
+		}
+
+		assertThat(openLog().isEmpty(), is(false));
+
+		tx.commitTransaction(id);
+
+		ops.checkEmpty();
+		assertThat(openLog().size(), is(0));
+	}
+
+	@Test
+	public void testRollbackOfSpilledTransaction()
+	{
+		TransactionLogImpl tx = createLog(0);
+
+		long id = tx.startTransaction();
+		tx.store(id, "test", 1, generateData(1024)::transferTo);
+		tx.rollbackTransaction(id);
+
+		ops.checkEmpty();
+		assertThat(openLog().size(), is(0));
+	}
+}
@@ -0,0 +1,82 @@
+package se.l4.silo.engine.internal.tx;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.l4.silo.StorageTransactionException;
+
+/**
+ * Tests for {@link TransactionWaiterImpl}.
+ */
+public class TransactionWaiterImplTest
+{
+	@Test
+	public void testAppliedBeforeSubscribe()
+	{
+		TransactionWaiterImpl waiter = new TransactionWaiterImpl();
+
+		Mono<Void> mono = waiter.getWaiter(1);
+		waiter.complete(1, null);
+
+		// The result is kept until the mono is subscribed to
+		mono.block();
+
+		assertThat(waiter.size(), is(0));
+	}
+
+	@Test
+	public void testApplyFailure()
+	{
+		TransactionWaiterImpl waiter = new TransactionWaiterImpl();
+
+		Mono<Void> mono = waiter.getWaiter(1);
+		IOException cause = new IOException("Test failure");
+		waiter.complete(1, cause);
+
+		StorageTransactionException e = assertThrows(StorageTransactionException.class, mono::block);
+		assertThat(e.getCause(), instanceOf(IOException.class));
+		assertThat(waiter.size(), is(0));
+	}
+
+	@Test
+	public void testCancel()
+	{
+		TransactionWaiterImpl waiter = new TransactionWaiterImpl();
+
+		waiter.getWaiter(1);
+		waiter.cancel(1);
+
+		assertThat(waiter.size(), is(0));
+	}
+
+	@Test
+	public void testPublishedOnScheduler()
+	{
+		Scheduler scheduler = Schedulers.newSingle("waiter-test");
+		try
+		{
+			TransactionWaiterImpl waiter = new TransactionWaiterImpl(scheduler);
+
+			Mono<String> mono = waiter.getWaiter(1)
+				.then(Mono.fromCallable(() -> Thread.currentThread().getName()));
+
+			waiter.complete(1, null);
+
+			assertThat(mono.block(), startsWith("waiter-test"));
+		}
+		finally
+		{
+			scheduler.dispose();
+		}
+	}
+}
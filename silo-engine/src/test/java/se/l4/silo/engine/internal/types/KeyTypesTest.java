@@ -0,0 +1,137 @@
+package se.l4.silo.engine.internal.types;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link DataType}s used for keys of primary indexes.
+ */
+public class KeyTypesTest
+{
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(DataType type, T value)
+	{
+		WriteBuffer out = new WriteBuffer();
+		type.write(out, value);
+
+		ByteBuffer in = out.getBuffer();
+		in.flip();
+
+		T result = (T) type.read(in);
+		assertThat(in.remaining(), is(0));
+		return result;
+	}
+
+	@Test
+	public void testLongRoundTrip()
+	{
+		for(long value : new long[] { 0, 1, -1, 42, -42, Long.MIN_VALUE, Long.MAX_VALUE })
+		{
+			assertThat(roundTrip(LongKeyType.INSTANCE, value), is(value));
+		}
+	}
+
+	@Test
+	public void testLongCompare()
+	{
+		assertThat(LongKeyType.INSTANCE.compare(-1l, 1l), lessThan(0));
+		assertThat(LongKeyType.INSTANCE.compare(Long.MAX_VALUE, Long.MIN_VALUE), greaterThan(0));
+		assertThat(LongKeyType.INSTANCE.compare(-5l, -5l), is(0));
+	}
+
+	@Test
+	public void testIntRoundTrip()
+	{
+		for(int value : new int[] { 0, 1, -1, 42, -42, Integer.MIN_VALUE, Integer.MAX_VALUE })
+		{
+			assertThat(roundTrip(IntKeyType.INSTANCE, value), is(value));
+		}
+	}
+
+	@Test
+	public void testIntCompare()
+	{
+		assertThat(IntKeyType.INSTANCE.compare(-1, 1), lessThan(0));
+		assertThat(IntKeyType.INSTANCE.compare(Integer.MAX_VALUE, Integer.MIN_VALUE), greaterThan(0));
+		assertThat(IntKeyType.INSTANCE.compare(-5, -5), is(0));
+	}
+
+	@Test
+	public void testStringRoundTrip()
+	{
+		for(String value : new String[] { "", "a", "user-1", "åäö", "😀" })
+		{
+			assertThat(roundTrip(StringKeyType.INSTANCE, value), is(value));
+		}
+	}
+
+	@Test
+	public void testByteArrayRoundTrip()
+	{
+		byte[][] values = {
+			new byte[0],
+			new byte[] { 1, 2, 3 },
+			new byte[] { -1, -128, 127 },
+			"id".getBytes(StandardCharsets.UTF_8)
+		};
+
+		for(byte[] value : values)
+		{
+			assertThat(roundTrip(ByteArrayKeyType.INSTANCE, value), is(value));
+		}
+	}
+
+	@Test
+	public void testByteArrayCompareUnsigned()
+	{
+		assertThat(ByteArrayKeyType.INSTANCE.compare(new byte[] { 1 }, new byte[] { -1 }), lessThan(0));
+		assertThat(ByteArrayKeyType.INSTANCE.compare(new byte[] { 1 }, new byte[] { 1, 0 }), lessThan(0));
+		assertThat(ByteArrayKeyType.INSTANCE.compare(new byte[] { 1, 2 }, new byte[] { 1, 2 }), is(0));
+	}
+
+	@Test
+	public void testLongKeysInStore()
+	{
+		MVStore store = new MVStore.Builder()
+			.fileStore(new OffHeapStore())
+			.open();
+
+		try
+		{
+			MVMap<Object, Long> map = store.openMap("keys", new MVMap.Builder<Object, Long>()
+				.keyType(LongKeyType.INSTANCE)
+				.valueType(KeyLongType.INSTANCE)
+			);
+
+			map.put(10l, 1l);
+			map.put(-10l, 2l);
+			map.put(0l, 3l);
+			map.put(Long.MIN_VALUE, 4l);
+
+			List<Long> keys = new ArrayList<>();
+			map.keyIterator(null).forEachRemaining(key -> keys.add((Long) key));
+
+			assertThat(keys, contains(Long.MIN_VALUE, -10l, 0l, 10l));
+			assertThat(map.get(-10l), is(2l));
+		}
+		finally
+		{
+			store.close();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package se.l4.silo.engine.log;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ByteBufferLogEntry}.
+ */
+public class ByteBufferLogEntryTest
+{
+	private static byte[] read(ByteBuffer buffer)
+	{
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return data;
+	}
+
+	@Test
+	public void testGetDataCopiesRemaining()
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+		buffer.position(1);
+
+		ByteBufferLogEntry entry = new ByteBufferLogEntry(10, 20, buffer);
+		assertThat(entry.getPosition(), is(10l));
+		assertThat(entry.getTimestamp(), is(20l));
+		assertThat(entry.getData().toByteArray(), is(new byte[] { 2, 3, 4 }));
+
+		// The position of the buffer is not changed
+		assertThat(buffer.position(), is(1));
+	}
+
+	@Test
+	public void testGetDataCopiesSlice()
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+		buffer.position(2);
+
+		ByteBufferLogEntry entry = new ByteBufferLogEntry(0, buffer.slice());
+		assertThat(entry.getData().toByteArray(), is(new byte[] { 3, 4 }));
+	}
+
+	@Test
+	public void testGetDataCopiesDirectBuffer()
+		throws IOException
+	{
+		byte[] data = new byte[20_000];
+		for(int i=0; i<data.length; i++)
+		{
+			data[i] = (byte) i;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+
+		ByteBufferLogEntry entry = new ByteBufferLogEntry(0, buffer);
+		assertThat(entry.getData().toByteArray(), is(data));
+		assertThat(buffer.remaining(), is(data.length));
+	}
+
+	@Test
+	public void testGetDataIsNotAffectedByLaterChanges()
+		throws IOException
+	{
+		byte[] data = new byte[] { 1, 2, 3 };
+		ByteBufferLogEntry entry = new ByteBufferLogEntry(0, ByteBuffer.wrap(data));
+
+		byte[] copy = entry.getData().toByteArray();
+		data[0] = 9;
+
+		assertThat(copy, is(new byte[] { 1, 2, 3 }));
+	}
+
+	@Test
+	public void testGetBufferDoesNotMoveEntry()
+	{
+		ByteBufferLogEntry entry = new ByteBufferLogEntry(0, ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+		assertThat(read(entry.getBuffer()), is(new byte[] { 1, 2, 3 }));
+		assertThat(read(entry.getBuffer()), is(new byte[] { 1, 2, 3 }));
+	}
+}
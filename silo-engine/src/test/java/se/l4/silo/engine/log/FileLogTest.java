@@ -0,0 +1,266 @@
+package se.l4.silo.engine.log;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileLog}.
+ */
+public class FileLogTest
+{
+	@TempDir
+	protected Path tmp;
+
+	private static ByteBuffer entry(String value)
+	{
+		return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(LogEntry entry)
+		throws IOException
+	{
+		ByteBuffer buffer = entry.getBuffer();
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+
+	private Log open(List<String> received)
+	{
+		return FileLog.builder(tmp)
+			.withSegmentSizeInMiB(1)
+			.withSyncPolicy(FileLog.SyncPolicy.ALWAYS)
+			.build(entry -> received.add(entry.getPosition() + ":" + read(entry)));
+	}
+
+	private List<Path> segments()
+		throws IOException
+	{
+		try(Stream<Path> files = Files.list(tmp))
+		{
+			return files.filter(file -> file.toString().endsWith(".seg"))
+				.sorted()
+				.collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testAppend()
+		throws IOException
+	{
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.append(entry("a"));
+			log.append(entry("b"));
+		}
+
+		assertThat(received, is(List.of("0:a", "1:b")));
+	}
+
+	@Test
+	public void testRecoverAfterReopen()
+		throws IOException
+	{
+		try(Log log = open(new ArrayList<>()))
+		{
+			log.append(entry("a"));
+			log.append(entry("b"));
+		}
+
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.recover();
+			log.append(entry("c"));
+		}
+
+		assertThat(received, is(List.of("0:a", "1:b", "2:c")));
+	}
+
+	@Test
+	public void testPartialRecordIsDiscarded()
+		throws IOException
+	{
+		try(Log log = open(new ArrayList<>()))
+		{
+			log.append(entry("a"));
+			log.append(entry("b"));
+		}
+
+		// Simulate a crash in the middle of writing a record
+		Path segment = segments().get(0);
+		Files.write(segment, new byte[] { 0, 0, 0, 10, 1, 2 }, StandardOpenOption.APPEND);
+
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.recover();
+			log.append(entry("c"));
+		}
+
+		assertThat(received, is(List.of("0:a", "1:b", "2:c")));
+	}
+
+	@Test
+	public void testCheckpointRemovesAppliedSegments()
+		throws IOException
+	{
+		String data = String.join("", Collections.nCopies(64 * 1024, "a"));
+
+		try(Log log = open(new ArrayList<>()))
+		{
+			for(int i=0; i<40; i++)
+			{
+				log.append(entry(data));
+			}
+
+			assertThat(segments().size() > 1, is(true));
+
+			log.checkpoint(applied -> Long.MAX_VALUE);
+			assertThat(segments().size(), is(1));
+		}
+	}
+
+	@Test
+	public void testCheckpointKeepsNeededEntries()
+		throws IOException
+	{
+		String data = String.join("", Collections.nCopies(64 * 1024, "a"));
+
+		try(Log log = open(new ArrayList<>()))
+		{
+			for(int i=0; i<40; i++)
+			{
+				log.append(entry(data));
+			}
+
+			int count = segments().size();
+
+			// An active transaction started at the first entry
+			log.checkpoint(applied -> 0);
+			assertThat(segments().size(), is(count));
+		}
+
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.recover();
+		}
+
+		assertThat(received.size(), is(40));
+	}
+
+	@Test
+	public void testCheckpointSkipsAppliedEntries()
+		throws IOException
+	{
+		try(Log log = open(new ArrayList<>()))
+		{
+			log.append(entry("a"));
+			log.append(entry("b"));
+
+			log.checkpoint(applied -> {
+				assertThat(applied, is(2l));
+				return Long.MAX_VALUE;
+			});
+
+			log.append(entry("c"));
+		}
+
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.recover();
+		}
+
+		assertThat(received, is(List.of("2:c")));
+	}
+
+	@Test
+	public void testRecoveryStartsAtNeededEntry()
+		throws IOException
+	{
+		try(Log log = open(new ArrayList<>()))
+		{
+			log.append(entry("a"));
+			log.append(entry("b"));
+			log.append(entry("c"));
+
+			// An active transaction started at the second entry
+			log.checkpoint(applied -> 1);
+		}
+
+		List<String> received = new ArrayList<>();
+		try(Log log = open(received))
+		{
+			log.recover();
+		}
+
+		assertThat(received, is(List.of("1:b", "2:c")));
+	}
+
+	@Test
+	public void testConcurrentEntriesAppliedInOrder()
+		throws Exception
+	{
+		List<Long> positions = Collections.synchronizedList(new ArrayList<>());
+
+		int threads = 4;
+		int perThread = 200;
+
+		try(Log log = FileLog.builder(tmp).build(entry -> positions.add(entry.getPosition())))
+		{
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> started = new ArrayList<>();
+			for(int i=0; i<threads; i++)
+			{
+				Thread thread = new Thread(() -> {
+					try
+					{
+						start.await();
+						for(int j=0; j<perThread; j++)
+						{
+							log.append(entry("entry"));
+						}
+					}
+					catch(InterruptedException | IOException e)
+					{
+						throw new RuntimeException(e);
+					}
+				});
+
+				thread.start();
+				started.add(thread);
+			}
+
+			start.countDown();
+			for(Thread thread : started)
+			{
+				thread.join();
+			}
+		}
+
+		assertThat(positions.size(), is(threads * perThread));
+		for(int i=0; i<positions.size(); i++)
+		{
+			assertThat(positions.get(i), is((long) i));
+		}
+	}
+}
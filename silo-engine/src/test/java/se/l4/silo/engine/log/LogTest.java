@@ -0,0 +1,84 @@
+package se.l4.silo.engine.log;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.ylem.io.Bytes;
+
+/**
+ * Tests for the default methods of {@link Log}.
+ */
+public class LogTest
+{
+	@Test
+	public void testAppendBufferCopiesRemaining()
+		throws IOException
+	{
+		List<Bytes> appended = new ArrayList<>();
+		Log log = new BytesLog(appended);
+
+		byte[] data = new byte[] { 1, 2, 3, 4 };
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.position(1);
+
+		log.append(buffer);
+
+		// The buffer is only valid during the call, reuse it
+		data[1] = 9;
+		buffer.position(0);
+
+		assertThat(appended.size(), is(1));
+		assertThat(appended.get(0).toByteArray(), is(new byte[] { 2, 3, 4 }));
+	}
+
+	@Test
+	public void testAppendDirectBuffer()
+		throws IOException
+	{
+		List<Bytes> appended = new ArrayList<>();
+		Log log = new BytesLog(appended);
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+		buffer.put(new byte[] { 1, 2, 3 });
+		buffer.flip();
+
+		log.append(buffer);
+
+		buffer.clear();
+		buffer.put(new byte[] { 4, 5, 6 });
+
+		assertThat(appended.get(0).toByteArray(), is(new byte[] { 1, 2, 3 }));
+	}
+
+	/**
+	 * {@link Log} that only implements {@link Log#append(Bytes)}.
+	 */
+	private static class BytesLog
+		implements Log
+	{
+		private final List<Bytes> appended;
+
+		public BytesLog(List<Bytes> appended)
+		{
+			this.appended = appended;
+		}
+
+		@Override
+		public void append(Bytes bytes)
+		{
+			appended.add(bytes);
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+}
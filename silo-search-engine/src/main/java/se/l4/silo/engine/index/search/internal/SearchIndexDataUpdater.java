@@ -83,7 +83,7 @@ public class SearchIndexDataUpdater<T>
 	}
 
 	@Override
-	public void apply(long op, long id, InputStream rawIn)
+	public void replace(long op, long id, InputStream rawIn)
 		throws IOException
 	{
 		int version = rawIn.read();